@@ -0,0 +1,54 @@
+#!/bin/sh
+# Run the networks of a project with both the visitor interpreter and the
+# parallel interpreter, and compare the traces of their FIFOs.
+# The project must have been built, i.e. its .ir files must be in its bin
+# folder. The classpath must contain the simulators plugin and its
+# dependencies (for example the jars built by "mvn install").
+# Example: compare_simulators.sh "$CP" test/Pass 4
+
+if [ $# -lt 2 ] || [ $# -gt 3 ]; then
+  echo "$0 <classpath> <project folder> [number of threads]"
+  exit 1
+fi
+
+classpath=$1
+project=$2
+threads=${3:-4}
+if [ ! -e $project/VTL ] || [ ! -d $project/bin ]; then
+  echo "project must have a VTL source folder and a bin output folder"
+  exit 1
+fi
+
+vtl="$project/VTL:$project/bin"
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+
+status=0
+for xdf in $(cd $project/VTL && find . -name "*.xdf" | sort); do
+  network=$(echo $xdf | sed -e "s|^\./||" -e "s|\.xdf$||" -e "s|/|.|g")
+  mkdir -p "$work/$network/slow" "$work/$network/parallel"
+
+  timeout 600 java -cp "$classpath" net.sf.orcc.simulators.StandaloneSimulator \
+    -v "$vtl" -i /dev/null -n -e "$work/$network/slow" $network \
+    > "$work/$network/slow.log" 2>&1
+  slow=$?
+  timeout 600 java -cp "$classpath" net.sf.orcc.simulators.StandaloneSimulator \
+    -v "$vtl" -i /dev/null -n -t $threads -e "$work/$network/parallel" $network \
+    > "$work/$network/parallel.log" 2>&1
+  parallel=$?
+
+  if [ $slow -ne $parallel ]; then
+    echo "$network: FAILED, status $slow (visitor) vs $parallel (parallel)"
+    status=1
+  elif java -cp "$classpath" net.sf.orcc.simulators.slow.TraceComparator \
+    "$work/$network/slow" "$work/$network/parallel" \
+    > "$work/$network/compare.log" 2>&1; then
+    echo "$network: OK"
+  else
+    echo "$network: FAILED, traces differ"
+    cat "$work/$network/compare.log"
+    status=1
+  fi
+done
+
+exit $status
@@ -46,11 +46,15 @@ import static net.sf.orcc.OrccLaunchConstants.PROJECT;
 import static net.sf.orcc.OrccLaunchConstants.TRACES_FOLDER;
 import static net.sf.orcc.OrccLaunchConstants.XDF_FILE;
 import static net.sf.orcc.backends.BackendsConstants.ADDITIONAL_TRANSFOS;
+import static net.sf.orcc.backends.BackendsConstants.CACHE;
 import static net.sf.orcc.backends.BackendsConstants.CONVERT_MULTI2MONO;
 import static net.sf.orcc.backends.BackendsConstants.LLVM_TARGET_DATALAYOUT;
 import static net.sf.orcc.backends.BackendsConstants.LLVM_TARGET_TRIPLE;
 import static net.sf.orcc.backends.BackendsConstants.NEW_SCHEDULER;
 import static net.sf.orcc.backends.BackendsConstants.PAPIFY;
+import static net.sf.orcc.backends.BackendsConstants.PARALLEL;
+import static net.sf.orcc.backends.BackendsConstants.PASSES_REPORT;
+import static net.sf.orcc.backends.BackendsConstants.PASSES_REPORT_ENABLE;
 import static net.sf.orcc.backends.BackendsConstants.PROFILE;
 import static net.sf.orcc.backends.BackendsConstants.TTA_PROCESSORS_CONFIGURATION;
 import static net.sf.orcc.backends.BackendsConstants.LINK_NATIVE_LIBRARY;
@@ -63,17 +67,30 @@ import static net.sf.orcc.util.OrccUtil.getFile;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.backends.util.GenerationCache;
+import net.sf.orcc.backends.util.PassProfiler;
 import net.sf.orcc.backends.util.Validator;
 import net.sf.orcc.df.Actor;
 import net.sf.orcc.df.Instance;
 import net.sf.orcc.df.Network;
+import net.sf.orcc.df.Unit;
 import net.sf.orcc.df.util.DfVisitor;
 import net.sf.orcc.df.util.NetworkValidator;
 import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.ir.InstCall;
+import net.sf.orcc.ir.Use;
 import net.sf.orcc.ir.util.ValueUtil;
 import net.sf.orcc.util.FilesManager;
 import net.sf.orcc.util.OrccLogger;
@@ -103,6 +120,7 @@ import org.eclipse.core.runtime.Platform;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
 import org.osgi.framework.Bundle;
@@ -153,6 +171,15 @@ import org.osgi.framework.Bundle;
  * {@link #doAdditionalGeneration(Instance)}</li>
  * </ol>
  * 
+ * <p>
+ * In parallel mode, children are transformed concurrently if the back-end
+ * implements {@link #createChildrenTransfos()} and all the transformations are
+ * {@link net.sf.orcc.df.util.ActorLocal}, and they are generated concurrently
+ * if {@link #canGenerateInParallel()} returns true. Units must have been
+ * imported in the children by the network transformations, otherwise the
+ * children are transformed serially.
+ * </p>
+ * 
  * @author Matthieu Wipliez
  * @author Antoine Lorence
  * 
@@ -200,6 +227,7 @@ public abstract class AbstractBackend implements Backend, IApplication {
 	protected boolean mergeActions;
 	protected boolean mergeActors;
 	protected boolean convertMulti2Mono;
+	protected boolean parallel;
 
 	/**
 	 * Path where output files will be written
@@ -220,6 +248,11 @@ public abstract class AbstractBackend implements Backend, IApplication {
 	 */
 	protected IProgressMonitor monitor;
 
+	/**
+	 * Records the time and memory used by each pass, or <code>null</code>
+	 */
+	private PassProfiler profiler;
+
 	/**
 	 * Construct a new standard back-end.
 	 */
@@ -256,6 +289,9 @@ public abstract class AbstractBackend implements Backend, IApplication {
 		// New ResourceSet for a new compilation
 		currentResourceSet = new ResourceSetImpl();
 
+		// Time and memory used by each pass
+		profiler = getOption(PASSES_REPORT_ENABLE, false) ? new PassProfiler() : null;
+
 		// Initialize the monitor. Can be used to stop the back-end
 		// execution and provide feedback to user
 		monitor = progressMonitor;
@@ -337,8 +373,13 @@ public abstract class AbstractBackend implements Backend, IApplication {
 			stopIfRequested();
 			OrccLogger.traceln("Network generation");
 			final long t0 = System.currentTimeMillis();
+			final long bytes = profiler == null ? 0 : profiler.getAllocatedBytes();
+			final long start = System.nanoTime();
 			final Result result = doGenerateNetwork(network);
 			result.merge(doAdditionalGeneration(network));
+			if (profiler != null) {
+				profiler.record("Network generation", network, start, bytes);
+			}
 			OrccLogger.traceln("Done in " + getDuration(t0) + "s. " + result);
 		}
 
@@ -366,51 +407,73 @@ public abstract class AbstractBackend implements Backend, IApplication {
 				stopIfRequested();
 				OrccLogger.traceln("Actors transformations");
 				final long t0 = System.currentTimeMillis();
-				applyTransformations(actors, childrenTransfos, debug);
+				transformChildren(actors);
 				OrccLogger.traceln("Done in " + getDuration(t0) + "s");
 			}
 
 			stopIfRequested();
 			OrccLogger.traceln("Actors generation");
 			final long t0 = System.currentTimeMillis();
-			final Result result = Result.newInstance();
-			for (final Actor actor : actors) {
-				beforeGeneration(actor);
-				result.merge(doGenerateActor(actor));
-				result.merge(doAdditionalGeneration(actor));
-			}
+			final Result result = generateChildren(actors);
 			OrccLogger.traceln("Done in " + getDuration(t0) + "s. " + result);
 		}
 		// -----------------------------------------------------
 		// Standard back-ends children level code generation
 		// -----------------------------------------------------
 		else {
+			List<Vertex> children = network.getChildren();
+			List<Actor> actors = network.getAllActors();
+			final Result result = Result.newInstance();
 
-			if (!childrenTransfos.isEmpty()) {
+			GenerationCache cache = null;
+			if (getOption(CACHE, false)) {
+				stopIfRequested();
+				OrccLogger.traceln("Compute the list of children to generate");
+				final long t0 = System.currentTimeMillis();
+				cache = new GenerationCache(outputPath, orccVersion + " "
+						+ getClass().getName(), getOptions());
+
+				// Up-to-date children are neither transformed nor generated
+				final Set<Actor> outdatedActors = new HashSet<Actor>();
+				final Set<Actor> upToDateActors = new HashSet<Actor>();
+				children = new ArrayList<Vertex>();
+				for (final Vertex vertex : network.getChildren()) {
+					final List<File> files = getGeneratedFiles(vertex);
+					final Actor actor = vertex.getAdapter(Actor.class);
+					if (cache.isUpToDate(vertex, files)) {
+						upToDateActors.add(actor);
+						for (int i = 0; i < files.size(); i++) {
+							result.merge(Result.newCachedInstance());
+						}
+					} else {
+						outdatedActors.add(actor);
+						children.add(vertex);
+					}
+				}
+
+				// An actor shared with an outdated child is transformed
+				upToDateActors.removeAll(outdatedActors);
+				actors = new ArrayList<Actor>(actors);
+				actors.removeAll(upToDateActors);
+				OrccLogger.traceln("Done in " + getDuration(t0) + "s. "
+						+ children.size() + " of " + network.getChildren().size()
+						+ " children are outdated");
+			}
+
+			if (!childrenTransfos.isEmpty() && !actors.isEmpty()) {
 				stopIfRequested();
 				OrccLogger.traceln("Children transformations");
 				final long t0 = System.currentTimeMillis();
-				applyTransformations(network.getAllActors(), childrenTransfos, debug);
+				transformChildren(actors);
 				OrccLogger.traceln("Done in " + getDuration(t0) + "s");
 			}
 
 			stopIfRequested();
 			OrccLogger.traceln("Children generation");
 			final long t0 = System.currentTimeMillis();
-			final Result result = Result.newInstance();
-			for (final Vertex vertex : network.getChildren()) {
-				stopIfRequested();
-				final Instance instance = vertex.getAdapter(Instance.class);
-				final Actor actor = vertex.getAdapter(Actor.class);
-				if (instance != null) {
-					beforeGeneration(instance);
-					result.merge(doGenerateInstance(instance));
-					result.merge(doAdditionalGeneration(instance));
-				} else if (actor != null) {
-					beforeGeneration(actor);
-					result.merge(doGenerateActor(actor));
-					result.merge(doAdditionalGeneration(actor));
-				}
+			result.merge(generateChildren(children));
+			if (cache != null) {
+				cache.save();
 			}
 
 			OrccLogger.traceln("Done in " + getDuration(t0) + "s. " + result);
@@ -421,6 +484,13 @@ public abstract class AbstractBackend implements Backend, IApplication {
 		// -----------------------------------------------------
 		afterGeneration(network);
 
+		if (profiler != null) {
+			OrccLogger.traceln("Passes report");
+			profiler.printReport();
+			FilesManager.writeFile(profiler.getJsonContent(), outputPath, PASSES_REPORT);
+			profiler = null;
+		}
+
 		OrccLogger.traceln("Orcc backend done.");
 	}
 
@@ -544,13 +614,295 @@ public abstract class AbstractBackend implements Backend, IApplication {
 	final protected void applyTransformations(EObject object, Iterable<DfVisitor<?>> transformations,
 			boolean validate) {
 		for (final DfVisitor<?> transformation : transformations) {
+			final long bytes = profiler == null ? 0 : profiler.getAllocatedBytes();
+			final long start = System.nanoTime();
 			transformation.doSwitch(object);
+			if (profiler != null) {
+				profiler.record(transformation.toString(), object, start, bytes);
+			}
 			if (validate) {
 				OrccUtil.validateObject(transformation + " on " + object, object);
 			}
 		}
 	}
 
+	/**
+	 * Returns true if {@link #doGenerateActor(Actor)},
+	 * {@link #doGenerateInstance(Instance)} and the associated
+	 * <code>doAdditionalGeneration</code> callbacks can be called concurrently
+	 * on different children, i.e. if they do not share printers or other state
+	 * between children. These methods must not modify the IR either, since
+	 * instances of the same actor share it: any modification must be done in
+	 * <code>beforeGeneration</code>, which is always called serially on all
+	 * children before they are generated. The default implementation returns
+	 * false.
+	 * 
+	 * @return true if children can be generated concurrently
+	 */
+	protected boolean canGenerateInParallel() {
+		return false;
+	}
+
+	/**
+	 * Returns the files generated for the given child by
+	 * {@link #doGenerateInstance(Instance)} or {@link #doGenerateActor(Actor)}
+	 * and the associated callbacks. The generation cache only skips children
+	 * whose files are known and still exist. The default implementation
+	 * returns <code>null</code>, and children are always generated.
+	 * 
+	 * @param vertex
+	 *            an instance or an actor
+	 * @return the files generated for the given child, or <code>null</code>
+	 */
+	protected List<File> getGeneratedFiles(Vertex vertex) {
+		return null;
+	}
+
+	/**
+	 * Returns a new list of the transformations to apply on each child, equal
+	 * to {@link #childrenTransfos}. In parallel mode, this method is called
+	 * once by each thread, since transformations keep some state while they
+	 * visit an actor. The default implementation returns <code>null</code>,
+	 * and children are then transformed serially.
+	 * 
+	 * @return a new list of transformations, or <code>null</code>
+	 */
+	protected List<DfVisitor<?>> createChildrenTransfos() {
+		return null;
+	}
+
+	/**
+	 * Generates the given child, which is an instance or an actor.
+	 * {@link #prepareChild(Vertex)} must have been called on it before.
+	 * 
+	 * @param vertex
+	 *            a child of the network, or an actor of a VTL
+	 * @return The generation Result object
+	 */
+	private Result generateChild(Vertex vertex) {
+		final Result result = Result.newInstance();
+		final Instance instance = vertex.getAdapter(Instance.class);
+		final Actor actor = vertex.getAdapter(Actor.class);
+		final long bytes = profiler == null ? 0 : profiler.getAllocatedBytes();
+		final long start = System.nanoTime();
+		if (instance != null) {
+			result.merge(doGenerateInstance(instance));
+			result.merge(doAdditionalGeneration(instance));
+			if (profiler != null) {
+				profiler.record("Instance generation", vertex, start, bytes);
+			}
+		} else if (actor != null) {
+			result.merge(doGenerateActor(actor));
+			result.merge(doAdditionalGeneration(actor));
+			if (profiler != null) {
+				profiler.record("Actor generation", vertex, start, bytes);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Generates the given children, concurrently in parallel mode if the
+	 * back-end supports it. In that case, all children are first prepared
+	 * serially, since preparing a child may modify the actor it shares with
+	 * other instances.
+	 * 
+	 * @param children
+	 *            instances or actors
+	 * @return The generation Result object
+	 */
+	private Result generateChildren(List<? extends Vertex> children) {
+		final Result result = Result.newInstance();
+		if (parallel && canGenerateInParallel()) {
+			final List<Callable<Result>> tasks = new ArrayList<Callable<Result>>();
+			for (final Vertex vertex : children) {
+				stopIfRequested();
+				prepareChild(vertex);
+				tasks.add(new Callable<Result>() {
+					@Override
+					public Result call() {
+						stopIfRequested();
+						return generateChild(vertex);
+					}
+				});
+			}
+
+			for (Result childResult : invokeAll(tasks)) {
+				result.merge(childResult);
+			}
+		} else {
+			for (final Vertex vertex : children) {
+				stopIfRequested();
+				prepareChild(vertex);
+				result.merge(generateChild(vertex));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the given tasks on a pool of threads, and returns their results in
+	 * the order of the tasks. The first exception thrown by a task is
+	 * rethrown.
+	 * 
+	 * @param tasks
+	 *            a list of tasks
+	 * @return the results of the tasks
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+		final ExecutorService executor = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors());
+		try {
+			final List<T> results = new ArrayList<T>(tasks.size());
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new OrccRuntimeException("Parallel back-end task failed", cause);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns true if the given transformations can replace
+	 * {@link #childrenTransfos} in a thread of the parallel mode. This assumes
+	 * that the units have been imported in the children by
+	 * {@link net.sf.orcc.df.transform.UnitImporter}: copying or removing code
+	 * that references a unit modifies the uses of the variables of this unit,
+	 * which are shared by all the children. This is checked separately by
+	 * {@link #referencesUnits(List)}.
+	 * 
+	 * @param transfos
+	 *            transformations returned by {@link #createChildrenTransfos()}
+	 * @return true if the given transformations are all actor-local and equal
+	 *         to {@link #childrenTransfos}
+	 */
+	private boolean isParallelizable(List<DfVisitor<?>> transfos) {
+		if (transfos == null || transfos.size() != childrenTransfos.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < transfos.size(); i++) {
+			final DfVisitor<?> transfo = transfos.get(i);
+			final DfVisitor<?> expected = childrenTransfos.get(i);
+			if (!transfo.isActorLocal() || transfo.getClass() != expected.getClass()
+					|| !transfo.toString().equals(expected.toString())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calls the <code>beforeGeneration</code> callback corresponding to the
+	 * given child, which is an instance or an actor.
+	 * 
+	 * @param vertex
+	 *            a child of the network, or an actor of a VTL
+	 */
+	private void prepareChild(Vertex vertex) {
+		final Instance instance = vertex.getAdapter(Instance.class);
+		final Actor actor = vertex.getAdapter(Actor.class);
+		if (instance != null) {
+			beforeGeneration(instance);
+		} else if (actor != null) {
+			beforeGeneration(actor);
+		}
+	}
+
+	/**
+	 * Returns true if one of the given actors still uses a variable or calls
+	 * a procedure defined in a unit.
+	 * 
+	 * @param actors
+	 *            a list of actors
+	 * @return true if units have not been imported in all the actors
+	 */
+	private boolean referencesUnits(List<Actor> actors) {
+		for (Actor actor : actors) {
+			final Iterator<EObject> it = actor.eAllContents();
+			while (it.hasNext()) {
+				final EObject object = it.next();
+				EObject referenced = null;
+				if (object instanceof Use) {
+					referenced = ((Use) object).getVariable();
+				} else if (object instanceof InstCall) {
+					referenced = ((InstCall) object).getProcedure();
+				}
+				if (referenced != null
+						&& EcoreHelper.getContainerOfType(referenced, Unit.class) != null) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Applies {@link #childrenTransfos} on the given actors. In parallel mode,
+	 * each actor is transformed by a task, with the transformations created for
+	 * the thread running the task.
+	 * 
+	 * @param actors
+	 *            a list of actors
+	 */
+	private void transformChildren(List<Actor> actors) {
+		if (!parallel || actors.size() < 2) {
+			applyTransformations(actors, childrenTransfos, debug);
+			return;
+		}
+
+		if (!isParallelizable(createChildrenTransfos())) {
+			OrccLogger.debugln("Children transformations are not all actor-local, "
+					+ "they are applied serially");
+			applyTransformations(actors, childrenTransfos, debug);
+			return;
+		}
+
+		// Resolving a proxy modifies the object that references it, and may
+		// load a resource in the shared resource set: this must be done
+		// before actors are visited concurrently
+		EcoreUtil.resolveAll(currentResourceSet);
+
+		if (referencesUnits(actors)) {
+			OrccLogger.debugln("Units are not imported in the children, "
+					+ "they are transformed serially");
+			applyTransformations(actors, childrenTransfos, debug);
+			return;
+		}
+
+		final ThreadLocal<List<DfVisitor<?>>> transfos = new ThreadLocal<List<DfVisitor<?>>>() {
+			@Override
+			protected List<DfVisitor<?>> initialValue() {
+				return createChildrenTransfos();
+			}
+		};
+
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final Actor actor : actors) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					stopIfRequested();
+					applyTransformations(actor, transfos.get(), debug);
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+	}
+
 	/**
 	 * Returns the boolean-valued option with the given name. Returns the given
 	 * default value if the option is undefined.
@@ -766,6 +1118,7 @@ public abstract class AbstractBackend implements Backend, IApplication {
 		mergeActors = classify && getOption(MERGE_ACTORS, false);
 
 		convertMulti2Mono = getOption(CONVERT_MULTI2MONO, false);
+		parallel = getOption(PARALLEL, false);
 
 		String outputFolder = getOption(OUTPUT_FOLDER, "");
 		if (outputFolder.isEmpty()) {
@@ -830,6 +1183,9 @@ public abstract class AbstractBackend implements Backend, IApplication {
 
 		// FIXME: choose independently the transformation to apply
 		options.addOption("t", "transfo_add", false, "Execute additional transformations before generate code");
+		options.addOption("par", "parallel", false, "Transform and generate the children on all available processors");
+		options.addOption("cache", "cache", false, "Do not transform nor generate children unchanged since the last run");
+		options.addOption("passes", "passes-report", false, "Report the time and memory used by each transformation");
 
 		try {
 			CommandLineParser parser = new PosixParser();
@@ -917,6 +1273,9 @@ public abstract class AbstractBackend implements Backend, IApplication {
 			optionMap.put(NEW_SCHEDULER, line.hasOption("as"));
 			optionMap.put(CONVERT_MULTI2MONO, line.hasOption("m2m"));
 			optionMap.put(ADDITIONAL_TRANSFOS, line.hasOption('t'));
+			optionMap.put(PARALLEL, line.hasOption("par"));
+			optionMap.put(CACHE, line.hasOption("cache"));
+			optionMap.put(PASSES_REPORT_ENABLE, line.hasOption("passes"));
 			optionMap.put(PROFILE, line.hasOption("prof"));
 			optionMap.put(PAPIFY, line.hasOption("papify"));
 			
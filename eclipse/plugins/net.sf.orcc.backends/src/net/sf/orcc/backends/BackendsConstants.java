@@ -40,6 +40,10 @@ public class BackendsConstants {
 	
 	public static final String CONVERT_MULTI2MONO = "net.sf.orcc.backends.multi2mono";
 	public static final String ADDITIONAL_TRANSFOS = "net.sf.orcc.backends.add_transfos";
+	public static final String PARALLEL = "net.sf.orcc.backends.parallel";
+	public static final String CACHE = "net.sf.orcc.backends.cache";
+	public static final String PASSES_REPORT_ENABLE = "net.sf.orcc.backends.passesReport";
+	public static final String PASSES_REPORT = "passes.json";
 
 	public static final String INLINE = "net.sf.orcc.backends.inline";
 	public static final String INLINE_NOTACTIONS = "net.sf.orcc.backends.inline.notActions";
@@ -32,9 +32,14 @@ import static net.sf.orcc.OrccLaunchConstants.ENABLE_TRACES;
 import static net.sf.orcc.backends.BackendsConstants.ADDITIONAL_TRANSFOS;
 import static net.sf.orcc.backends.BackendsConstants.BXDF_FILE;
 import static net.sf.orcc.backends.BackendsConstants.IMPORT_BXDF;
+import static net.sf.orcc.backends.BackendsConstants.PAPIFY;
+import static net.sf.orcc.util.OrccAttributes.PAPIFY_ATTRIBUTE;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.Platform;
@@ -58,6 +63,7 @@ import net.sf.orcc.backends.transform.StoreOnceTransformation;
 import net.sf.orcc.backends.util.Alignable;
 import net.sf.orcc.backends.util.BroadcastMapper;
 import net.sf.orcc.backends.util.Mapping;
+import net.sf.orcc.df.Action;
 import net.sf.orcc.df.Actor;
 import net.sf.orcc.df.Instance;
 import net.sf.orcc.df.Network;
@@ -71,6 +77,7 @@ import net.sf.orcc.df.transform.SharedVarsDetection;
 import net.sf.orcc.df.transform.TypeResizer;
 import net.sf.orcc.df.transform.UnitImporter;
 import net.sf.orcc.df.util.DfVisitor;
+import net.sf.orcc.graph.Vertex;
 import net.sf.orcc.ir.CfgNode;
 import net.sf.orcc.ir.Expression;
 import net.sf.orcc.ir.transform.BlockCombine;
@@ -109,7 +116,7 @@ public class CBackend extends AbstractBackend {
 
 	private final NetworkPrinter networkPrinter;
 	private final CMakePrinter cmakePrinter;
-	private final InstancePrinter instancePrinter;
+	private final ThreadLocal<InstancePrinter> instancePrinter;
 
 	private final TracesPrinter tracesPrinter;
 	private final StatisticsPrinter statsPrinter;
@@ -117,7 +124,15 @@ public class CBackend extends AbstractBackend {
 	public CBackend() {
 		networkPrinter = new NetworkPrinter();
 		cmakePrinter = new CMakePrinter();
-		instancePrinter = new InstancePrinter();
+		// Instances may be printed concurrently in parallel mode
+		instancePrinter = new ThreadLocal<InstancePrinter>() {
+			@Override
+			protected InstancePrinter initialValue() {
+				final InstancePrinter printer = new InstancePrinter();
+				printer.setOptions(getOptions());
+				return printer;
+			}
+		};
 
 		tracesPrinter = new TracesPrinter();
 		statsPrinter = new StatisticsPrinter();
@@ -130,7 +145,7 @@ public class CBackend extends AbstractBackend {
 
 		// Load options map into code generator instances
 		networkPrinter.setOptions(getOptions());
-		instancePrinter.setOptions(getOptions());
+		instancePrinter.remove();
 		tracesPrinter.setOptions(getOptions());
 
 		// -----------------------------------------------------
@@ -165,45 +180,73 @@ public class CBackend extends AbstractBackend {
 		// -------------------------------------------------------------------
 		// Transformations that will be applied on children (instances/actors)
 		// -------------------------------------------------------------------
+		childrenTransfos.addAll(createChildrenTransfos());
+	}
+
+	@Override
+	protected boolean canGenerateInParallel() {
+		// Sub-classes may generate children with printers of their own. The
+		// IR is only modified by beforeGeneration, which is called serially
+		return getClass() == CBackend.class;
+	}
+
+	@Override
+	protected List<File> getGeneratedFiles(Vertex vertex) {
+		// Sub-classes may generate other files for each child
+		if (getClass() != CBackend.class) {
+			return null;
+		}
+		final Instance instance = vertex.getAdapter(Instance.class);
+		final String name = instance != null ? instance.getSimpleName() : vertex.getAdapter(Actor.class)
+				.getSimpleName();
+		return Collections.singletonList(new File(srcPath, name + ".c"));
+	}
+
+	@Override
+	protected List<DfVisitor<?>> createChildrenTransfos() {
+		final List<DfVisitor<?>> transfos = new ArrayList<DfVisitor<?>>();
+
 		if (mergeActions) {
-			childrenTransfos.add(new ActionMerger());
+			transfos.add(new ActionMerger());
 		}
 		if (convertMulti2Mono) {
-			childrenTransfos.add(new Multi2MonoToken());
+			transfos.add(new Multi2MonoToken());
 		}
-		childrenTransfos.add(new DfVisitor<Void>(new InlinerByAnnotation()));
-		childrenTransfos.add(new DfVisitor<Void>(new LoopUnrolling()));
+		transfos.add(new DfVisitor<Void>(new InlinerByAnnotation()));
+		transfos.add(new DfVisitor<Void>(new LoopUnrolling()));
 
 		// If "-t" option is passed to command line, apply additional
 		// transformations
 		if (getOption(ADDITIONAL_TRANSFOS, false)) {
-			childrenTransfos.add(new StoreOnceTransformation());
-			childrenTransfos.add(new DfVisitor<Void>(new SSATransformation()));
-			childrenTransfos.add(new DfVisitor<Void>(new PhiRemoval()));
-			childrenTransfos.add(new Multi2MonoToken());
-			childrenTransfos.add(new DivisionSubstitution());
-			childrenTransfos.add(new ParameterImporter());
-			childrenTransfos.add(new DfVisitor<Void>(new Inliner(true, true)));
+			transfos.add(new StoreOnceTransformation());
+			transfos.add(new DfVisitor<Void>(new SSATransformation()));
+			transfos.add(new DfVisitor<Void>(new PhiRemoval()));
+			transfos.add(new Multi2MonoToken());
+			transfos.add(new DivisionSubstitution());
+			transfos.add(new ParameterImporter());
+			transfos.add(new DfVisitor<Void>(new Inliner(true, true)));
 
 			// transformations.add(new UnaryListRemoval());
 			// transformations.add(new GlobalArrayInitializer(true));
 
-			childrenTransfos.add(new DfVisitor<Void>(new InstTernaryAdder()));
-			childrenTransfos.add(new DeadGlobalElimination());
-
-			childrenTransfos.add(new DfVisitor<Void>(new DeadVariableRemoval()));
-			childrenTransfos.add(new DfVisitor<Void>(new DeadCodeElimination()));
-			childrenTransfos.add(new DfVisitor<Void>(new DeadVariableRemoval()));
-			childrenTransfos.add(new DfVisitor<Void>(new ListFlattener()));
-			childrenTransfos.add(new DfVisitor<Expression>(new TacTransformation()));
-			childrenTransfos.add(new DfVisitor<CfgNode>(new ControlFlowAnalyzer()));
-			childrenTransfos.add(new DfVisitor<Void>(new InstPhiTransformation()));
-			childrenTransfos.add(new DfVisitor<Void>(new EmptyBlockRemover()));
-			childrenTransfos.add(new DfVisitor<Void>(new BlockCombine()));
-
-			childrenTransfos.add(new DfVisitor<Expression>(new CastAdder(true, true)));
-			childrenTransfos.add(new DfVisitor<Void>(new SSAVariableRenamer()));
+			transfos.add(new DfVisitor<Void>(new InstTernaryAdder()));
+			transfos.add(new DeadGlobalElimination());
+
+			transfos.add(new DfVisitor<Void>(new DeadVariableRemoval()));
+			transfos.add(new DfVisitor<Void>(new DeadCodeElimination()));
+			transfos.add(new DfVisitor<Void>(new DeadVariableRemoval()));
+			transfos.add(new DfVisitor<Void>(new ListFlattener()));
+			transfos.add(new DfVisitor<Expression>(new TacTransformation()));
+			transfos.add(new DfVisitor<CfgNode>(new ControlFlowAnalyzer()));
+			transfos.add(new DfVisitor<Void>(new InstPhiTransformation()));
+			transfos.add(new DfVisitor<Void>(new EmptyBlockRemover()));
+			transfos.add(new DfVisitor<Void>(new BlockCombine()));
+
+			transfos.add(new DfVisitor<Expression>(new CastAdder(true, true)));
+			transfos.add(new DfVisitor<Void>(new SSAVariableRenamer()));
 		}
+
+		return transfos;
 	}
 
 	protected Map<String, String> getRenameMap() {
@@ -308,23 +351,50 @@ public class CBackend extends AbstractBackend {
 	protected void beforeGeneration(Instance instance) {
 		// update "vectorizable" information
 		Alignable.setAlignability(instance.getActor());
+		setPapifyActions(instance.getActor());
 	}
 
 	@Override
 	protected Result doGenerateInstance(Instance instance) {
-		instancePrinter.setInstance(instance);
-		return FilesManager.writeFile(instancePrinter.getFileContent(), srcPath, instance.getSimpleName() + ".c");
+		final InstancePrinter printer = instancePrinter.get();
+		printer.setInstance(instance);
+		return FilesManager.writeFile(printer.getFileContent(), srcPath, instance.getSimpleName() + ".c");
 	}
 
 	@Override
 	protected void beforeGeneration(Actor actor) {
 		// update "vectorizable" information
 		Alignable.setAlignability(actor);
+		setPapifyActions(actor);
+	}
+
+	/**
+	 * Marks all the actions of the given actor as papified when the actor is
+	 * papified but none of its actions is. The instance printer would do it
+	 * otherwise, but it must not modify actors shared between instances that
+	 * are printed concurrently.
+	 * 
+	 * @param actor
+	 *            an actor
+	 */
+	private void setPapifyActions(Actor actor) {
+		if (!getOption(PAPIFY, false) || !actor.hasAttribute(PAPIFY_ATTRIBUTE)) {
+			return;
+		}
+		for (final Action action : actor.getActions()) {
+			if (action.hasAttribute(PAPIFY_ATTRIBUTE)) {
+				return;
+			}
+		}
+		for (final Action action : actor.getActions()) {
+			action.addAttribute(PAPIFY_ATTRIBUTE);
+		}
 	}
 
 	@Override
 	protected Result doGenerateActor(Actor actor) {
-		instancePrinter.setActor(actor);
-		return FilesManager.writeFile(instancePrinter.getFileContent(), srcPath, actor.getSimpleName() + ".c");
+		final InstancePrinter printer = instancePrinter.get();
+		printer.setActor(actor);
+		return FilesManager.writeFile(printer.getFileContent(), srcPath, actor.getSimpleName() + ".c");
 	}
 }
@@ -34,6 +34,7 @@ import java.util.List;
 import net.sf.orcc.OrccRuntimeException;
 import net.sf.orcc.backends.ir.InstCast;
 import net.sf.orcc.backends.ir.IrSpecificFactory;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Arg;
 import net.sf.orcc.ir.ArgByVal;
 import net.sf.orcc.ir.Block;
@@ -81,7 +82,8 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  * @author Matthieu Wipliez
  * 
  */
-public class CastAdder extends AbstractIrVisitor<Expression> {
+public class CastAdder extends AbstractIrVisitor<Expression> implements
+		ActorLocal {
 
 	private final static IrFactory factory = IrFactory.eINSTANCE;
 	private final static IrSpecificFactory factorySpec = IrSpecificFactory.eINSTANCE;
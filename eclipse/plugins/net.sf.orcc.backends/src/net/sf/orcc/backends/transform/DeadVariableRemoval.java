@@ -29,6 +29,7 @@
 package net.sf.orcc.backends.transform;
 
 import net.sf.orcc.backends.ir.InstTernary;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Var;
 import net.sf.orcc.util.Void;
 
@@ -42,7 +43,7 @@ import org.eclipse.emf.ecore.EObject;
  * 
  */
 public class DeadVariableRemoval extends
-		net.sf.orcc.ir.transform.DeadVariableRemoval {
+		net.sf.orcc.ir.transform.DeadVariableRemoval implements ActorLocal {
 
 	/*
 	 * (non-Javadoc)
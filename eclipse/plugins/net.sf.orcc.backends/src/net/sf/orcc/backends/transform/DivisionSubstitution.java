@@ -34,6 +34,7 @@ import java.util.List;
 
 import net.sf.orcc.df.Action;
 import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.df.util.DfVisitor;
 import net.sf.orcc.ir.Block;
 import net.sf.orcc.ir.BlockBasic;
@@ -63,7 +64,8 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  * @author Endri Bezati
  * 
  */
-public class DivisionSubstitution extends DfVisitor<Void> {
+public class DivisionSubstitution extends DfVisitor<Void> implements
+		ActorLocal {
 	private IrFactory factory = IrFactory.eINSTANCE;
 	private Procedure divProc;
 
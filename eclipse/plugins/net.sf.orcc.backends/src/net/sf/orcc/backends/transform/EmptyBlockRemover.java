@@ -28,6 +28,7 @@
  */
 package net.sf.orcc.backends.transform;
 
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.BlockIf;
 import net.sf.orcc.ir.BlockWhile;
 import net.sf.orcc.ir.IrFactory;
@@ -40,7 +41,8 @@ import net.sf.orcc.util.Void;
  * @author Herve Yviquel
  * @author Jerome Gorin
  */
-public class EmptyBlockRemover extends AbstractIrVisitor<Void> {
+public class EmptyBlockRemover extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	private static IrFactory factory = IrFactory.eINSTANCE;
 
@@ -34,6 +34,7 @@ import java.util.Map;
 
 import net.sf.orcc.backends.ir.InstTernary;
 import net.sf.orcc.df.Action;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Arg;
 import net.sf.orcc.ir.ArgByRef;
 import net.sf.orcc.ir.ArgByVal;
@@ -77,7 +78,7 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  * @version 1.1
  * 
  */
-public class Inliner extends AbstractIrVisitor<Void> {
+public class Inliner extends AbstractIrVisitor<Void> implements ActorLocal {
 	private class ExpressionUpdater extends AbstractIrVisitor<Void> {
 
 		public ExpressionUpdater() {
@@ -32,6 +32,7 @@ import java.util.List;
 
 import net.sf.orcc.backends.ir.InstTernary;
 import net.sf.orcc.backends.ir.IrSpecificFactory;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.ExprVar;
 import net.sf.orcc.ir.Expression;
 import net.sf.orcc.ir.InstPhi;
@@ -52,7 +53,8 @@ import org.eclipse.emf.ecore.EObject;
  * @author Herve Yviquel
  * 
  */
-public class InstPhiTransformation extends AbstractIrVisitor<Void> {
+public class InstPhiTransformation extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	@Override
 	public Void caseInstPhi(InstPhi phi) {
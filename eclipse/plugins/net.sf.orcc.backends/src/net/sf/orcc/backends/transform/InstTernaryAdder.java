@@ -31,6 +31,7 @@ package net.sf.orcc.backends.transform;
 import net.sf.orcc.backends.ir.InstTernary;
 import net.sf.orcc.backends.ir.IrSpecificFactory;
 import net.sf.orcc.df.Action;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.BlockBasic;
 import net.sf.orcc.ir.BlockIf;
 import net.sf.orcc.ir.BlockWhile;
@@ -62,7 +63,8 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  * @author Herve Yviquel
  * 
  */
-public class InstTernaryAdder extends AbstractIrVisitor<Void> {
+public class InstTernaryAdder extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	private Var condVar;
 	private BlockBasic newBasicBlock;
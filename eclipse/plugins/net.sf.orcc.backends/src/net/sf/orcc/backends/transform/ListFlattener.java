@@ -33,6 +33,7 @@ import java.util.List;
 
 import net.sf.orcc.backends.ir.InstAssignIndex;
 import net.sf.orcc.backends.ir.IrSpecificFactory;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.BlockBasic;
 import net.sf.orcc.ir.Expression;
 import net.sf.orcc.ir.InstAssign;
@@ -56,7 +57,8 @@ import net.sf.orcc.util.util.EcoreHelper;
  * @author Herve Yviquel
  * 
  */
-public class ListFlattener extends AbstractIrVisitor<Void> {
+public class ListFlattener extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	/**
 	 * Prints the indexes of an NDim array.
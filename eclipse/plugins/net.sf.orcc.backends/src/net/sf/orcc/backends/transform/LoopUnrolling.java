@@ -31,6 +31,7 @@ package net.sf.orcc.backends.transform;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Arg;
 import net.sf.orcc.ir.ArgByRef;
 import net.sf.orcc.ir.ArgByVal;
@@ -66,7 +67,8 @@ import net.sf.orcc.util.Void;
  * @author Endri Bezati
  * 
  */
-public class LoopUnrolling extends AbstractIrVisitor<Void> {
+public class LoopUnrolling extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	private class InnerExpressionVisitor extends AbstractIrVisitor<Expression> {
 
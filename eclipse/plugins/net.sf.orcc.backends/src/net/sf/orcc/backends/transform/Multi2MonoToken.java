@@ -45,6 +45,7 @@ import net.sf.orcc.df.Port;
 import net.sf.orcc.df.State;
 import net.sf.orcc.df.Tag;
 import net.sf.orcc.df.Transition;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.df.util.DfVisitor;
 import net.sf.orcc.ir.BlockBasic;
 import net.sf.orcc.ir.Expression;
@@ -68,7 +69,7 @@ import org.eclipse.emf.common.util.EList;
  * @author Khaled Jerbi
  * 
  */
-public class Multi2MonoToken extends DfVisitor<Void> {
+public class Multi2MonoToken extends DfVisitor<Void> implements ActorLocal {
 
 	/**
 	 * This class defines a visitor that substitutes the peek from the port to
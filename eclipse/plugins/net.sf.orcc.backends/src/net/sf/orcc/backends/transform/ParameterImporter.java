@@ -32,6 +32,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.df.util.DfVisitor;
 import net.sf.orcc.ir.InstLoad;
 import net.sf.orcc.ir.IrFactory;
@@ -46,7 +47,7 @@ import net.sf.orcc.ir.util.AbstractIrVisitor;
  * @author Thavot Richard
  * @version 1.1
  */
-public class ParameterImporter extends DfVisitor<Void> {
+public class ParameterImporter extends DfVisitor<Void> implements ActorLocal {
 
 	private Map<Var, Var> paramToGlobalVarMap;
 
@@ -39,6 +39,7 @@ import java.util.Set;
 
 import net.sf.orcc.df.Action;
 import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.df.util.DfVisitor;
 import net.sf.orcc.ir.Arg;
 import net.sf.orcc.ir.ArgByVal;
@@ -72,7 +73,8 @@ import org.eclipse.emf.common.util.EList;
  * @version 1.1
  * 
  */
-public class StoreOnceTransformation extends DfVisitor<Object> {
+public class StoreOnceTransformation extends DfVisitor<Object> implements
+		ActorLocal {
 
 	/**
 	 * Locks a variable whether all accesses are not static. e.g x=0, x[10] are
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.backends.util;
+
+import static net.sf.orcc.backends.BackendsConstants.CACHE;
+import static net.sf.orcc.backends.BackendsConstants.PARALLEL;
+import static net.sf.orcc.backends.BackendsConstants.PASSES_REPORT_ENABLE;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.df.Instance;
+import net.sf.orcc.graph.Edge;
+import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.util.OrccLogger;
+
+import org.eclipse.emf.common.util.Enumerator;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * This class defines a cache of the children generated by a back-end. Each
+ * child is identified by a key, which is a hash of its IR before children
+ * transformations, of its connections, of the back-end options and of the
+ * Orcc version. A child whose key did not change since the previous run, and
+ * whose generated files still exist, does not need to be transformed and
+ * generated again.
+ * 
+ * <p>
+ * Objects referenced by a child but not contained in it are identified by
+ * their label when they are vertices, and by their URI otherwise. Back-ends
+ * using the cache are expected to import units in actors, so that the code
+ * of the procedures they call is part of the hash.
+ * </p>
+ * 
+ */
+public class GenerationCache {
+
+	/**
+	 * Name of the file where keys are stored, in the output folder.
+	 */
+	public static final String FILE_NAME = ".orcc-cache";
+
+	/**
+	 * Options that change how children are generated, but not the generated
+	 * code.
+	 */
+	private static final Set<String> IGNORED_OPTIONS = new HashSet<String>(
+			Arrays.asList(CACHE, PARALLEL, PASSES_REPORT_ENABLE));
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final byte[] context;
+
+	private final File file;
+
+	private final Properties keys;
+
+	private final Properties previousKeys;
+
+	/**
+	 * Creates a cache stored in the given output folder, and loads the keys of
+	 * the previous run.
+	 * 
+	 * @param outputPath
+	 *            the output folder of the back-end
+	 * @param version
+	 *            version of Orcc and name of the back-end
+	 * @param options
+	 *            options of the back-end; those that do not change the
+	 *            generated code are ignored
+	 */
+	public GenerationCache(String outputPath, String version,
+			Map<String, Object> options) {
+		file = new File(outputPath, FILE_NAME);
+		keys = new Properties();
+		previousKeys = new Properties();
+
+		final StringBuilder builder = new StringBuilder(version);
+		for (Entry<String, Object> entry : new TreeMap<String, Object>(
+				options).entrySet()) {
+			if (IGNORED_OPTIONS.contains(entry.getKey())) {
+				continue;
+			}
+			builder.append('\n').append(entry.getKey()).append('=');
+			final Object value = entry.getValue();
+			if (value instanceof Map<?, ?>) {
+				// the order of the entries of a hash map is not stable
+				builder.append(new TreeMap<Object, Object>((Map<?, ?>) value));
+			} else {
+				builder.append(value);
+			}
+		}
+		context = builder.toString().getBytes(UTF_8);
+
+		if (file.exists()) {
+			try {
+				final InputStream in = new FileInputStream(file);
+				try {
+					previousKeys.load(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				OrccLogger.warnln("Unable to read the generation cache "
+						+ file + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns the key of the given child.
+	 * 
+	 * @param vertex
+	 *            an instance or an actor
+	 * @return the key of the child, as an hexadecimal string
+	 */
+	public String computeKey(Vertex vertex) {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new OrccRuntimeException("SHA-1 is not available", e);
+		}
+
+		digest.update(context);
+		update(digest, vertex);
+		final Instance instance = vertex.getAdapter(Instance.class);
+		if (instance != null && instance.getEntity() != null) {
+			update(digest, instance.getEntity());
+		}
+		for (Edge edge : vertex.getIncoming()) {
+			update(digest, edge);
+		}
+		for (Edge edge : vertex.getOutgoing()) {
+			update(digest, edge);
+		}
+
+		return String.format("%040x", new BigInteger(1, digest.digest()));
+	}
+
+	/**
+	 * Returns the identifier of an object that is not contained in the hashed
+	 * object.
+	 */
+	private String getExternalId(EObject eObject) {
+		if (eObject instanceof Edge) {
+			final Edge edge = (Edge) eObject;
+			return getExternalId(edge.getSource()) + " -> "
+					+ getExternalId(edge.getTarget());
+		} else if (eObject instanceof Vertex) {
+			final StringBuilder builder = new StringBuilder();
+			EObject container = eObject;
+			while (container instanceof Vertex) {
+				builder.insert(0, ((Vertex) container).getLabel()).insert(0, '/');
+				container = container.eContainer();
+			}
+			return builder.toString();
+		} else if (eObject == null) {
+			return "null";
+		}
+		return EcoreUtil.getURI(eObject).toString();
+	}
+
+	/**
+	 * Returns the identifier of the given object: its index if it is
+	 * contained in the hashed object, its external identifier otherwise.
+	 */
+	private String getId(Map<EObject, Integer> indexes, EObject eObject) {
+		final Integer index = indexes.get(eObject);
+		if (index != null) {
+			return "#" + index;
+		}
+		return getExternalId(eObject);
+	}
+
+	/**
+	 * Returns <code>true</code> if the given value can be hashed from its
+	 * string representation.
+	 */
+	private boolean isSimple(Object value) {
+		if (value instanceof Collection<?>) {
+			for (Object element : (Collection<?>) value) {
+				if (!isSimple(element)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return value == null || value instanceof String
+				|| value instanceof Number || value instanceof Boolean
+				|| value instanceof Character || value instanceof Enumerator
+				|| value instanceof Enum<?>;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given child is up-to-date, i.e. if its
+	 * key did not change since the previous run and all the given files exist.
+	 * The new key of the child is recorded in any case.
+	 * 
+	 * @param vertex
+	 *            an instance or an actor
+	 * @param files
+	 *            files generated for the child, or <code>null</code> if they
+	 *            are unknown
+	 * @return <code>true</code> if the child does not need to be generated
+	 */
+	public boolean isUpToDate(Vertex vertex, Collection<File> files) {
+		final String key = computeKey(vertex);
+		keys.setProperty(vertex.getLabel(), key);
+
+		if (files == null || !key.equals(previousKeys.get(vertex.getLabel()))) {
+			return false;
+		}
+		for (File generated : files) {
+			if (!generated.exists()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the keys of the children of this run. This must be called once
+	 * all children have been generated.
+	 */
+	public void save() {
+		try {
+			final OutputStream out = new FileOutputStream(file);
+			try {
+				keys.store(out, "Orcc generation cache");
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			OrccLogger.warnln("Unable to write the generation cache " + file
+					+ ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Updates the given digest with the given object and its contents.
+	 */
+	private void update(MessageDigest digest, EObject root) {
+		final List<EObject> objects = new ArrayList<EObject>();
+		objects.add(root);
+		for (Iterator<EObject> it = root.eAllContents(); it.hasNext();) {
+			objects.add(it.next());
+		}
+
+		final Map<EObject, Integer> indexes = new IdentityHashMap<EObject, Integer>();
+		for (EObject eObject : objects) {
+			indexes.put(eObject, indexes.size());
+		}
+
+		final StringBuilder builder = new StringBuilder();
+		for (EObject eObject : objects) {
+			builder.setLength(0);
+			builder.append(eObject.eClass().getName());
+			for (EStructuralFeature feature : eObject.eClass()
+					.getEAllStructuralFeatures()) {
+				if (feature.isDerived() || feature.isTransient()
+						|| !eObject.eIsSet(feature)) {
+					continue;
+				}
+
+				final Object value = eObject.eGet(feature, false);
+				if (feature instanceof EAttribute) {
+					if (isSimple(value)) {
+						builder.append(' ').append(feature.getName())
+								.append('=').append(value);
+					}
+				} else if (feature.isMany()) {
+					builder.append(' ').append(feature.getName()).append("=[");
+					for (Object target : (Collection<?>) value) {
+						builder.append(getId(indexes, (EObject) target));
+						builder.append(',');
+					}
+					builder.append(']');
+				} else {
+					builder.append(' ').append(feature.getName()).append('=');
+					builder.append(getId(indexes, (EObject) value));
+				}
+			}
+			builder.append('\n');
+			digest.update(builder.toString().getBytes(UTF_8));
+		}
+	}
+
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.backends.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.util.OrccLogger;
+
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * This class records the wall time and the memory allocated by each pass of a
+ * back-end, i.e. each transformation and each generation step, and keeps the
+ * objects on which each pass was the slowest. Passes may be recorded from
+ * several threads.
+ * 
+ * <p>
+ * Allocated bytes are measured with the HotSpot extension of
+ * {@link ThreadMXBean}. They are reported as -1 when the JVM does not support
+ * it.
+ * </p>
+ * 
+ */
+public class PassProfiler {
+
+	/**
+	 * This class defines the statistics of a pass.
+	 */
+	private static class Pass {
+
+		private long bytes;
+
+		private final String name;
+
+		private int runs;
+
+		private long time;
+
+		private final List<Run> worst;
+
+		public Pass(String name) {
+			this.name = name;
+			worst = new ArrayList<Run>(WORST_RUNS + 1);
+		}
+
+	}
+
+	/**
+	 * This class defines a run of a pass on an object.
+	 */
+	private static class Run {
+
+		private final long bytes;
+
+		private final String object;
+
+		private final long time;
+
+		public Run(String object, long time, long bytes) {
+			this.object = object;
+			this.time = time;
+			this.bytes = bytes;
+		}
+
+	}
+
+	private static final Comparator<Run> BY_TIME = new Comparator<Run>() {
+		@Override
+		public int compare(Run run1, Run run2) {
+			return run1.time < run2.time ? 1 : run1.time > run2.time ? -1 : 0;
+		}
+	};
+
+	/** number of runs kept for each pass */
+	private static final int WORST_RUNS = 5;
+
+	/**
+	 * Returns the given string as a JSON string.
+	 */
+	private static String quote(String str) {
+		StringBuilder builder = new StringBuilder("\"");
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < ' ') {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.append('"').toString();
+	}
+
+	/** ThreadMXBean.getThreadAllocatedBytes(long) of HotSpot, or null */
+	private final Method allocatedBytes;
+
+	private final Map<String, Pass> passes;
+
+	private final ThreadMXBean threadBean;
+
+	/**
+	 * Creates a new profiler.
+	 */
+	public PassProfiler() {
+		passes = new LinkedHashMap<String, Pass>();
+		threadBean = ManagementFactory.getThreadMXBean();
+
+		Method method = null;
+		try {
+			method = threadBean.getClass().getMethod("getThreadAllocatedBytes",
+					long.class);
+			method.setAccessible(true);
+			method.invoke(threadBean, Thread.currentThread().getId());
+		} catch (Exception e) {
+			// not a HotSpot JVM, or allocation measurement is disabled
+			method = null;
+		}
+		allocatedBytes = method;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread since it
+	 * started, or -1 if it cannot be measured.
+	 * 
+	 * @return a number of bytes, or -1
+	 */
+	public long getAllocatedBytes() {
+		if (allocatedBytes == null) {
+			return -1;
+		}
+
+		try {
+			return (Long) allocatedBytes.invoke(threadBean, Thread
+					.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the report as a JSON document, with passes sorted by decreasing
+	 * time. Times are in milliseconds.
+	 * 
+	 * @return the content of a JSON file
+	 */
+	public synchronized CharSequence getJsonContent() {
+		StringBuilder builder = new StringBuilder("{\n  \"passes\": [");
+		String separator = "\n";
+		for (Pass pass : getSortedPasses()) {
+			builder.append(separator).append("    {\"name\": ")
+					.append(quote(pass.name)).append(", \"runs\": ")
+					.append(pass.runs).append(", \"time\": ")
+					.append(toMillis(pass.time)).append(", \"allocatedBytes\": ")
+					.append(pass.bytes).append(", \"worst\": [");
+
+			String runSeparator = "";
+			for (Run run : pass.worst) {
+				builder.append(runSeparator).append("{\"object\": ")
+						.append(quote(run.object)).append(", \"time\": ")
+						.append(toMillis(run.time))
+						.append(", \"allocatedBytes\": ").append(run.bytes)
+						.append('}');
+				runSeparator = ", ";
+			}
+			builder.append("]}");
+			separator = ",\n";
+		}
+		return builder.append("\n  ]\n}\n");
+	}
+
+	/**
+	 * Returns the name of the given object in the report.
+	 */
+	private String getName(EObject eObject) {
+		if (eObject instanceof Vertex) {
+			return ((Vertex) eObject).getLabel();
+		}
+		return eObject.eClass().getName();
+	}
+
+	/**
+	 * Returns the passes sorted by decreasing time.
+	 */
+	private List<Pass> getSortedPasses() {
+		List<Pass> sorted = new ArrayList<Pass>(passes.values());
+		Collections.sort(sorted, new Comparator<Pass>() {
+			@Override
+			public int compare(Pass pass1, Pass pass2) {
+				return pass1.time < pass2.time ? 1
+						: pass1.time > pass2.time ? -1 : 0;
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * Prints the report as a table in the console, with passes sorted by
+	 * decreasing time.
+	 */
+	public synchronized void printReport() {
+		OrccLogger.traceln(String.format("%-32s %6s %10s %14s  %s", "Pass",
+				"Runs", "Time (ms)", "Allocated (B)", "Slowest on"));
+		for (Pass pass : getSortedPasses()) {
+			Run slowest = pass.worst.get(0);
+			OrccLogger.traceln(String.format("%-32s %6d %10.1f %14d  %s (%.1f ms)",
+					pass.name, pass.runs, toMillis(pass.time), pass.bytes,
+					slowest.object, toMillis(slowest.time)));
+		}
+	}
+
+	/**
+	 * Records a run of the given pass on the given object. This method must be
+	 * called by the thread that ran the pass, right after it.
+	 * 
+	 * @param name
+	 *            name of the pass
+	 * @param eObject
+	 *            the object the pass was applied on
+	 * @param startTime
+	 *            value of {@link System#nanoTime()} before the pass
+	 * @param startBytes
+	 *            value of {@link #getAllocatedBytes()} before the pass
+	 */
+	public void record(String name, EObject eObject, long startTime,
+			long startBytes) {
+		long time = System.nanoTime() - startTime;
+		long bytes = startBytes < 0 ? -1 : getAllocatedBytes() - startBytes;
+		Run run = new Run(getName(eObject), time, bytes);
+
+		synchronized (this) {
+			Pass pass = passes.get(name);
+			if (pass == null) {
+				pass = new Pass(name);
+				passes.put(name, pass);
+			}
+
+			pass.runs++;
+			pass.time += time;
+			pass.bytes = bytes < 0 || pass.bytes < 0 ? -1 : pass.bytes + bytes;
+
+			pass.worst.add(run);
+			Collections.sort(pass.worst, BY_TIME);
+			if (pass.worst.size() > WORST_RUNS) {
+				pass.worst.remove(WORST_RUNS);
+			}
+		}
+	}
+
+	/**
+	 * Returns the given number of nanoseconds in milliseconds.
+	 */
+	private double toMillis(long nanos) {
+		return nanos / 1e6;
+	}
+
+}
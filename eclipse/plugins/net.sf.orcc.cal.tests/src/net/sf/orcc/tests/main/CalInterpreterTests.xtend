@@ -66,7 +66,23 @@ class CalInterpreterTests extends CalTestsHelper {
 	 * a String with all content printed while this actor's execution.
 	 */
 	def private runInterpreter(Actor actor) {
+		actor.runInterpreter(false, false)
+	}
+
+	/**
+	 * Run the specific test interpreter on the given Actor, storing the
+	 * values of variables in frames and representing integers by longs if
+	 * requested. Returns a String with all content printed while this actor's
+	 * execution.
+	 */
+	def private runInterpreter(Actor actor, boolean frames, boolean longValues) {
 		val interpreter = new TestInterpreter(actor);
+		if (frames) {
+			interpreter.enableFrames();
+		}
+		if (longValues) {
+			interpreter.enableLongValues();
+		}
 		interpreter.initialize();
 		interpreter.schedule();
 
@@ -132,4 +148,23 @@ class CalInterpreterTests extends CalTestsHelper {
 		val resultString = (entity.transformEntity as Actor).runInterpreter
 		"idx is 60".assertEquals(resultString)
 	}
+
+	@Test
+	def testRecursiveFunction() {
+		val expected = "25! = 15511210043330985984000000, fib(20) = 6765"
+
+		// values of variables stored in the IR: the arguments of a call are
+		// overwritten by the calls it makes, so the result is wrong
+		var entity = parseFile("/test/pass/RecursiveFunction.cal")
+		entity.assertNoErrors
+		assertFalse(expected == (entity.transformEntity as Actor).runInterpreter)
+
+		// values of variables stored in frames
+		entity = parseFile("/test/pass/RecursiveFunction.cal")
+		expected.assertEquals((entity.transformEntity as Actor).runInterpreter(true, false))
+
+		// values of variables stored in frames, integers as long values
+		entity = parseFile("/test/pass/RecursiveFunction.cal")
+		expected.assertEquals((entity.transformEntity as Actor).runInterpreter(true, true))
+	}
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.tests.main
+
+import com.google.inject.Inject
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import net.sf.orcc.cal.CalInjectorProvider
+import net.sf.orcc.df.Actor
+import net.sf.orcc.df.DfFactory
+import net.sf.orcc.df.Network
+import net.sf.orcc.frontend.ActorTransformer
+import net.sf.orcc.simulators.slow.SimulatorFifo
+import net.sf.orcc.simulators.slow.SlowSimulator
+import net.sf.orcc.tests.util.CalTestsHelper
+import org.eclipse.xtext.junit4.InjectWith
+import org.eclipse.xtext.junit4.XtextRunner
+import org.eclipse.xtext.junit4.validation.ValidationTestHelper
+import org.junit.Test
+import org.junit.runner.RunWith
+
+import static net.sf.orcc.simulators.SimulatorsConstants.*
+
+/**
+ * Test that concurrent simulations of the same network use their own FIFOs,
+ * including for the tokens produced by initialize actions
+ */
+@RunWith(typeof(XtextRunner))
+@InjectWith(typeof(CalInjectorProvider))
+class ConcurrentSimulationTests extends CalTestsHelper {
+
+	@Inject extension ValidationTestHelper
+
+	def private parseActor(String path) {
+		val entity = parseFile(path)
+		entity.assertNoErrors
+		new ActorTransformer().doSwitch(entity.actor) as Actor
+	}
+
+	@Test
+	def testInitializeTokens() {
+		val source = parseActor("/test/pass/InitializeSource.cal")
+		val sink = parseActor("/test/pass/InitializeSink.cal")
+
+		val network = DfFactory::eINSTANCE.createNetwork
+		network.children += source
+		network.children += sink
+		network.connections += DfFactory::eINSTANCE.createConnection(source,
+			source.getOutput("O"), sink, sink.getInput("I"), 8)
+
+		// both networks are connected before any initialize action fires
+		val connected = new CountDownLatch(2)
+		val executor = Executors.newFixedThreadPool(2)
+		try {
+			val Callable<SimulatorFifo> simulation = [|
+				val simulator = new SteppedSimulator
+				simulator.options = newHashMap(SEARCH_PATH -> "." as Object)
+				val fifo = simulator.connect(network)
+				connected.countDown
+				connected.await
+				simulator.initialize
+				fifo
+			]
+			val first = executor.submit(simulation)
+			val second = executor.submit(simulation)
+
+			for (fifo : #[first.get, second.get]) {
+				assertEquals(3, fifo.count)
+				for (i : 1 .. 3) {
+					assertEquals(i, (fifo.read as Number).intValue)
+				}
+			}
+		} finally {
+			executor.shutdownNow
+		}
+	}
+
+}
+
+/**
+ * A simulator whose network is connected and initialized in two steps, like
+ * in {@link SlowSimulator#simulate(Network)}, but without running it
+ */
+class SteppedSimulator extends SlowSimulator {
+
+	/**
+	 * Connects the given network and returns the FIFO of its only connection
+	 */
+	def connect(Network network) {
+		interpreters = newHashMap
+		createInterpreters(network)
+		synchronized (network) {
+			connectNetwork(network)
+			network.connections.head.getAttribute("fifo").objectValue as SimulatorFifo
+		}
+	}
+
+	def initialize() {
+		for (interpreter : interpreters.values) {
+			interpreter.initialize
+		}
+	}
+
+}
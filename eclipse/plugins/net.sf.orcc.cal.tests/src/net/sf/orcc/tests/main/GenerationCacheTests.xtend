@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.tests.main
+
+import com.google.common.io.Files
+import java.io.File
+import java.util.Collections
+import java.util.LinkedHashMap
+import java.util.Map
+import net.sf.orcc.backends.BackendsConstants
+import net.sf.orcc.backends.util.GenerationCache
+import net.sf.orcc.df.Actor
+import net.sf.orcc.df.DfFactory
+import net.sf.orcc.df.Network
+import net.sf.orcc.ir.IrFactory
+import net.sf.orcc.util.FilesManager
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Test the keys of the generation cache of the back-ends
+ */
+@RunWith(typeof(JUnit4))
+class GenerationCacheTests extends Assert {
+
+	static val VERSION = "2.3.1 TestBackend"
+
+	private val dfFact = DfFactory::eINSTANCE
+	private val irFact = IrFactory::eINSTANCE
+
+	var File outputFolder
+
+	@Before
+	def void createFolder() {
+		outputFolder = Files.createTempDir
+	}
+
+	@After
+	def void deleteFolder() {
+		FilesManager.recursiveDelete(outputFolder)
+	}
+
+	/**
+	 * Returns a network where a source actor, with a state variable of the
+	 * given size, is connected to a sink actor by a FIFO of the given size
+	 */
+	def private createNetwork(int stateSize, int fifoSize) {
+		val Network network = dfFact.createNetwork
+		val source = dfFact.createActor
+		source.name = "Source"
+		source.outputs += dfFact.createPort(irFact.createTypeInt(16), "O")
+		source.stateVars += irFact.createVar(0, irFact.createTypeInt(stateSize), "count", true)
+		val sink = dfFact.createActor
+		sink.name = "Sink"
+		sink.inputs += dfFact.createPort(irFact.createTypeInt(16), "I")
+		network.children += source
+		network.children += sink
+		network.connections += dfFact.createConnection(source, source.outputs.head, sink,
+			sink.inputs.head, fifoSize)
+		network
+	}
+
+	def private source(Network network) {
+		network.children.get(0) as Actor
+	}
+
+	def private sink(Network network) {
+		network.children.get(1) as Actor
+	}
+
+	def private createCache(Map<String, Object> options) {
+		new GenerationCache(outputFolder.path, VERSION, options)
+	}
+
+	def private Map<String, Object> createOptions(boolean inline, int fifoSize) {
+		val Map<String, Object> options = new LinkedHashMap
+		options.put("net.sf.orcc.backends.inline", inline)
+		options.put("net.sf.orcc.fifoSize", fifoSize)
+		options
+	}
+
+	@Test
+	def keysAreStable() {
+		val cache = createCache(createOptions(true, 512))
+		val network = createNetwork(32, 64)
+		val sourceKey = cache.computeKey(network.source)
+		sourceKey.assertEquals(cache.computeKey(network.source))
+		assertEquals(40, sourceKey.length)
+
+		// same IR built again, options in another order
+		val Map<String, Object> reversed = new LinkedHashMap
+		reversed.put("net.sf.orcc.fifoSize", 512)
+		reversed.put("net.sf.orcc.backends.inline", true)
+		val other = createCache(reversed)
+		val otherNetwork = createNetwork(32, 64)
+		sourceKey.assertEquals(other.computeKey(otherNetwork.source))
+		cache.computeKey(network.sink).assertEquals(other.computeKey(otherNetwork.sink))
+	}
+
+	@Test
+	def keysChangeWithTheChild() {
+		val cache = createCache(createOptions(true, 512))
+		val network = createNetwork(32, 64)
+		val modified = createNetwork(16, 64)
+		cache.computeKey(network.source).assertNotEquals(cache.computeKey(modified.source))
+
+		// the sink is not modified
+		cache.computeKey(network.sink).assertEquals(cache.computeKey(modified.sink))
+	}
+
+	@Test
+	def keysChangeWithTheConnections() {
+		val cache = createCache(createOptions(true, 512))
+		val network = createNetwork(32, 64)
+		val modified = createNetwork(32, 128)
+		cache.computeKey(network.source).assertNotEquals(cache.computeKey(modified.source))
+		cache.computeKey(network.sink).assertNotEquals(cache.computeKey(modified.sink))
+	}
+
+	@Test
+	def keysChangeWithTheOptionsAndVersion() {
+		val network = createNetwork(32, 64)
+		val key = createCache(createOptions(true, 512)).computeKey(network.source)
+		key.assertNotEquals(createCache(createOptions(false, 512)).computeKey(network.source))
+		key.assertNotEquals(createCache(createOptions(true, 1024)).computeKey(network.source))
+		key.assertNotEquals(new GenerationCache(outputFolder.path, "2.3.2 TestBackend",
+			createOptions(true, 512)).computeKey(network.source))
+	}
+
+	@Test
+	def keysIgnoreTheSchedulingOptions() {
+		val network = createNetwork(32, 64)
+		val key = createCache(createOptions(true, 512)).computeKey(network.source)
+		val options = createOptions(true, 512)
+		options.put(BackendsConstants.PARALLEL, true)
+		options.put(BackendsConstants.CACHE, true)
+		options.put(BackendsConstants.PASSES_REPORT_ENABLE, true)
+		key.assertEquals(createCache(options).computeKey(network.source))
+	}
+
+	@Test
+	def childrenAreUpToDateUntilModified() {
+		val generated = new File(outputFolder, "Source.c")
+		Files.touch(generated)
+		val files = Collections.singletonList(generated)
+
+		// first run: no previous key
+		var cache = createCache(createOptions(true, 512))
+		cache.isUpToDate(createNetwork(32, 64).source, files).assertFalse
+		cache.save
+		new File(outputFolder, GenerationCache.FILE_NAME).exists.assertTrue
+
+		// same IR and options
+		cache = createCache(createOptions(true, 512))
+		cache.isUpToDate(createNetwork(32, 64).source, files).assertTrue
+		cache.isUpToDate(createNetwork(32, 64).source, null).assertFalse
+
+		// missing generated file
+		generated.delete
+		cache.isUpToDate(createNetwork(32, 64).source, files).assertFalse
+		Files.touch(generated)
+
+		// modified IR, the new key is saved
+		cache = createCache(createOptions(true, 512))
+		cache.isUpToDate(createNetwork(16, 64).source, files).assertFalse
+		cache.save
+		cache = createCache(createOptions(true, 512))
+		cache.isUpToDate(createNetwork(16, 64).source, files).assertTrue
+		cache.isUpToDate(createNetwork(32, 64).source, files).assertFalse
+	}
+
+}
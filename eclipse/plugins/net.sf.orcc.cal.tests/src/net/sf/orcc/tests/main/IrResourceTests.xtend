@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.tests.main
+
+import com.google.common.io.Files
+import java.io.File
+import java.io.FileInputStream
+import net.sf.orcc.df.Actor
+import net.sf.orcc.df.DfFactory
+import net.sf.orcc.df.Unit
+import net.sf.orcc.ir.BlockBasic
+import net.sf.orcc.ir.InstCall
+import net.sf.orcc.ir.InstLoad
+import net.sf.orcc.ir.IrFactory
+import net.sf.orcc.ir.impl.IrResourceFactoryImpl
+import net.sf.orcc.ir.impl.IrResourceImpl
+import net.sf.orcc.util.FilesManager
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.ecore.resource.ResourceSet
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl
+import org.eclipse.emf.ecore.util.EcoreUtil
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Test the serialization of IR files in the XMI and binary formats
+ */
+@RunWith(typeof(JUnit4))
+class IrResourceTests extends Assert {
+
+	private val dfFact = DfFactory::eINSTANCE
+	private val irFact = IrFactory::eINSTANCE
+
+	var File tempDir
+
+	@Before
+	def void createFolder() {
+		tempDir = Files.createTempDir
+	}
+
+	@After
+	def void deleteFolder() {
+		FilesManager.recursiveDelete(tempDir)
+	}
+
+	def private ResourceSet createResourceSet() {
+		val set = new ResourceSetImpl
+		set.resourceFactoryRegistry.extensionToFactoryMap.put("ir", new IrResourceFactoryImpl)
+		set
+	}
+
+	def private uri(String fileName) {
+		URI.createFileURI(new File(tempDir, fileName).absolutePath)
+	}
+
+	def private firstByte(String fileName) {
+		val stream = new FileInputStream(new File(tempDir, fileName))
+		try {
+			stream.read
+		} finally {
+			stream.close
+		}
+	}
+
+	/**
+	 * Returns a unit with a constant and a function returning it
+	 */
+	def private createUnit() {
+		val unit = dfFact.createUnit
+		unit.name = "Constants"
+		val constant = irFact.createVar(1, irFact.createTypeInt(32), "MAX", false)
+		constant.initialValue = irFact.createExprInt(255)
+		unit.constants += constant
+
+		val function = irFact.createProcedure("getMax", 2, irFact.createTypeInt(32))
+		val block = irFact.createBlockBasic
+		block.add(irFact.createInstReturn(irFact.createExprInt(255)))
+		function.blocks += block
+		unit.procedures += function
+		unit
+	}
+
+	/**
+	 * Returns an actor whose procedure loads the constant and calls the
+	 * function of the given unit
+	 */
+	def private createActor(Unit unit) {
+		val actor = dfFact.createActor
+		actor.name = "User"
+		actor.inputs += dfFact.createPort(irFact.createTypeUint(8), "I")
+		actor.stateVars += irFact.createVar(3, irFact.createTypeInt(32), "count", true)
+
+		val procedure = irFact.createProcedure("use", 4, irFact.createTypeInt(32))
+		val local = irFact.createVar(5, irFact.createTypeInt(32), "local", true)
+		val result = irFact.createVar(6, irFact.createTypeInt(32), "result", true)
+		procedure.locals += local
+		procedure.locals += result
+		val block = irFact.createBlockBasic
+		block.add(irFact.createInstLoad(local, unit.constants.head))
+		block.add(irFact.createInstCall(result, unit.procedures.head, #[]))
+		block.add(irFact.createInstReturn(irFact.createExprVar(result)))
+		procedure.blocks += block
+		actor.procs += procedure
+		actor
+	}
+
+	@Test
+	def binaryRoundTripWithCrossReferences() {
+		val binaryOptions = newHashMap(IrResourceImpl.OPTION_BINARY -> Boolean.TRUE)
+
+		// the unit is saved before the actors that use it, like the frontend does
+		val set = createResourceSet
+		val unit = createUnit
+		val unitResource = set.createResource(uri("Constants.ir"))
+		unitResource.contents += unit
+		unitResource.save(binaryOptions)
+		assertEquals(0x89, firstByte("Constants.ir"))
+
+		val loadSet = createResourceSet
+		val loadedUnit = loadSet.getResource(uri("Constants.ir"), true).contents.head as Unit
+		EcoreUtil.equals(unit, loadedUnit).assertTrue
+
+		// the actor is binary, its copy is XMI
+		val actor = createActor(unit)
+		val copy = EcoreUtil.copy(actor)
+		val binaryResource = set.createResource(uri("User.ir"))
+		binaryResource.contents += actor
+		binaryResource.save(binaryOptions)
+		val xmiResource = set.createResource(uri("UserXmi.ir"))
+		xmiResource.contents += copy
+		xmiResource.save(null)
+		assertEquals(0x89, firstByte("User.ir"))
+		assertEquals(60, firstByte("UserXmi.ir")) // '<' of the XML declaration
+
+		val loaded = loadSet.getResource(uri("User.ir"), true).contents.head as Actor
+		val loadedXmi = loadSet.getResource(uri("UserXmi.ir"), true).contents.head as Actor
+		"User".assertEquals(loaded.name)
+
+		// the references to the unit are proxies resolved to the loaded unit
+		val instructions = (loaded.procs.head.blocks.head as BlockBasic).instructions
+		val load = instructions.get(0) as InstLoad
+		val call = instructions.get(1) as InstCall
+		loadedUnit.constants.head.assertSame(load.source.variable)
+		load.source.variable.eIsProxy.assertFalse
+		loadedUnit.procedures.head.assertSame(call.procedure)
+		call.procedure.eIsProxy.assertFalse
+
+		EcoreUtil.resolveAll(loadSet)
+		EcoreUtil.equals(loadedXmi, loaded).assertTrue
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.tests.main
+
+import java.math.BigInteger
+import net.sf.orcc.ir.IrFactory
+import net.sf.orcc.ir.OpBinary
+import net.sf.orcc.ir.OpUnary
+import net.sf.orcc.ir.util.LongValueUtil
+import net.sf.orcc.ir.util.ValueUtil
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Test the long arithmetic of LongValueUtil against the BigInteger arithmetic
+ * of ValueUtil, in particular at the 63/64-bit boundaries
+ */
+@RunWith(typeof(JUnit4))
+class LongValueUtilTests extends Assert {
+
+	private val irFact = IrFactory::eINSTANCE
+
+	val values = #[0L, 1L, -1L, 2L, -2L, 3037000499L, 3037000500L, 4294967296L,
+		-4294967296L, Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE,
+		Long.MIN_VALUE + 1]
+
+	val shifts = #[0, 1, 31, 32, 62, 63, 64, 65, 100]
+
+	/**
+	 * Check that the given value computed by LongValueUtil is equal to the
+	 * expected BigInteger value, and that it is a Long when it fits in 64 bits.
+	 */
+	def private assertSameValue(String message, Object expected, Object actual) {
+		assertEquals(message, expected, LongValueUtil.toBigInteger(actual))
+		if (expected instanceof BigInteger) {
+			assertEquals(message, (expected as BigInteger).bitLength < 64,
+				actual instanceof Long)
+		}
+	}
+
+	def private static big(long value) {
+		BigInteger.valueOf(value)
+	}
+
+	@Test
+	def overflowFallsBackToBigInteger() {
+		val twoPow63 = BigInteger.ONE.shiftLeft(63)
+		twoPow63.assertEquals(LongValueUtil.add(Long.MAX_VALUE, 1L))
+		twoPow63.negate.subtract(BigInteger.ONE).assertEquals(
+			LongValueUtil.subtract(Long.MIN_VALUE, 1L))
+		BigInteger.ONE.shiftLeft(64).assertEquals(
+			LongValueUtil.multiply(4294967296L, 4294967296L))
+		twoPow63.assertEquals(LongValueUtil.multiply(Long.MIN_VALUE, -1L))
+		twoPow63.assertEquals(LongValueUtil.divide(Long.MIN_VALUE, -1L))
+		twoPow63.assertEquals(LongValueUtil.compute(OpUnary.MINUS, Long.MIN_VALUE))
+
+		// results that fit in 64 bits again are longs
+		Long.MAX_VALUE.assertEquals(LongValueUtil.subtract(twoPow63, 1L))
+		Long.MIN_VALUE.assertEquals(LongValueUtil.compute(OpUnary.MINUS, twoPow63))
+		assertTrue(LongValueUtil.valueOf(twoPow63) instanceof BigInteger)
+	}
+
+	@Test
+	def binaryOperationsMatchBigInteger() {
+		val ops = #[OpBinary.PLUS, OpBinary.MINUS, OpBinary.TIMES, OpBinary.DIV,
+			OpBinary.MOD, OpBinary.BITAND, OpBinary.BITOR, OpBinary.BITXOR,
+			OpBinary.EQ, OpBinary.NE, OpBinary.LT, OpBinary.LE, OpBinary.GT,
+			OpBinary.GE]
+		for (a : values) {
+			for (b : values) {
+				for (op : ops) {
+					if (!(op == OpBinary.DIV && b == 0) && !(op == OpBinary.MOD && b <= 0)) {
+						assertSameValue('''«a» «op» «b»''',
+							ValueUtil.compute(a.big, op, b.big),
+							LongValueUtil.compute(a, op, b))
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	def unaryOperationsMatchBigInteger() {
+		for (a : values) {
+			for (op : #[OpUnary.MINUS, OpUnary.BITNOT]) {
+				assertSameValue('''«op» «a»''', ValueUtil.compute(op, a.big),
+					LongValueUtil.compute(op, a))
+			}
+		}
+	}
+
+	@Test
+	def shiftsMatchBigInteger() {
+		for (a : values) {
+			for (n : shifts) {
+				assertSameValue('''«a» << «n»''',
+					ValueUtil.compute(a.big, OpBinary.SHIFT_LEFT, BigInteger.valueOf(n)),
+					LongValueUtil.compute(a, OpBinary.SHIFT_LEFT, n))
+				assertSameValue('''«a» >> «n»''',
+					ValueUtil.compute(a.big, OpBinary.SHIFT_RIGHT, BigInteger.valueOf(n)),
+					LongValueUtil.compute(a, OpBinary.SHIFT_RIGHT, n))
+			}
+		}
+
+		// shifting a value wider than 64 bits back into a long
+		val twoPow64 = BigInteger.ONE.shiftLeft(64)
+		assertSameValue("2^64 >> 1", twoPow64.shiftRight(1),
+			LongValueUtil.compute(twoPow64, OpBinary.SHIFT_RIGHT, 1))
+		assertSameValue("2^64 >> 2", twoPow64.shiftRight(2),
+			LongValueUtil.compute(twoPow64, OpBinary.SHIFT_RIGHT, 2))
+	}
+
+	@Test
+	def clipMasksAndSignExtends() {
+		assertEquals(-1L, LongValueUtil.clip(511L, 8, true))
+		assertEquals(255L, LongValueUtil.clip(511L, 8, false))
+		assertEquals(-1L, LongValueUtil.clip(-1L, 64, false))
+		Long.MIN_VALUE.assertEquals(LongValueUtil.clip(Long.MIN_VALUE, 64, true))
+		Long.MAX_VALUE.assertEquals(LongValueUtil.clip(-1L, 63, false))
+		assertEquals(-1L, LongValueUtil.clip(Long.MAX_VALUE, 63, true))
+	}
+
+	@Test
+	def unsignedElementsAreMasked() {
+		val uint8 = irFact.createTypeUint(8)
+		val int8 = irFact.createTypeInt(8)
+		val bytes = newByteArrayOfSize(1)
+		LongValueUtil.set(uint8, bytes, 255L, 0)
+		assertEquals(255L, LongValueUtil.get(uint8, bytes, 0))
+		assertEquals(-1L, LongValueUtil.get(int8, bytes, 0))
+
+		val uint32 = irFact.createTypeUint(32)
+		val ints = newIntArrayOfSize(1)
+		LongValueUtil.set(uint32, ints, 4294967295L, 0)
+		assertEquals(4294967295L, LongValueUtil.get(uint32, ints, 0))
+
+		val uint64 = irFact.createTypeUint(64)
+		val int64 = irFact.createTypeInt(64)
+		val longs = newLongArrayOfSize(1)
+		val max = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE)
+		LongValueUtil.set(uint64, longs, max, 0)
+		max.assertEquals(LongValueUtil.get(uint64, longs, 0))
+		assertEquals(-1L, LongValueUtil.get(int64, longs, 0))
+		LongValueUtil.set(uint64, longs, Long.MAX_VALUE, 0)
+		Long.MAX_VALUE.assertEquals(LongValueUtil.get(uint64, longs, 0))
+	}
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.tests.main
+
+import java.lang.reflect.Array
+import java.math.BigDecimal
+import java.math.BigInteger
+import net.sf.orcc.ir.IrFactory
+import net.sf.orcc.ir.Type
+import net.sf.orcc.ir.util.ValueUtil
+import net.sf.orcc.simulators.slow.BooleanFifo
+import net.sf.orcc.simulators.slow.ByteFifo
+import net.sf.orcc.simulators.slow.FloatFifo
+import net.sf.orcc.simulators.slow.IntFifo
+import net.sf.orcc.simulators.slow.LongFifo
+import net.sf.orcc.simulators.slow.ObjectFifo
+import net.sf.orcc.simulators.slow.ShortFifo
+import net.sf.orcc.simulators.slow.SimulatorFifo
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Test the circular buffers of the FIFOs of the simulator, for each type of
+ * backing array
+ */
+@RunWith(typeof(JUnit4))
+class SimulatorFifoTests extends Assert {
+
+	static val SIZE = 5
+
+	private val irFact = IrFactory::eINSTANCE
+
+	val types = #[irFact.createTypeBool, irFact.createTypeFloat,
+		irFact.createTypeInt(8), irFact.createTypeUint(8),
+		irFact.createTypeInt(16), irFact.createTypeUint(16),
+		irFact.createTypeInt(32), irFact.createTypeUint(32),
+		irFact.createTypeInt(64), irFact.createTypeUint(64),
+		irFact.createTypeInt(128)]
+
+	def private createFifo(Type type) {
+		SimulatorFifo.create(type, SIZE, null, "fifo", false, false)
+	}
+
+	/**
+	 * Returns the i-th token of a test sequence, as a runtime value of the
+	 * given type. Unsigned tokens use the most significant bit.
+	 */
+	def private Object token(Type type, int i) {
+		if (type.isBool) {
+			i % 3 == 0
+		} else if (type.isFloat) {
+			BigDecimal.valueOf(i * 0.5f)
+		} else if (type.isUint && type.sizeInBits == 64) {
+			BigInteger.ONE.shiftLeft(64).subtract(BigInteger.valueOf(i + 1))
+		} else if (type.isUint) {
+			BigInteger.valueOf((i * 61) % 256)
+		} else if (type.sizeInBits > 64) {
+			BigInteger.ONE.shiftLeft(100).negate.add(BigInteger.valueOf(i))
+		} else {
+			BigInteger.valueOf((i * 61) % 256 - 128)
+		}
+	}
+
+	/**
+	 * Returns an array of the same class as the backing array of the FIFOs of
+	 * the given type, which is copied in and out of the FIFO at once.
+	 */
+	def private Object newBufferArray(Type type, int length) {
+		val bits = type.sizeInBits
+		val Class<?> componentType = if (type.isBool) {
+				typeof(boolean)
+			} else if (type.isFloat) {
+				typeof(float)
+			} else if (bits <= 8) {
+				typeof(byte)
+			} else if (bits <= 16) {
+				typeof(short)
+			} else if (bits <= 32) {
+				typeof(int)
+			} else if (bits <= 64) {
+				typeof(long)
+			} else {
+				typeof(Object)
+			}
+		Array.newInstance(componentType, length)
+	}
+
+	/**
+	 * Returns an array of another class than the backing array of the FIFOs
+	 * of the given type, which is copied token by token.
+	 */
+	def private Object newOtherArray(Type type, int length) {
+		if (type.sizeInBits > 64 && !type.isBool && !type.isFloat) {
+			val BigInteger[] array = newArrayOfSize(length)
+			array
+		} else {
+			val Object[] array = newArrayOfSize(length)
+			array
+		}
+	}
+
+	/**
+	 * Moves the head and the tail of the given FIFO to the given index
+	 */
+	def private advance(SimulatorFifo fifo, int index) {
+		for (i : 0 ..< index) {
+			fifo.write(token(fifo.type, i))
+			fifo.read
+		}
+	}
+
+	@Test
+	def createsSpecializedFifos() {
+		assertTrue(createFifo(types.get(0)) instanceof BooleanFifo)
+		assertTrue(createFifo(types.get(1)) instanceof FloatFifo)
+		assertTrue(createFifo(types.get(2)) instanceof ByteFifo)
+		assertTrue(createFifo(types.get(4)) instanceof ShortFifo)
+		assertTrue(createFifo(types.get(6)) instanceof IntFifo)
+		assertTrue(createFifo(types.get(8)) instanceof LongFifo)
+		assertTrue(createFifo(types.get(10)) instanceof ObjectFifo)
+	}
+
+	@Test
+	def singleTokensWrapAround() {
+		for (type : types) {
+			val fifo = createFifo(type)
+			var next = 0
+			for (round : 0 ..< 7) {
+				for (j : 0 ..< 3) {
+					assertTrue(fifo.hasRoom(1))
+					fifo.write(token(type, round * 3 + j))
+				}
+				assertEquals(3, fifo.count)
+				for (j : 0 ..< 3) {
+					assertEquals(type.toString, token(type, next), fifo.read)
+					next = next + 1
+				}
+			}
+			assertNull(fifo.read)
+			assertEquals(21L, fifo.readCount)
+			assertEquals(21L, fifo.writeCount)
+		}
+	}
+
+	@Test
+	def fullFifoIgnoresWrites() {
+		for (type : types) {
+			val fifo = createFifo(type)
+			fifo.advance(3)
+			for (i : 0 ..< SIZE + 1) {
+				fifo.write(token(type, i))
+			}
+			assertEquals(SIZE, fifo.count)
+			assertFalse(fifo.hasRoom(1))
+			for (i : 0 ..< SIZE) {
+				assertEquals(type.toString, token(type, i), fifo.read)
+			}
+		}
+	}
+
+	@Test
+	def peekAcrossTheWrap() {
+		for (type : types) {
+			val fifo = createFifo(type)
+			fifo.advance(3)
+			for (i : 0 ..< 4) {
+				fifo.write(token(type, 10 + i))
+			}
+			for (i : 0 ..< 4) {
+				assertEquals(type.toString, token(type, 10 + i), fifo.peek(i))
+			}
+			assertNull(fifo.peek(4))
+			assertEquals(4, fifo.count)
+			assertEquals(type.toString, token(type, 10), fifo.read)
+			assertEquals(type.toString, token(type, 11), fifo.peek(0))
+		}
+	}
+
+	@Test
+	def bulkCopiesAcrossTheWrap() {
+		for (type : types) {
+			for (fast : #[true, false]) {
+				val fifo = createFifo(type)
+				fifo.advance(3)
+
+				val Object in = if (fast) newBufferArray(type, 4) else newOtherArray(type, 4)
+				for (i : 0 ..< 4) {
+					ValueUtil.set(type, in, token(type, 20 + i), i)
+				}
+				fifo.write(type, in, 4)
+				assertEquals(4, fifo.count)
+				for (i : 0 ..< 4) {
+					assertEquals(type.toString, token(type, 20 + i), fifo.peek(i))
+				}
+
+				val Object peeked = if (fast) newBufferArray(type, 4) else newOtherArray(type, 4)
+				fifo.peek(type, peeked, 4)
+				assertEquals(4, fifo.count)
+
+				val Object out = if (fast) newBufferArray(type, 4) else newOtherArray(type, 4)
+				fifo.read(type, out, 4)
+				assertEquals(0, fifo.count)
+				for (i : 0 ..< 4) {
+					assertEquals(type.toString, token(type, 20 + i), ValueUtil.get(type, peeked, i))
+					assertEquals(type.toString, token(type, 20 + i), ValueUtil.get(type, out, i))
+				}
+			}
+		}
+	}
+
+}
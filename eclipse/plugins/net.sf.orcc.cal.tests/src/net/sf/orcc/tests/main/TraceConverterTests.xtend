@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.tests.main
+
+import com.google.common.base.Charsets
+import com.google.common.io.Files
+import java.io.File
+import java.lang.reflect.Array
+import java.math.BigDecimal
+import java.math.BigInteger
+import java.util.Random
+import net.sf.orcc.ir.IrFactory
+import net.sf.orcc.ir.Type
+import net.sf.orcc.ir.util.LongValueUtil
+import net.sf.orcc.ir.util.ValueUtil
+import net.sf.orcc.simulators.slow.SimulatorFifo
+import net.sf.orcc.simulators.slow.TraceConverter
+import net.sf.orcc.simulators.slow.TraceWriter
+import net.sf.orcc.util.FilesManager
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+/**
+ * Test that the binary traces of the FIFOs of the simulator, once converted,
+ * are identical to their text traces
+ */
+@RunWith(typeof(JUnit4))
+class TraceConverterTests extends Assert {
+
+	static val SIZE = 64
+
+	private val irFact = IrFactory::eINSTANCE
+
+	val types = #[irFact.createTypeBool, irFact.createTypeFloat,
+		irFact.createTypeInt(8), irFact.createTypeUint(8),
+		irFact.createTypeInt(13), irFact.createTypeUint(13),
+		irFact.createTypeInt(16), irFact.createTypeUint(16),
+		irFact.createTypeInt(32), irFact.createTypeUint(32),
+		irFact.createTypeInt(64), irFact.createTypeUint(64)]
+
+	var File tempDir
+
+	@Before
+	def void createFolders() {
+		tempDir = Files.createTempDir
+		new File(tempDir, "text").mkdir
+		new File(tempDir, "binary").mkdir
+	}
+
+	@After
+	def void deleteFolders() {
+		FilesManager.recursiveDelete(tempDir)
+	}
+
+	/**
+	 * Returns a token of the given type built from the given random bits
+	 */
+	def private Object token(Type type, long bits) {
+		if (type.isBool) {
+			bits % 2 == 0
+		} else if (type.isFloat) {
+			BigDecimal.valueOf((bits % 100000) / 8.0f)
+		} else if (type.isUint && type.sizeInBits == 64) {
+			BigInteger.valueOf(bits).and(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE))
+		} else {
+			BigInteger.valueOf(LongValueUtil.clip(bits, type.sizeInBits, type.isInt))
+		}
+	}
+
+	/**
+	 * Returns an array of the same class as the backing array of the FIFOs of
+	 * the given type, which is traced without boxing the tokens.
+	 */
+	def private Object newBufferArray(Type type, int length) {
+		val bits = type.sizeInBits
+		val Class<?> componentType = if (type.isBool) {
+				typeof(boolean)
+			} else if (type.isFloat) {
+				typeof(float)
+			} else if (bits <= 8) {
+				typeof(byte)
+			} else if (bits <= 16) {
+				typeof(short)
+			} else if (bits <= 32) {
+				typeof(int)
+			} else {
+				typeof(long)
+			}
+		Array.newInstance(componentType, length)
+	}
+
+	@Test
+	def convertedTracesMatchTextTraces() {
+		val textFolder = new File(tempDir, "text")
+		val binaryFolder = new File(tempDir, "binary")
+		val writer = new TraceWriter(binaryFolder.path)
+		val random = new Random(42)
+		val counts = <Long>newArrayList
+
+		for (t : 0 ..< types.size) {
+			val type = types.get(t)
+			val name = "fifo" + t
+			val textFifo = SimulatorFifo.create(type, SIZE, textFolder.path, name, true, false)
+			val binaryFifo = SimulatorFifo.create(type, SIZE, binaryFolder.path, name, false, false)
+			assertTrue(binaryFifo.enableBinaryTrace(writer))
+			var count = 0L
+
+			// single tokens and arrays of tokens, enough to fill several
+			// buffers of the binary trace
+			for (k : 0 ..< 1000) {
+				val numTokens = if (k % 2 == 0) 1 else 1 + k % (SIZE - 1)
+				if (numTokens == 1) {
+					val value = token(type, random.nextLong)
+					textFifo.write(value)
+					binaryFifo.write(value)
+				} else {
+					val array = newBufferArray(type, numTokens)
+					for (i : 0 ..< numTokens) {
+						ValueUtil.set(type, array, token(type, random.nextLong), i)
+					}
+					textFifo.write(type, array, numTokens)
+					binaryFifo.write(type, array, numTokens)
+				}
+				count = count + numTokens
+
+				while (textFifo.hasTokens(1)) {
+					textFifo.read
+				}
+				while (binaryFifo.hasTokens(1)) {
+					binaryFifo.read
+				}
+			}
+
+			counts.add(count)
+
+			textFifo.closePrinter
+			binaryFifo.closePrinter
+		}
+		writer.close
+
+		for (t : 0 ..< types.size) {
+			val textTrace = new File(textFolder, "fifo" + t + "_traces.txt")
+			val convertedTrace = new File(tempDir, "fifo" + t + "_converted.txt")
+			assertEquals(counts.get(t).longValue,
+				TraceConverter.convert(new File(binaryFolder, "fifo" + t + "_traces.bin"), convertedTrace))
+			assertEquals(types.get(t).toString, Files.toString(textTrace, Charsets.UTF_8),
+				Files.toString(convertedTrace, Charsets.UTF_8))
+		}
+	}
+
+}
@@ -30,8 +30,10 @@ package net.sf.orcc.cal.generator
 
 import com.google.inject.Inject
 import com.google.inject.Provider
+import java.io.ByteArrayInputStream
 import java.io.ByteArrayOutputStream
 import java.util.HashSet
+import net.sf.orcc.OrccActivator
 import net.sf.orcc.cache.CacheManager
 import net.sf.orcc.cal.cal.AstEntity
 import net.sf.orcc.cal.cal.Import
@@ -39,6 +41,7 @@ import net.sf.orcc.df.Unit
 import net.sf.orcc.frontend.ActorTransformer
 import net.sf.orcc.frontend.Frontend
 import net.sf.orcc.frontend.UnitTransformer
+import net.sf.orcc.ir.impl.IrResourceImpl
 import net.sf.orcc.util.OrccLogger
 import net.sf.orcc.util.OrccUtil
 import org.eclipse.core.resources.IProject
@@ -48,8 +51,11 @@ import org.eclipse.emf.common.util.URI
 import org.eclipse.emf.ecore.resource.Resource
 import org.eclipse.emf.ecore.resource.ResourceSet
 import org.eclipse.xtext.generator.IFileSystemAccess
+import org.eclipse.xtext.generator.IFileSystemAccessExtension3
 import org.eclipse.xtext.generator.IGenerator
 
+import static net.sf.orcc.preferences.PreferenceConstants.P_BINARY_IR
+
 /**
  * Generates code from your model files on save.
  * 
@@ -142,17 +148,25 @@ class CalGenerator implements IGenerator {
 			}
 		}
 
-		// Write in the IR file the content of the transformed AstEntity
-		fsa.generateFile(irSubPath, calResource.serialize)
+		// Write in the IR file the content of the transformed AstEntity. The
+		// binary format can only be written by a file system access able to
+		// handle raw bytes
+		if (fsa instanceof IFileSystemAccessExtension3) {
+			val binary = Boolean::parseBoolean(OrccActivator::getDefault.getPreference(P_BINARY_IR, "false"))
+			fsa.generateFile(irSubPath, new ByteArrayInputStream(calResource.serialize(binary)))
+		} else {
+			fsa.generateFile(irSubPath, new String(calResource.serialize(false)))
+		}
 
 		// Ensure we will not do it again in the same session
 		loadedResources.add(calResource)
 	}
 
 	/**
-	 * Returns a EMF serialized version of the given AstEntity
+	 * Returns a EMF serialized version of the given AstEntity, in the compact
+	 * binary format if <i>binary</i> is true or in XMI otherwise
 	 */
-	private def serialize(Resource calResource) {
+	private def serialize(Resource calResource, boolean binary) {
 		val astEntity = calResource.entity
 
 		// Transform the AstEntity into an Actor or a Unit
@@ -167,7 +181,7 @@ class CalGenerator implements IGenerator {
 		// Check errors...
 		if (entity == null) {
 			OrccLogger.warnln("Unable to transform the CAL content")
-			return ""
+			return newByteArrayOfSize(0)
 		}
 
 		val irResource = irResourceSet.createResource(OrccUtil::getIrUri(calResource.URI))
@@ -175,12 +189,12 @@ class CalGenerator implements IGenerator {
 		// Associate the current entity to its resource
 		irResource.contents.add(entity)
 
-		// Serialize in a simple String in memory
+		// Serialize in a simple byte array in memory
 		val outputStream = new ByteArrayOutputStream
-		irResource.save(outputStream, newHashMap)
+		irResource.save(outputStream, newHashMap(IrResourceImpl::OPTION_BINARY -> binary))
 
 		// Simply return the serialized content
-		outputStream.toString
+		outputStream.toByteArray
 	}
 
 	/**
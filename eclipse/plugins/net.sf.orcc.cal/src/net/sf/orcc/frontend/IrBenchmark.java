@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.frontend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.ir.impl.IrResourceImpl;
+import net.sf.orcc.util.OrccLogger;
+import net.sf.orcc.util.OrccUtil;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * This class defines a command line application comparing the time needed to
+ * load the IR files of a project, with all their dependencies, when they are
+ * serialized in XMI and in the compact binary format. It should be used with
+ * the following command-line, when all plugins are installed in eclipse:
+ * 
+ * <pre>
+ * eclipse -application net.sf.orcc.cal.irBenchmark -data &lt;workspacePath&gt; &lt;projectName&gt; [&lt;iterations&gt;]
+ * </pre>
+ * 
+ * Both versions of each file are built in memory from the IR files currently
+ * in the output folders, so that the measures only include parsing and proxy
+ * resolution, not disk accesses.
+ */
+public class IrBenchmark implements IApplication {
+
+	// Display the command line usage of this application
+	private final String USAGE = "Usage : \n"
+			+ "net.sf.orcc.cal.irBenchmark <project> [<iterations>]";
+
+	private static final int DEFAULT_ITERATIONS = 10;
+
+	private List<URI> uris;
+
+	private List<byte[]> xmiContents;
+
+	private List<byte[]> binaryContents;
+
+	@Override
+	public Object start(IApplicationContext context) {
+		final String[] args = (String[]) context.getArguments().get(
+				IApplicationContext.APPLICATION_ARGS);
+
+		if (args.length == 0) {
+			OrccLogger.severeln("Unable to parse command line arguments");
+			OrccLogger.traceln(USAGE);
+			return IApplication.EXIT_RELAUNCH;
+		}
+
+		OrccLogger.traceln("Command line arguments are \""
+				+ StringUtils.join(args, ' ') + "\"");
+
+		final IProject project = ResourcesPlugin.getWorkspace().getRoot()
+				.getProject(args[0]);
+		if (!project.exists()) {
+			OrccLogger.severeln("Unable to find the project " + args[0]);
+			OrccLogger.traceln(USAGE);
+			return IApplication.EXIT_RELAUNCH;
+		}
+
+		int iterations = DEFAULT_ITERATIONS;
+		if (args.length >= 2) {
+			try {
+				iterations = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				OrccLogger.severeln("Expected integer as number of iterations");
+				OrccLogger.traceln(USAGE);
+				return IApplication.EXIT_RELAUNCH;
+			}
+		}
+
+		try {
+			prepare(OrccUtil.getAllFiles(OrccUtil.IR_SUFFIX,
+					OrccUtil.getOutputFolders(project)));
+
+			OrccLogger.traceln(uris.size() + " IR files, "
+					+ size(xmiContents) / 1024 + " kB in XMI, "
+					+ size(binaryContents) / 1024 + " kB in binary");
+
+			// The first runs only warm up the JVM
+			load(xmiContents);
+			load(binaryContents);
+
+			List<Long> xmiTimes = new ArrayList<Long>();
+			List<Long> binaryTimes = new ArrayList<Long>();
+			for (int i = 0; i < iterations; i++) {
+				xmiTimes.add(load(xmiContents));
+				binaryTimes.add(load(binaryContents));
+			}
+
+			long xmiMedian = median(xmiTimes);
+			long binaryMedian = median(binaryTimes);
+			OrccLogger.traceln("XMI load time (median of " + iterations
+					+ " runs): " + xmiMedian + " ms");
+			OrccLogger.traceln("Binary load time (median of " + iterations
+					+ " runs): " + binaryMedian + " ms");
+			if (binaryMedian > 0) {
+				OrccLogger.traceln(String.format("Speedup: %.2fx",
+						(double) xmiMedian / binaryMedian));
+			}
+		} catch (CoreException e) {
+			OrccLogger.severeln(e.getMessage());
+			e.printStackTrace();
+		} catch (IOException e) {
+			OrccLogger.severeln(e.getMessage());
+			e.printStackTrace();
+		}
+
+		return IApplication.EXIT_OK;
+	}
+
+	@Override
+	public void stop() {
+	}
+
+	/**
+	 * Loads all the given files, in the resource set and resolves all the
+	 * cross references between them.
+	 * 
+	 * @param contents
+	 *            the serialized content of each file of {@link #uris}
+	 * @return the time spent, in milliseconds
+	 * @throws IOException
+	 */
+	private long load(List<byte[]> contents) throws IOException {
+		ResourceSet set = new ResourceSetImpl();
+		List<Resource> resources = new ArrayList<Resource>();
+		for (URI uri : uris) {
+			resources.add(set.createResource(uri));
+		}
+
+		long t0 = System.nanoTime();
+		for (int i = 0; i < resources.size(); i++) {
+			resources.get(i).load(new ByteArrayInputStream(contents.get(i)),
+					null);
+		}
+		EcoreUtil.resolveAll(set);
+		return (System.nanoTime() - t0) / 1000000;
+	}
+
+	/**
+	 * Returns the median of the given times.
+	 * 
+	 * @param times
+	 *            a list of times
+	 * @return the median time
+	 */
+	private long median(List<Long> times) {
+		if (times.isEmpty()) {
+			return 0;
+		}
+		Collections.sort(times);
+		return times.get(times.size() / 2);
+	}
+
+	/**
+	 * Loads the given IR files, whatever their current format, and serializes
+	 * each of them in memory in XMI and in binary.
+	 * 
+	 * @param files
+	 *            the IR files of the project and its dependencies
+	 * @throws CoreException
+	 * @throws IOException
+	 */
+	private void prepare(List<IFile> files) throws CoreException, IOException {
+		uris = new ArrayList<URI>();
+		xmiContents = new ArrayList<byte[]>();
+		binaryContents = new ArrayList<byte[]>();
+
+		ResourceSet set = new ResourceSetImpl();
+		for (IFile file : files) {
+			URI uri = URI.createPlatformResourceURI(file.getFullPath()
+					.toString(), true);
+			Resource resource = set.createResource(uri);
+			InputStream in = file.getContents();
+			try {
+				resource.load(in, null);
+			} finally {
+				in.close();
+			}
+
+			uris.add(uri);
+			xmiContents.add(save(resource, false));
+			binaryContents.add(save(resource, true));
+		}
+	}
+
+	/**
+	 * Serializes the given resource in memory.
+	 * 
+	 * @param resource
+	 *            an IR resource
+	 * @param binary
+	 *            <code>true</code> to use the binary format, otherwise XMI
+	 * @return the serialized content
+	 * @throws IOException
+	 */
+	private byte[] save(Resource resource, boolean binary) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Map<String, Object> options = Collections.<String, Object> singletonMap(
+				IrResourceImpl.OPTION_BINARY, binary);
+		resource.save(out, options);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the total size of the given contents.
+	 * 
+	 * @param contents
+	 *            a list of serialized contents
+	 * @return a number of bytes
+	 */
+	private long size(List<byte[]> contents) {
+		long size = 0;
+		for (byte[] content : contents) {
+			size += content.length;
+		}
+		return size;
+	}
+
+}
@@ -244,6 +244,20 @@ public class DfVisitor<T> extends DfSwitch<T> {
 		return actor;
 	}
 
+	/**
+	 * Returns <code>true</code> if this transformation is {@link ActorLocal},
+	 * or delegates to an IR visitor that is.
+	 * 
+	 * @return <code>true</code> if this transformation may be applied on
+	 *         several actors concurrently
+	 */
+	public boolean isActorLocal() {
+		if (getClass() == DfVisitor.class) {
+			return irVisitor instanceof ActorLocal;
+		}
+		return this instanceof ActorLocal;
+	}
+
 	@Override
 	public String toString() {
 		String transf;
@@ -28,11 +28,19 @@
  */
 package net.sf.orcc.ir.impl;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
 import net.sf.orcc.df.Actor;
 import net.sf.orcc.df.Unit;
 
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl.EObjectInputStream;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl.EObjectOutputStream;
 import org.eclipse.emf.ecore.xmi.XMLResource;
 import org.eclipse.emf.ecore.xmi.impl.URIHandlerImpl;
 import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
@@ -41,11 +49,29 @@ import org.eclipse.emf.ecore.xmi.impl.XMIResourceImpl;
  * This class defines a resource implementation for the Df model which is used
  * to serialize to/deserialize from XDF.
  * 
+ * The resource is saved as XMI unless the {@link #OPTION_BINARY} save option
+ * is set, in which case the compact EMF binary format is used instead. Both
+ * formats are accepted when loading, the binary one being detected from its
+ * signature, so that IR files can be read without knowing how they were
+ * written.
+ * 
  * @author mwipliez
  * 
  */
 public class IrResourceImpl extends XMIResourceImpl {
 
+	/**
+	 * Save option used to write the resource in the EMF binary format. The
+	 * value must be a {@link Boolean}, the default being {@link Boolean#FALSE}.
+	 */
+	public static final String OPTION_BINARY = "net.sf.orcc.ir.binary";
+
+	/**
+	 * First byte of the signature written by the EMF binary format. It can
+	 * never start an XML document.
+	 */
+	private static final int BINARY_SIGNATURE = 0x89;
+
 	public IrResourceImpl() {
 	}
 
@@ -105,4 +131,54 @@ public class IrResourceImpl extends XMIResourceImpl {
 		return super.getEObject(uriFragment);
 	}
 
+	@Override
+	public void doLoad(InputStream inputStream, Map<?, ?> options)
+			throws IOException {
+		InputStream in = inputStream.markSupported() ? inputStream
+				: new BufferedInputStream(inputStream);
+		in.mark(1);
+		int first = in.read();
+		in.reset();
+
+		if (first == BINARY_SIGNATURE) {
+			EObjectInputStream eObjectInputStream = new EObjectInputStream(in,
+					options);
+			eObjectInputStream.loadResource(this);
+		} else {
+			super.doLoad(in, options);
+		}
+	}
+
+	@Override
+	public void doSave(OutputStream outputStream, Map<?, ?> options)
+			throws IOException {
+		if (isBinary(options)) {
+			EObjectOutputStream eObjectOutputStream = new EObjectOutputStream(
+					outputStream, options);
+			eObjectOutputStream.saveResource(this);
+			eObjectOutputStream.flush();
+		} else {
+			super.doSave(outputStream, options);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the given save options, or the default save
+	 * options of this resource, ask for the binary format.
+	 * 
+	 * @param options
+	 *            save options, may be <code>null</code>
+	 * @return <code>true</code> if the resource must be saved in binary
+	 */
+	private boolean isBinary(Map<?, ?> options) {
+		Object binary = null;
+		if (options != null) {
+			binary = options.get(OPTION_BINARY);
+		}
+		if (binary == null && defaultSaveOptions != null) {
+			binary = defaultSaveOptions.get(OPTION_BINARY);
+		}
+		return Boolean.TRUE.equals(binary);
+	}
+
 }
@@ -28,6 +28,7 @@
  */
 package net.sf.orcc.ir.transform;
 
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.BlockBasic;
 import net.sf.orcc.ir.BlockIf;
 import net.sf.orcc.ir.BlockWhile;
@@ -44,7 +45,8 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  * @author Matthieu Wipliez
  * 
  */
-public class BlockCombine extends AbstractIrVisitor<Void> {
+public class BlockCombine extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	private BlockBasic previous;
 
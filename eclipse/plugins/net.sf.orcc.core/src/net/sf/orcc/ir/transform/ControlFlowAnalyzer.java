@@ -31,6 +31,7 @@ package net.sf.orcc.ir.transform;
 
 import java.util.List;
 
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.graph.Edge;
 import net.sf.orcc.ir.Block;
 import net.sf.orcc.ir.BlockBasic;
@@ -49,7 +50,8 @@ import net.sf.orcc.ir.util.AbstractIrVisitor;
  * @author Jerome Gorin
  * 
  */
-public class ControlFlowAnalyzer extends AbstractIrVisitor<CfgNode> {
+public class ControlFlowAnalyzer extends AbstractIrVisitor<CfgNode> implements
+		ActorLocal {
 
 	protected Cfg cfg;
 
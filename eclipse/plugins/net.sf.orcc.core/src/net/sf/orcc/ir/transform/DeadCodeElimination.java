@@ -31,6 +31,7 @@ package net.sf.orcc.ir.transform;
 import java.util.List;
 import java.util.ListIterator;
 
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Block;
 import net.sf.orcc.ir.BlockBasic;
 import net.sf.orcc.ir.BlockIf;
@@ -53,7 +54,8 @@ import net.sf.orcc.util.util.EcoreHelper;
  * @author Matthieu Wipliez
  * 
  */
-public class DeadCodeElimination extends AbstractIrVisitor<Void> {
+public class DeadCodeElimination extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	@Override
 	public Void caseBlockIf(BlockIf block) {
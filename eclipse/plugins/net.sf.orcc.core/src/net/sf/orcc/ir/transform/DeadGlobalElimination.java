@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.df.util.DfVisitor;
 import net.sf.orcc.ir.Def;
 import net.sf.orcc.ir.Instruction;
@@ -46,7 +47,8 @@ import net.sf.orcc.util.util.EcoreHelper;
  * @author Matthieu Wipliez
  * 
  */
-public class DeadGlobalElimination extends DfVisitor<Object> {
+public class DeadGlobalElimination extends DfVisitor<Object> implements
+		ActorLocal {
 
 	/**
 	 * Removes the instructions that define an unused state variable.
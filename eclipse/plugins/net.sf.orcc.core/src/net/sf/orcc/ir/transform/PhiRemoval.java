@@ -34,6 +34,7 @@ import static net.sf.orcc.util.SwitchUtil.visit;
 import java.util.ArrayList;
 import java.util.List;
 
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Block;
 import net.sf.orcc.ir.BlockBasic;
 import net.sf.orcc.ir.BlockIf;
@@ -56,7 +57,7 @@ import net.sf.orcc.util.util.EcoreHelper;
  * @author Matthieu Wipliez
  * 
  */
-public class PhiRemoval extends AbstractIrVisitor<Void> {
+public class PhiRemoval extends AbstractIrVisitor<Void> implements ActorLocal {
 
 	private class PhiRemover extends AbstractIrVisitor<Void> {
 
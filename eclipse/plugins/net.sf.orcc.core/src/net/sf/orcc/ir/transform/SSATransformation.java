@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Block;
 import net.sf.orcc.ir.BlockBasic;
 import net.sf.orcc.ir.BlockIf;
@@ -64,7 +65,8 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  * @author Matthieu Wipliez
  * 
  */
-public class SSATransformation extends AbstractIrVisitor<Void> {
+public class SSATransformation extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	/*
 	 * FIXME : if this transformation is applied more than one time on an actor,
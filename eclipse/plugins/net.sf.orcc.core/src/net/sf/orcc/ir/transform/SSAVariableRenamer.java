@@ -30,6 +30,7 @@ package net.sf.orcc.ir.transform;
 
 import static net.sf.orcc.ir.util.IrUtil.getNameSSA;
 import static net.sf.orcc.util.SwitchUtil.DONE;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.Procedure;
 import net.sf.orcc.ir.Var;
 import net.sf.orcc.ir.util.AbstractIrVisitor;
@@ -42,7 +43,8 @@ import net.sf.orcc.util.Void;
  * @author Matthieu Wipliez
  * 
  */
-public class SSAVariableRenamer extends AbstractIrVisitor<Void> {
+public class SSAVariableRenamer extends AbstractIrVisitor<Void> implements
+		ActorLocal {
 
 	@Override
 	public Void caseProcedure(Procedure procedure) {
@@ -31,6 +31,7 @@ package net.sf.orcc.ir.transform;
 import java.util.List;
 
 import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.ir.BlockIf;
 import net.sf.orcc.ir.BlockWhile;
 import net.sf.orcc.ir.ExprBinary;
@@ -67,7 +68,8 @@ import org.eclipse.emf.common.util.EList;
  * @author Herve Yviquel
  * 
  */
-public class TacTransformation extends AbstractIrVisitor<Expression> {
+public class TacTransformation extends AbstractIrVisitor<Expression> implements
+		ActorLocal {
 
 	private static IrFactory factory = IrFactory.eINSTANCE;
 
@@ -33,8 +33,11 @@ import static java.math.BigInteger.ONE;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.sf.orcc.OrccRuntimeException;
 import net.sf.orcc.df.Action;
@@ -82,14 +85,24 @@ import org.eclipse.emf.ecore.util.EcoreUtil;
  */
 public class ActorInterpreter extends IrSwitch<Object> {
 
+	/** procedures being executed, whose local buffers cannot be reused */
+	private Set<Procedure> activeProcedures;
 	/** the associated interpreted actor */
 	protected Actor actor;
+	/** number of arrays allocated by this interpreter */
+	protected long allocations;
 	/** branch being visited */
 	protected int branch;
+	/** reusable arrays of list variables, or null if arrays are not reused */
+	protected Map<Var, Object> buffers;
 	/** the expression evaluator */
 	protected ExpressionEvaluator exprInterpreter;
+	/** runtime values of variables, or null if they are stored in the IR */
+	protected FrameStore frames;
 	/** Actor's FSM current state */
 	protected State fsmState;
+	/** true if integers are represented by Long values (see LongValueUtil) */
+	protected boolean longValues;
 
 	/**
 	 * Creates a new interpreter without any associated {@link Actor}
@@ -119,8 +132,7 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		for (Port port : pattern.getPorts()) {
 			Var var = pattern.getVariable(port);
 			if (var != null) {
-				Object value = ValueUtil.createArray((TypeList) var.getType());
-				var.setValue(value);
+				setValue(var, getBuffer(var));
 			}
 		}
 	}
@@ -233,7 +245,7 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		Object value = exprInterpreter.doSwitch(instr.getValue());
 		value = clipValue(target.getType(), value, instr);
 		try {
-			target.setValue(value);
+			setValue(target, value);
 		} catch (OrccRuntimeException e) {
 			String file = actor.getFileName();
 			throw new OrccRuntimeException(file, instr.getLineNumber(), "", e);
@@ -255,23 +267,39 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		} else if (proc.isNative()) {
 			Object result = callNativeProcedure(proc, callParams);
 			if (call.hasResult()) {
-				call.getTarget().getVariable().setValue(result);
+				setValue(call.getTarget().getVariable(), result);
 			}
 		} else {
-			List<Param> procParams = proc.getParameters();
+			// Evaluate the arguments in the frame of the caller
+			Object[] values = new Object[callParams.size()];
 			for (int i = 0; i < callParams.size(); i++) {
-				Var procVar = procParams.get(i).getVariable();
 				Arg arg = callParams.get(i);
 				if (arg.isByVal()) {
 					Expression value = ((ArgByVal) arg).getValue();
-					procVar.setValue(exprInterpreter.doSwitch(value));
+					values[i] = exprInterpreter.doSwitch(value);
+				}
+			}
+
+			if (frames != null) {
+				frames.prepare(proc);
+			}
+
+			List<Param> procParams = proc.getParameters();
+			for (int i = 0; i < callParams.size(); i++) {
+				if (callParams.get(i).isByVal()) {
+					Var procVar = procParams.get(i).getVariable();
+					if (frames == null) {
+						procVar.setValue(values[i]);
+					} else {
+						frames.setArgument(procVar, values[i]);
+					}
 				}
 			}
 
 			// Interpret procedure body
 			Object result = doSwitch(proc);
 			if (call.hasResult()) {
-				call.getTarget().getVariable().setValue(result);
+				setValue(call.getTarget().getVariable(), result);
 			}
 		}
 		return null;
@@ -282,10 +310,10 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		Var target = instr.getTarget().getVariable();
 		Var source = instr.getSource().getVariable();
 		if (instr.getIndexes().isEmpty()) {
-			target.setValue(source.getValue());
+			setValue(target, getValue(source));
 		} else {
 
-			Object array = source.getValue();
+			Object array = getValue(source);
 			Object[] indexes = new Object[instr.getIndexes().size()];
 			int i = 0;
 			for (Expression index : instr.getIndexes()) {
@@ -293,8 +321,9 @@ public class ActorInterpreter extends IrSwitch<Object> {
 			}
 			Type type = ((TypeList) source.getType()).getInnermostType();
 			try {
-				Object value = ValueUtil.get(type, array, indexes);
-				target.setValue(value);
+				Object value = longValues ? LongValueUtil.get(type, array,
+						indexes) : ValueUtil.get(type, array, indexes);
+				setValue(target, value);
 			} catch (IndexOutOfBoundsException e) {
 				throw new OrccRuntimeException(
 						"Array Index Out of Bound at line "
@@ -307,7 +336,8 @@ public class ActorInterpreter extends IrSwitch<Object> {
 	@Override
 	public Object caseInstPhi(InstPhi phi) {
 		Expression value = phi.getValues().get(branch);
-		phi.getTarget().getVariable().setValue(exprInterpreter.doSwitch(value));
+		Object result = exprInterpreter.doSwitch(value);
+		setValue(phi.getTarget().getVariable(), result);
 		return null;
 	}
 
@@ -325,10 +355,10 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		Object value = exprInterpreter.doSwitch(instr.getValue());
 		if (instr.getIndexes().isEmpty()) {
 			value = clipValue(target.getType(), value, instr);
-			target.setValue(value);
+			setValue(target, value);
 		} else {
 
-			Object array = target.getValue();
+			Object array = getValue(target);
 			Object[] indexes = new Object[instr.getIndexes().size()];
 			int i = 0;
 			for (Expression index : instr.getIndexes()) {
@@ -338,7 +368,11 @@ public class ActorInterpreter extends IrSwitch<Object> {
 			Type type = ((TypeList) target.getType()).getInnermostType();
 			value = clipValue(type, value, instr);
 			try {
-				ValueUtil.set(type, array, value, indexes);
+				if (longValues) {
+					LongValueUtil.set(type, array, value, indexes);
+				} else {
+					ValueUtil.set(type, array, value, indexes);
+				}
 			} catch (IndexOutOfBoundsException e) {
 				throw new OrccRuntimeException(
 						"Array Index Out of Bound at line "
@@ -350,18 +384,33 @@ public class ActorInterpreter extends IrSwitch<Object> {
 
 	@Override
 	public Object caseProcedure(Procedure procedure) {
+		Object[] caller = null;
+		if (frames != null) {
+			caller = frames.enter(procedure);
+		}
 
-		// Allocate local List variables
-		for (Var local : procedure.getLocals()) {
-			Type type = local.getType();
-			if (type.isList()) {
-				Object value = ValueUtil
-						.createArray((TypeList) local.getType());
-				local.setValue(value);
+		// buffers of a procedure called recursively must not be shared
+		boolean reuse = buffers != null && activeProcedures.add(procedure);
+		try {
+			// Allocate local List variables
+			for (Var local : procedure.getLocals()) {
+				Type type = local.getType();
+				if (type.isList()) {
+					Object value = reuse ? getBuffer(local)
+							: createArray((TypeList) type);
+					setValue(local, value);
+				}
 			}
-		}
 
-		return doSwitch(procedure.getBlocks());
+			return doSwitch(procedure.getBlocks());
+		} finally {
+			if (reuse) {
+				activeProcedures.remove(procedure);
+			}
+			if (frames != null) {
+				frames.leave(caller);
+			}
+		}
 	}
 
 	/**
@@ -393,6 +442,23 @@ public class ActorInterpreter extends IrSwitch<Object> {
 	 * @return the original value or a new value
 	 */
 	protected Object clipValue(Type type, Object value, Instruction instruction) {
+		if (longValues && value instanceof Long) {
+			int n = type.getSizeInBits();
+			if (n < 64 || n == 64 && type.isInt()) {
+				long longVal = (Long) value;
+				long clippedValue = LongValueUtil.clip(longVal, n, type.isInt());
+				if (clippedValue == longVal) {
+					return value;
+				}
+
+				if (type.isInt()) {
+					warnOverflow(instruction);
+				}
+				return clippedValue;
+			}
+			value = BigInteger.valueOf((Long) value);
+		}
+
 		if (!ValueUtil.isInt(value)) {
 			return value;
 		}
@@ -411,25 +477,11 @@ public class ActorInterpreter extends IrSwitch<Object> {
 			}
 
 			if (!clippedValue.equals(intVal)) {
-
-				String container = "";
-				Action parentAction = EcoreHelper.getContainerOfType(
-						instruction, Action.class);
-				if (parentAction != null) {
-					container = parentAction.getName();
-				} else if (EcoreHelper.getContainerOfType(instruction,
-						Procedure.class) != null) {
-					container = EcoreHelper.getContainerOfType(instruction,
-							Procedure.class).getName();
-				}
-
-				OrccLogger.debugln("[signed overflow/underflow] "
-						+ actor.getName() + ":" + container + " line: "
-						+ instruction.getLineNumber());
+				warnOverflow(instruction);
 			}
 		}
 
-		return clippedValue;
+		return longValues ? LongValueUtil.valueOf(clippedValue) : clippedValue;
 	}
 
 	/**
@@ -448,6 +500,52 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		return null;
 	}
 
+	/**
+	 * Makes this interpreter store the runtime values of variables in a
+	 * {@link FrameStore} instead of the IR. The IR is then only read, so the
+	 * same actor can be interpreted by several interpreters at once, and
+	 * procedures can be called recursively. This must be called before the
+	 * actor is initialized.
+	 */
+	public void enableFrames() {
+		frames = new FrameStore();
+		exprInterpreter.setFrameStore(frames);
+	}
+
+	/**
+	 * Makes this interpreter represent integers with {@link Long} values when
+	 * they fit in 64 bits, instead of {@link BigInteger} values. This must be
+	 * called before the actor is initialized.
+	 */
+	public void enableLongValues() {
+		longValues = true;
+		exprInterpreter = new LongExpressionEvaluator();
+		exprInterpreter.setFrameStore(frames);
+	}
+
+	/**
+	 * Creates a new array that matches the given type, and counts it in the
+	 * number of allocations of this interpreter.
+	 * 
+	 * @param type
+	 *            a type of list
+	 * @return an array
+	 */
+	protected Object createArray(TypeList type) {
+		allocations++;
+		return ValueUtil.createArray(type);
+	}
+
+	/**
+	 * Makes this interpreter allocate the arrays of pattern variables and local
+	 * list variables once, and reuse them at each firing or call instead of
+	 * allocating new ones. Reused arrays are cleared before being handed out.
+	 */
+	public void enableBufferReuse() {
+		activeProcedures = new HashSet<Procedure>();
+		buffers = new IdentityHashMap<Var, Object>();
+	}
+
 	/**
 	 * Executes the given action. This implementation allocates input/output
 	 * pattern and executes the body. Should be overriden by implementations to
@@ -475,6 +573,40 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		return actor;
 	}
 
+	/**
+	 * Returns the number of arrays allocated by this interpreter since it was
+	 * created.
+	 * 
+	 * @return a number of allocations
+	 */
+	public long getAllocations() {
+		return allocations;
+	}
+
+	/**
+	 * Returns an array for the given list variable. If buffers are reused, the
+	 * array allocated for this variable the first time is cleared and
+	 * returned, otherwise a new array is allocated.
+	 * 
+	 * @param var
+	 *            a variable of type list
+	 * @return an array
+	 */
+	protected Object getBuffer(Var var) {
+		if (buffers == null) {
+			return createArray((TypeList) var.getType());
+		}
+
+		Object buffer = buffers.get(var);
+		if (buffer == null) {
+			buffer = createArray((TypeList) var.getType());
+			buffers.put(var, buffer);
+		} else {
+			ValueUtil.clearArray(buffer);
+		}
+		return buffer;
+	}
+
 	/**
 	 * Returns the current FSM state.
 	 * 
@@ -518,6 +650,17 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		return null;
 	}
 
+	/**
+	 * Returns the runtime value of the given variable.
+	 * 
+	 * @param var
+	 *            a variable
+	 * @return the value of the variable
+	 */
+	public Object getValue(Var var) {
+		return frames == null ? var.getValue() : frames.get(var);
+	}
+
 	/**
 	 * Initializes external resources referenced by an object (actor, procedure,
 	 * etc.)
@@ -531,7 +674,7 @@ public class ActorInterpreter extends IrSwitch<Object> {
 				.find(obj);
 		for (EObject externalObject : map.keySet()) {
 			if (externalObject instanceof Var
-					&& ((Var) externalObject).getValue() == null) {
+					&& getValue((Var) externalObject) == null) {
 				initializeVar((Var) externalObject);
 			} else if (externalObject instanceof Procedure) {
 				initExternalResources(externalObject);
@@ -595,21 +738,21 @@ public class ActorInterpreter extends IrSwitch<Object> {
 			} else if (type.isFloat()) {
 				value = BigDecimal.ZERO;
 			} else if (type.isInt() || type.isUint()) {
-				value = BigInteger.ZERO;
+				value = longValues ? (Object) 0L : BigInteger.ZERO;
 			} else if (type.isList()) {
-				value = ValueUtil.createArray((TypeList) type);
+				value = createArray((TypeList) type);
 			} else if (type.isString()) {
 				value = "";
 			} else {
 				value = null;
 			}
-			variable.setValue(value);
+			setValue(variable, value);
 		} else {
 			// evaluate initial constant value
 			if (type.isList()) {
 				exprInterpreter.setType((TypeList) type);
 			}
-			variable.setValue(exprInterpreter.doSwitch(initConst));
+			setValue(variable, exprInterpreter.doSwitch(initConst));
 		}
 	}
 
@@ -663,4 +806,43 @@ public class ActorInterpreter extends IrSwitch<Object> {
 		this.actor = actor;
 	}
 
+	/**
+	 * Sets the runtime value of the given variable.
+	 * 
+	 * @param var
+	 *            a variable
+	 * @param value
+	 *            a value
+	 */
+	public void setValue(Var var, Object value) {
+		if (frames == null) {
+			var.setValue(value);
+		} else {
+			frames.set(var, value);
+		}
+	}
+
+	/**
+	 * Prints a debug message about a signed overflow/underflow caused by the
+	 * given instruction.
+	 * 
+	 * @param instruction
+	 *            an instruction
+	 */
+	private void warnOverflow(Instruction instruction) {
+		String container = "";
+		Action parentAction = EcoreHelper.getContainerOfType(instruction,
+				Action.class);
+		if (parentAction != null) {
+			container = parentAction.getName();
+		} else if (EcoreHelper
+				.getContainerOfType(instruction, Procedure.class) != null) {
+			container = EcoreHelper.getContainerOfType(instruction,
+					Procedure.class).getName();
+		}
+
+		OrccLogger.debugln("[signed overflow/underflow] " + actor.getName()
+				+ ":" + container + " line: " + instruction.getLineNumber());
+	}
+
 }
@@ -56,6 +56,8 @@ import org.eclipse.emf.ecore.EObject;
  */
 public class ExpressionEvaluator extends IrSwitch<Object> {
 
+	private FrameStore frames;
+
 	private TypeList typeList;
 
 	@Override
@@ -126,7 +128,7 @@ public class ExpressionEvaluator extends IrSwitch<Object> {
 	@Override
 	public Object caseExprVar(ExprVar expr) {
 		Var var = expr.getUse().getVariable();
-		Object value = var.getValue();
+		Object value = frames == null ? var.getValue() : frames.get(var);
 		if (value == null) {
 			throw new OrccRuntimeException("Uninitialized variable: "
 					+ var.getName());
@@ -162,7 +164,7 @@ public class ExpressionEvaluator extends IrSwitch<Object> {
 				computeInitValue(array, eltType, list.get(i), innerIndexes);
 			}
 		} else {
-			ValueUtil.set(type, array, doSwitch(expr), indexes);
+			set(type, array, doSwitch(expr), indexes);
 		}
 	}
 
@@ -193,6 +195,36 @@ public class ExpressionEvaluator extends IrSwitch<Object> {
 		throw new OrccRuntimeException("expected integer expression");
 	}
 
+	/**
+	 * Writes the given value in the given array at the given indexes. This
+	 * method may be overridden by evaluators that use another representation
+	 * of values.
+	 * 
+	 * @param type
+	 *            type of the innermost elements of the array
+	 * @param array
+	 *            an array object
+	 * @param value
+	 *            a value
+	 * @param indexes
+	 *            indexes
+	 */
+	protected void set(Type type, Object array, Object value,
+			Object... indexes) {
+		ValueUtil.set(type, array, value, indexes);
+	}
+
+	/**
+	 * Sets the store from which the values of variables are read. By default,
+	 * values are read from the IR.
+	 * 
+	 * @param frames
+	 *            a store, or <code>null</code> to read values from the IR
+	 */
+	public void setFrameStore(FrameStore frames) {
+		this.frames = frames;
+	}
+
 	public void setType(TypeList typeList) {
 		this.typeList = typeList;
 	}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.ir.util;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.sf.orcc.ir.Param;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.Var;
+
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * This class stores the runtime values of variables outside of the IR. Each
+ * variable is given an index the first time it is accessed. Parameters and
+ * local variables of a procedure are stored in a frame that is created for
+ * each call of this procedure, which makes recursive calls possible. Other
+ * variables (parameters and state variables of an actor, pattern variables,
+ * constants of units) are stored in a global frame.
+ * 
+ * Since the IR is only read, several stores (and so several interpreters) can
+ * execute the same actor at the same time.
+ * 
+ */
+public class FrameStore {
+
+	private static final Object[] EMPTY_FRAME = new Object[0];
+
+	/** frame of the procedure being executed */
+	private Object[] frame;
+
+	/** size of the frame of each procedure */
+	private final Map<Procedure, Integer> frameSizes;
+
+	/** values of global variables */
+	private Object[] globals;
+
+	/**
+	 * index of each variable: a positive index is an index in the global frame,
+	 * a negative index <code>i</code> is the index <code>-i - 1</code> in the
+	 * frame of a procedure
+	 */
+	private final Map<Var, Integer> indexes;
+
+	private int numGlobals;
+
+	/** frame prepared by {@link #prepare(Procedure)} */
+	private Object[] pendingFrame;
+
+	/** procedure whose frame has been prepared */
+	private Procedure pendingProcedure;
+
+	/**
+	 * Creates a new empty store.
+	 */
+	public FrameStore() {
+		frame = EMPTY_FRAME;
+		frameSizes = new IdentityHashMap<Procedure, Integer>();
+		globals = new Object[16];
+		indexes = new IdentityHashMap<Var, Integer>();
+	}
+
+	/**
+	 * Enters a new frame for the given procedure. If a frame has been
+	 * prepared for this procedure, this frame is used.
+	 * 
+	 * @param procedure
+	 *            a procedure
+	 * @return the frame of the caller, to be given to {@link #leave(Object[])}
+	 */
+	public Object[] enter(Procedure procedure) {
+		Object[] caller = frame;
+		if (pendingProcedure == procedure) {
+			frame = pendingFrame;
+		} else {
+			frame = newFrame(procedure);
+		}
+		pendingFrame = null;
+		pendingProcedure = null;
+		return caller;
+	}
+
+	/**
+	 * Returns the value of the given variable.
+	 * 
+	 * @param var
+	 *            a variable
+	 * @return the value of the variable, or <code>null</code>
+	 */
+	public Object get(Var var) {
+		int index = getIndex(var);
+		if (index >= 0) {
+			return globals[index];
+		}
+		return frame[-index - 1];
+	}
+
+	/**
+	 * Returns the index of the given variable, assigning it if needed.
+	 */
+	private int getIndex(Var var) {
+		Integer index = indexes.get(var);
+		if (index == null) {
+			EObject container = var.eContainer();
+			if (container instanceof Param) {
+				container = container.eContainer();
+			}
+
+			if (container instanceof Procedure
+					&& !frameSizes.containsKey(container)) {
+				indexProcedure((Procedure) container);
+				index = indexes.get(var);
+			}
+
+			if (index == null) {
+				if (numGlobals == globals.length) {
+					globals = Arrays.copyOf(globals, 2 * numGlobals);
+				}
+				index = numGlobals++;
+				indexes.put(var, index);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Assigns an index to the parameters and local variables of the given
+	 * procedure, and returns the size of its frame.
+	 */
+	private int indexProcedure(Procedure procedure) {
+		int size = 0;
+		for (Param param : procedure.getParameters()) {
+			indexes.put(param.getVariable(), -(++size));
+		}
+		for (Var local : procedure.getLocals()) {
+			indexes.put(local, -(++size));
+		}
+		frameSizes.put(procedure, size);
+		return size;
+	}
+
+	/**
+	 * Leaves the current frame, and goes back to the frame of the caller.
+	 * 
+	 * @param caller
+	 *            the value returned by {@link #enter(Procedure)}
+	 */
+	public void leave(Object[] caller) {
+		frame = caller;
+	}
+
+	private Object[] newFrame(Procedure procedure) {
+		Integer size = frameSizes.get(procedure);
+		if (size == null) {
+			size = indexProcedure(procedure);
+		}
+		return size == 0 ? EMPTY_FRAME : new Object[size];
+	}
+
+	/**
+	 * Prepares the frame of a call to the given procedure, so that arguments
+	 * can be bound with {@link #setArgument(Var, Object)} before the procedure
+	 * is entered.
+	 * 
+	 * @param procedure
+	 *            the procedure that is about to be called
+	 */
+	public void prepare(Procedure procedure) {
+		pendingFrame = newFrame(procedure);
+		pendingProcedure = procedure;
+	}
+
+	/**
+	 * Sets the value of the given variable.
+	 * 
+	 * @param var
+	 *            a variable
+	 * @param value
+	 *            a value
+	 */
+	public void set(Var var, Object value) {
+		int index = getIndex(var);
+		if (index >= 0) {
+			globals[index] = value;
+		} else {
+			frame[-index - 1] = value;
+		}
+	}
+
+	/**
+	 * Sets the value of the given parameter in the frame prepared by
+	 * {@link #prepare(Procedure)}.
+	 * 
+	 * @param param
+	 *            a parameter of the prepared procedure
+	 * @param value
+	 *            a value
+	 */
+	public void setArgument(Var param, Object value) {
+		pendingFrame[-getIndex(param) - 1] = value;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.ir.util;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.ir.ExprBinary;
+import net.sf.orcc.ir.ExprInt;
+import net.sf.orcc.ir.ExprUnary;
+import net.sf.orcc.ir.Expression;
+import net.sf.orcc.ir.OpBinary;
+import net.sf.orcc.ir.Type;
+
+/**
+ * This class defines an expression evaluator that represents integers with
+ * {@link Long} values when they fit in 64 bits, and computes them with
+ * {@link LongValueUtil}. Logical operators are evaluated with short circuit.
+ * 
+ */
+public class LongExpressionEvaluator extends ExpressionEvaluator {
+
+	@Override
+	public Object caseExprBinary(ExprBinary expr) {
+		OpBinary op = expr.getOp();
+		Object val1 = doSwitch(expr.getE1());
+		if (op == OpBinary.LOGIC_AND && Boolean.FALSE.equals(val1)
+				|| op == OpBinary.LOGIC_OR && Boolean.TRUE.equals(val1)) {
+			return val1;
+		}
+
+		Object val2 = doSwitch(expr.getE2());
+		Object result = LongValueUtil.compute(val1, op, val2);
+		if (result == null) {
+			throw new OrccRuntimeException(
+					"Could not evaluate binary expression:\n"
+							+ new ExpressionPrinter().doSwitch(expr) + "\n");
+		}
+		return result;
+	}
+
+	@Override
+	public Object caseExprInt(ExprInt expr) {
+		return LongValueUtil.valueOf(expr.getValue());
+	}
+
+	@Override
+	public Object caseExprUnary(ExprUnary expr) {
+		Object value = doSwitch(expr.getExpr());
+		Object result = LongValueUtil.compute(expr.getOp(), value);
+
+		if (result == null) {
+			throw new OrccRuntimeException(
+					"Could not evaluate unary expression "
+							+ new ExpressionPrinter().doSwitch(expr) + "\n");
+		}
+		return result;
+	}
+
+	@Override
+	public int evaluateAsInteger(Expression expr) {
+		Object value = doSwitch(expr);
+		if (LongValueUtil.isInt(value)) {
+			return ((Number) value).intValue();
+		}
+
+		// evaluated ok, but not as an integer
+		throw new OrccRuntimeException("expected integer expression");
+	}
+
+	@Override
+	protected void set(Type type, Object array, Object value,
+			Object... indexes) {
+		LongValueUtil.set(type, array, value, indexes);
+	}
+
+}
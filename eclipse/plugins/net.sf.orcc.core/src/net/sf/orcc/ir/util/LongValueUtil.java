@@ -0,0 +1,529 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.ir.util;
+
+import java.lang.reflect.Array;
+import java.math.BigInteger;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.ir.OpBinary;
+import net.sf.orcc.ir.OpUnary;
+import net.sf.orcc.ir.Type;
+
+/**
+ * This class defines static utility methods to deal with values when integers
+ * are represented by {@link Long} values. Operations on two longs are computed
+ * with <code>long</code> arithmetic; integers that do not fit in 64 bits are
+ * represented by {@link BigInteger} values, and operations that overflow fall
+ * back to {@link BigInteger} arithmetic. Other values (booleans, floats,
+ * strings, lists) are the same as in {@link ValueUtil}, to which operations on
+ * these values are delegated.
+ * 
+ */
+public class LongValueUtil {
+
+	private static final BigInteger MASK_64 = BigInteger.ONE.shiftLeft(64)
+			.subtract(BigInteger.ONE);
+
+	/**
+	 * Returns the sum of the two operands.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object add(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			long a = (Long) val1;
+			long b = (Long) val2;
+			long r = a + b;
+			if (((a ^ r) & (b ^ r)) >= 0) {
+				return r;
+			}
+		}
+		return valueOf(ValueUtil.add(toBigInteger(val1), toBigInteger(val2)));
+	}
+
+	/**
+	 * Returns the bitwise and of the two operands.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object and(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			return (Long) val1 & (Long) val2;
+		}
+		return valueOf(ValueUtil.and(toBigInteger(val1), toBigInteger(val2)));
+	}
+
+	/**
+	 * Returns the given value clipped to the given number of bits.
+	 * 
+	 * @param value
+	 *            a value
+	 * @param size
+	 *            a number of bits
+	 * @param signed
+	 *            <code>true</code> if the value must be sign-extended
+	 * @return the clipped value
+	 */
+	public static long clip(long value, int size, boolean signed) {
+		if (size >= 64) {
+			return value;
+		}
+
+		int shift = 64 - size;
+		return signed ? (value << shift) >> shift : (value << shift) >>> shift;
+	}
+
+	/**
+	 * Returns the value of <code>val1</code> <code>op</code> <code>val2</code>.
+	 * Returns <code>null</code> if the value of the expression cannot be
+	 * computed.
+	 * 
+	 * @param val1
+	 *            a value
+	 * @param op
+	 *            a binary operator
+	 * @param val2
+	 *            another value
+	 * @return the value of <code>val1</code> <code>op</code> <code>val2</code>
+	 */
+	public static Object compute(Object val1, OpBinary op, Object val2) {
+		switch (op) {
+		case BITAND:
+			return and(val1, val2);
+		case BITOR:
+			return or(val1, val2);
+		case BITXOR:
+			return xor(val1, val2);
+		case DIV:
+			return divide(val1, val2);
+		case DIV_INT:
+			return divide(val1, val2);
+		case EQ:
+			return equals(val1, val2);
+		case EXP:
+			return valueOf(ValueUtil.pow(toBigInteger(val1),
+					toBigInteger(val2)));
+		case GE:
+			return compare(val1, val2, op);
+		case GT:
+			return compare(val1, val2, op);
+		case LOGIC_AND:
+			return ValueUtil.logicAnd(val1, val2);
+		case LE:
+			return compare(val1, val2, op);
+		case LOGIC_OR:
+			return ValueUtil.logicOr(val1, val2);
+		case LT:
+			return compare(val1, val2, op);
+		case MINUS:
+			return subtract(val1, val2);
+		case MOD:
+			return mod(val1, val2);
+		case NE:
+			return !((Boolean) equals(val1, val2));
+		case PLUS:
+			return add(val1, val2);
+		case SHIFT_LEFT:
+			return shiftLeft(val1, getIntValue(val2));
+		case SHIFT_RIGHT:
+			return shiftLeft(val1, -getIntValue(val2));
+		case TIMES:
+			return multiply(val1, val2);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the value of <code>op</code> <code>value</code>. Returns
+	 * <code>null</code> if the value of the expression cannot be computed.
+	 * 
+	 * @param op
+	 *            a unary operator
+	 * @param value
+	 *            a value
+	 * @return the value of <code>op</code> <code>value</code>
+	 */
+	public static Object compute(OpUnary op, Object value) {
+		if (value instanceof Long) {
+			long a = (Long) value;
+			switch (op) {
+			case BITNOT:
+				return ~a;
+			case MINUS:
+				if (a != Long.MIN_VALUE) {
+					return -a;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return valueOf(ValueUtil.compute(op, toBigInteger(value)));
+	}
+
+	/**
+	 * Compares the two operands with the given comparison operator.
+	 */
+	private static Object compare(Object val1, Object val2, OpBinary op) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			long a = (Long) val1;
+			long b = (Long) val2;
+			switch (op) {
+			case GE:
+				return a >= b;
+			case GT:
+				return a > b;
+			case LE:
+				return a <= b;
+			default:
+				return a < b;
+			}
+		}
+		return ValueUtil.compute(toBigInteger(val1), op, toBigInteger(val2));
+	}
+
+	/**
+	 * Returns the quotient of the two operands. Integer division truncates
+	 * toward zero, like {@link BigInteger#divide(BigInteger)}.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object divide(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			long a = (Long) val1;
+			long b = (Long) val2;
+			if (b != 0 && !(a == Long.MIN_VALUE && b == -1)) {
+				return a / b;
+			}
+		}
+		return valueOf(ValueUtil.divide(toBigInteger(val1),
+				toBigInteger(val2)));
+	}
+
+	/**
+	 * Returns a boolean that is the result of the comparison of the two
+	 * operands.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a boolean
+	 */
+	public static Object equals(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			return ((Long) val1).longValue() == ((Long) val2).longValue();
+		}
+		return ValueUtil.equals(toBigInteger(val1), toBigInteger(val2));
+	}
+
+	/**
+	 * Returns the value in the given array, at the given indexes, knowing the
+	 * type of the elements of the array. Integers are returned as
+	 * {@link Long} values when they fit in 64 bits.
+	 * 
+	 * @param type
+	 *            type of the innermost elements of the array
+	 * @param array
+	 *            an array object
+	 * @param indexes
+	 *            indexes
+	 * @return a value
+	 */
+	public static Object get(Type type, Object array, Object... indexes) {
+		if (array == null) {
+			return null;
+		}
+
+		int numIndexes = indexes.length;
+		for (int i = 0; i < numIndexes - 1; i++) {
+			array = Array.get(array, getIntValue(indexes[i]));
+		}
+
+		int index = getIntValue(indexes[numIndexes - 1]);
+		if (array instanceof byte[]) {
+			byte value = ((byte[]) array)[index];
+			return type.isUint() ? value & 0xFFL : value;
+		} else if (array instanceof short[]) {
+			short value = ((short[]) array)[index];
+			return type.isUint() ? value & 0xFFFFL : value;
+		} else if (array instanceof int[]) {
+			int value = ((int[]) array)[index];
+			return type.isUint() ? value & 0xFFFFFFFFL : value;
+		} else if (array instanceof long[]) {
+			long value = ((long[]) array)[index];
+			if (type.isUint() && value < 0) {
+				return BigInteger.valueOf(value).and(MASK_64);
+			}
+			return value;
+		} else if (array instanceof BigInteger[]) {
+			return valueOf(((BigInteger[]) array)[index]);
+		}
+
+		return ValueUtil.get(type, array, index);
+	}
+
+	/**
+	 * Returns the given index as an int.
+	 */
+	private static int getIntValue(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		} else if (value instanceof String) {
+			return Integer.parseInt((String) value);
+		}
+		throw new OrccRuntimeException("type mismatch in getIntValue");
+	}
+
+	/**
+	 * Returns <code>true</code> if value is an integer, represented either by
+	 * a {@link Long} or a {@link BigInteger}.
+	 * 
+	 * @param value
+	 *            a value
+	 * @return <code>true</code> if value is an integer
+	 */
+	public static boolean isInt(Object value) {
+		return value instanceof Long || value instanceof BigInteger;
+	}
+
+	/**
+	 * Returns the modulo of the two operands, which is never negative like
+	 * {@link BigInteger#mod(BigInteger)}.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object mod(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			long a = (Long) val1;
+			long b = (Long) val2;
+			if (b > 0) {
+				long r = a % b;
+				return r < 0 ? r + b : r;
+			}
+		}
+		return valueOf(ValueUtil.mod(toBigInteger(val1), toBigInteger(val2)));
+	}
+
+	/**
+	 * Returns the product of the two operands.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object multiply(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			long a = (Long) val1;
+			long b = (Long) val2;
+			long r = a * b;
+			if (((Math.abs(a) | Math.abs(b)) >>> 31) == 0) {
+				// both operands fit in 31 bits
+				return r;
+			} else if ((b == 0 || r / b == a)
+					&& !(a == Long.MIN_VALUE && b == -1)
+					&& !(b == Long.MIN_VALUE && a == -1)) {
+				return r;
+			}
+		}
+		return valueOf(ValueUtil.multiply(toBigInteger(val1),
+				toBigInteger(val2)));
+	}
+
+	/**
+	 * Returns the bitwise or of the two operands.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object or(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			return (Long) val1 | (Long) val2;
+		}
+		return valueOf(ValueUtil.or(toBigInteger(val1), toBigInteger(val2)));
+	}
+
+	/**
+	 * Writes the given value in the given array at the given indexes.
+	 * 
+	 * @param type
+	 *            type of the innermost elements of the array.
+	 * @param array
+	 *            an array object
+	 * @param value
+	 *            a value
+	 * @param indexes
+	 *            indexes
+	 */
+	public static void set(Type type, Object array, Object value,
+			Object... indexes) {
+		if (array == null || value == null) {
+			return;
+		}
+
+		int numIndexes = indexes.length;
+		for (int i = 0; i < numIndexes - 1; i++) {
+			array = Array.get(array, getIntValue(indexes[i]));
+		}
+
+		int index = getIntValue(indexes[numIndexes - 1]);
+		if (value instanceof Long) {
+			long longVal = (Long) value;
+			if (array instanceof byte[]) {
+				((byte[]) array)[index] = (byte) longVal;
+				return;
+			} else if (array instanceof short[]) {
+				((short[]) array)[index] = (short) longVal;
+				return;
+			} else if (array instanceof int[]) {
+				((int[]) array)[index] = (int) longVal;
+				return;
+			} else if (array instanceof long[]) {
+				((long[]) array)[index] = longVal;
+				return;
+			}
+		}
+
+		ValueUtil.set(type, array, toBigInteger(value), index);
+	}
+
+	/**
+	 * Returns the first operand shifted left by the given amount, or shifted
+	 * right if the amount is negative, like
+	 * {@link BigInteger#shiftLeft(int)}.
+	 */
+	private static Object shiftLeft(Object value, int n) {
+		if (value instanceof Long) {
+			long a = (Long) value;
+			if (n <= 0) {
+				return a >> Math.min(-n, 63);
+			} else if (n < 63 && (a << n) >> n == a) {
+				return a << n;
+			}
+		}
+		return valueOf(((BigInteger) toBigInteger(value)).shiftLeft(n));
+	}
+
+	/**
+	 * Returns the difference of the two operands.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object subtract(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			long a = (Long) val1;
+			long b = (Long) val2;
+			long r = a - b;
+			if (((a ^ b) & (a ^ r)) >= 0) {
+				return r;
+			}
+		}
+		return valueOf(ValueUtil.subtract(toBigInteger(val1),
+				toBigInteger(val2)));
+	}
+
+	/**
+	 * Returns the given value where a {@link Long} is converted to a
+	 * {@link BigInteger}. Other values are returned unchanged. This method
+	 * must be used before a value is given to code that expects the values of
+	 * {@link ValueUtil}.
+	 * 
+	 * @param value
+	 *            a value
+	 * @return a value
+	 */
+	public static Object toBigInteger(Object value) {
+		if (value instanceof Long) {
+			return BigInteger.valueOf((Long) value);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the given value where a {@link BigInteger} that fits in 64 bits
+	 * is converted to a {@link Long}. Other values are returned unchanged.
+	 * 
+	 * @param value
+	 *            a value
+	 * @return a value
+	 */
+	public static Object valueOf(Object value) {
+		if (value instanceof BigInteger) {
+			BigInteger intVal = (BigInteger) value;
+			if (intVal.bitLength() < 64) {
+				return intVal.longValue();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the bitwise xor of the two operands.
+	 * 
+	 * @param val1
+	 *            an object
+	 * @param val2
+	 *            an object
+	 * @return a value
+	 */
+	public static Object xor(Object val1, Object val2) {
+		if (val1 instanceof Long && val2 instanceof Long) {
+			return (Long) val1 ^ (Long) val2;
+		}
+		return valueOf(ValueUtil.xor(toBigInteger(val1), toBigInteger(val2)));
+	}
+
+}
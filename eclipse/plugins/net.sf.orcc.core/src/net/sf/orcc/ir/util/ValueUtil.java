@@ -33,6 +33,7 @@ import static java.math.BigInteger.ONE;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
 
 import net.sf.orcc.OrccRuntimeException;
@@ -101,6 +102,38 @@ public class ValueUtil {
 		throw new OrccRuntimeException("type mismatch in and");
 	}
 
+	/**
+	 * Resets every element of the given array, as created by
+	 * {@link #createArray(TypeList)}, to its initial value.
+	 * 
+	 * @param array
+	 *            an array
+	 */
+	public static void clearArray(Object array) {
+		if (array instanceof boolean[]) {
+			Arrays.fill((boolean[]) array, false);
+		} else if (array instanceof byte[]) {
+			Arrays.fill((byte[]) array, (byte) 0);
+		} else if (array instanceof short[]) {
+			Arrays.fill((short[]) array, (short) 0);
+		} else if (array instanceof int[]) {
+			Arrays.fill((int[]) array, 0);
+		} else if (array instanceof long[]) {
+			Arrays.fill((long[]) array, 0L);
+		} else if (array instanceof float[]) {
+			Arrays.fill((float[]) array, 0.0f);
+		} else if (array instanceof Object[]) {
+			Object[] objects = (Object[]) array;
+			if (objects.getClass().getComponentType().isArray()) {
+				for (Object subArray : objects) {
+					clearArray(subArray);
+				}
+			} else {
+				Arrays.fill(objects, null);
+			}
+		}
+	}
+
 	/**
 	 * Returns the value of <code>val1</code> <code>op</code> <code>val2</code>.
 	 * Returns <code>null</code> if the value of the expression cannot be
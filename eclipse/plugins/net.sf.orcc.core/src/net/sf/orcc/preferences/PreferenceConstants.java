@@ -45,4 +45,6 @@ public class PreferenceConstants {
 
 	public static final String P_METIS = "metisPath";
 
+	public static final String P_BINARY_IR = "binaryIr";
+
 }
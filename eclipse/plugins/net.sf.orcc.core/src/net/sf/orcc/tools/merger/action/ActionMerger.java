@@ -29,6 +29,7 @@
 package net.sf.orcc.tools.merger.action;
 
 import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.util.ActorLocal;
 import net.sf.orcc.df.util.DfVisitor;
 import net.sf.orcc.moc.MoC;
 
@@ -41,7 +42,7 @@ import net.sf.orcc.moc.MoC;
  * @author Herve Yviquel
  * 
  */
-public class ActionMerger extends DfVisitor<Void> {
+public class ActionMerger extends DfVisitor<Void> implements ActorLocal {
 
 	@Override
 	public Void caseActor(Actor actor) {
@@ -42,13 +42,13 @@ import org.eclipse.core.runtime.IProgressMonitor;
  */
 public abstract class AbstractSimulator implements Simulator {
 
+	/** runtime context of the current simulation */
+	protected volatile SimulationContext context = new SimulationContext();
+
 	private IProgressMonitor monitor;
 
 	private Map<String, Object> options;
 
-	protected static boolean stopRequested = false;
-	public static int statusCode = 0;
-
 	/**
 	 * Returns the boolean-valued attribute with the given name. Returns the
 	 * given default value if the attribute is undefined.
@@ -138,6 +138,15 @@ public abstract class AbstractSimulator implements Simulator {
 		return options;
 	}
 
+	/**
+	 * Returns the status code of the last simulation run by this simulator.
+	 * 
+	 * @return a status code, 0 if the simulation succeeded
+	 */
+	public int getStatusCode() {
+		return context.getStatusCode();
+	}
+
 	/**
 	 * Called when options are initialized.
 	 */
@@ -149,7 +158,8 @@ public abstract class AbstractSimulator implements Simulator {
 	 * @return true if this process has been stopped or canceled
 	 */
 	protected boolean isStopped() {
-		return stopRequested || (monitor != null && monitor.isCanceled());
+		return context.isStopRequested()
+				|| (monitor != null && monitor.isCanceled());
 	}
 
 	/*
@@ -174,25 +184,25 @@ public abstract class AbstractSimulator implements Simulator {
 	}
 
 	/**
-	 * Stop the simulation. This method is called from application after a user
-	 * action (ex: display closed)
+	 * Stop the simulation of the current context. This method is called from
+	 * application after a user action (ex: display closed)
 	 * 
-	 * @param status
-	 *            the status code which should be returned
+	 * @see SimulationContext#get()
 	 */
 	public static void userStop() {
-		stopRequested = true;
+		SimulationContext.get().userStop();
 	}
 
 	/**
-	 * Stop the simulation. This method is called from application itself.
+	 * Stop the simulation of the current context. This method is called from
+	 * application itself.
 	 * 
 	 * @param status
 	 *            the status code which should be returned
+	 * @see SimulationContext#get()
 	 */
 	public static void stop(BigInteger status) {
-		statusCode += status.intValue();
-		stopRequested = true;
+		SimulationContext.get().stop(status.intValue());
 	}
 
 	/**
@@ -200,6 +210,6 @@ public abstract class AbstractSimulator implements Simulator {
 	 */
 	@Override
 	public void stop() {
-		stopRequested = true;
+		context.userStop();
 	}
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators;
+
+import static net.sf.orcc.simulators.Simulator.DEFAULT_NB_FRAMES;
+import static net.sf.orcc.simulators.Simulator.DEFAULT_NB_LOOPS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.orcc.simulators.runtime.impl.GenericDisplay;
+import net.sf.orcc.simulators.runtime.impl.GenericSource;
+import net.sf.orcc.util.OrccLogger;
+
+/**
+ * This class defines the runtime context of one simulation: the input
+ * stimulus, output file and golden reference, the state of the display, the
+ * descriptors opened by native procedures, the state of each class of native
+ * procedures, and the status code of the simulation.
+ * 
+ * Native procedures are static methods, so they reach the context of the
+ * simulation they are called from with {@link #get()}. The context is bound
+ * to the calling thread by the interpreter for the duration of each native
+ * call, so that several simulations can run in the same JVM.
+ * 
+ */
+public class SimulationContext {
+
+	/** context used by native procedures called outside of any simulation */
+	private static final SimulationContext DEFAULT = new SimulationContext();
+
+	private static final ThreadLocal<SimulationContext> current = new ThreadLocal<SimulationContext>();
+
+	/**
+	 * Binds the given context to the current thread.
+	 * 
+	 * @param context
+	 *            a context, or <code>null</code> to unbind the current context
+	 * @return the context that was bound to the current thread, or
+	 *         <code>null</code>
+	 */
+	public static SimulationContext bind(SimulationContext context) {
+		SimulationContext previous = current.get();
+		current.set(context);
+		return previous;
+	}
+
+	/**
+	 * Returns the context bound to the current thread, or a default context if
+	 * none is bound.
+	 * 
+	 * @return a simulation context
+	 */
+	public static SimulationContext get() {
+		SimulationContext context = current.get();
+		return context == null ? DEFAULT : context;
+	}
+
+	private final Map<Integer, GenericSource> descriptors = new HashMap<Integer, GenericSource>();
+
+	private volatile int displayStatus = GenericDisplay.DISPLAY_ENABLE;
+
+	private String goldenReference = "";
+
+	private String inputStimulus = "";
+
+	/** number of frames that reached the display */
+	private final AtomicInteger framesCount = new AtomicInteger();
+
+	private int nbFrames = DEFAULT_NB_FRAMES;
+
+	private int nbLoops = DEFAULT_NB_LOOPS;
+
+	private String outputFile = "";
+
+	private final Map<Class<?>, Object> states = new HashMap<Class<?>, Object>();
+
+	private final AtomicInteger statusCode = new AtomicInteger();
+
+	private volatile boolean stopRequested;
+
+	/**
+	 * Adds the given value to the status code of the simulation.
+	 * 
+	 * @param status
+	 *            a status
+	 */
+	public void addStatusCode(int status) {
+		statusCode.addAndGet(status);
+	}
+
+	/**
+	 * Closes the descriptors and the states of native procedures that are
+	 * {@link Closeable}, such as output files. This is called at the end of
+	 * the simulation.
+	 */
+	public void close() {
+		List<Object> toClose;
+		synchronized (this) {
+			for (GenericSource source : descriptors.values()) {
+				source.close();
+			}
+			descriptors.clear();
+			toClose = new ArrayList<Object>(states.values());
+			states.clear();
+		}
+
+		for (Object state : toClose) {
+			if (state instanceof Closeable) {
+				try {
+					((Closeable) state).close();
+				} catch (IOException e) {
+					OrccLogger.warnln("Cannot close " + state + ": "
+							+ e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the descriptors opened by native procedures, indexed by their
+	 * value.
+	 * 
+	 * @return a map of descriptors
+	 */
+	public Map<Integer, GenericSource> getDescriptors() {
+		return descriptors;
+	}
+
+	/**
+	 * Records that a frame reached the display.
+	 */
+	public void frameDecoded() {
+		framesCount.incrementAndGet();
+	}
+
+	public int getDisplayStatus() {
+		return displayStatus;
+	}
+
+	public int getFramesCount() {
+		return framesCount.get();
+	}
+
+	public String getGoldenReference() {
+		return goldenReference;
+	}
+
+	public String getInputStimulus() {
+		return inputStimulus;
+	}
+
+	public int getNbFrames() {
+		return nbFrames;
+	}
+
+	public int getNbLoops() {
+		return nbLoops;
+	}
+
+	public String getOutputFile() {
+		return outputFile;
+	}
+
+	/**
+	 * Returns the state of the native procedures of the given class.
+	 * 
+	 * @param owner
+	 *            a class of native procedures
+	 * @return the state set by {@link #setState(Class, Object)}, or
+	 *         <code>null</code>
+	 */
+	public synchronized Object getState(Class<?> owner) {
+		return states.get(owner);
+	}
+
+	public int getStatusCode() {
+		return statusCode.get();
+	}
+
+	/**
+	 * Returns <code>true</code> if the simulation has been asked to stop.
+	 * 
+	 * @return <code>true</code> if the simulation should stop
+	 */
+	public boolean isStopRequested() {
+		return stopRequested;
+	}
+
+	public void setDisplayStatus(int displayStatus) {
+		this.displayStatus = displayStatus;
+	}
+
+	public void setGoldenReference(String goldenReference) {
+		this.goldenReference = goldenReference;
+	}
+
+	public void setInputStimulus(String inputStimulus) {
+		this.inputStimulus = inputStimulus;
+	}
+
+	public void setNbFrames(int nbFrames) {
+		this.nbFrames = nbFrames;
+	}
+
+	public void setNbLoops(int nbLoops) {
+		this.nbLoops = nbLoops;
+	}
+
+	public void setOutputFile(String outputFile) {
+		this.outputFile = outputFile;
+	}
+
+	/**
+	 * Sets the state of the native procedures of the given class.
+	 * 
+	 * @param owner
+	 *            a class of native procedures
+	 * @param state
+	 *            an object, that is closed with the context if it is
+	 *            {@link Closeable}
+	 */
+	public synchronized void setState(Class<?> owner, Object state) {
+		states.put(owner, state);
+	}
+
+	/**
+	 * Requests the simulation to stop, and adds the given value to its status
+	 * code.
+	 * 
+	 * @param status
+	 *            a status
+	 */
+	public void stop(int status) {
+		addStatusCode(status);
+		stopRequested = true;
+	}
+
+	/**
+	 * Requests the simulation to stop after a user action.
+	 */
+	public void userStop() {
+		stopRequested = true;
+	}
+
+}
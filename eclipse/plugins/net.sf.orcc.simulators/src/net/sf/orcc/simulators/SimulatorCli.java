@@ -28,21 +28,36 @@
  */
 package net.sf.orcc.simulators;
 
+import static net.sf.orcc.OrccLaunchConstants.ENABLE_TRACES;
 import static net.sf.orcc.OrccLaunchConstants.FIFO_SIZE;
 import static net.sf.orcc.OrccLaunchConstants.NO_DISPLAY;
 import static net.sf.orcc.OrccLaunchConstants.PROJECT;
 import static net.sf.orcc.OrccLaunchConstants.SIMULATOR;
+import static net.sf.orcc.OrccLaunchConstants.TRACES_FOLDER;
 import static net.sf.orcc.OrccLaunchConstants.XDF_FILE;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH_REFERENCES;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH_STIMULI;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH_THREADS;
+import static net.sf.orcc.simulators.SimulatorsConstants.BINARY_TRACES;
+import static net.sf.orcc.simulators.SimulatorsConstants.CLOSURE_INTERPRETER;
 import static net.sf.orcc.simulators.SimulatorsConstants.FRAMES_NUMBER;
 import static net.sf.orcc.simulators.SimulatorsConstants.GOLDEN_REFERENCE;
 import static net.sf.orcc.simulators.SimulatorsConstants.GOLDEN_REFERENCE_FILE;
 import static net.sf.orcc.simulators.SimulatorsConstants.INPUT_STIMULUS;
+import static net.sf.orcc.simulators.SimulatorsConstants.LONG_VALUES;
 import static net.sf.orcc.simulators.SimulatorsConstants.LOOP_NUMBER;
+import static net.sf.orcc.simulators.SimulatorsConstants.MEMOIZE_GUARDS;
+import static net.sf.orcc.simulators.SimulatorsConstants.MONITORING;
+import static net.sf.orcc.simulators.SimulatorsConstants.READY_QUEUE;
+import static net.sf.orcc.simulators.SimulatorsConstants.REUSE_BUFFERS;
+import static net.sf.orcc.simulators.SimulatorsConstants.THREADS_NUMBER;
 
 import java.util.HashMap;
 import java.util.Map;
 
 import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.simulators.slow.TraceConverter;
 import net.sf.orcc.util.OrccLogger;
 
 import org.apache.commons.cli.CommandLine;
@@ -78,6 +93,69 @@ public class SimulatorCli implements IApplication {
 		workspace = ResourcesPlugin.getWorkspace();
 	}
 
+	/**
+	 * Creates the command line options shared by the launchers of the
+	 * simulator.
+	 * 
+	 * @return the options of the simulator
+	 */
+	static Options createOptions() {
+		Options clOptions = new Options();
+
+		// Either an input stimulus or a batch of stimuli is required
+		clOptions.addOption("i", "input", true, "Set the input stimulus file");
+		clOptions.addOption("m", "batch", true,
+				"Simulate the network with each stimulus of the given directory "
+						+ "or list file, instead of a single input stimulus");
+
+		// Optional command line arguments
+		clOptions.addOption("l", "loops_number", true,
+				"Defines the number of times input stimulus will be read before "
+						+ "application stop. A negative value means infinite. "
+						+ "Default : 1 time.");
+
+		clOptions.addOption("f", "frames_number", true,
+				"Defines the number of frames to"
+						+ "display before closing application.");
+
+		clOptions.addOption("r", "golden_reference", true,
+				"Reference file which used to compare with decoded stream.");
+		clOptions.addOption("s", "fifo-size", true,
+				"Default size of the FIFO channels");
+		clOptions.addOption("t", "threads", true,
+				"Simulate the network with the parallel interpreter, "
+						+ "using the given number of threads");
+		clOptions.addOption("c", "closures", false,
+				"Compile actors to closures before the simulation starts");
+		clOptions.addOption("b", "64-bits", false,
+				"Compute integers of 64 bits or less with long arithmetic");
+		clOptions.addOption("a", "reuse-buffers", false,
+				"Allocate pattern and local list buffers once per actor");
+		clOptions.addOption("q", "ready-queue", false,
+				"Only schedule actors whose FIFOs gained tokens or room");
+		clOptions.addOption("g", "memoize-guards", false,
+				"Skip failing guards until the values they read change");
+		clOptions.addOption("o", "monitoring", false,
+				"Publish the running simulation as JMX MBeans");
+		clOptions.addOption("u", "batch-references", true,
+				"Directory of golden references matched with the stimuli of "
+						+ "the batch by their name without extension");
+		clOptions.addOption("j", "batch-threads", true,
+				"Number of streams of the batch simulated at the same time");
+		clOptions.addOption("e", "traces", true,
+				"Trace the tokens exchanged by the FIFOs in the given folder");
+		clOptions.addOption("k", "binary-traces", false,
+				"Record the traces in a binary format, converted to text "
+						+ "with " + TraceConverter.class.getName());
+		clOptions.addOption("n", "nodisplay", false,
+				"Disable display initialization");
+		clOptions.addOption("d", "debug", false,
+				"Launch simulator in debug mode");
+		clOptions.addOption("h", "help", false, "Print this help message");
+
+		return clOptions;
+	}
+
 	private void disableAutoBuild() throws CoreException {
 		IWorkspaceDescription desc = workspace.getDescription();
 		if (desc.isAutoBuilding()) {
@@ -87,6 +165,111 @@ public class SimulatorCli implements IApplication {
 		}
 	}
 
+	/**
+	 * Returns the options of the simulator set by the given command line.
+	 * 
+	 * @param commandLine
+	 *            a command line parsed with the options of
+	 *            {@link #createOptions()}
+	 * @return a map of simulator options
+	 */
+	static Map<String, Object> getSimulatorOptions(CommandLine commandLine) {
+		Map<String, Object> simulatorOptions = new HashMap<String, Object>();
+
+		if (commandLine.hasOption('i')) {
+			simulatorOptions.put(INPUT_STIMULUS,
+					commandLine.getOptionValue('i'));
+		}
+
+		if (commandLine.hasOption('m')) {
+			simulatorOptions.put(BATCH, true);
+			simulatorOptions.put(BATCH_STIMULI,
+					commandLine.getOptionValue('m'));
+			if (commandLine.hasOption('u')) {
+				simulatorOptions.put(BATCH_REFERENCES,
+						commandLine.getOptionValue('u'));
+			}
+			if (commandLine.hasOption('j')) {
+				simulatorOptions.put(BATCH_THREADS,
+						commandLine.getOptionValue('j'));
+			}
+		}
+
+		simulatorOptions.put(XDF_FILE, commandLine.getArgList().get(0));
+
+		if (commandLine.hasOption('s')) {
+			simulatorOptions.put(FIFO_SIZE,
+					Integer.valueOf(commandLine.getOptionValue('s')));
+		}
+
+		if (commandLine.hasOption('l')) {
+			simulatorOptions.put(LOOP_NUMBER,
+					commandLine.getOptionValue('l'));
+		}
+		if (commandLine.hasOption('f')) {
+			simulatorOptions.put(FRAMES_NUMBER,
+					commandLine.getOptionValue('f'));
+		}
+
+		if (commandLine.hasOption('n')) {
+			simulatorOptions.put(NO_DISPLAY, true);
+		}
+
+		if (commandLine.hasOption('c')) {
+			simulatorOptions.put(CLOSURE_INTERPRETER, true);
+		}
+
+		if (commandLine.hasOption('b')) {
+			simulatorOptions.put(LONG_VALUES, true);
+		}
+
+		if (commandLine.hasOption('a')) {
+			simulatorOptions.put(REUSE_BUFFERS, true);
+		}
+
+		if (commandLine.hasOption('q')) {
+			simulatorOptions.put(READY_QUEUE, true);
+		}
+
+		if (commandLine.hasOption('g')) {
+			simulatorOptions.put(MEMOIZE_GUARDS, true);
+		}
+
+		if (commandLine.hasOption('o')) {
+			simulatorOptions.put(MONITORING, true);
+		}
+
+		if (commandLine.hasOption('e')) {
+			simulatorOptions.put(ENABLE_TRACES, true);
+			simulatorOptions.put(TRACES_FOLDER,
+					commandLine.getOptionValue('e'));
+			if (commandLine.hasOption('k')) {
+				simulatorOptions.put(BINARY_TRACES, true);
+			}
+		}
+
+		if (commandLine.hasOption('d')) {
+			OrccLogger.setLevel(OrccLogger.DEBUG);
+		}
+
+		if (commandLine.hasOption("r")) {
+			simulatorOptions.put(GOLDEN_REFERENCE, true);
+			simulatorOptions.put(GOLDEN_REFERENCE_FILE,
+					commandLine.getOptionValue("r"));
+		}
+
+		if (commandLine.hasOption('t')) {
+			simulatorOptions.put(THREADS_NUMBER,
+					commandLine.getOptionValue('t'));
+			simulatorOptions.put(SIMULATOR, "Parallel interpreter");
+		} else {
+			simulatorOptions.put(SIMULATOR,
+					"Visitor interpreter and debugger");
+		}
+
+		return simulatorOptions;
+	}
+
 	private void restoreAutoBuild() throws CoreException {
 		if (isAutoBuildActivated) {
 			IWorkspaceDescription desc = workspace.getDescription();
@@ -98,7 +281,7 @@ public class SimulatorCli implements IApplication {
 	@Override
 	public Object start(IApplicationContext context) throws Exception {
 
-		Options clOptions = new Options();
+		Options clOptions = createOptions();
 		Option opt;
 
 		// Required command line arguments
@@ -106,33 +289,7 @@ public class SimulatorCli implements IApplication {
 		opt.setRequired(true);
 		clOptions.addOption(opt);
 
-		opt = new Option("i", "input", true, "Set the input stimulus file");
-		opt.setRequired(true);
-		clOptions.addOption(opt);
-
-		// Optional command line arguments
-		clOptions.addOption("l", "loops_number", true,
-				"Defines the number of times input stimulus will be read before "
-						+ "application stop. A negative value means infinite. "
-						+ "Default : 1 time.");
-
-		clOptions.addOption("f", "frames_number", true,
-				"Defines the number of frames to"
-						+ "display before closing application.");
-
-		clOptions.addOption("r", "golden_reference", true,
-				"Reference file which used to compare with decoded stream.");
-		clOptions.addOption("s", "fifo-size", true,
-				"Default size of the FIFO channels");
-		clOptions.addOption("n", "nodisplay", false,
-				"Disable display initialization");
-		clOptions.addOption("d", "debug", false,
-				"Launch simulator in debug mode");
-		clOptions.addOption("h", "help", false, "Print this help message");
-
 		try {
-			Map<String, Object> simulatorOptions = new HashMap<String, Object>();
-
 			CommandLineParser parser = new PosixParser();
 			CommandLine commandLine = parser.parse(
 					clOptions,
@@ -144,40 +301,13 @@ public class SimulatorCli implements IApplication {
 				return IApplication.EXIT_RELAUNCH;
 			}
 
-			simulatorOptions.put(PROJECT, commandLine.getOptionValue('p'));
-			simulatorOptions.put(INPUT_STIMULUS,
-					commandLine.getOptionValue('i'));
-			simulatorOptions.put(XDF_FILE, commandLine.getArgList().get(0));
-
-			if (commandLine.hasOption('s')) {
-				simulatorOptions.put(FIFO_SIZE,
-						Integer.valueOf(commandLine.getOptionValue('s')));
-			}
-
-			if (commandLine.hasOption('l')) {
-				simulatorOptions.put(LOOP_NUMBER,
-						commandLine.getOptionValue('l'));
-			}
-			if (commandLine.hasOption('f')) {
-				simulatorOptions.put(FRAMES_NUMBER,
-						commandLine.getOptionValue('f'));
-			}
-
-			if (commandLine.hasOption('n')) {
-				simulatorOptions.put(NO_DISPLAY, true);
-			}
-
-			if (commandLine.hasOption('d')) {
-				OrccLogger.setLevel(OrccLogger.DEBUG);
-			}
-
-			if (commandLine.hasOption("r")) {
-				simulatorOptions.put(GOLDEN_REFERENCE, true);
-				simulatorOptions.put(GOLDEN_REFERENCE_FILE,
-						commandLine.getOptionValue("r"));
+			if (!commandLine.hasOption('i') && !commandLine.hasOption('m')) {
+				printUsage(clOptions, "Missing input stimulus or batch");
+				return IApplication.EXIT_RELAUNCH;
 			}
 
-			simulatorOptions.put(SIMULATOR, "Visitor interpreter and debugger");
+			Map<String, Object> simulatorOptions = getSimulatorOptions(commandLine);
+			simulatorOptions.put(PROJECT, commandLine.getOptionValue('p'));
 
 			try {
 
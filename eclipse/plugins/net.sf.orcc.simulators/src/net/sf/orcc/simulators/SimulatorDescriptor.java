@@ -29,7 +29,6 @@
 package net.sf.orcc.simulators;
 
 import java.math.BigInteger;
-import java.util.HashMap;
 import java.util.Map;
 
 import net.sf.orcc.simulators.runtime.RuntimeFactory;
@@ -39,42 +38,45 @@ import net.sf.orcc.simulators.runtime.impl.IntfNet;
 import net.sf.orcc.simulators.runtime.impl.SystemIO;
 
 /**
- * This class handle handle descriptors used by the native functions.
+ * This class handle handle descriptors used by the native functions. The
+ * descriptors belong to the simulation context of the caller.
  * 
  * @author Thavot Richard
  * 
  */
 public class SimulatorDescriptor {
 
-	private static Map<Integer, GenericSource> descsMap = new HashMap<Integer, GenericSource>();
+	private static Map<Integer, GenericSource> descsMap() {
+		return SimulationContext.get().getDescriptors();
+	}
 
 	public static BigInteger create(IntfNet net) {
 		Integer desc = net.hashCode();
-		descsMap.put(desc, net);
+		descsMap().put(desc, net);
 		return new BigInteger(desc.toString());
 	}
 
 	public static BigInteger create(IntfChannel channel) {
 		Integer desc = channel.hashCode();
-		descsMap.put(desc, channel);
+		descsMap().put(desc, channel);
 		return new BigInteger(desc.toString());
 	}
 
 	public static BigInteger create(SystemIO io) {
 		Integer desc = io.hashCode();
-		descsMap.put(desc, io);
+		descsMap().put(desc, io);
 		return new BigInteger(desc.toString());
 	}
 
 	public static GenericSource get(BigInteger descriptor) {
-		if (descsMap.containsKey(descriptor.intValue()))
-			return descsMap.get(descriptor.intValue());
+		if (descsMap().containsKey(descriptor.intValue()))
+			return descsMap().get(descriptor.intValue());
 		return null;
 	}
 
 	public static IntfNet getIntfNet(BigInteger descriptor) {
-		if (descsMap.containsKey(descriptor.intValue())) {
-			GenericSource g = descsMap.get(descriptor.intValue());
+		if (descsMap().containsKey(descriptor.intValue())) {
+			GenericSource g = descsMap().get(descriptor.intValue());
 			if (g.isIntfNet())
 				return (IntfNet) g;
 		}
@@ -82,8 +84,8 @@ public class SimulatorDescriptor {
 	}
 
 	public static IntfChannel getIntfChannel(BigInteger descriptor) {
-		if (descsMap.containsKey(descriptor.intValue())) {
-			GenericSource g = descsMap.get(descriptor.intValue());
+		if (descsMap().containsKey(descriptor.intValue())) {
+			GenericSource g = descsMap().get(descriptor.intValue());
 			if (g.isIntfChannel())
 				return (IntfChannel) g;
 		}
@@ -91,8 +93,8 @@ public class SimulatorDescriptor {
 	}
 
 	public static SystemIO getSystemIO(BigInteger descriptor) {
-		if (descsMap.containsKey(descriptor.intValue())) {
-			GenericSource g = descsMap.get(descriptor.intValue());
+		if (descsMap().containsKey(descriptor.intValue())) {
+			GenericSource g = descsMap().get(descriptor.intValue());
 			if (g.isSystemIO())
 				return (SystemIO) g;
 		}
@@ -100,13 +102,14 @@ public class SimulatorDescriptor {
 	}
 
 	public static boolean contains(BigInteger descriptor) {
-		return descsMap.containsKey(descriptor.intValue());
+		return descsMap().containsKey(descriptor.intValue());
 	}
 
 	/**
 	 * Kill all simulation descriptors by closing them correctly.
 	 */
 	public static void killDescriptors() {
+		Map<Integer, GenericSource> descsMap = descsMap();
 		for (GenericSource g : descsMap.values()) {
 			g.close();
 		}
@@ -114,8 +117,8 @@ public class SimulatorDescriptor {
 	}
 
 	public static void finalize(BigInteger descriptor) {
-		if (descsMap.containsKey(descriptor.intValue())) {
-			descsMap.remove(descriptor.intValue()).close();
+		if (descsMap().containsKey(descriptor.intValue())) {
+			descsMap().remove(descriptor.intValue()).close();
 		}
 	}
 
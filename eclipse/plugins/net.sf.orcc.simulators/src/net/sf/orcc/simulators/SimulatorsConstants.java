@@ -76,11 +76,87 @@ public class SimulatorsConstants {
 	 */
 	public static final String VTL_FOLDER = "net.sf.orcc.simulators.VTLFolder";
 
+	/**
+	 * Folders where networks and actors are searched, separated by the path
+	 * separator of the platform. When set, the simulator does not use the
+	 * workspace.
+	 */
+	public static final String SEARCH_PATH = "net.sf.orcc.simulators.searchPath";
+
 	/**
 	 * Simulator reference video for testing video output
 	 */
 	public static final String REFERENCE_FILE = "net.sf.orcc.simulators.compareFile";
 
+	/**
+	 * Number of worker threads used by the parallel simulator.
+	 */
+	public static final String THREADS_NUMBER = "net.sf.orcc.simulators.threadsNumber";
+
+	/**
+	 * When enabled, procedures of actors are compiled to closures before the
+	 * simulation starts, instead of being visited at each firing.
+	 */
+	public static final String CLOSURE_INTERPRETER = "net.sf.orcc.simulators.closureInterpreter";
+
+	/**
+	 * When enabled, integers whose type is 64 bits or narrower are computed
+	 * with long arithmetic instead of BigInteger values.
+	 */
+	public static final String LONG_VALUES = "net.sf.orcc.simulators.longValues";
+
+	/**
+	 * When enabled, the arrays of pattern variables and local lists are
+	 * allocated once per interpreter and reused at each firing.
+	 */
+	public static final String REUSE_BUFFERS = "net.sf.orcc.simulators.reuseBuffers";
+
+	/**
+	 * When enabled, actors are scheduled from a ready queue fed by the FIFOs
+	 * whose state changed, instead of being tested in turn.
+	 */
+	public static final String READY_QUEUE = "net.sf.orcc.simulators.readyQueue";
+
+	/**
+	 * When enabled, a guard that failed is not evaluated again until the
+	 * peeked tokens or the state variables it reads change.
+	 */
+	public static final String MEMOIZE_GUARDS = "net.sf.orcc.simulators.memoizeGuards";
+
+	/**
+	 * When enabled, the network is loaded once and simulated with each
+	 * stimulus of a batch, several simulations running concurrently.
+	 */
+	public static final String BATCH = "net.sf.orcc.simulators.batch";
+
+	/**
+	 * Directory of stimulus files, or file listing one stimulus per line,
+	 * optionally followed by a comma and its golden reference.
+	 */
+	public static final String BATCH_STIMULI = "net.sf.orcc.simulators.batchStimuli";
+
+	/**
+	 * Directory of golden references, matched with the stimuli of a batch by
+	 * their name without extension.
+	 */
+	public static final String BATCH_REFERENCES = "net.sf.orcc.simulators.batchReferences";
+
+	/**
+	 * Number of simulations of a batch that run concurrently.
+	 */
+	public static final String BATCH_THREADS = "net.sf.orcc.simulators.batchThreads";
+
+	/**
+	 * When traces are enabled, record them in a binary format written by a
+	 * background thread instead of one line of text per token.
+	 */
+	public static final String BINARY_TRACES = "net.sf.orcc.simulators.binaryTraces";
+
+	/**
+	 * When enabled, the running simulation is published through JMX.
+	 */
+	public static final String MONITORING = "net.sf.orcc.simulators.monitoring";
+
 	public static final String PROFILE = "net.sf.orcc.simulators.profile";
 
 	public static final String PROFILE_FOLDER = "net.sf.orcc.simulators.profileFolder";
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators;
+
+import static net.sf.orcc.simulators.SimulatorsConstants.SEARCH_PATH;
+import static net.sf.orcc.simulators.SimulatorsConstants.THREADS_NUMBER;
+
+import java.io.File;
+import java.util.Map;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.simulators.parallel.ParallelSimulator;
+import net.sf.orcc.simulators.slow.SlowSimulator;
+import net.sf.orcc.util.OrccLogger;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+
+/**
+ * Standalone command-line version of CAL simulator. Networks and actors are
+ * loaded from the .xdf and .ir files of the folders of a search path, such
+ * as the source and output folders of the projects, without starting OSGi
+ * or opening a workspace. The options are those of {@link SimulatorCli},
+ * except for the project.
+ * 
+ */
+public class StandaloneSimulator {
+
+	/**
+	 * Runs the simulator with the given command line arguments, and exits
+	 * with the status code of the simulation.
+	 * 
+	 * @param args
+	 *            command line arguments
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args));
+	}
+
+	private static void printUsage(Options options, String parserMsg) {
+		String footer = "";
+		if (parserMsg != null && !parserMsg.isEmpty()) {
+			footer = "\nMessage of the command line parser :\n" + parserMsg;
+		}
+
+		HelpFormatter helpFormatter = new HelpFormatter();
+		helpFormatter.setWidth(80);
+		helpFormatter.printHelp("java " + StandaloneSimulator.class.getName()
+				+ " [options] <qualified name of your top network>",
+				"Valid options are :", options, footer);
+	}
+
+	/**
+	 * Runs the simulator with the given command line arguments.
+	 * 
+	 * @param args
+	 *            command line arguments
+	 * @return 0 if the simulation succeeded, the status code of the
+	 *         simulation if it is not null, or -1 if the simulator could not
+	 *         run
+	 */
+	public static int run(String[] args) {
+		Options clOptions = SimulatorCli.createOptions();
+		Option opt = new Option("v", "vtl", true,
+				"Folders where the .xdf and .ir files are searched, "
+						+ "separated by '" + File.pathSeparator + "'");
+		opt.setRequired(true);
+		clOptions.addOption(opt);
+
+		CommandLine commandLine;
+		try {
+			commandLine = new PosixParser().parse(clOptions, args);
+		} catch (ParseException e) {
+			printUsage(clOptions, e.getLocalizedMessage());
+			return -1;
+		}
+
+		if (commandLine.hasOption('h')) {
+			printUsage(clOptions, null);
+			return 0;
+		}
+
+		if ((!commandLine.hasOption('i') && !commandLine.hasOption('m'))
+				|| commandLine.getArgList().isEmpty()) {
+			printUsage(clOptions, "Missing network, input stimulus or batch");
+			return -1;
+		}
+
+		Map<String, Object> simulatorOptions = SimulatorCli
+				.getSimulatorOptions(commandLine);
+		simulatorOptions.put(SEARCH_PATH, commandLine.getOptionValue('v'));
+
+		// no extension registry, simulators are created directly
+		AbstractSimulator simulator;
+		if (simulatorOptions.containsKey(THREADS_NUMBER)) {
+			simulator = new ParallelSimulator();
+		} else {
+			simulator = new SlowSimulator();
+		}
+
+		try {
+			simulator.setOptions(simulatorOptions);
+			simulator.run();
+		} catch (OrccRuntimeException e) {
+			OrccLogger.severeln("Simulator has shut down: "
+					+ e.getMessage());
+			return -1;
+		}
+
+		return simulator.getStatusCode();
+	}
+
+}
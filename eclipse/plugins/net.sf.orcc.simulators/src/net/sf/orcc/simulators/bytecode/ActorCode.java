@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.bytecode;
+
+/**
+ * This class is the base class of the classes generated by
+ * {@link BytecodeCompiler}. Each procedure of the actor is compiled to a
+ * static method of the generated class, and {@link #invoke(int, Object[])}
+ * dispatches to these methods.
+ * 
+ */
+public abstract class ActorCode {
+
+	/** objects of the IR and values referenced by the generated code */
+	protected Object[] constants;
+
+	/** interpreter on behalf of which the generated code is executed */
+	protected BytecodeActorInterpreter interpreter;
+
+	/**
+	 * Invokes the procedure with the given index. Its parameters, if any, are
+	 * not defined: this method is meant to call action schedulers and bodies.
+	 * 
+	 * @param procedure
+	 *            index of a compiled procedure
+	 * @param slots
+	 *            values of the variables of the actor
+	 * @return the value returned by the procedure, or <code>null</code>
+	 */
+	public abstract Object invoke(int procedure, Object[] slots);
+
+	void setUp(Object[] constants, BytecodeActorInterpreter interpreter) {
+		this.constants = constants;
+		this.interpreter = interpreter;
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.bytecode;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.ir.Instruction;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.Type;
+import net.sf.orcc.ir.Var;
+import net.sf.orcc.simulators.slow.ConnectedActorInterpreter;
+import net.sf.orcc.util.OrccLogger;
+
+/**
+ * This class defines an actor interpreter that executes procedures compiled
+ * to JVM bytecode by a {@link BytecodeCompiler}. Native procedures are called
+ * with the bindings of {@link ConnectedActorInterpreter}. If the actor cannot
+ * be compiled, the interpreter visits the IR as usual.
+ * 
+ */
+public class BytecodeActorInterpreter extends ConnectedActorInterpreter {
+
+	private ActorCode code;
+
+	private BytecodeCompiler compiler;
+
+	private Object[] slots;
+
+	/**
+	 * Creates an actor interpreter that executes compiled procedures.
+	 * 
+	 * @param actor
+	 *            the actor to interpret
+	 */
+	public BytecodeActorInterpreter(Actor actor) {
+		super(actor);
+
+		BytecodeCompiler compiler = new BytecodeCompiler(actor);
+		try {
+			code = compiler.compile(this);
+			slots = new Object[compiler.getNumSlots()];
+			this.compiler = compiler;
+		} catch (OrccRuntimeException e) {
+			OrccLogger.warnln(e.getMessage() + ", interpreting it instead ("
+					+ e.getCause() + ")");
+		}
+	}
+
+	/**
+	 * Calls a native procedure on behalf of generated code.
+	 */
+	public Object callNative(Procedure procedure, Object[] args) {
+		return callNativeProcedure(procedure, args);
+	}
+
+	@Override
+	public Object caseProcedure(Procedure procedure) {
+		if (compiler != null) {
+			Integer index = compiler.getProcedureIndex(procedure);
+			if (index != null) {
+				return code.invoke(index, slots);
+			}
+		}
+		return super.caseProcedure(procedure);
+	}
+
+	/**
+	 * Clips a value on behalf of generated code.
+	 */
+	public Object clip(Type type, Object value, Instruction instruction) {
+		return clipValue(type, value, instruction);
+	}
+
+	@Override
+	protected void initializeVar(Var variable) {
+		super.initializeVar(variable);
+
+		if (compiler != null) {
+			Integer slot = compiler.getSlot(variable);
+			if (slot != null) {
+				slots[slot] = getValue(variable);
+			}
+		}
+	}
+
+	/**
+	 * Prints the given string on behalf of generated code.
+	 */
+	public void print(String str) {
+		OrccLogger.noticeRaw(str);
+	}
+
+	@Override
+	public String toString() {
+		return "bytecode interpreter for actor " + actor.getName();
+	}
+
+}
@@ -0,0 +1,888 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.bytecode;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.AASTORE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACONST_NULL;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ANEWARRAY;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.V1_5;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.df.Action;
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.ir.Arg;
+import net.sf.orcc.ir.ArgByVal;
+import net.sf.orcc.ir.Block;
+import net.sf.orcc.ir.BlockBasic;
+import net.sf.orcc.ir.BlockIf;
+import net.sf.orcc.ir.BlockWhile;
+import net.sf.orcc.ir.ExprBinary;
+import net.sf.orcc.ir.ExprBool;
+import net.sf.orcc.ir.ExprFloat;
+import net.sf.orcc.ir.ExprInt;
+import net.sf.orcc.ir.ExprList;
+import net.sf.orcc.ir.ExprString;
+import net.sf.orcc.ir.ExprUnary;
+import net.sf.orcc.ir.ExprVar;
+import net.sf.orcc.ir.Expression;
+import net.sf.orcc.ir.InstAssign;
+import net.sf.orcc.ir.InstCall;
+import net.sf.orcc.ir.InstLoad;
+import net.sf.orcc.ir.InstPhi;
+import net.sf.orcc.ir.InstReturn;
+import net.sf.orcc.ir.InstStore;
+import net.sf.orcc.ir.Instruction;
+import net.sf.orcc.ir.OpBinary;
+import net.sf.orcc.ir.Param;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.Type;
+import net.sf.orcc.ir.TypeList;
+import net.sf.orcc.ir.Var;
+import net.sf.orcc.util.OrccUtil;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * This class compiles the procedures of an actor (action bodies, schedulers,
+ * and every procedure they call) to the static methods of a new JVM class, so
+ * that the firing code can be compiled by the JIT compiler of the JVM.
+ * 
+ * Parameters and state variables of the actor are stored in slots, as in
+ * {@link net.sf.orcc.simulators.compiled.ClosureCompiler}. Parameters of a
+ * procedure are parameters of its method, and its local variables are local
+ * variables of the method, so that each call, recursive or not, has its own
+ * values. Other variables are read and written through the interpreter.
+ * Operations on values are delegated to {@link net.sf.orcc.ir.util.ValueUtil},
+ * so the generated code has the same semantics as the interpreter.
+ * 
+ */
+public class BytecodeCompiler {
+
+	/**
+	 * This class loader defines one generated class.
+	 */
+	private static class ActorClassLoader extends ClassLoader {
+
+		public ActorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+	}
+
+	private static final String ACTOR_CODE = "net/sf/orcc/simulators/bytecode/ActorCode";
+
+	private static final String INTERPRETER = "net/sf/orcc/simulators/bytecode/BytecodeActorInterpreter";
+
+	private static final String OBJECT = "java/lang/Object";
+
+	private static final String OBJECT_DESC = "Ljava/lang/Object;";
+
+	private static final String OPS = "net/sf/orcc/ir/util/ValueUtil";
+
+	private static final String PROCEDURE_DESC_PREFIX = "([Ljava/lang/Object;[Ljava/lang/Object;L"
+			+ INTERPRETER + ";";
+
+	/** index of the first parameter in the methods of the procedures */
+	private static final int FIRST_PARAM = 3;
+
+	private static final String SUPPORT = "net/sf/orcc/simulators/bytecode/BytecodeSupport";
+
+	private static final Map<OpBinary, String> OPERATIONS = new EnumMap<OpBinary, String>(
+			OpBinary.class);
+
+	private static int count;
+
+	static {
+		OPERATIONS.put(OpBinary.BITAND, "and");
+		OPERATIONS.put(OpBinary.BITOR, "or");
+		OPERATIONS.put(OpBinary.BITXOR, "xor");
+		OPERATIONS.put(OpBinary.DIV, "divide");
+		OPERATIONS.put(OpBinary.DIV_INT, "divide");
+		OPERATIONS.put(OpBinary.EQ, "equals");
+		OPERATIONS.put(OpBinary.EXP, "pow");
+		OPERATIONS.put(OpBinary.GE, "ge");
+		OPERATIONS.put(OpBinary.GT, "gt");
+		OPERATIONS.put(OpBinary.LE, "le");
+		OPERATIONS.put(OpBinary.LOGIC_AND, "logicAnd");
+		OPERATIONS.put(OpBinary.LOGIC_OR, "logicOr");
+		OPERATIONS.put(OpBinary.LT, "lt");
+		OPERATIONS.put(OpBinary.MINUS, "subtract");
+		OPERATIONS.put(OpBinary.MOD, "mod");
+		OPERATIONS.put(OpBinary.NE, "notEquals");
+		OPERATIONS.put(OpBinary.PLUS, "add");
+		OPERATIONS.put(OpBinary.SHIFT_LEFT, "shiftLeft");
+		OPERATIONS.put(OpBinary.SHIFT_RIGHT, "shiftRight");
+		OPERATIONS.put(OpBinary.TIMES, "multiply");
+	}
+
+	private final Actor actor;
+
+	private String className;
+
+	private final List<Object> constants;
+
+	private final Map<Object, Integer> constantIndexes;
+
+	/** local variables of the method of the procedure being compiled */
+	private Map<Var, Integer> locals;
+
+	private MethodVisitor mv;
+
+	private final Map<Procedure, Integer> procedures;
+
+	private final Map<Var, Integer> slots;
+
+	/**
+	 * Creates a new compiler for the given actor.
+	 * 
+	 * @param actor
+	 *            an actor
+	 */
+	public BytecodeCompiler(Actor actor) {
+		this.actor = actor;
+		constants = new ArrayList<Object>();
+		constantIndexes = new IdentityHashMap<Object, Integer>();
+		procedures = new HashMap<Procedure, Integer>();
+		slots = new HashMap<Var, Integer>();
+	}
+
+	/**
+	 * Adds the given procedure and the procedures it calls to the list of
+	 * procedures to compile.
+	 */
+	private void addProcedure(Procedure procedure) {
+		if (procedure == null || procedure.isNative()
+				|| procedures.containsKey(procedure)) {
+			return;
+		}
+
+		procedures.put(procedure, procedures.size());
+		TreeIterator<EObject> it = procedure.eAllContents();
+		while (it.hasNext()) {
+			EObject obj = it.next();
+			if (obj instanceof InstCall) {
+				addProcedure(((InstCall) obj).getProcedure());
+			}
+		}
+	}
+
+	/**
+	 * Compiles the actor to a new class, and returns an instance of this class
+	 * bound to the given interpreter.
+	 * 
+	 * @param interpreter
+	 *            the interpreter that holds the slots
+	 * @return the code of the actor
+	 */
+	public ActorCode compile(BytecodeActorInterpreter interpreter) {
+		for (Var var : actor.getParameters()) {
+			getOrCreateSlot(var);
+		}
+		for (Var var : actor.getStateVars()) {
+			getOrCreateSlot(var);
+		}
+		for (Procedure procedure : actor.getProcs()) {
+			addProcedure(procedure);
+		}
+		for (Action action : actor.getActions()) {
+			addProcedure(action.getScheduler());
+			addProcedure(action.getBody());
+		}
+		for (Action action : actor.getInitializes()) {
+			addProcedure(action.getScheduler());
+			addProcedure(action.getBody());
+		}
+
+		String simpleName = actor.getName().replaceAll("[^A-Za-z0-9_]", "_");
+		synchronized (BytecodeCompiler.class) {
+			count++;
+			className = "net/sf/orcc/simulators/bytecode/gen/" + simpleName
+					+ "_" + count;
+		}
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_5, ACC_PUBLIC | ACC_SUPER, className, null, ACTOR_CODE,
+				null);
+
+		mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, ACTOR_CODE, "<init>", "()V", false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		for (Map.Entry<Procedure, Integer> entry : procedures.entrySet()) {
+			mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC,
+					"p" + entry.getValue(), getDescriptor(entry.getKey()),
+					null, null);
+			mv.visitCode();
+			compileProcedure(entry.getKey());
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+
+		generateInvoke(cw);
+		cw.visitEnd();
+
+		byte[] bytes;
+		try {
+			bytes = cw.toByteArray();
+		} catch (RuntimeException e) {
+			throw new OrccRuntimeException("Could not generate the code of "
+					+ actor.getName(), e);
+		}
+
+		ActorClassLoader loader = new ActorClassLoader(getClass()
+				.getClassLoader());
+		try {
+			Class<?> clasz = loader.define(className.replace('/', '.'), bytes);
+			ActorCode code = (ActorCode) clasz.newInstance();
+			code.setUp(constants.toArray(), interpreter);
+			return code;
+		} catch (Exception e) {
+			throw new OrccRuntimeException("Could not load the code of "
+					+ actor.getName(), e);
+		} catch (LinkageError e) {
+			throw new OrccRuntimeException("Could not load the code of "
+					+ actor.getName(), e);
+		}
+	}
+
+	private void compileBinary(ExprBinary expr) {
+		compileExpression(expr.getE1());
+		OpBinary op = expr.getOp();
+		if (op == OpBinary.LOGIC_AND || op == OpBinary.LOGIC_OR) {
+			// short circuit: the first operand is the result if it is false
+			// (and) or true (or)
+			Label end = new Label();
+			mv.visitInsn(DUP);
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT,
+					op == OpBinary.LOGIC_AND ? "isFalse" : "isTrue", "("
+							+ OBJECT_DESC + ")Z", false);
+			mv.visitJumpInsn(IFNE, end);
+			compileExpression(expr.getE2());
+			invokeOperation(op);
+			mv.visitLabel(end);
+		} else {
+			compileExpression(expr.getE2());
+			invokeOperation(op);
+		}
+	}
+
+	/**
+	 * Compiles the given blocks.
+	 * 
+	 * @param blocks
+	 *            a list of blocks
+	 * @param branch
+	 *            the branch taken to reach these blocks, used to resolve phi
+	 *            instructions
+	 * @param canReturn
+	 *            <code>true</code> if a return instruction in these blocks
+	 *            returns from the procedure, as it does in the interpreter
+	 */
+	private void compileBlocks(List<? extends Block> blocks, int branch,
+			boolean canReturn) {
+		for (Block block : blocks) {
+			if (block.isBlockBasic()) {
+				for (Instruction instruction : ((BlockBasic) block)
+						.getInstructions()) {
+					compileInstruction(instruction, branch, canReturn);
+				}
+			} else if (block.isBlockIf()) {
+				compileIf((BlockIf) block, branch, canReturn);
+			} else if (block.isBlockWhile()) {
+				compileWhile((BlockWhile) block);
+			}
+		}
+	}
+
+	private void compileCall(InstCall call) {
+		Procedure proc = call.getProcedure();
+		List<Arg> arguments = call.getArguments();
+
+		if (call.isPrint()) {
+			for (Arg arg : arguments) {
+				if (arg.isByVal()) {
+					mv.visitVarInsn(ALOAD, 2);
+					Expression expr = ((ArgByVal) arg).getValue();
+					if (expr.isExprString()) {
+						// String characters rework for escaped control
+						// management
+						String str = ((ExprString) expr).getValue();
+						mv.visitLdcInsn(OrccUtil.getUnescapedString(str));
+					} else {
+						compileExpression(expr);
+						mv.visitMethodInsn(INVOKESTATIC, "java/lang/String",
+								"valueOf", "(" + OBJECT_DESC
+										+ ")Ljava/lang/String;", false);
+					}
+					mv.visitMethodInsn(INVOKEVIRTUAL, INTERPRETER, "print",
+							"(Ljava/lang/String;)V", false);
+				}
+			}
+			return;
+		}
+
+		Var target = call.hasResult() ? call.getTarget().getVariable() : null;
+		if (target != null) {
+			storePrefix(target);
+		}
+
+		if (proc.isNative()) {
+			mv.visitVarInsn(ALOAD, 2);
+			pushConstant(proc, "net/sf/orcc/ir/Procedure");
+			newArray(arguments.size());
+			for (int i = 0; i < arguments.size(); i++) {
+				Arg arg = arguments.get(i);
+				if (arg.isByVal()) {
+					mv.visitInsn(DUP);
+					pushInt(i);
+					compileExpression(((ArgByVal) arg).getValue());
+					mv.visitInsn(AASTORE);
+				}
+			}
+			mv.visitMethodInsn(INVOKEVIRTUAL, INTERPRETER, "callNative",
+					"(Lnet/sf/orcc/ir/Procedure;[Ljava/lang/Object;)"
+							+ OBJECT_DESC, false);
+		} else {
+			// arguments are all evaluated before the procedure is called
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitVarInsn(ALOAD, 2);
+			int numParams = proc.getParameters().size();
+			for (int i = 0; i < numParams; i++) {
+				Arg arg = i < arguments.size() ? arguments.get(i) : null;
+				if (arg != null && arg.isByVal()) {
+					compileExpression(((ArgByVal) arg).getValue());
+				} else {
+					mv.visitInsn(ACONST_NULL);
+				}
+			}
+			mv.visitMethodInsn(INVOKESTATIC, className,
+					"p" + procedures.get(proc), getDescriptor(proc), false);
+		}
+
+		if (target != null) {
+			storeSuffix(target);
+		} else {
+			mv.visitInsn(POP);
+		}
+	}
+
+	private void compileExpression(Expression expr) {
+		if (expr.isExprBinary()) {
+			compileBinary((ExprBinary) expr);
+		} else if (expr.isExprUnary()) {
+			ExprUnary unary = (ExprUnary) expr;
+			pushConstant(unary.getOp(), "net/sf/orcc/ir/OpUnary");
+			compileExpression(unary.getExpr());
+			pushConstant(unary, "net/sf/orcc/ir/ExprUnary");
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "compute",
+					"(Lnet/sf/orcc/ir/OpUnary;" + OBJECT_DESC
+							+ "Lnet/sf/orcc/ir/ExprUnary;)" + OBJECT_DESC,
+					false);
+		} else if (expr.isExprVar()) {
+			Var var = ((ExprVar) expr).getUse().getVariable();
+			load(var);
+			pushConstant(var, "net/sf/orcc/ir/Var");
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "checkDefined", "("
+					+ OBJECT_DESC + "Lnet/sf/orcc/ir/Var;)" + OBJECT_DESC,
+					false);
+		} else if (expr.isExprList()) {
+			compileList((ExprList) expr);
+		} else if (expr.isExprBool()) {
+			mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean",
+					((ExprBool) expr).isValue() ? "TRUE" : "FALSE",
+					"Ljava/lang/Boolean;");
+		} else if (expr.isExprFloat()) {
+			pushConstant(((ExprFloat) expr).getValue(), null);
+		} else if (expr.isExprInt()) {
+			pushConstant(((ExprInt) expr).getValue(), null);
+		} else if (expr.isExprString()) {
+			mv.visitLdcInsn(((ExprString) expr).getValue());
+		} else {
+			mv.visitInsn(ACONST_NULL);
+		}
+	}
+
+	private void compileIf(BlockIf block, int branch, boolean canReturn) {
+		Label elseLabel = new Label();
+		Label end = new Label();
+
+		compileExpression(block.getCondition());
+		pushConstant(block, "net/sf/orcc/ir/BlockIf");
+		mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "condition", "("
+				+ OBJECT_DESC + "Lnet/sf/orcc/ir/BlockIf;)Z", false);
+		mv.visitJumpInsn(IFEQ, elseLabel);
+
+		compileBlocks(block.getThenBlocks(), branch, false);
+		compileJoin(block.getJoinBlock(), 0, canReturn);
+		mv.visitJumpInsn(GOTO, end);
+
+		mv.visitLabel(elseLabel);
+		compileBlocks(block.getElseBlocks(), branch, false);
+		compileJoin(block.getJoinBlock(), 1, canReturn);
+
+		mv.visitLabel(end);
+	}
+
+	private void compileInstruction(Instruction instruction, int branch,
+			boolean canReturn) {
+		if (instruction.isInstAssign()) {
+			InstAssign assign = (InstAssign) instruction;
+			Var target = assign.getTarget().getVariable();
+			storePrefix(target);
+			mv.visitVarInsn(ALOAD, 2);
+			pushConstant(target.getType(), "net/sf/orcc/ir/Type");
+			compileExpression(assign.getValue());
+			pushConstant(assign, "net/sf/orcc/ir/Instruction");
+			invokeClip();
+			storeSuffix(target);
+		} else if (instruction.isInstCall()) {
+			compileCall((InstCall) instruction);
+		} else if (instruction.isInstLoad()) {
+			compileLoad((InstLoad) instruction);
+		} else if (instruction.isInstPhi()) {
+			InstPhi phi = (InstPhi) instruction;
+			Var target = phi.getTarget().getVariable();
+			storePrefix(target);
+			compileExpression(phi.getValues().get(branch));
+			storeSuffix(target);
+		} else if (instruction.isInstReturn()) {
+			Expression value = ((InstReturn) instruction).getValue();
+			if (value != null && canReturn) {
+				compileExpression(value);
+				mv.visitInsn(ARETURN);
+
+				// the remaining code is unreachable but must stay valid
+				mv.visitLabel(new Label());
+			}
+		} else if (instruction.isInstStore()) {
+			compileStore((InstStore) instruction);
+		}
+	}
+
+	/**
+	 * Compiles the join block of an if or a while, knowing the branch taken to
+	 * reach it.
+	 */
+	private void compileJoin(BlockBasic join, int branch, boolean canReturn) {
+		List<Block> blocks = new ArrayList<Block>(1);
+		blocks.add(join);
+		compileBlocks(blocks, branch, canReturn);
+	}
+
+	private void compileList(ExprList expr) {
+		TypeList type = (TypeList) expr.getType();
+		List<Expression> leaves = new ArrayList<Expression>();
+		List<Object[]> indexes = new ArrayList<Object[]>();
+		collectListElements(expr, type, new Object[0], leaves, indexes);
+
+		pushConstant(type, "net/sf/orcc/ir/TypeList");
+		newArray(leaves.size());
+		for (int i = 0; i < leaves.size(); i++) {
+			mv.visitInsn(DUP);
+			pushInt(i);
+			compileExpression(leaves.get(i));
+			mv.visitInsn(AASTORE);
+		}
+		pushConstant(indexes.toArray(new Object[indexes.size()][]),
+				"[[Ljava/lang/Object;");
+		mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "createList",
+				"(Lnet/sf/orcc/ir/TypeList;[Ljava/lang/Object;"
+						+ "[[Ljava/lang/Object;)" + OBJECT_DESC, false);
+	}
+
+	private void collectListElements(Expression expr, Type type,
+			Object[] prefix, List<Expression> leaves, List<Object[]> indexes) {
+		if (type.isList()) {
+			TypeList typeList = (TypeList) type;
+			List<Expression> list = ((ExprList) expr).getValue();
+			for (int i = 0; (i < list.size()) && (i < typeList.getSize()); i++) {
+				Object[] inner = new Object[prefix.length + 1];
+				System.arraycopy(prefix, 0, inner, 0, prefix.length);
+				inner[prefix.length] = i;
+				collectListElements(list.get(i), typeList.getType(), inner,
+						leaves, indexes);
+			}
+		} else {
+			leaves.add(expr);
+			indexes.add(prefix);
+		}
+	}
+
+	private void compileLoad(InstLoad load) {
+		Var target = load.getTarget().getVariable();
+		Var source = load.getSource().getVariable();
+		storePrefix(target);
+		if (load.getIndexes().isEmpty()) {
+			load(source);
+		} else {
+			Type type = ((TypeList) source.getType()).getInnermostType();
+			pushConstant(type, "net/sf/orcc/ir/Type");
+			load(source);
+			compileIndexes(load.getIndexes());
+			pushConstant(load, "net/sf/orcc/ir/Instruction");
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "load",
+					"(Lnet/sf/orcc/ir/Type;" + OBJECT_DESC
+							+ "[Ljava/lang/Object;Lnet/sf/orcc/ir/Instruction;)"
+							+ OBJECT_DESC, false);
+		}
+		storeSuffix(target);
+	}
+
+	private void compileIndexes(List<Expression> indexes) {
+		newArray(indexes.size());
+		for (int i = 0; i < indexes.size(); i++) {
+			mv.visitInsn(DUP);
+			pushInt(i);
+			compileExpression(indexes.get(i));
+			mv.visitInsn(AASTORE);
+		}
+	}
+
+	private void compileProcedure(Procedure procedure) {
+		locals = new HashMap<Var, Integer>();
+		int index = FIRST_PARAM;
+		for (Param param : procedure.getParameters()) {
+			locals.put(param.getVariable(), index++);
+		}
+
+		// initialize local variables, allocating List variables
+		for (Var local : procedure.getLocals()) {
+			locals.put(local, index);
+			if (local.getType().isList()) {
+				pushConstant(local.getType(), "net/sf/orcc/ir/TypeList");
+				mv.visitMethodInsn(INVOKESTATIC, OPS, "createArray",
+						"(Lnet/sf/orcc/ir/TypeList;)" + OBJECT_DESC, false);
+			} else {
+				mv.visitInsn(ACONST_NULL);
+			}
+			mv.visitVarInsn(ASTORE, index++);
+		}
+
+		compileBlocks(procedure.getBlocks(), 0, true);
+		mv.visitInsn(ACONST_NULL);
+		mv.visitInsn(ARETURN);
+	}
+
+	private void compileStore(InstStore store) {
+		Var target = store.getTarget().getVariable();
+		if (store.getIndexes().isEmpty()) {
+			storePrefix(target);
+			mv.visitVarInsn(ALOAD, 2);
+			pushConstant(target.getType(), "net/sf/orcc/ir/Type");
+			compileExpression(store.getValue());
+			pushConstant(store, "net/sf/orcc/ir/Instruction");
+			invokeClip();
+			storeSuffix(target);
+		} else {
+			Type type = ((TypeList) target.getType()).getInnermostType();
+			pushConstant(type, "net/sf/orcc/ir/Type");
+			load(target);
+			mv.visitVarInsn(ALOAD, 2);
+			pushConstant(type, "net/sf/orcc/ir/Type");
+			compileExpression(store.getValue());
+			pushConstant(store, "net/sf/orcc/ir/Instruction");
+			invokeClip();
+			compileIndexes(store.getIndexes());
+			pushConstant(store, "net/sf/orcc/ir/Instruction");
+			mv.visitMethodInsn(INVOKESTATIC, SUPPORT, "store",
+					"(Lnet/sf/orcc/ir/Type;" + OBJECT_DESC + OBJECT_DESC
+							+ "[Ljava/lang/Object;Lnet/sf/orcc/ir/Instruction;)V",
+					false);
+		}
+	}
+
+	private void compileWhile(BlockWhile block) {
+		Label condition = new Label();
+		Label end = new Label();
+
+		compileJoin(block.getJoinBlock(), 0, false);
+		mv.visitLabel(condition);
+		compileExpression(block.getCondition());
+		mv.visitMethodInsn(INVOKESTATIC, OPS, "isTrue", "(" + OBJECT_DESC
+				+ ")Z", false);
+		mv.visitJumpInsn(IFEQ, end);
+		compileBlocks(block.getBlocks(), 1, false);
+		compileJoin(block.getJoinBlock(), 1, false);
+		mv.visitJumpInsn(GOTO, condition);
+		mv.visitLabel(end);
+	}
+
+	/**
+	 * Generates the method that dispatches calls to the compiled procedures.
+	 */
+	private void generateInvoke(ClassWriter cw) {
+		mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(I[Ljava/lang/Object;)"
+				+ OBJECT_DESC, null, null);
+		mv.visitCode();
+
+		Procedure[] procs = new Procedure[procedures.size()];
+		for (Map.Entry<Procedure, Integer> entry : procedures.entrySet()) {
+			procs[entry.getValue()] = entry.getKey();
+		}
+
+		Label defaultLabel = new Label();
+		Label[] labels = new Label[procedures.size()];
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = new Label();
+		}
+
+		mv.visitVarInsn(ILOAD, 1);
+		mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
+		for (int i = 0; i < labels.length; i++) {
+			mv.visitLabel(labels[i]);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, ACTOR_CODE, "constants",
+					"[Ljava/lang/Object;");
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, ACTOR_CODE, "interpreter", "L"
+					+ INTERPRETER + ";");
+			Procedure procedure = procs[i];
+			for (int j = 0; j < procedure.getParameters().size(); j++) {
+				mv.visitInsn(ACONST_NULL);
+			}
+			mv.visitMethodInsn(INVOKESTATIC, className, "p" + i,
+					getDescriptor(procedure), false);
+			mv.visitInsn(ARETURN);
+		}
+		mv.visitLabel(defaultLabel);
+		mv.visitInsn(ACONST_NULL);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * Returns the descriptor of the method of the given procedure, which takes
+	 * the slots, the constants, the interpreter, and the parameters of the
+	 * procedure.
+	 */
+	private String getDescriptor(Procedure procedure) {
+		StringBuilder desc = new StringBuilder(PROCEDURE_DESC_PREFIX);
+		for (int i = 0; i < procedure.getParameters().size(); i++) {
+			desc.append(OBJECT_DESC);
+		}
+		return desc.append(')').append(OBJECT_DESC).toString();
+	}
+
+	/**
+	 * Returns the number of slots used by the compiled code.
+	 * 
+	 * @return a number of slots
+	 */
+	public int getNumSlots() {
+		return slots.size();
+	}
+
+	/**
+	 * Returns the slot of the given variable, creating it if the variable is a
+	 * parameter or a state variable of the actor. Returns <code>null</code>
+	 * for other variables.
+	 */
+	private Integer getOrCreateSlot(Var var) {
+		Integer slot = slots.get(var);
+		if (slot == null) {
+			if (var.eContainer() == actor) {
+				slot = slots.size();
+				slots.put(var, slot);
+			}
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the index of the given procedure in the compiled code.
+	 * 
+	 * @param procedure
+	 *            a procedure
+	 * @return an index, or <code>null</code> if the procedure is not compiled
+	 */
+	public Integer getProcedureIndex(Procedure procedure) {
+		return procedures.get(procedure);
+	}
+
+	/**
+	 * Returns the slot of the given variable if it has one.
+	 * 
+	 * @param var
+	 *            a variable
+	 * @return the index of a slot, or <code>null</code>
+	 */
+	public Integer getSlot(Var var) {
+		return slots.get(var);
+	}
+
+	private void invokeClip() {
+		mv.visitMethodInsn(INVOKEVIRTUAL, INTERPRETER, "clip",
+				"(Lnet/sf/orcc/ir/Type;" + OBJECT_DESC
+						+ "Lnet/sf/orcc/ir/Instruction;)" + OBJECT_DESC, false);
+	}
+
+	private void invokeOperation(OpBinary op) {
+		mv.visitMethodInsn(INVOKESTATIC, OPS, OPERATIONS.get(op), "("
+				+ OBJECT_DESC + OBJECT_DESC + ")" + OBJECT_DESC, false);
+	}
+
+	/**
+	 * Pushes the value of the given variable.
+	 */
+	private void load(Var var) {
+		Integer local = locals.get(var);
+		if (local != null) {
+			mv.visitVarInsn(ALOAD, local);
+			return;
+		}
+
+		Integer slot = getOrCreateSlot(var);
+		if (slot == null) {
+			mv.visitVarInsn(ALOAD, 2);
+			pushConstant(var, "net/sf/orcc/ir/Var");
+			mv.visitMethodInsn(INVOKEVIRTUAL, INTERPRETER, "getValue",
+					"(Lnet/sf/orcc/ir/Var;)" + OBJECT_DESC, false);
+		} else {
+			mv.visitVarInsn(ALOAD, 0);
+			pushInt(slot);
+			mv.visitInsn(AALOAD);
+		}
+	}
+
+	private void newArray(int size) {
+		pushInt(size);
+		mv.visitTypeInsn(ANEWARRAY, OBJECT);
+	}
+
+	/**
+	 * Pushes the given object, read from the constants of the generated code,
+	 * and casts it to the given type (if not <code>null</code>).
+	 */
+	private void pushConstant(Object constant, String type) {
+		Integer index = constantIndexes.get(constant);
+		if (index == null) {
+			index = constants.size();
+			constants.add(constant);
+			constantIndexes.put(constant, index);
+		}
+
+		mv.visitVarInsn(ALOAD, 1);
+		pushInt(index);
+		mv.visitInsn(AALOAD);
+		if (type != null) {
+			mv.visitTypeInsn(CHECKCAST, type);
+		}
+	}
+
+	private void pushInt(int value) {
+		if (value >= -1 && value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+	/**
+	 * Pushes what is needed before the value to store in the given variable.
+	 */
+	private void storePrefix(Var var) {
+		if (locals.containsKey(var)) {
+			return;
+		}
+
+		Integer slot = getOrCreateSlot(var);
+		if (slot == null) {
+			mv.visitVarInsn(ALOAD, 2);
+			pushConstant(var, "net/sf/orcc/ir/Var");
+		} else {
+			mv.visitVarInsn(ALOAD, 0);
+			pushInt(slot);
+		}
+	}
+
+	/**
+	 * Stores the value on top of the stack in the given variable.
+	 */
+	private void storeSuffix(Var var) {
+		Integer local = locals.get(var);
+		if (local != null) {
+			mv.visitVarInsn(ASTORE, local);
+		} else if (getOrCreateSlot(var) == null) {
+			mv.visitMethodInsn(INVOKEVIRTUAL, INTERPRETER, "setValue",
+					"(Lnet/sf/orcc/ir/Var;" + OBJECT_DESC + ")V", false);
+		} else {
+			mv.visitInsn(AASTORE);
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.bytecode;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.ir.BlockIf;
+import net.sf.orcc.ir.ExprUnary;
+import net.sf.orcc.ir.Instruction;
+import net.sf.orcc.ir.OpUnary;
+import net.sf.orcc.ir.Type;
+import net.sf.orcc.ir.TypeList;
+import net.sf.orcc.ir.Var;
+import net.sf.orcc.ir.util.ExpressionPrinter;
+import net.sf.orcc.ir.util.ValueUtil;
+
+/**
+ * This class defines static methods called by the code generated by
+ * {@link BytecodeCompiler}, for operations that would be too verbose to
+ * generate inline (error reporting, multi-dimensional accesses...).
+ * 
+ */
+public class BytecodeSupport {
+
+	/**
+	 * Returns the value of the condition of the given if block.
+	 * 
+	 * @throws OrccRuntimeException
+	 *             if the value is not a boolean
+	 */
+	public static boolean condition(Object value, BlockIf block) {
+		if (!ValueUtil.isBool(value)) {
+			throw new OrccRuntimeException("Condition "
+					+ new ExpressionPrinter().doSwitch(block.getCondition())
+					+ " not boolean at line " + block.getLineNumber());
+		}
+		return (Boolean) value;
+	}
+
+	/**
+	 * Returns the given value of the given variable.
+	 * 
+	 * @throws OrccRuntimeException
+	 *             if the value is <code>null</code>
+	 */
+	public static Object checkDefined(Object value, Var var) {
+		if (value == null) {
+			throw new OrccRuntimeException("Uninitialized variable: "
+					+ var.getName());
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of the given unary expression.
+	 */
+	public static Object compute(OpUnary op, Object value, ExprUnary expr) {
+		Object result = ValueUtil.compute(op, value);
+		if (result == null) {
+			throw new OrccRuntimeException(
+					"Could not evaluate unary expression "
+							+ new ExpressionPrinter().doSwitch(expr) + "\n");
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a new array of the given type, whose elements are initialized
+	 * with the given values at the given indexes.
+	 */
+	public static Object createList(TypeList type, Object[] values,
+			Object[][] indexes) {
+		Object array = ValueUtil.createArray(type);
+		Type eltType = type.getInnermostType();
+		for (int i = 0; i < values.length; i++) {
+			ValueUtil.set(eltType, array, values[i], indexes[i]);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns <code>true</code> if the given value is {@link Boolean#FALSE}.
+	 */
+	public static boolean isFalse(Object value) {
+		return Boolean.FALSE.equals(value);
+	}
+
+	/**
+	 * Returns <code>true</code> if the given value is {@link Boolean#TRUE}.
+	 */
+	public static boolean isTrue(Object value) {
+		return Boolean.TRUE.equals(value);
+	}
+
+	/**
+	 * Returns the element of the given array at the given indexes.
+	 */
+	public static Object load(Type type, Object array, Object[] indexes,
+			Instruction instruction) {
+		try {
+			return ValueUtil.get(type, array, indexes);
+		} catch (IndexOutOfBoundsException e) {
+			throw new OrccRuntimeException("Array Index Out of Bound at line "
+					+ instruction.getLineNumber());
+		}
+	}
+
+	/**
+	 * Stores the given value in the given array at the given indexes.
+	 */
+	public static void store(Type type, Object array, Object value,
+			Object[] indexes, Instruction instruction) {
+		try {
+			ValueUtil.set(type, array, value, indexes);
+		} catch (IndexOutOfBoundsException e) {
+			throw new OrccRuntimeException("Array Index Out of Bound at line "
+					+ instruction.getLineNumber() + "");
+		}
+	}
+
+}
@@ -0,0 +1,812 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.compiled;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.ir.Arg;
+import net.sf.orcc.ir.ArgByVal;
+import net.sf.orcc.ir.Block;
+import net.sf.orcc.ir.BlockBasic;
+import net.sf.orcc.ir.BlockIf;
+import net.sf.orcc.ir.BlockWhile;
+import net.sf.orcc.ir.ExprBinary;
+import net.sf.orcc.ir.ExprBool;
+import net.sf.orcc.ir.ExprFloat;
+import net.sf.orcc.ir.ExprInt;
+import net.sf.orcc.ir.ExprList;
+import net.sf.orcc.ir.ExprString;
+import net.sf.orcc.ir.ExprUnary;
+import net.sf.orcc.ir.ExprVar;
+import net.sf.orcc.ir.Expression;
+import net.sf.orcc.ir.InstAssign;
+import net.sf.orcc.ir.InstCall;
+import net.sf.orcc.ir.InstLoad;
+import net.sf.orcc.ir.InstPhi;
+import net.sf.orcc.ir.InstReturn;
+import net.sf.orcc.ir.InstStore;
+import net.sf.orcc.ir.Instruction;
+import net.sf.orcc.ir.OpBinary;
+import net.sf.orcc.ir.OpUnary;
+import net.sf.orcc.ir.Param;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.Type;
+import net.sf.orcc.ir.TypeList;
+import net.sf.orcc.ir.Var;
+import net.sf.orcc.ir.util.ExpressionPrinter;
+import net.sf.orcc.ir.util.ValueUtil;
+import net.sf.orcc.util.OrccUtil;
+
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * This class compiles the procedures of an actor to trees of closures. Each
+ * expression, instruction and block is resolved once: operators, branches of
+ * phi instructions, called procedures and variables are known when the closure
+ * is created, so executing it does not walk the IR anymore.
+ * 
+ * Parameters and state variables of the actor, as well as parameters and
+ * local variables of procedures, are stored in the slots of the interpreter.
+ * The slots of a procedure are saved and restored around recursive calls by
+ * {@link CompiledProcedure#invoke(Object[])}. Other variables (patterns,
+ * constants declared in units) are read and written through the interpreter.
+ * 
+ */
+public class ClosureCompiler {
+
+	/**
+	 * This class defines how a variable is read and written.
+	 */
+	private abstract class Access {
+
+		abstract Object get();
+
+		abstract void set(Object value);
+
+	}
+
+	private final Actor actor;
+
+	private final CompiledActorInterpreter interpreter;
+
+	private final Map<Procedure, CompiledProcedure> procedures;
+
+	private final Map<Var, Integer> slots;
+
+	/**
+	 * Creates a new compiler for the actor of the given interpreter.
+	 * 
+	 * @param interpreter
+	 *            the interpreter that holds the slots
+	 */
+	public ClosureCompiler(CompiledActorInterpreter interpreter) {
+		this.interpreter = interpreter;
+		this.actor = interpreter.getActor();
+		procedures = new HashMap<Procedure, CompiledProcedure>();
+		slots = new HashMap<Var, Integer>();
+	}
+
+	/**
+	 * Returns the access to the given variable.
+	 */
+	private Access access(final Var var) {
+		final Integer slot = getOrCreateSlot(var);
+		if (slot == null) {
+			return new Access() {
+
+				@Override
+				Object get() {
+					return interpreter.getValue(var);
+				}
+
+				@Override
+				void set(Object value) {
+					interpreter.setValue(var, value);
+				}
+
+			};
+		}
+
+		final int index = slot;
+		return new Access() {
+
+			@Override
+			Object get() {
+				return interpreter.slots[index];
+			}
+
+			@Override
+			void set(Object value) {
+				interpreter.slots[index] = value;
+			}
+
+		};
+	}
+
+	private CompiledExpression compileBinary(final ExprBinary expr) {
+		final CompiledExpression e1 = compileExpression(expr.getE1());
+		final CompiledExpression e2 = compileExpression(expr.getE2());
+		switch (expr.getOp()) {
+		case LOGIC_AND:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					Object val1 = e1.evaluate();
+					if (Boolean.FALSE.equals(val1)) {
+						return val1;
+					}
+					return ValueUtil.logicAnd(val1, e2.evaluate());
+				}
+			};
+		case LOGIC_OR:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					Object val1 = e1.evaluate();
+					if (Boolean.TRUE.equals(val1)) {
+						return val1;
+					}
+					return ValueUtil.logicOr(val1, e2.evaluate());
+				}
+			};
+		case PLUS:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.add(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case MINUS:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.subtract(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case TIMES:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.multiply(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case BITAND:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.and(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case BITOR:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.or(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case SHIFT_LEFT:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.shiftLeft(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case SHIFT_RIGHT:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.shiftRight(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case EQ:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.equals(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case NE:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.notEquals(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case LT:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.lt(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case LE:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.le(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case GT:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.gt(e1.evaluate(), e2.evaluate());
+				}
+			};
+		case GE:
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					return ValueUtil.ge(e1.evaluate(), e2.evaluate());
+				}
+			};
+		default:
+			final OpBinary op = expr.getOp();
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					Object result = ValueUtil.compute(e1.evaluate(), op,
+							e2.evaluate());
+					if (result == null) {
+						throw new OrccRuntimeException(
+								"Could not evaluate binary expression:\n"
+										+ new ExpressionPrinter()
+												.doSwitch(expr) + "\n");
+					}
+					return result;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Compiles the given list of blocks.
+	 * 
+	 * @param blocks
+	 *            a list of blocks
+	 * @param branch
+	 *            the branch taken to reach these blocks, used to resolve phi
+	 *            instructions
+	 * @return an array of compiled statements
+	 */
+	private CompiledStatement[] compileBlocks(List<Block> blocks, int branch) {
+		List<CompiledStatement> statements = new ArrayList<CompiledStatement>();
+		for (Block block : blocks) {
+			if (block.isBlockBasic()) {
+				for (Instruction instruction : ((BlockBasic) block)
+						.getInstructions()) {
+					CompiledStatement statement = compileInstruction(
+							instruction, branch);
+					if (statement != null) {
+						statements.add(statement);
+					}
+				}
+			} else if (block.isBlockIf()) {
+				statements.add(compileIf((BlockIf) block, branch));
+			} else if (block.isBlockWhile()) {
+				statements.add(compileWhile((BlockWhile) block));
+			}
+		}
+		return statements.toArray(new CompiledStatement[statements.size()]);
+	}
+
+	private CompiledStatement compileCall(final InstCall call) {
+		final Procedure proc = call.getProcedure();
+		List<Arg> arguments = call.getArguments();
+		final CompiledExpression[] args = new CompiledExpression[arguments
+				.size()];
+		for (int i = 0; i < args.length; i++) {
+			Arg arg = arguments.get(i);
+			if (arg.isByVal()) {
+				args[i] = compileExpression(((ArgByVal) arg).getValue());
+			}
+		}
+
+		if (call.isPrint()) {
+			final String[] strings = new String[args.length];
+			for (int i = 0; i < args.length; i++) {
+				Arg arg = arguments.get(i);
+				if (arg.isByVal()) {
+					Expression expr = ((ArgByVal) arg).getValue();
+					if (expr.isExprString()) {
+						// String characters rework for escaped control
+						// management
+						String str = ((ExprString) expr).getValue();
+						strings[i] = OrccUtil.getUnescapedString(str);
+					}
+				}
+			}
+
+			return new CompiledStatement() {
+				@Override
+				public Object execute() {
+					for (int i = 0; i < args.length; i++) {
+						if (strings[i] != null) {
+							interpreter.print(strings[i]);
+						} else if (args[i] != null) {
+							interpreter.print(String.valueOf(args[i]
+									.evaluate()));
+						}
+					}
+					return null;
+				}
+			};
+		}
+
+		final Access target = call.hasResult() ? access(call.getTarget()
+				.getVariable()) : null;
+		if (proc.isNative()) {
+			return new CompiledStatement() {
+				@Override
+				public Object execute() {
+					Object[] values = new Object[args.length];
+					for (int i = 0; i < args.length; i++) {
+						if (args[i] != null) {
+							values[i] = args[i].evaluate();
+						}
+					}
+					Object result = interpreter.callNative(proc, values);
+					if (target != null) {
+						target.set(result);
+					}
+					return null;
+				}
+			};
+		}
+
+		final CompiledProcedure callee = compileProcedure(proc);
+		return new CompiledStatement() {
+			@Override
+			public Object execute() {
+				// all arguments are evaluated before any parameter is set
+				Object[] values = new Object[args.length];
+				for (int i = 0; i < args.length; i++) {
+					if (args[i] != null) {
+						values[i] = args[i].evaluate();
+					}
+				}
+				Object result = callee.invoke(values);
+				if (target != null) {
+					target.set(result);
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Compiles the given expression.
+	 * 
+	 * @param expr
+	 *            an expression
+	 * @return a compiled expression
+	 */
+	public CompiledExpression compileExpression(final Expression expr) {
+		if (expr.isExprBinary()) {
+			return compileBinary((ExprBinary) expr);
+		} else if (expr.isExprUnary()) {
+			final OpUnary op = ((ExprUnary) expr).getOp();
+			final CompiledExpression e = compileExpression(((ExprUnary) expr)
+					.getExpr());
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					Object result = ValueUtil.compute(op, e.evaluate());
+					if (result == null) {
+						throw new OrccRuntimeException(
+								"Could not evaluate unary expression "
+										+ new ExpressionPrinter()
+												.doSwitch(expr) + "\n");
+					}
+					return result;
+				}
+			};
+		} else if (expr.isExprVar()) {
+			final Var var = ((ExprVar) expr).getUse().getVariable();
+			final Access access = access(var);
+			return new CompiledExpression() {
+				@Override
+				public Object evaluate() {
+					Object value = access.get();
+					if (value == null) {
+						throw new OrccRuntimeException(
+								"Uninitialized variable: " + var.getName());
+					}
+					return value;
+				}
+			};
+		} else if (expr.isExprList()) {
+			return compileList((ExprList) expr);
+		}
+
+		final Object value;
+		if (expr.isExprBool()) {
+			value = ((ExprBool) expr).isValue();
+		} else if (expr.isExprFloat()) {
+			value = ((ExprFloat) expr).getValue();
+		} else if (expr.isExprInt()) {
+			value = ((ExprInt) expr).getValue();
+		} else if (expr.isExprString()) {
+			value = ((ExprString) expr).getValue();
+		} else {
+			value = null;
+		}
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate() {
+				return value;
+			}
+		};
+	}
+
+	private CompiledStatement compileIf(final BlockIf block, int branch) {
+		final CompiledExpression condition = compileExpression(block
+				.getCondition());
+		final CompiledStatement[] thenBlocks = compileBlocks(
+				block.getThenBlocks(), branch);
+		final CompiledStatement[] elseBlocks = compileBlocks(
+				block.getElseBlocks(), branch);
+		final CompiledStatement[] thenJoin = compileJoin(block.getJoinBlock(),
+				0);
+		final CompiledStatement[] elseJoin = compileJoin(block.getJoinBlock(),
+				1);
+		return new CompiledStatement() {
+			@Override
+			public Object execute() {
+				Object value = condition.evaluate();
+				if (!ValueUtil.isBool(value)) {
+					throw new OrccRuntimeException("Condition "
+							+ new ExpressionPrinter().doSwitch(block
+									.getCondition()) + " not boolean at line "
+							+ block.getLineNumber());
+				}
+
+				if (ValueUtil.isTrue(value)) {
+					executeAll(thenBlocks);
+					return executeAll(thenJoin);
+				} else {
+					executeAll(elseBlocks);
+					return executeAll(elseJoin);
+				}
+			}
+		};
+	}
+
+	private CompiledStatement compileInstruction(Instruction instruction,
+			int branch) {
+		if (instruction.isInstAssign()) {
+			final InstAssign assign = (InstAssign) instruction;
+			final Var var = assign.getTarget().getVariable();
+			final Access target = access(var);
+			final CompiledExpression value = compileExpression(assign
+					.getValue());
+			return new CompiledStatement() {
+				@Override
+				public Object execute() {
+					target.set(interpreter.clip(var.getType(),
+							value.evaluate(), assign));
+					return null;
+				}
+			};
+		} else if (instruction.isInstCall()) {
+			return compileCall((InstCall) instruction);
+		} else if (instruction.isInstLoad()) {
+			return compileLoad((InstLoad) instruction);
+		} else if (instruction.isInstPhi()) {
+			InstPhi phi = (InstPhi) instruction;
+			final Access target = access(phi.getTarget().getVariable());
+			final CompiledExpression value = compileExpression(phi
+					.getValues().get(branch));
+			return new CompiledStatement() {
+				@Override
+				public Object execute() {
+					target.set(value.evaluate());
+					return null;
+				}
+			};
+		} else if (instruction.isInstReturn()) {
+			Expression expr = ((InstReturn) instruction).getValue();
+			if (expr == null) {
+				return null;
+			}
+			final CompiledExpression value = compileExpression(expr);
+			return new CompiledStatement() {
+				@Override
+				public Object execute() {
+					return value.evaluate();
+				}
+			};
+		} else if (instruction.isInstStore()) {
+			return compileStore((InstStore) instruction);
+		}
+		return null;
+	}
+
+	/**
+	 * Compiles the join block of an if or a while, knowing the branch taken to
+	 * reach it.
+	 */
+	private CompiledStatement[] compileJoin(BlockBasic join, int branch) {
+		List<Block> blocks = new ArrayList<Block>(1);
+		blocks.add(join);
+		return compileBlocks(blocks, branch);
+	}
+
+	private CompiledExpression compileList(ExprList expr) {
+		final TypeList type = (TypeList) expr.getType();
+		final List<CompiledExpression> leaves = new ArrayList<CompiledExpression>();
+		final List<Object[]> indexes = new ArrayList<Object[]>();
+		compileListElements(expr, type, new Object[0], leaves, indexes);
+		final Type eltType = type.getInnermostType();
+		return new CompiledExpression() {
+			@Override
+			public Object evaluate() {
+				Object array = ValueUtil.createArray(type);
+				for (int i = 0; i < leaves.size(); i++) {
+					ValueUtil.set(eltType, array, leaves.get(i).evaluate(),
+							indexes.get(i));
+				}
+				return array;
+			}
+		};
+	}
+
+	private void compileListElements(Expression expr, Type type,
+			Object[] prefix, List<CompiledExpression> leaves,
+			List<Object[]> indexes) {
+		if (type.isList()) {
+			TypeList typeList = (TypeList) type;
+			List<Expression> list = ((ExprList) expr).getValue();
+			for (int i = 0; (i < list.size()) && (i < typeList.getSize()); i++) {
+				Object[] inner = new Object[prefix.length + 1];
+				System.arraycopy(prefix, 0, inner, 0, prefix.length);
+				inner[prefix.length] = i;
+				compileListElements(list.get(i), typeList.getType(), inner,
+						leaves, indexes);
+			}
+		} else {
+			leaves.add(compileExpression(expr));
+			indexes.add(prefix);
+		}
+	}
+
+	private CompiledStatement compileLoad(final InstLoad load) {
+		final Access target = access(load.getTarget().getVariable());
+		final Var source = load.getSource().getVariable();
+		final Access array = access(source);
+		if (load.getIndexes().isEmpty()) {
+			return new CompiledStatement() {
+				@Override
+				public Object execute() {
+					target.set(array.get());
+					return null;
+				}
+			};
+		}
+
+		final CompiledExpression[] indexes = compileExpressions(load
+				.getIndexes());
+		final Type type = ((TypeList) source.getType()).getInnermostType();
+		return new CompiledStatement() {
+			@Override
+			public Object execute() {
+				Object[] values = new Object[indexes.length];
+				for (int i = 0; i < indexes.length; i++) {
+					values[i] = indexes[i].evaluate();
+				}
+				try {
+					target.set(ValueUtil.get(type, array.get(), values));
+				} catch (IndexOutOfBoundsException e) {
+					throw new OrccRuntimeException(
+							"Array Index Out of Bound at line "
+									+ load.getLineNumber());
+				}
+				return null;
+			}
+		};
+	}
+
+	private CompiledExpression[] compileExpressions(List<Expression> exprs) {
+		CompiledExpression[] compiled = new CompiledExpression[exprs.size()];
+		for (int i = 0; i < compiled.length; i++) {
+			compiled[i] = compileExpression(exprs.get(i));
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles the given procedure, or returns the result of a previous
+	 * compilation.
+	 * 
+	 * @param procedure
+	 *            a procedure
+	 * @return a compiled procedure
+	 */
+	public CompiledProcedure compileProcedure(Procedure procedure) {
+		CompiledProcedure compiled = procedures.get(procedure);
+		if (compiled != null) {
+			return compiled;
+		}
+
+		compiled = new CompiledProcedure(interpreter, procedure);
+		procedures.put(procedure, compiled);
+
+		List<Param> params = procedure.getParameters();
+		int[] paramSlots = new int[params.size()];
+		for (int i = 0; i < paramSlots.length; i++) {
+			paramSlots[i] = getOrCreateSlot(params.get(i).getVariable());
+		}
+		compiled.setParamSlots(paramSlots);
+
+		List<Var> locals = procedure.getLocals();
+		int[] frameSlots = new int[paramSlots.length + locals.size()];
+		System.arraycopy(paramSlots, 0, frameSlots, 0, paramSlots.length);
+
+		List<Integer> listSlots = new ArrayList<Integer>();
+		List<TypeList> listTypes = new ArrayList<TypeList>();
+		for (int i = 0; i < locals.size(); i++) {
+			Var local = locals.get(i);
+			int slot = getOrCreateSlot(local);
+			frameSlots[paramSlots.length + i] = slot;
+			if (local.getType().isList()) {
+				listSlots.add(slot);
+				listTypes.add((TypeList) local.getType());
+			}
+		}
+		compiled.setFrameSlots(frameSlots);
+
+		int[] slotArray = new int[listSlots.size()];
+		for (int i = 0; i < slotArray.length; i++) {
+			slotArray[i] = listSlots.get(i);
+		}
+		compiled.setLists(slotArray,
+				listTypes.toArray(new TypeList[listTypes.size()]));
+
+		compiled.setBody(compileBlocks(procedure.getBlocks(), 0));
+		return compiled;
+	}
+
+	private CompiledStatement compileStore(final InstStore store) {
+		final Var var = store.getTarget().getVariable();
+		final Access target = access(var);
+		final CompiledExpression value = compileExpression(store.getValue());
+		if (store.getIndexes().isEmpty()) {
+			return new CompiledStatement() {
+				@Override
+				public Object execute() {
+					target.set(interpreter.clip(var.getType(),
+							value.evaluate(), store));
+					return null;
+				}
+			};
+		}
+
+		final CompiledExpression[] indexes = compileExpressions(store
+				.getIndexes());
+		final Type type = ((TypeList) var.getType()).getInnermostType();
+		return new CompiledStatement() {
+			@Override
+			public Object execute() {
+				Object result = value.evaluate();
+				Object[] values = new Object[indexes.length];
+				for (int i = 0; i < indexes.length; i++) {
+					values[i] = indexes[i].evaluate();
+				}
+
+				result = interpreter.clip(type, result, store);
+				try {
+					ValueUtil.set(type, target.get(), result, values);
+				} catch (IndexOutOfBoundsException e) {
+					throw new OrccRuntimeException(
+							"Array Index Out of Bound at line "
+									+ store.getLineNumber() + "");
+				}
+				return null;
+			}
+		};
+	}
+
+	private CompiledStatement compileWhile(BlockWhile block) {
+		final CompiledStatement[] entryJoin = compileJoin(block.getJoinBlock(),
+				0);
+		final CompiledStatement[] loopJoin = compileJoin(block.getJoinBlock(),
+				1);
+		final CompiledExpression condition = compileExpression(block
+				.getCondition());
+		final CompiledStatement[] body = compileBlocks(block.getBlocks(), 1);
+		return new CompiledStatement() {
+			@Override
+			public Object execute() {
+				executeAll(entryJoin);
+				while (ValueUtil.isTrue(condition.evaluate())) {
+					executeAll(body);
+					executeAll(loopJoin);
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Executes the given statements until one of them returns a value.
+	 * 
+	 * @param statements
+	 *            compiled statements
+	 * @return the value returned, or <code>null</code>
+	 */
+	static Object executeAll(CompiledStatement[] statements) {
+		for (CompiledStatement statement : statements) {
+			Object result = statement.execute();
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the slot of the given variable, creating it if the variable is a
+	 * parameter or a state variable of the actor, or a parameter or a local
+	 * variable of a procedure. Returns <code>null</code> for other variables.
+	 * 
+	 * @param var
+	 *            a variable
+	 * @return the index of a slot, or <code>null</code>
+	 */
+	Integer getOrCreateSlot(Var var) {
+		Integer slot = slots.get(var);
+		if (slot == null) {
+			EObject container = var.eContainer();
+			if (container == actor || container instanceof Procedure
+					|| container instanceof Param) {
+				slot = slots.size();
+				slots.put(var, slot);
+				interpreter.ensureSlots(slots.size());
+			}
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of the given variable if it has one.
+	 * 
+	 * @param var
+	 *            a variable
+	 * @return the index of a slot, or <code>null</code>
+	 */
+	public Integer getSlot(Var var) {
+		return slots.get(var);
+	}
+
+}
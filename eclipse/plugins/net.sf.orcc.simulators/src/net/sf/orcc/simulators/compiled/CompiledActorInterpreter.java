@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.compiled;
+
+import java.util.Arrays;
+
+import net.sf.orcc.df.Action;
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.ir.Instruction;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.Type;
+import net.sf.orcc.ir.Var;
+import net.sf.orcc.simulators.slow.ConnectedActorInterpreter;
+import net.sf.orcc.util.OrccLogger;
+
+/**
+ * This class defines an actor interpreter that executes procedures compiled
+ * to closures by a {@link ClosureCompiler} instead of visiting the IR. The
+ * procedures of the actor (action bodies, schedulers, and procedures they
+ * call) are compiled when the interpreter is created.
+ * 
+ */
+public class CompiledActorInterpreter extends ConnectedActorInterpreter {
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	private ClosureCompiler compiler;
+
+	/** values of the variables that have a slot */
+	Object[] slots;
+
+	/**
+	 * Creates an actor interpreter that executes compiled procedures.
+	 * 
+	 * @param actor
+	 *            the actor to interpret
+	 */
+	public CompiledActorInterpreter(Actor actor) {
+		super(actor);
+		slots = new Object[0];
+		compiler = new ClosureCompiler(this);
+
+		for (Var var : actor.getParameters()) {
+			compiler.getOrCreateSlot(var);
+		}
+		for (Var var : actor.getStateVars()) {
+			compiler.getOrCreateSlot(var);
+		}
+		for (Procedure procedure : actor.getProcs()) {
+			compiler.compileProcedure(procedure);
+		}
+		for (Action action : actor.getActions()) {
+			compiler.compileProcedure(action.getScheduler());
+			compiler.compileProcedure(action.getBody());
+		}
+		for (Action action : actor.getInitializes()) {
+			compiler.compileProcedure(action.getScheduler());
+			compiler.compileProcedure(action.getBody());
+		}
+	}
+
+	/**
+	 * Calls a native procedure on behalf of compiled code.
+	 */
+	Object callNative(Procedure procedure, Object[] args) {
+		return callNativeProcedure(procedure, args);
+	}
+
+	@Override
+	public Object caseProcedure(Procedure procedure) {
+		return compiler.compileProcedure(procedure).invoke(NO_ARGS);
+	}
+
+	/**
+	 * Clips a value on behalf of compiled code.
+	 */
+	Object clip(Type type, Object value, Instruction instruction) {
+		return clipValue(type, value, instruction);
+	}
+
+	/**
+	 * Grows the slots so that they can hold at least the given number of
+	 * values.
+	 */
+	void ensureSlots(int size) {
+		if (slots.length < size) {
+			slots = Arrays.copyOf(slots, Math.max(size, 2 * slots.length));
+		}
+	}
+
+	@Override
+	protected void initializeVar(Var variable) {
+		super.initializeVar(variable);
+
+		Integer slot = compiler.getSlot(variable);
+		if (slot != null) {
+			slots[slot] = getValue(variable);
+		}
+	}
+
+	/**
+	 * Prints the given string on behalf of compiled code.
+	 */
+	void print(String str) {
+		OrccLogger.noticeRaw(str);
+	}
+
+	@Override
+	public String toString() {
+		return "compiled interpreter for actor " + actor.getName();
+	}
+
+}
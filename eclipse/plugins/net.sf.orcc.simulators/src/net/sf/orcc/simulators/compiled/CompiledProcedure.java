@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.compiled;
+
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.TypeList;
+import net.sf.orcc.ir.util.ValueUtil;
+
+/**
+ * This class defines a procedure compiled to a sequence of closures. Its
+ * parameters and local variables are stored in the slots of the interpreter
+ * that compiled it. When the procedure is called recursively, the values of
+ * these slots are saved before the call and restored after it, so that each
+ * activation of the procedure sees its own parameters and local variables.
+ * 
+ */
+public class CompiledProcedure {
+
+	private CompiledStatement[] body;
+
+	/** number of activations of this procedure currently running */
+	private int depth;
+
+	private int[] frameSlots;
+
+	private final CompiledActorInterpreter interpreter;
+
+	private int[] listSlots;
+
+	private TypeList[] listTypes;
+
+	private int[] paramSlots;
+
+	private final Procedure procedure;
+
+	/**
+	 * Creates a new compiled procedure. Its body is set later, so that a call
+	 * of the procedure can be compiled while compiling its own body.
+	 * 
+	 * @param interpreter
+	 *            the interpreter that holds the slots
+	 * @param procedure
+	 *            the original procedure
+	 */
+	CompiledProcedure(CompiledActorInterpreter interpreter, Procedure procedure) {
+		this.interpreter = interpreter;
+		this.procedure = procedure;
+	}
+
+	/**
+	 * Returns the original procedure.
+	 * 
+	 * @return a procedure
+	 */
+	public Procedure getProcedure() {
+		return procedure;
+	}
+
+	/**
+	 * Executes this procedure: the given arguments are stored in the slots of
+	 * the parameters, local lists are allocated, then the body is executed. If
+	 * the procedure is already running, the slots of its parameters and local
+	 * variables are restored when it returns.
+	 * 
+	 * @param args
+	 *            the values of the parameters, which have all been evaluated
+	 *            before the call. A <code>null</code> value, or a missing one,
+	 *            leaves the slot of the parameter unchanged.
+	 * @return the value returned by the procedure, or <code>null</code>
+	 */
+	public Object invoke(Object[] args) {
+		Object[] slots = interpreter.slots;
+		Object[] saved = null;
+		if (depth > 0) {
+			saved = new Object[frameSlots.length];
+			for (int i = 0; i < frameSlots.length; i++) {
+				saved[i] = slots[frameSlots[i]];
+			}
+		}
+
+		for (int i = 0; i < args.length && i < paramSlots.length; i++) {
+			if (args[i] != null) {
+				slots[paramSlots[i]] = args[i];
+			}
+		}
+		for (int i = 0; i < listSlots.length; i++) {
+			slots[listSlots[i]] = ValueUtil.createArray(listTypes[i]);
+		}
+
+		depth++;
+		try {
+			return ClosureCompiler.executeAll(body);
+		} finally {
+			depth--;
+			if (saved != null) {
+				for (int i = 0; i < frameSlots.length; i++) {
+					slots[frameSlots[i]] = saved[i];
+				}
+			}
+		}
+	}
+
+	void setBody(CompiledStatement[] body) {
+		this.body = body;
+	}
+
+	void setFrameSlots(int[] frameSlots) {
+		this.frameSlots = frameSlots;
+	}
+
+	void setLists(int[] listSlots, TypeList[] listTypes) {
+		this.listSlots = listSlots;
+		this.listTypes = listTypes;
+	}
+
+	void setParamSlots(int[] paramSlots) {
+		this.paramSlots = paramSlots;
+	}
+
+}
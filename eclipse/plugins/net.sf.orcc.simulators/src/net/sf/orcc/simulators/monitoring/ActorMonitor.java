@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.monitoring;
+
+import net.sf.orcc.df.Action;
+import net.sf.orcc.simulators.slow.ConnectedActorInterpreter;
+
+/**
+ * This class publishes the firings of the interpreter of an actor. The
+ * counters of the interpreter are read without synchronization while it runs,
+ * so the values are approximate.
+ * 
+ */
+public class ActorMonitor implements ActorMonitorMBean {
+
+	private volatile double firingsPerSecond;
+
+	private final ConnectedActorInterpreter interpreter;
+
+	/** number of firings at the last sample */
+	private long lastFirings;
+
+	private final String name;
+
+	/**
+	 * Creates a monitor of the given interpreter.
+	 * 
+	 * @param name
+	 *            name of the actor
+	 * @param interpreter
+	 *            the interpreter of the actor
+	 */
+	public ActorMonitor(String name, ConnectedActorInterpreter interpreter) {
+		this.name = name;
+		this.interpreter = interpreter;
+	}
+
+	@Override
+	public long getFirings() {
+		return interpreter.getFirings();
+	}
+
+	@Override
+	public double getFiringsPerSecond() {
+		return firingsPerSecond;
+	}
+
+	@Override
+	public String getLastAction() {
+		Action action = interpreter.getLastAction();
+		return action == null ? null : action.getName();
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Updates the firing rate of the actor.
+	 * 
+	 * @param elapsed
+	 *            time since the last sample, in nanoseconds
+	 * @return the number of firings since the last sample
+	 */
+	long sample(long elapsed) {
+		long firings = interpreter.getFirings();
+		long delta = firings - lastFirings;
+		lastFirings = firings;
+		firingsPerSecond = delta * 1e9 / elapsed;
+		return delta;
+	}
+
+}
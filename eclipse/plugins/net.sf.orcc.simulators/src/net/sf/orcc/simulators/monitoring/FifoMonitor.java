@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.monitoring;
+
+import net.sf.orcc.simulators.slow.SimulatorFifo;
+
+/**
+ * This class publishes the fill level of a FIFO.
+ * 
+ */
+public class FifoMonitor implements FifoMonitorMBean {
+
+	private final SimulatorFifo fifo;
+
+	/**
+	 * Creates a monitor of the given FIFO.
+	 * 
+	 * @param fifo
+	 *            a FIFO
+	 */
+	public FifoMonitor(SimulatorFifo fifo) {
+		this.fifo = fifo;
+	}
+
+	@Override
+	public int getCount() {
+		return fifo.getCount();
+	}
+
+	@Override
+	public double getFillLevel() {
+		return 100.0 * fifo.getCount() / fifo.getSize();
+	}
+
+	@Override
+	public String getName() {
+		return fifo.getName();
+	}
+
+	@Override
+	public long getReadCount() {
+		return fifo.getReadCount();
+	}
+
+	@Override
+	public int getSize() {
+		return fifo.getSize();
+	}
+
+	@Override
+	public long getWriteCount() {
+		return fifo.getWriteCount();
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.monitoring;
+
+/**
+ * This interface defines the attributes of a FIFO of a running simulation
+ * published through JMX.
+ * 
+ */
+public interface FifoMonitorMBean {
+
+	/**
+	 * Returns the number of tokens currently stored in the FIFO.
+	 * 
+	 * @return a number of tokens
+	 */
+	int getCount();
+
+	/**
+	 * Returns the fill level of the FIFO.
+	 * 
+	 * @return a percentage of the size of the FIFO
+	 */
+	double getFillLevel();
+
+	/**
+	 * Returns the name of the FIFO.
+	 * 
+	 * @return the name of the FIFO
+	 */
+	String getName();
+
+	/**
+	 * Returns the number of tokens read from the FIFO so far.
+	 * 
+	 * @return a number of tokens
+	 */
+	long getReadCount();
+
+	/**
+	 * Returns the size of the FIFO.
+	 * 
+	 * @return a number of tokens
+	 */
+	int getSize();
+
+	/**
+	 * Returns the number of tokens written in the FIFO so far.
+	 * 
+	 * @return a number of tokens
+	 */
+	long getWriteCount();
+
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanServer;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.ObjectName;
+
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.Network;
+import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.ir.util.ActorInterpreter;
+import net.sf.orcc.simulators.SimulationContext;
+import net.sf.orcc.simulators.slow.ConnectedActorInterpreter;
+import net.sf.orcc.simulators.slow.SimulatorFifo;
+import net.sf.orcc.util.OrccLogger;
+
+/**
+ * This class publishes a running simulation through JMX, so that it can be
+ * observed with the standard tools of the JVM (JConsole, VisualVM...). The
+ * simulation, each actor and each FIFO are registered as MBeans in the
+ * domain {@value #DOMAIN}. The rates are computed by a sampler thread, that
+ * also sends notifications: every period, a {@value #FIRING} notification
+ * with the last action fired by each actor that fired, and a {@value #STALL}
+ * notification when no action fired during a whole period.
+ * 
+ */
+public class SimulationMonitor extends NotificationBroadcasterSupport
+		implements SimulationMonitorMBean {
+
+	/** number of simulations monitored, to give them distinct names */
+	private static final AtomicInteger COUNT = new AtomicInteger();
+
+	public static final String DOMAIN = "net.sf.orcc.simulators";
+
+	/** type of the notifications of the actions fired during a period */
+	public static final String FIRING = "net.sf.orcc.simulators.firing";
+
+	/** period of sampling, in milliseconds */
+	private static final long PERIOD = 1000;
+
+	/** type of the notifications of the periods when no action fired */
+	public static final String STALL = "net.sf.orcc.simulators.stall";
+
+	private final List<ActorMonitor> actors;
+
+	private final SimulationContext context;
+
+	private final List<FifoMonitor> fifos;
+
+	private volatile long firings;
+
+	private volatile double firingsPerSecond;
+
+	private volatile double framesPerSecond;
+
+	private int lastFrames;
+
+	/** time of the last sample, in nanoseconds */
+	private long lastSample;
+
+	private final String name;
+
+	private final List<ObjectName> objectNames;
+
+	private ScheduledExecutorService sampler;
+
+	private long sequenceNumber;
+
+	private volatile boolean stalled;
+
+	private volatile int stalls;
+
+	/** time when the simulation started, in nanoseconds */
+	private final long start;
+
+	/**
+	 * Creates a monitor of the simulation of the given network.
+	 * 
+	 * @param network
+	 *            a network connected and initialized
+	 * @param interpreters
+	 *            the interpreters of the actors of the network
+	 * @param fifos
+	 *            the FIFOs of the network
+	 * @param context
+	 *            the context of the simulation
+	 */
+	public SimulationMonitor(Network network,
+			Map<Actor, ActorInterpreter> interpreters,
+			Collection<SimulatorFifo> fifos, SimulationContext context) {
+		this.context = context;
+		name = network.getSimpleName() + "-" + COUNT.incrementAndGet();
+		objectNames = new ArrayList<ObjectName>();
+
+		actors = new ArrayList<ActorMonitor>();
+		for (Vertex vertex : network.getChildren()) {
+			ActorInterpreter interpreter = interpreters.get(vertex
+					.getAdapter(Actor.class));
+			if (interpreter instanceof ConnectedActorInterpreter) {
+				actors.add(new ActorMonitor(vertex.getLabel(),
+						(ConnectedActorInterpreter) interpreter));
+			}
+		}
+
+		this.fifos = new ArrayList<FifoMonitor>();
+		for (SimulatorFifo fifo : fifos) {
+			this.fifos.add(new FifoMonitor(fifo));
+		}
+
+		start = System.nanoTime();
+		lastSample = start;
+	}
+
+	@Override
+	public long getElapsedTime() {
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	@Override
+	public long getFirings() {
+		return firings;
+	}
+
+	@Override
+	public double getFiringsPerSecond() {
+		return firingsPerSecond;
+	}
+
+	@Override
+	public int getFramesDecoded() {
+		return context.getFramesCount();
+	}
+
+	@Override
+	public double getFramesPerSecond() {
+		return framesPerSecond;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public MBeanNotificationInfo[] getNotificationInfo() {
+		return new MBeanNotificationInfo[] { new MBeanNotificationInfo(
+				new String[] { FIRING, STALL }, Notification.class.getName(),
+				"Actions fired during a period of sampling, "
+						+ "and periods when no action fired") };
+	}
+
+	@Override
+	public int getStalls() {
+		return stalls;
+	}
+
+	@Override
+	public boolean isStalled() {
+		return stalled;
+	}
+
+	/**
+	 * Registers the MBeans of the simulation in the platform MBean server, and
+	 * starts sampling. The simulation goes on if the MBeans cannot be
+	 * registered.
+	 */
+	public void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		String simulation = ObjectName.quote(name);
+		try {
+			register(server, this, "type=Simulation,name=" + simulation);
+			for (ActorMonitor actor : actors) {
+				register(server, actor, "type=Actor,simulation=" + simulation
+						+ ",name=" + ObjectName.quote(actor.getName()));
+			}
+			for (FifoMonitor fifo : fifos) {
+				register(server, fifo, "type=Fifo,simulation=" + simulation
+						+ ",name=" + ObjectName.quote(fifo.getName()));
+			}
+		} catch (JMException e) {
+			OrccLogger.warnln("Cannot register the MBeans of the simulation: "
+					+ e.getMessage());
+		}
+
+		sampler = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"Orcc simulation monitor");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		sampler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				sample();
+			}
+		}, PERIOD, PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	private void register(MBeanServer server, Object mbean, String properties)
+			throws JMException {
+		ObjectName objectName = new ObjectName(DOMAIN + ":" + properties);
+		server.registerMBean(mbean, objectName);
+		objectNames.add(objectName);
+	}
+
+	/**
+	 * Updates the rates of the simulation and of its actors, and sends the
+	 * notifications of the period.
+	 */
+	private void sample() {
+		long now = System.nanoTime();
+		long elapsed = now - lastSample;
+		lastSample = now;
+
+		long total = 0;
+		long delta = 0;
+		StringBuilder fired = new StringBuilder();
+		for (ActorMonitor actor : actors) {
+			long actorDelta = actor.sample(elapsed);
+			total += actor.getFirings();
+			delta += actorDelta;
+			if (actorDelta > 0) {
+				if (fired.length() > 0) {
+					fired.append(", ");
+				}
+				fired.append(actor.getName()).append('.')
+						.append(actor.getLastAction());
+			}
+		}
+		firings = total;
+		firingsPerSecond = delta * 1e9 / elapsed;
+
+		int frames = context.getFramesCount();
+		framesPerSecond = (frames - lastFrames) * 1e9 / elapsed;
+		lastFrames = frames;
+
+		if (delta > 0) {
+			stalled = false;
+			Notification notification = new Notification(FIRING, this,
+					++sequenceNumber, fired.toString());
+			notification.setUserData(delta);
+			sendNotification(notification);
+		} else if (!stalled) {
+			stalled = true;
+			stalls++;
+
+			StringBuilder message = new StringBuilder("No action fired for ")
+					.append(elapsed / 1000000).append(" ms");
+			String separator = ", full FIFOs: ";
+			for (FifoMonitor fifo : fifos) {
+				if (fifo.getCount() == fifo.getSize()) {
+					message.append(separator).append(fifo.getName());
+					separator = ", ";
+				}
+			}
+			sendNotification(new Notification(STALL, this, ++sequenceNumber,
+					message.toString()));
+		}
+	}
+
+	/**
+	 * Stops sampling, and unregisters the MBeans of the simulation.
+	 */
+	public void unregister() {
+		if (sampler != null) {
+			sampler.shutdownNow();
+		}
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName objectName : objectNames) {
+			try {
+				server.unregisterMBean(objectName);
+			} catch (JMException e) {
+				// already unregistered
+			}
+		}
+		objectNames.clear();
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.monitoring;
+
+/**
+ * This interface defines the attributes of a running simulation published
+ * through JMX.
+ * 
+ */
+public interface SimulationMonitorMBean {
+
+	/**
+	 * Returns the time elapsed since the simulation started.
+	 * 
+	 * @return a time in milliseconds
+	 */
+	long getElapsedTime();
+
+	/**
+	 * Returns the number of actions fired by all the actors so far, as of the
+	 * last sample.
+	 * 
+	 * @return a number of firings
+	 */
+	long getFirings();
+
+	/**
+	 * Returns the number of actions fired per second during the last period
+	 * of sampling.
+	 * 
+	 * @return a firing rate
+	 */
+	double getFiringsPerSecond();
+
+	/**
+	 * Returns the number of frames decoded so far.
+	 * 
+	 * @return a number of frames
+	 */
+	int getFramesDecoded();
+
+	/**
+	 * Returns the number of frames decoded per second during the last period
+	 * of sampling.
+	 * 
+	 * @return a frame rate
+	 */
+	double getFramesPerSecond();
+
+	/**
+	 * Returns the name of the simulation, made of the name of the network and
+	 * a number.
+	 * 
+	 * @return the name of the simulation
+	 */
+	String getName();
+
+	/**
+	 * Returns the number of periods of sampling that started a stall.
+	 * 
+	 * @return a number of stalls
+	 */
+	int getStalls();
+
+	/**
+	 * Returns <code>true</code> if no action fired during the last period of
+	 * sampling.
+	 * 
+	 * @return <code>true</code> if the simulation is stalled
+	 */
+	boolean isStalled();
+
+}
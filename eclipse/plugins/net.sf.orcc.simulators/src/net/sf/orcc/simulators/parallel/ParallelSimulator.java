@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.parallel;
+
+import static net.sf.orcc.simulators.SimulatorsConstants.THREADS_NUMBER;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.Network;
+import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.ir.InstCall;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.util.ActorInterpreter;
+import net.sf.orcc.simulators.slow.SlowSimulator;
+import net.sf.orcc.util.OrccLogger;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+/**
+ * This class implements a simulator that interprets the actors of the
+ * flattened network on several threads. Actors are partitioned across a pool
+ * of workers, each worker scheduling its own actors in a round-robin fashion.
+ * FIFOs are single-producer/single-consumer lock-free channels, so actors
+ * mapped on different workers communicate without any lock.
+ * 
+ * Each interpreter stores runtime values in its own frames, so actors can be
+ * mapped on any worker. Actors that call native procedures (directly or
+ * through procedures of units) all share one worker, since the state of the
+ * native runtime is shared by all the actors of a simulation.
+ * 
+ * The simulation ends when the network is quiescent: no worker has fired an
+ * action since a complete scheduling round of every worker.
+ * 
+ */
+public class ParallelSimulator extends SlowSimulator {
+
+	/**
+	 * This class defines a worker that repeatedly schedules a set of actors
+	 * until the simulation is terminated.
+	 */
+	private class Worker implements Runnable {
+
+		private final List<ActorInterpreter> interpreters;
+
+		/** number of actions fired by this worker */
+		private volatile long firings;
+
+		/** number of complete scheduling rounds done by this worker */
+		private volatile long rounds;
+
+		public Worker(List<ActorInterpreter> interpreters) {
+			this.interpreters = interpreters;
+		}
+
+		@Override
+		public void run() {
+			int idleRounds = 0;
+			try {
+				while (!terminated) {
+					boolean hasExecuted = false;
+					for (ActorInterpreter interpreter : interpreters) {
+						while (interpreter.schedule()) {
+							firings++;
+							hasExecuted = true;
+
+							// check for cancelation
+							if (terminated || isStopped()) {
+								return;
+							}
+						}
+					}
+					rounds++;
+
+					if (hasExecuted) {
+						idleRounds = 0;
+					} else {
+						idle(idleRounds++);
+					}
+				}
+			} catch (Throwable t) {
+				synchronized (ParallelSimulator.this) {
+					if (error == null) {
+						error = t;
+					}
+				}
+				terminated = true;
+			}
+		}
+
+	}
+
+	/** longest time an idle worker sleeps before its next round */
+	private static final long MAX_IDLE_NANOS = 1000000;
+
+	/** number of idle rounds a worker spins before it starts sleeping */
+	private static final int SPIN_ROUNDS = 16;
+
+	/** marker for the actors that call native procedures */
+	private static final Object NATIVE = new Object();
+
+	private volatile Throwable error;
+
+	private int nbThreads;
+
+	private volatile boolean terminated;
+
+	/**
+	 * Returns the groups of actors that must be interpreted by the same
+	 * worker, sorted by decreasing size.
+	 * 
+	 * @param actors
+	 *            the actors of the network
+	 * @return a list of groups of actors
+	 */
+	private List<List<Actor>> computeGroups(List<Actor> actors) {
+		int[] parents = new int[actors.size()];
+		Map<Object, Integer> owners = new HashMap<Object, Integer>();
+		for (int i = 0; i < actors.size(); i++) {
+			parents[i] = i;
+			for (Object resource : getSharedResources(actors.get(i))) {
+				Integer owner = owners.get(resource);
+				if (owner == null) {
+					owners.put(resource, i);
+				} else {
+					parents[find(parents, i)] = find(parents, owner);
+				}
+			}
+		}
+
+		Map<Integer, List<Actor>> groups = new HashMap<Integer, List<Actor>>();
+		for (int i = 0; i < actors.size(); i++) {
+			int root = find(parents, i);
+			List<Actor> group = groups.get(root);
+			if (group == null) {
+				group = new ArrayList<Actor>();
+				groups.put(root, group);
+			}
+			group.add(actors.get(i));
+		}
+
+		List<List<Actor>> sortedGroups = new ArrayList<List<Actor>>(
+				groups.values());
+		Collections.sort(sortedGroups, new Comparator<List<Actor>>() {
+			@Override
+			public int compare(List<Actor> g1, List<Actor> g2) {
+				return g2.size() - g1.size();
+			}
+		});
+		return sortedGroups;
+	}
+
+	/**
+	 * Creates the workers and maps the groups of actors on them, each group
+	 * being given to the least loaded worker.
+	 * 
+	 * @param network
+	 *            the network
+	 * @return the list of workers
+	 */
+	private List<Worker> createWorkers(Network network) {
+		List<Actor> actors = new ArrayList<Actor>();
+		for (Vertex vertex : network.getChildren()) {
+			actors.add(vertex.getAdapter(Actor.class));
+		}
+
+		List<List<Actor>> groups = computeGroups(actors);
+		int nbWorkers = Math.max(1, Math.min(nbThreads, groups.size()));
+		List<List<ActorInterpreter>> mapping = new ArrayList<List<ActorInterpreter>>();
+		for (int i = 0; i < nbWorkers; i++) {
+			mapping.add(new ArrayList<ActorInterpreter>());
+		}
+
+		for (List<Actor> group : groups) {
+			List<ActorInterpreter> leastLoaded = mapping.get(0);
+			for (List<ActorInterpreter> candidate : mapping) {
+				if (candidate.size() < leastLoaded.size()) {
+					leastLoaded = candidate;
+				}
+			}
+			for (Actor actor : group) {
+				leastLoaded.add(interpreters.get(actor));
+			}
+		}
+
+		// keep the order of the network inside each worker
+		final List<Actor> order = actors;
+		List<Worker> workers = new ArrayList<Worker>();
+		for (List<ActorInterpreter> list : mapping) {
+			Collections.sort(list, new Comparator<ActorInterpreter>() {
+				@Override
+				public int compare(ActorInterpreter i1, ActorInterpreter i2) {
+					return order.indexOf(i1.getActor())
+							- order.indexOf(i2.getActor());
+				}
+			});
+			workers.add(new Worker(list));
+		}
+
+		OrccLogger.traceln("Simulating " + actors.size() + " actors on "
+				+ nbWorkers + " threads");
+
+		return workers;
+	}
+
+	/**
+	 * Pauses the calling worker, which has not fired any action for the given
+	 * number of rounds. The worker first yields, then sleeps for longer and
+	 * longer times, so that idle workers do not keep a processor busy.
+	 * 
+	 * @param idleRounds
+	 *            number of consecutive rounds without any firing
+	 */
+	private static void idle(int idleRounds) {
+		if (idleRounds < SPIN_ROUNDS) {
+			Thread.yield();
+		} else {
+			int shift = Math.min(idleRounds - SPIN_ROUNDS, 10);
+			LockSupport.parkNanos(Math.min(MAX_IDLE_NANOS, 1000L << shift));
+		}
+	}
+
+	private int find(int[] parents, int i) {
+		while (parents[i] != i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the objects holding runtime values that the given actor shares
+	 * with other actors. Since interpreters have their own frames, this is
+	 * only the native runtime.
+	 * 
+	 * @param actor
+	 *            an actor
+	 * @return a set of shared resources
+	 */
+	private Set<Object> getSharedResources(Actor actor) {
+		Set<Object> procedures = new HashSet<Object>();
+		collectExternalProcedures(actor, procedures);
+
+		TreeIterator<EObject> it = actor.eAllContents();
+		while (it.hasNext()) {
+			EObject obj = it.next();
+			if (obj instanceof InstCall) {
+				procedures.add(((InstCall) obj).getProcedure());
+			}
+		}
+
+		for (Object procedure : procedures) {
+			if (((Procedure) procedure).isNative()) {
+				return Collections.singleton(NATIVE);
+			}
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * Adds to the given set the procedures referenced by the given object and
+	 * defined outside of it, recursively.
+	 */
+	private void collectExternalProcedures(EObject obj, Set<Object> procedures) {
+		for (EObject external : EcoreUtil.ExternalCrossReferencer.find(obj)
+				.keySet()) {
+			if (external instanceof Procedure && procedures.add(external)) {
+				collectExternalProcedures(external, procedures);
+			}
+		}
+	}
+
+	@Override
+	protected void initializeOptions() {
+		super.initializeOptions();
+
+		nbThreads = Runtime.getRuntime().availableProcessors();
+		String threads = getAttribute(THREADS_NUMBER, "");
+		if (!threads.isEmpty()) {
+			try {
+				nbThreads = Math.max(1, Integer.parseInt(threads.trim()));
+			} catch (NumberFormatException e) {
+				OrccLogger.warnln("Invalid number of threads \"" + threads
+						+ "\", using " + nbThreads);
+			}
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if no action has been fired by any worker
+	 * during a complete round of every worker. Returns <code>false</code> as
+	 * soon as the simulation is stopped or a worker fails.
+	 * 
+	 * @param workers
+	 *            the list of workers
+	 * @return <code>true</code> if the network is quiescent
+	 */
+	private boolean isQuiescent(List<Worker> workers) {
+		int nbWorkers = workers.size();
+		long[] firings = new long[nbWorkers];
+		long[] rounds = new long[nbWorkers];
+		for (int i = 0; i < nbWorkers; i++) {
+			firings[i] = workers.get(i).firings;
+			rounds[i] = workers.get(i).rounds;
+		}
+
+		// the round in progress may have started before the snapshot, so
+		// wait for the end of the next one
+		for (int i = 0; i < nbWorkers; i++) {
+			Worker worker = workers.get(i);
+			while (worker.rounds < rounds[i] + 2) {
+				if (terminated || isStopped()) {
+					return false;
+				}
+				LockSupport.parkNanos(MAX_IDLE_NANOS);
+			}
+		}
+
+		for (int i = 0; i < nbWorkers; i++) {
+			if (workers.get(i).firings != firings[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected SimulationEndOrigin runNetwork(Network network) {
+		List<Worker> workers = createWorkers(network);
+
+		terminated = false;
+		error = null;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < workers.size(); i++) {
+			Thread thread = new Thread(workers.get(i), "Orcc simulator worker "
+					+ i);
+			threads.add(thread);
+			thread.start();
+		}
+
+		boolean quiescent = false;
+		try {
+			while (!quiescent && !terminated && !isStopped()) {
+				quiescent = isQuiescent(workers);
+			}
+		} finally {
+			terminated = true;
+			for (Thread thread : threads) {
+				try {
+					thread.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		if (error instanceof OrccRuntimeException) {
+			throw (OrccRuntimeException) error;
+		} else if (error != null) {
+			throw new OrccRuntimeException("Simulation failed", error);
+		}
+
+		return quiescent ? SimulationEndOrigin.NORMALEND
+				: SimulationEndOrigin.EXTERNALSTOP;
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.runtime;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import net.sf.orcc.OrccRuntimeException;
+
+/**
+ * This class defines the binding of a native procedure to the static method
+ * that implements it. The method and the conversions of the arguments are
+ * resolved once, when the procedure is linked, so that calling the procedure
+ * only converts the values that the method does not accept as is, and
+ * invokes the method.
+ * 
+ */
+public final class NativeBinding {
+
+	/** the argument is a BigInteger, or a Long converted to a BigInteger */
+	private static final int BIG_INTEGER = 1;
+
+	private static final int DOUBLE = 5;
+
+	private static final int FLOAT = 4;
+
+	private static final int INT = 2;
+
+	private static final int LONG = 3;
+
+	private static final int NONE = 0;
+
+	/**
+	 * Returns the conversion of the values passed to a parameter of the given
+	 * class.
+	 */
+	private static int getConversion(Class<?> type) {
+		if (type == BigInteger.class || type == Object.class
+				|| type == Number.class) {
+			return BIG_INTEGER;
+		} else if (type == int.class || type == Integer.class) {
+			return INT;
+		} else if (type == long.class || type == Long.class) {
+			return LONG;
+		} else if (type == float.class || type == Float.class) {
+			return FLOAT;
+		} else if (type == double.class || type == Double.class) {
+			return DOUBLE;
+		} else {
+			return NONE;
+		}
+	}
+
+	private final int[] conversions;
+
+	/** reason why the procedure could not be linked, or null */
+	private final String error;
+
+	/** true if the method returns an integer that is not a BigInteger */
+	private final boolean integerResult;
+
+	private final Method method;
+
+	private final String name;
+
+	/**
+	 * Creates the binding of a procedure that could not be linked. The error
+	 * is reported when the procedure is called, so that procedures that are
+	 * never called do not need an implementation.
+	 * 
+	 * @param name
+	 *            name of the procedure
+	 * @param error
+	 *            reason why the procedure could not be linked
+	 */
+	NativeBinding(String name, String error) {
+		this.name = name;
+		this.error = error;
+		conversions = null;
+		integerResult = false;
+		method = null;
+	}
+
+	/**
+	 * Creates the binding of a procedure to the given static method.
+	 * 
+	 * @param method
+	 *            a static method
+	 */
+	NativeBinding(Method method) {
+		this.method = method;
+		name = method.getName();
+		error = null;
+
+		try {
+			// skips the access checks on each call
+			method.setAccessible(true);
+		} catch (SecurityException e) {
+			// the checks are done
+		}
+
+		Class<?>[] types = method.getParameterTypes();
+		conversions = new int[types.length];
+		for (int i = 0; i < types.length; i++) {
+			conversions[i] = getConversion(types[i]);
+		}
+
+		Class<?> type = method.getReturnType();
+		integerResult = type == int.class || type == Integer.class
+				|| type == long.class || type == Long.class
+				|| type == short.class || type == Short.class
+				|| type == byte.class || type == Byte.class;
+	}
+
+	/**
+	 * Converts the given value with the given conversion.
+	 */
+	private Object convert(int conversion, Object value) {
+		switch (conversion) {
+		case BIG_INTEGER:
+			if (value instanceof Long) {
+				return BigInteger.valueOf((Long) value);
+			}
+			return value;
+		case INT:
+			return value instanceof Number ? ((Number) value).intValue()
+					: value;
+		case LONG:
+			return value instanceof Number ? ((Number) value).longValue()
+					: value;
+		case FLOAT:
+			return value instanceof Number ? ((Number) value).floatValue()
+					: value;
+		case DOUBLE:
+			return value instanceof Number ? ((Number) value).doubleValue()
+					: value;
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * Calls the native procedure with the given arguments. Integers returned
+	 * as primitive values are returned as BigInteger values.
+	 * 
+	 * @param args
+	 *            values of the arguments, converted in place
+	 * @return the result of the procedure, or <code>null</code>
+	 */
+	public Object invoke(Object[] args) {
+		if (method == null) {
+			throw new OrccRuntimeException("Native procedure call Exception for "
+					+ name + ": " + error);
+		}
+
+		for (int i = 0; i < args.length; i++) {
+			if (conversions[i] != NONE && args[i] != null) {
+				args[i] = convert(conversions[i], args[i]);
+			}
+		}
+
+		try {
+			Object result = method.invoke(null, args);
+			if (integerResult && result != null) {
+				return BigInteger.valueOf(((Number) result).longValue());
+			}
+			return result;
+		} catch (InvocationTargetException e) {
+			throw new OrccRuntimeException("Native procedure call Exception for "
+					+ name, e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new OrccRuntimeException("Native procedure call Exception for "
+					+ name, e);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the given class is suited to the values of
+	 * the given kind of type.
+	 * 
+	 * @param type
+	 *            the class of a parameter
+	 * @param isBool
+	 *            <code>true</code> for a boolean type
+	 * @param isInteger
+	 *            <code>true</code> for an integer type
+	 * @param isFloat
+	 *            <code>true</code> for a float type
+	 * @param isString
+	 *            <code>true</code> for a string type
+	 * @param isList
+	 *            <code>true</code> for a list type
+	 * @return <code>true</code> if the values can be passed to the parameter
+	 */
+	static boolean isCompatible(Class<?> type, boolean isBool,
+			boolean isInteger, boolean isFloat, boolean isString,
+			boolean isList) {
+		if (type == Object.class) {
+			return true;
+		} else if (isBool) {
+			return type == boolean.class || type == Boolean.class;
+		} else if (isInteger) {
+			int conversion = getConversion(type);
+			return conversion == BIG_INTEGER || conversion == INT
+					|| conversion == LONG;
+		} else if (isFloat) {
+			return type == BigDecimal.class || getConversion(type) == FLOAT
+					|| getConversion(type) == DOUBLE;
+		} else if (isString) {
+			return type == String.class;
+		} else if (isList) {
+			return type.isArray();
+		}
+		return true;
+	}
+
+}
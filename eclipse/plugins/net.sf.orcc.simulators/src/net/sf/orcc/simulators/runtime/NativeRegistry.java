@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.runtime;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.ir.Param;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.Type;
+import net.sf.orcc.simulators.Activator;
+import net.sf.orcc.util.util.EcoreHelper;
+
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.Bundle;
+
+/**
+ * This class defines a registry of the classes that implement native
+ * procedures. The classes are declared in the
+ * <code>net.sf.orcc.simulators.natives</code> extension point, either one by
+ * one with a <code>unit</code> element, or by convention with a
+ * <code>runtime</code> element: the unit <code>std.video.Display</code> is
+ * then implemented by the class <code>std.video.impl.Display</code> of the
+ * given package.
+ * 
+ * <p>
+ * Native procedures are linked once with {@link #link(Procedure)}, which
+ * returns a binding that calls the implementation directly.
+ * </p>
+ * 
+ */
+public class NativeRegistry {
+
+	/** package of the runtime used when the platform is not running */
+	private static final String DEFAULT_RUNTIME = "net.sf.orcc.simulators.runtime";
+
+	private static NativeRegistry instance;
+
+	/**
+	 * Returns the single instance of this registry
+	 * 
+	 * @return the single instance of this registry
+	 */
+	public static synchronized NativeRegistry getInstance() {
+		if (instance == null) {
+			instance = new NativeRegistry();
+		}
+		return instance;
+	}
+
+	/** classes already resolved, by unit name */
+	private final Map<String, Class<?>> classes;
+
+	/** runtime packages, with the bundles they are loaded from */
+	private final List<String> runtimes;
+
+	private final Map<String, Bundle> runtimeBundles;
+
+	/** explicit implementations, by unit name */
+	private final Map<String, IConfigurationElement> units;
+
+	/**
+	 * private constructor called when the registry is first used
+	 */
+	private NativeRegistry() {
+		classes = new HashMap<String, Class<?>>();
+		runtimes = new ArrayList<String>();
+		runtimeBundles = new HashMap<String, Bundle>();
+		units = new HashMap<String, IConfigurationElement>();
+
+		if (Platform.isRunning()) {
+			IExtensionRegistry registry = Platform.getExtensionRegistry();
+			IConfigurationElement[] elements = registry
+					.getConfigurationElementsFor(Activator.PLUGIN_ID
+							+ ".natives");
+			for (IConfigurationElement element : elements) {
+				if ("unit".equals(element.getName())) {
+					units.put(element.getAttribute("name"), element);
+				} else if ("runtime".equals(element.getName())) {
+					String pkg = element.getAttribute("package");
+					runtimes.add(pkg);
+					runtimeBundles.put(pkg, Platform.getBundle(element
+							.getContributor().getName()));
+				}
+			}
+		}
+
+		if (runtimes.isEmpty()) {
+			runtimes.add(DEFAULT_RUNTIME);
+		}
+	}
+
+	/**
+	 * Returns the method of the given class that implements the given
+	 * procedure, or <code>null</code>.
+	 */
+	private Method findMethod(Class<?> clasz, Procedure procedure) {
+		List<Param> params = procedure.getParameters();
+		for (Method method : clasz.getMethods()) {
+			if (method.getName().equals(procedure.getName())
+					&& Modifier.isStatic(method.getModifiers())
+					&& method.getParameterTypes().length == params.size()
+					&& isCompatible(method, params)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the class that implements the given unit, or <code>null</code>.
+	 */
+	private Class<?> getClass(String unit) {
+		if (classes.containsKey(unit)) {
+			return classes.get(unit);
+		}
+
+		Class<?> clasz = null;
+		IConfigurationElement element = units.get(unit);
+		if (element != null) {
+			clasz = loadClass(Platform.getBundle(element.getContributor()
+					.getName()), element.getAttribute("class"));
+		} else {
+			String name = unit;
+			int index = unit.lastIndexOf('.');
+			if (index != -1) {
+				name = unit.substring(0, index) + ".impl"
+						+ unit.substring(index);
+			}
+
+			for (String pkg : runtimes) {
+				clasz = loadClass(runtimeBundles.get(pkg), pkg + "." + name);
+				if (clasz != null) {
+					break;
+				}
+			}
+		}
+
+		classes.put(unit, clasz);
+		return clasz;
+	}
+
+	/**
+	 * Returns <code>true</code> if the parameters of the given method accept
+	 * values of the types of the given parameters.
+	 */
+	private boolean isCompatible(Method method, List<Param> params) {
+		Class<?>[] types = method.getParameterTypes();
+		for (int i = 0; i < types.length; i++) {
+			Type type = params.get(i).getVariable().getType();
+			if (!NativeBinding.isCompatible(types[i], type.isBool(),
+					type.isInt() || type.isUint(), type.isFloat(),
+					type.isString(), type.isList())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Links the given native procedure to its implementation. If no
+	 * implementation is found, the binding returned reports an error when it
+	 * is called.
+	 * 
+	 * @param procedure
+	 *            a native procedure
+	 * @return the binding of the procedure
+	 */
+	public synchronized NativeBinding link(Procedure procedure) {
+		String unit = EcoreHelper.getFeature(procedure.eContainer(), "name");
+		Class<?> clasz = getClass(unit);
+		if (clasz == null) {
+			return new NativeBinding(procedure.getName(),
+					"no implementation of " + unit);
+		}
+
+		Method method = findMethod(clasz, procedure);
+		if (method == null) {
+			return new NativeBinding(procedure.getName(), clasz.getName()
+					+ " has no method suited to the parameters");
+		}
+
+		return new NativeBinding(method);
+	}
+
+	/**
+	 * Loads the class with the given name from the given bundle, or from the
+	 * class loader of this class if the bundle is <code>null</code>.
+	 * 
+	 * @return a class, or <code>null</code> if it does not exist
+	 */
+	private Class<?> loadClass(Bundle bundle, String name) {
+		try {
+			if (bundle == null) {
+				return Class.forName(name);
+			}
+			return bundle.loadClass(name);
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (NoClassDefFoundError e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.runtime.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class defines a random access file whose reads and writes go through a
+ * buffer of {@link #BUFFER_SIZE} bytes, and that is accessed through its
+ * {@link FileChannel} only when the buffer has to be filled or flushed. The
+ * buffer holds a single region of the file, starting at <code>start</code>,
+ * of which <code>count</code> bytes are valid, and the bytes between
+ * <code>dirtyStart</code> and <code>dirtyEnd</code> have been written but not
+ * flushed yet.
+ * 
+ */
+public class BufferedChannel implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	private final FileChannel channel;
+
+	/** number of valid bytes in the buffer */
+	private int count;
+
+	private int dirtyEnd;
+
+	private int dirtyStart;
+
+	private final RandomAccessFile file;
+
+	/** position of the file pointer */
+	private long position;
+
+	/** position of the buffer in the file */
+	private long start;
+
+	/**
+	 * Opens the given file.
+	 * 
+	 * @param file
+	 *            a file
+	 * @param mode
+	 *            the access mode, as in {@link RandomAccessFile}
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	public BufferedChannel(File file, String mode) throws IOException {
+		this.file = new RandomAccessFile(file, mode);
+		channel = this.file.getChannel();
+	}
+
+	/**
+	 * Flushes the buffer and closes the file.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Makes the buffer hold the region of the file that contains the file
+	 * pointer, and returns the offset of the file pointer in the buffer.
+	 */
+	private int fill() throws IOException {
+		flush();
+		start = position;
+		count = 0;
+		ByteBuffer bb = ByteBuffer.wrap(buffer);
+		while (bb.hasRemaining()) {
+			int n = channel.read(bb, start + bb.position());
+			if (n <= 0) {
+				break;
+			}
+		}
+		count = bb.position();
+		return 0;
+	}
+
+	/**
+	 * Writes the bytes of the buffer that have not been written yet.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void flush() throws IOException {
+		if (dirtyEnd > dirtyStart) {
+			ByteBuffer bb = ByteBuffer.wrap(buffer, dirtyStart, dirtyEnd
+					- dirtyStart);
+			long offset = start + dirtyStart;
+			while (bb.hasRemaining()) {
+				offset += channel.write(bb, offset);
+			}
+		}
+		dirtyStart = 0;
+		dirtyEnd = 0;
+	}
+
+	/**
+	 * Returns the position of the file pointer.
+	 * 
+	 * @return a position in the file
+	 */
+	public long getFilePointer() {
+		return position;
+	}
+
+	/**
+	 * Returns the length of the file, including the bytes that have not been
+	 * flushed yet.
+	 * 
+	 * @return the length of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public long length() throws IOException {
+		return Math.max(channel.size(), start + count);
+	}
+
+	/**
+	 * Returns the offset of the file pointer in the buffer if the buffer holds
+	 * valid bytes at this position, or -1.
+	 */
+	private int offset() {
+		long offset = position - start;
+		return offset >= 0 && offset < count ? (int) offset : -1;
+	}
+
+	/**
+	 * Reads a byte at the file pointer.
+	 * 
+	 * @return a byte between 0 and 255, or -1 at the end of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int read() throws IOException {
+		int offset = offset();
+		if (offset == -1) {
+			offset = fill();
+			if (count == 0) {
+				return -1;
+			}
+		}
+		position++;
+		return buffer[offset] & 0xFF;
+	}
+
+	/**
+	 * Reads up to <code>length</code> bytes at the file pointer.
+	 * 
+	 * @param bytes
+	 *            array to read bytes to
+	 * @param off
+	 *            offset of the first byte in the array
+	 * @param length
+	 *            number of bytes to read
+	 * @return the number of bytes read, or -1 at the end of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int read(byte[] bytes, int off, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int offset = offset();
+			if (offset == -1) {
+				offset = fill();
+				if (count == 0) {
+					break;
+				}
+			}
+
+			int n = Math.min(length - read, count - offset);
+			System.arraycopy(buffer, offset, bytes, off + read, n);
+			position += n;
+			read += n;
+		}
+		return read == 0 && length > 0 ? -1 : read;
+	}
+
+	/**
+	 * Sets the file pointer to the given position.
+	 * 
+	 * @param position
+	 *            a position in the file
+	 */
+	public void seek(long position) {
+		this.position = position;
+	}
+
+	/**
+	 * Writes the given byte at the file pointer.
+	 * 
+	 * @param b
+	 *            a byte
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void write(int b) throws IOException {
+		int offset = writeOffset();
+		buffer[offset] = (byte) b;
+		written(offset, 1);
+	}
+
+	/**
+	 * Writes <code>length</code> bytes at the file pointer.
+	 * 
+	 * @param bytes
+	 *            array of bytes to write
+	 * @param off
+	 *            offset of the first byte in the array
+	 * @param length
+	 *            number of bytes to write
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void write(byte[] bytes, int off, int length) throws IOException {
+		int done = 0;
+		while (done < length) {
+			int offset = writeOffset();
+			int n = Math.min(length - done, BUFFER_SIZE - offset);
+			System.arraycopy(bytes, off + done, buffer, offset, n);
+			written(offset, n);
+			done += n;
+		}
+	}
+
+	/**
+	 * Returns the offset in the buffer at which a byte can be written at the
+	 * file pointer. The buffer is flushed and moved to the file pointer if
+	 * the file pointer is not within or right after its valid bytes.
+	 */
+	private int writeOffset() throws IOException {
+		long offset = position - start;
+		if (offset < 0 || offset > count || offset >= BUFFER_SIZE) {
+			flush();
+			start = position;
+			count = 0;
+			offset = 0;
+		}
+		return (int) offset;
+	}
+
+	/**
+	 * Records that <code>n</code> bytes have been written in the buffer at the
+	 * given offset, and moves the file pointer after them.
+	 */
+	private void written(int offset, int n) {
+		if (dirtyEnd == dirtyStart) {
+			dirtyStart = offset;
+			dirtyEnd = offset + n;
+		} else {
+			dirtyStart = Math.min(dirtyStart, offset);
+			dirtyEnd = Math.max(dirtyEnd, offset + n);
+		}
+		count = Math.max(count, offset + n);
+		position += n;
+	}
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.runtime.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.simulators.SimulationContext;
+import net.sf.orcc.util.OrccLogger;
+
+/**
+ * This class defines a sink of decoded YUV 4:2:0 frames for simulations
+ * without display. Each frame is copied to one of {@link #POOL_SIZE} frame
+ * buffers, and checked on a background thread: the CRC of each plane is
+ * computed, the MD5 of the whole sequence is updated, and if a golden
+ * reference is given, the frame is compared with the frame at the same
+ * position in the memory-mapped reference. The number of mismatching pixels
+ * and the PSNR of each plane are reported for every frame.
+ * 
+ */
+public class FrameChecker implements Closeable {
+
+	/**
+	 * This class defines a copy of a decoded frame.
+	 */
+	private static class Frame {
+
+		final byte[][] planes = new byte[3][];
+
+		void set(byte[] y, byte[] u, byte[] v, int width, int height) {
+			int size = width * height;
+			copy(0, y, size);
+			copy(1, u, size / 4);
+			copy(2, v, size / 4);
+		}
+
+		private void copy(int plane, byte[] src, int size) {
+			if (planes[plane] == null || planes[plane].length != size) {
+				planes[plane] = new byte[size];
+			}
+			System.arraycopy(src, 0, planes[plane], 0, size);
+		}
+
+	}
+
+	private static final String[] PLANE_NAMES = { "Y", "U", "V" };
+
+	/** maximum number of frames waiting to be checked */
+	private static final int POOL_SIZE = 4;
+
+	/** maximum number of bytes of the golden reference mapped at once */
+	private static final int WINDOW_SIZE = 1 << 30;
+
+	/** context of the simulation, whose status code counts mismatches */
+	private final SimulationContext context;
+
+	private final CRC32 crc = new CRC32();
+
+	private final ExecutorService executor;
+
+	/** number of frames checked since the beginning of the simulation */
+	private long frames;
+
+	/** number of the frame in the golden reference */
+	private int frameNumber;
+
+	private final BlockingQueue<Frame> freeFrames;
+
+	private final RandomAccessFile golden;
+
+	private long goldenLength;
+
+	/** position of the next frame in the golden reference */
+	private long goldenPosition;
+
+	private final MessageDigest md5;
+
+	private long mismatchingFrames;
+
+	private final byte[][] reference = new byte[3][];
+
+	private MappedByteBuffer window;
+
+	private long windowStart;
+
+	/**
+	 * Creates a frame checker.
+	 * 
+	 * @param context
+	 *            context of the simulation
+	 * @param goldenReference
+	 *            name of a YUV file to compare frames with, or an empty string
+	 *            to only compute checksums
+	 */
+	public FrameChecker(SimulationContext context, String goldenReference) {
+		this.context = context;
+		try {
+			md5 = MessageDigest.getInstance("MD5");
+			if (goldenReference.isEmpty()) {
+				golden = null;
+			} else {
+				golden = new RandomAccessFile(goldenReference, "r");
+				goldenLength = golden.length();
+			}
+		} catch (NoSuchAlgorithmException e) {
+			throw new OrccRuntimeException("MD5 is not available", e);
+		} catch (IOException e) {
+			String msg = "File not found: \"" + goldenReference + "\"";
+			throw new OrccRuntimeException(msg, e);
+		}
+
+		freeFrames = new ArrayBlockingQueue<Frame>(POOL_SIZE);
+		for (int i = 0; i < POOL_SIZE; i++) {
+			freeFrames.add(new Frame());
+		}
+
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Orcc frame checker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Checks the given frame. This method is called on the background thread.
+	 */
+	private void check(Frame frame) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		builder.append("Frame number ").append(frameNumber);
+
+		for (int i = 0; i < 3; i++) {
+			crc.reset();
+			crc.update(frame.planes[i]);
+			md5.update(frame.planes[i]);
+			builder.append(i == 0 ? "; CRC " : "/");
+			builder.append(Long.toHexString(crc.getValue()));
+		}
+
+		if (golden != null) {
+			if (goldenPosition >= goldenLength) {
+				goldenPosition = 0L;
+				frameNumber = 0;
+			}
+
+			int numErrors = 0;
+			builder.append("; PSNR");
+			for (int i = 0; i < 3; i++) {
+				byte[] plane = frame.planes[i];
+				if (reference[i] == null
+						|| reference[i].length != plane.length) {
+					reference[i] = new byte[plane.length];
+				}
+				readGolden(reference[i]);
+
+				int errors = 0;
+				long sse = 0;
+				if (!Arrays.equals(plane, reference[i])) {
+					for (int j = 0; j < plane.length; j++) {
+						int diff = (plane[j] & 0xFF) - (reference[i][j] & 0xFF);
+						if (diff != 0) {
+							errors++;
+							sse += diff * diff;
+						}
+					}
+				}
+				numErrors += errors;
+
+				builder.append(' ').append(PLANE_NAMES[i]).append('=');
+				if (sse == 0) {
+					builder.append("inf");
+				} else {
+					double mse = (double) sse / plane.length;
+					double psnr = 10.0 * Math.log10(255.0 * 255.0 / mse);
+					builder.append(String.format("%.2f", psnr));
+				}
+			}
+
+			if (numErrors == 0) {
+				builder.append("; no error detected !");
+			} else {
+				builder.append("; ").append(numErrors)
+						.append(" errors detected !");
+				mismatchingFrames++;
+				context.addStatusCode(1);
+			}
+		}
+
+		OrccLogger.traceln(builder.toString());
+		frameNumber++;
+		frames++;
+	}
+
+	/**
+	 * Waits until every frame has been checked, reports a summary and releases
+	 * the golden reference.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		String digest = String.format("%032x", new BigInteger(1, md5.digest()));
+		OrccLogger.traceln(frames + " frames checked, MD5 " + digest);
+		if (golden != null) {
+			OrccLogger.traceln(mismatchingFrames
+					+ " frames differ from the golden reference");
+			try {
+				golden.close();
+			} catch (IOException e) {
+				OrccLogger.warnln("Cannot close the golden reference: "
+						+ e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Reads the next bytes of the golden reference into the given array. The
+	 * bytes past the end of the reference are set to zero.
+	 */
+	private void readGolden(byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length && goldenPosition < goldenLength) {
+			long windowOffset = goldenPosition - windowStart;
+			if (window == null || windowOffset < 0
+					|| windowOffset >= window.limit()) {
+				long size = Math.min(WINDOW_SIZE, goldenLength - goldenPosition);
+				window = golden.getChannel().map(MapMode.READ_ONLY,
+						goldenPosition, size);
+				windowStart = goldenPosition;
+				windowOffset = 0;
+			}
+
+			window.position((int) windowOffset);
+			int n = Math.min(bytes.length - offset, window.remaining());
+			window.get(bytes, offset, n);
+			offset += n;
+			goldenPosition += n;
+		}
+		Arrays.fill(bytes, offset, bytes.length, (byte) 0);
+	}
+
+	/**
+	 * Copies the given frame and queues it to be checked. This blocks if
+	 * {@link #POOL_SIZE} frames are already waiting.
+	 * 
+	 * @param y
+	 *            Y plane
+	 * @param u
+	 *            U plane
+	 * @param v
+	 *            V plane
+	 * @param width
+	 *            width of the frame
+	 * @param height
+	 *            height of the frame
+	 */
+	public void submit(byte[] y, byte[] u, byte[] v, int width, int height) {
+		final Frame frame;
+		try {
+			frame = freeFrames.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		frame.set(y, u, v, width, height);
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					check(frame);
+				} catch (IOException e) {
+					OrccLogger.warnln("Cannot read the golden reference: "
+							+ e.getMessage());
+				} finally {
+					freeFrames.add(frame);
+				}
+			}
+		});
+	}
+
+}
@@ -29,6 +29,7 @@
 
 package net.sf.orcc.simulators.runtime.impl;
 
+import net.sf.orcc.simulators.SimulationContext;
 import net.sf.orcc.util.OrccLogger;
 
 public class GenericDisplay {
@@ -44,31 +45,36 @@ public class GenericDisplay {
 	 */
 	public static final int DISPLAY_ENABLE = 3;
 
-	protected static String goldenReference = "";
-
 	/**
-	 * This variable should store number of frames user want to decode before
-	 * stopping application
+	 * Returns the status of the display in the current simulation context.
 	 */
-	public static int nbFrames;
-
-	protected static int displayStatus = DISPLAY_ENABLE;
+	protected static int getDisplayStatus() {
+		return SimulationContext.get().getDisplayStatus();
+	}
 
 	public static String getGoldenReference() {
-		return goldenReference;
+		return SimulationContext.get().getGoldenReference();
+	}
+
+	/**
+	 * Returns the number of frames user want to decode before stopping
+	 * application.
+	 */
+	public static int getNbFrames() {
+		return SimulationContext.get().getNbFrames();
 	}
 
 	public static void setGoldenReference(String fileName) {
-		GenericDisplay.goldenReference = fileName;
+		SimulationContext.get().setGoldenReference(fileName);
 	}
 
 	public static void setDisplayEnabled() {
-		displayStatus = DISPLAY_ENABLE;
+		SimulationContext.get().setDisplayStatus(DISPLAY_ENABLE);
 		OrccLogger.debugln("Display has been enabled");
 	}
 
 	public static void setDisplayDisabled() {
-		displayStatus = DISPLAY_DISABLE;
+		SimulationContext.get().setDisplayStatus(DISPLAY_DISABLE);
 		OrccLogger.debugln("Display has been disabled");
 	}
 }
@@ -29,15 +29,11 @@
 
 package net.sf.orcc.simulators.runtime.impl;
 
-import net.sf.orcc.simulators.Simulator;
+import net.sf.orcc.simulators.SimulationContext;
 
 
 public class GenericSource {
 
-	protected static String inputStimulus = "";
-
-	protected static int nbLoops = Simulator.DEFAULT_NB_LOOPS;
-
 	/**
 	 * Sets the file name used by this Source class.
 	 * 
@@ -46,15 +42,19 @@ public class GenericSource {
 	 */
 
 	public static String getInputStimulus() {
-		return inputStimulus;
+		return SimulationContext.get().getInputStimulus();
+	}
+
+	public static int getNbLoops() {
+		return SimulationContext.get().getNbLoops();
 	}
 
 	public static void setInputStimulus(String fileName) {
-		GenericSource.inputStimulus = fileName;
+		SimulationContext.get().setInputStimulus(fileName);
 	}
 	
 	public static void setNbLoops(int nb) {
-		nbLoops = nb;
+		SimulationContext.get().setNbLoops(nb);
 	}
 
 	public void close(){
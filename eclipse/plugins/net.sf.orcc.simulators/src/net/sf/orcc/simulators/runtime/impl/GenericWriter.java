@@ -29,18 +29,18 @@
 
 package net.sf.orcc.simulators.runtime.impl;
 
-public class GenericWriter {
+import net.sf.orcc.simulators.SimulationContext;
 
-	protected static String outputFile = "";
+public class GenericWriter {
 
 	/** 
 	 * @return file to be written to by the Writer actor
 	 */
 	public static String getOutputFile() {
-		return outputFile;
+		return SimulationContext.get().getOutputFile();
 	}
 
 	public static void setOutputFile(String fileName) {
-		GenericWriter.outputFile = fileName;
+		SimulationContext.get().setOutputFile(fileName);
 	}
 }
@@ -28,30 +28,116 @@
  */
 package net.sf.orcc.simulators.runtime.std.stdio.impl;
 
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
 
 import net.sf.orcc.OrccRuntimeException;
 import net.sf.orcc.simulators.AbstractSimulator;
+import net.sf.orcc.simulators.SimulationContext;
 import net.sf.orcc.simulators.runtime.impl.GenericSource;
 import net.sf.orcc.util.OrccLogger;
 
 /**
- * This class defines native functions for the Source actor.
+ * This class defines native functions for the Source actor. The input
+ * stimulus is memory-mapped by windows of {@link #WINDOW_SIZE} bytes, so that
+ * reading a byte does not perform any I/O, and rewinding a stimulus that fits
+ * in a single window does not either. The stimulus belongs to the simulation
+ * context of the caller.
  * 
  * @author Matthieu Wipliez
  * 
  */
 public class Source extends GenericSource {
 
-	// private static String inputStimulus;
+	/**
+	 * This class defines the input stimulus of a simulation.
+	 */
+	private static class Stimulus implements Closeable {
 
-	private static RandomAccessFile in;
+		private final String fileName;
 
-	@Deprecated
-	private static int loopsCount;
+		private final RandomAccessFile in;
+
+		private final long length;
+
+		@Deprecated
+		private int loopsCount;
+
+		/** mapped region of the input stimulus */
+		private MappedByteBuffer window;
+
+		/** position of the mapped region in the input stimulus */
+		private long windowStart;
+
+		public Stimulus(String fileName) throws IOException {
+			this.fileName = fileName;
+			in = new RandomAccessFile(fileName, "r");
+			length = in.length();
+			map(0L);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		/**
+		 * Returns <code>true</code> if there are bytes left to read, mapping
+		 * the next window of the file if the current one has been read
+		 * entirely.
+		 */
+		private boolean hasRemaining() throws IOException {
+			if (window.hasRemaining()) {
+				return true;
+			}
+
+			long next = windowStart + window.limit();
+			if (next >= length) {
+				return false;
+			}
+			map(next);
+			return true;
+		}
+
+		/**
+		 * Maps the window of the input stimulus that starts at the given
+		 * position.
+		 */
+		private void map(long position) throws IOException {
+			long size = Math.min(WINDOW_SIZE, length - position);
+			window = in.getChannel().map(MapMode.READ_ONLY, position, size);
+			windowStart = position;
+		}
+
+	}
+
+	/**
+	 * Values returned by {@link #source_readByte()}, from -1 (end of file) to
+	 * 255.
+	 */
+	private static final BigInteger[] BYTE_VALUES = new BigInteger[257];
+
+	/** maximum number of bytes mapped at once */
+	private static final int WINDOW_SIZE = 1 << 30;
+
+	static {
+		for (int i = 0; i < BYTE_VALUES.length; i++) {
+			BYTE_VALUES[i] = BigInteger.valueOf(i - 1);
+		}
+	}
+
+	/**
+	 * Returns the input stimulus of the current simulation context, or
+	 * <code>null</code> if it has not been opened.
+	 */
+	private static Stimulus stimulus() {
+		return (Stimulus) SimulationContext.get().getState(Source.class);
+	}
 
 	public static void source_exit(BigInteger status) {
 		OrccLogger.traceln("Exit signal called by application. Return code: "
@@ -60,45 +146,69 @@ public class Source extends GenericSource {
 	}
 
 	public static BigInteger source_getNbLoop() {
-		return BigInteger.valueOf(nbLoops);
+		return BigInteger.valueOf(getNbLoops());
 	}
 
 	@Deprecated
 	public static Boolean source_isMaxLoopsReached() {
-		return loopsCount <= 0;
+		return stimulus().loopsCount <= 0;
 	}
 
 	@Deprecated
 	public static void source_decrementNbLoops() {
-		--loopsCount;
+		--stimulus().loopsCount;
 	}
 
 	public static void source_init() {
+		SimulationContext context = SimulationContext.get();
+		String inputStimulus = context.getInputStimulus();
 		try {
-			in = new RandomAccessFile(inputStimulus, "r");
+			Stimulus stimulus = stimulus();
+			if (stimulus != null) {
+				// the stimulus was already opened by another Source
+				stimulus.close();
+			}
+
+			stimulus = new Stimulus(inputStimulus);
+			stimulus.loopsCount = context.getNbLoops();
+			context.setState(Source.class, stimulus);
 		} catch (FileNotFoundException e) {
 			String msg = "File not found: \"" + inputStimulus + "\"";
 			throw new OrccRuntimeException(msg, e);
+		} catch (IOException e) {
+			String msg = "I/O error when mapping file \"" + inputStimulus
+					+ "\"";
+			throw new OrccRuntimeException(msg, e);
 		}
-		loopsCount = nbLoops;
 	}
 
 	public static void source_readNBytes(byte outTable[],
 			BigInteger nbTokenToRead) {
+		Stimulus stimulus = stimulus();
 		try {
-			in.read(outTable, 0, nbTokenToRead.intValue());
+			int count = nbTokenToRead.intValue();
+			int offset = 0;
+			while (offset < count && stimulus.hasRemaining()) {
+				int n = Math.min(count - offset, stimulus.window.remaining());
+				stimulus.window.get(outTable, offset, n);
+				offset += n;
+			}
 		} catch (IOException e) {
-			String msg = "I/O error when reading file \"" + inputStimulus
+			String msg = "I/O error when reading file \"" + stimulus.fileName
 					+ "\"";
 			throw new OrccRuntimeException(msg, e);
 		}
 	}
 	
 	public static BigInteger source_readByte(){
+		Stimulus stimulus = stimulus();
 		try {
-			return BigInteger.valueOf(in.read());
+			if (!stimulus.hasRemaining()) {
+				return BYTE_VALUES[0];
+			}
+			return BYTE_VALUES[(stimulus.window.get() & 0xFF) + 1];
 		} catch (IOException e) {
-			String msg = "I/O error when reading file \"" + inputStimulus
+			String msg = "I/O error when reading file \"" + stimulus.fileName
 					+ "\"";
 			throw new OrccRuntimeException(msg, e);
 		}
@@ -106,27 +216,26 @@ public class Source extends GenericSource {
 	}
 
 	public static void source_rewind() {
+		Stimulus stimulus = stimulus();
 		try {
-			// and for Damien, no there are no rewind on RandomAccessFile :)
-			in.seek(0L);
+			if (stimulus.windowStart == 0L) {
+				stimulus.window.rewind();
+			} else {
+				stimulus.map(0L);
+			}
 		} catch (IOException e) {
-			String msg = "I/O error when rewinding file \"" + inputStimulus
-					+ "\"";
+			String msg = "I/O error when rewinding file \""
+					+ stimulus.fileName + "\"";
 			throw new OrccRuntimeException(msg, e);
 		}
 	}
 
 	public static BigInteger source_sizeOfFile() {
-		try {
-			if (in == null) {
-				return BigInteger.ZERO;
-			}
-			return BigInteger.valueOf(in.length());
-		} catch (IOException e) {
-			String msg = "I/O error when getting size of file \""
-					+ inputStimulus + "\"";
-			throw new RuntimeException(msg, e);
+		Stimulus stimulus = stimulus();
+		if (stimulus == null) {
+			return BigInteger.ZERO;
 		}
+		return BigInteger.valueOf(stimulus.length);
 	}
 
 }
@@ -29,32 +29,46 @@
 package net.sf.orcc.simulators.runtime.std.stdio.impl;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.math.BigInteger;
 
 import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.simulators.SimulationContext;
+import net.sf.orcc.simulators.runtime.impl.BufferedChannel;
 import net.sf.orcc.simulators.runtime.impl.GenericWriter;
 
 /**
- * This class defines native functions for the Writer actor.
+ * This class defines native functions for the Writer actor. Bytes are
+ * buffered, and written to the output file when the buffer is full, when the
+ * Writer is closed, or when the simulation context is closed.
  * 
  * @author Rob Stewart
  * 
  */
 public class Writer extends GenericWriter {
 
-	private static RandomAccessFile out;
+	/**
+	 * Returns the output file of the current simulation context.
+	 */
+	private static BufferedChannel out() {
+		return (BufferedChannel) SimulationContext.get().getState(Writer.class);
+	}
 
 	public static void Writer_init() {
+		SimulationContext context = SimulationContext.get();
+		String outputFile = context.getOutputFile();
 		try {
+			BufferedChannel out = out();
+			if (out != null) {
+				// the file was already opened by another Writer
+				out.close();
+			}
 			File oldFile = new File(outputFile);
 			if (oldFile.exists()) {
 				oldFile.delete();
 			}
-			out = new RandomAccessFile(outputFile, "rw");
-		} catch (FileNotFoundException e) {
+			context.setState(Writer.class, new BufferedChannel(oldFile, "rw"));
+		} catch (IOException e) {
 			String msg = "Cannot write to file: \"" + outputFile + "\"";
 			throw new OrccRuntimeException(msg, e);
 		}
@@ -62,19 +76,25 @@ public class Writer extends GenericWriter {
 
 	public static void Writer_write(BigInteger b) {
 		try {
-			out.writeByte(b.byteValue());
+			out().write(b.byteValue());
 		} catch (IOException e) {
-			String msg = "Cannot write " + b + " to " + outputFile;
+			String msg = "Cannot write " + b + " to " + getOutputFile();
 			throw new OrccRuntimeException(msg, e);
 		}
 	}
 
 	public static void Writer_close() {
-		try {
-			out.close();
-		} catch (IOException e) {
-			String msg = "Cannot close " + outputFile;
-			throw new OrccRuntimeException(msg, e);
+		SimulationContext context = SimulationContext.get();
+		BufferedChannel out = out();
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				String msg = "Cannot close " + context.getOutputFile();
+				throw new OrccRuntimeException(msg, e);
+			} finally {
+				context.setState(Writer.class, null);
+			}
 		}
 	}
 }
@@ -34,65 +34,110 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.math.BigInteger;
 
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
 import net.sf.orcc.OrccRuntimeException;
-import net.sf.orcc.simulators.AbstractSimulator;
+import net.sf.orcc.simulators.SimulationContext;
+import net.sf.orcc.simulators.runtime.impl.FrameChecker;
 import net.sf.orcc.simulators.runtime.impl.GenericDisplay;
 import net.sf.orcc.util.OrccLogger;
 
 /**
- * This class defines native functions for the DisplayYUV actor.
+ * This class defines native functions for the DisplayYUV actor. The state of
+ * the display belongs to the simulation context of the caller.
  * 
  * @author Matthieu Wipliez
  * 
  */
 public class Display extends GenericDisplay {
 
-	private static BufferStrategy buffer;
+	/**
+	 * This class defines the state of the display of a simulation.
+	 */
+	private static class State implements Closeable {
+
+		private BufferStrategy buffer;
+
+		private Canvas canvas;
 
-	private static Canvas canvas;
+		private JFrame frame;
 
-	private static JFrame frame;
+		/**
+		 * checker of the frames decoded when the display is disabled, or null
+		 */
+		private FrameChecker frameChecker;
 
-	private static int frameNumber = 0;
+		private int frameNumber = 0;
 
-	private static BufferedImage image;
+		private BufferedImage image;
 
-	private static RandomAccessFile in;
+		private RandomAccessFile in;
 
-	private static int lastHeight;
+		private int lastHeight;
 
-	private static int lastWidth;
+		private int lastWidth;
 
-	private static long t1;
+		private long t1;
 
-	private static long t2;
+		private long t2;
 
-	private static boolean useCompare;
+		private boolean useCompare;
+
+		@Override
+		public void close() throws IOException {
+			useCompare = false;
+			if (frameChecker != null) {
+				frameChecker.close();
+				frameChecker = null;
+			}
+			if (in != null) {
+				in.close();
+				in = null;
+			}
+
+			final JFrame frame = this.frame;
+			if (frame != null) {
+				this.frame = null;
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						frame.dispose();
+					}
+				});
+			}
+		}
+
+	}
 
 	/**
 	 * Close open frames (if any) and clear all
 	 */
 	public static void clearAll() {
-		if (frame != null && frame.isVisible()) {
-			frame.setVisible(false);
-			frame.dispose();
+		State state = (State) SimulationContext.get().getState(Display.class);
+		if (state == null) {
+			return;
 		}
 
-		if (buffer != null) {
-			buffer.dispose();
+		if (state.frame != null && state.frame.isVisible()) {
+			state.frame.setVisible(false);
+			state.frame.dispose();
+		}
+
+		if (state.buffer != null) {
+			state.buffer.dispose();
 		}
 
-		canvas = null;
-		image = null;
-		lastHeight = 0;
-		lastWidth = 0;
+		state.canvas = null;
+		state.image = null;
+		state.lastHeight = 0;
+		state.lastWidth = 0;
 	}
 
 	private static int clip(int n) {
@@ -148,7 +193,12 @@ public class Display extends GenericDisplay {
 		int width = pictureWidth.intValue();
 		int height = pictureHeight.intValue();
 
-		if (useCompare) {
+		SimulationContext.get().frameDecoded();
+		State state = state();
+		if (state.frameChecker != null) {
+			state.frameChecker.submit(pictureBufferY, pictureBufferU,
+					pictureBufferV, width, height);
+		} else if (state.useCompare) {
 			byte[] Y = new byte[width * height];
 			byte[] U = new byte[width * height / 4];
 			byte[] V = new byte[width * height / 4];
@@ -156,9 +206,10 @@ public class Display extends GenericDisplay {
 			try {
 				int numErrors = 0;
 
-				OrccLogger.trace("Frame number " + frameNumber);
-				frameNumber++;
+				OrccLogger.trace("Frame number " + state.frameNumber);
+				state.frameNumber++;
 
+				RandomAccessFile in = state.in;
 				in.read(Y, 0, width * height);
 				in.read(U, 0, width * height / 4);
 				in.read(V, 0, width * height / 4);
@@ -176,12 +227,12 @@ public class Display extends GenericDisplay {
 					OrccLogger.traceRaw("; " + numErrors
 							+ " errors detected !\n");
 
-					AbstractSimulator.statusCode++;
+					SimulationContext.get().addStatusCode(1);
 				}
 
 				if (in.getFilePointer() == in.length()) {
 					in.seek(0L);
-					frameNumber = 0;
+					state.frameNumber = 0;
 				}
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -190,14 +241,28 @@ public class Display extends GenericDisplay {
 	}
 
 	/**
-	 * Init the YUV comparison.
+	 * Init the YUV comparison. When the display is disabled, frames are
+	 * checked by a {@link FrameChecker}, which only computes their checksums
+	 * if no golden reference is set. When the display is enabled, frames are
+	 * compared with the golden reference if one is set.
 	 */
 	public static void compareYUV_init() {
-		useCompare = false;
-		if (!goldenReference.isEmpty()) {
+		SimulationContext context = SimulationContext.get();
+		String goldenReference = context.getGoldenReference();
+		State state = state();
+		try {
+			state.close();
+		} catch (IOException e) {
+			OrccLogger.warnln("Cannot close the golden reference: "
+					+ e.getMessage());
+		}
+
+		if (context.getDisplayStatus() == DISPLAY_DISABLE) {
+			state.frameChecker = new FrameChecker(context, goldenReference);
+		} else if (!goldenReference.isEmpty()) {
 			try {
-				in = new RandomAccessFile(goldenReference, "r");
-				useCompare = true;
+				state.in = new RandomAccessFile(goldenReference, "r");
+				state.useCompare = true;
 			} catch (FileNotFoundException e) {
 				String msg = "File not found: \"" + goldenReference + "\"";
 				throw new OrccRuntimeException(msg, e);
@@ -222,10 +287,13 @@ public class Display extends GenericDisplay {
 			BigInteger biPictureWidth, BigInteger biPictureHeight) {
 		int pictureWidth = biPictureWidth.intValue();
 		int pictureHeight = biPictureHeight.intValue();
-		if (pictureWidth != lastWidth || pictureHeight != lastHeight) {
-			setVideoSize(pictureWidth, pictureHeight);
+		State state = state();
+		if (pictureWidth != state.lastWidth
+				|| pictureHeight != state.lastHeight) {
+			setVideoSize(state, pictureWidth, pictureHeight);
 		}
 
+		BufferedImage image = state.image;
 		if (image == null) {
 			return;
 		}
@@ -251,6 +319,7 @@ public class Display extends GenericDisplay {
 			}
 		}
 
+		BufferStrategy buffer = state.buffer;
 		if (buffer != null) {
 			Graphics graphics = buffer.getDrawGraphics();
 			graphics.drawImage(image, 0, 0, null);
@@ -266,7 +335,7 @@ public class Display extends GenericDisplay {
 	 * @return the flags of the display
 	 */
 	public static BigInteger displayYUV_getFlags() {
-		return BigInteger.valueOf(displayStatus);
+		return BigInteger.valueOf(getDisplayStatus());
 	}
 
 	/**
@@ -276,7 +345,7 @@ public class Display extends GenericDisplay {
 	 *         set any value
 	 */
 	public static BigInteger displayYUV_getNbFrames() {
-		return BigInteger.valueOf(nbFrames);
+		return BigInteger.valueOf(getNbFrames());
 	}
 
 	/**
@@ -284,46 +353,68 @@ public class Display extends GenericDisplay {
 	 */
 	public static void displayYUV_init() {
 		clearAll();
+		final SimulationContext context = SimulationContext.get();
+		if (context.getDisplayStatus() == DISPLAY_DISABLE) {
+			// headless simulation, frames are only checked
+			return;
+		}
 
-		frame = new JFrame("display");
-		canvas = new Canvas();
-		frame.add(canvas);
-		frame.setResizable(false);
-		frame.setVisible(true);
+		final State state = state();
+		state.frame = new JFrame("display");
+		state.canvas = new Canvas();
+		state.frame.add(state.canvas);
+		state.frame.setResizable(false);
+		state.frame.setVisible(true);
 
-		frame.addWindowListener(new WindowAdapter() {
+		state.frame.addWindowListener(new WindowAdapter() {
 
 			@Override
 			public void windowClosing(WindowEvent e) {
-				frame.dispose();
-				AbstractSimulator.userStop();
+				state.frame.dispose();
+				// called from the event dispatch thread
+				context.userStop();
 			}
 		});
 	}
 
 	public static void fpsPrintInit() {
-		t1 = System.currentTimeMillis();
+		state().t1 = System.currentTimeMillis();
 	}
 
 	public static void fpsPrintNewPicDecoded() {
-		t2 = System.currentTimeMillis();
-		OrccLogger.noticeRaw("Image displayed in " + (t2 - t1) + " ms\n");
-		t1 = t2;
+		State state = state();
+		state.t2 = System.currentTimeMillis();
+		OrccLogger.noticeRaw("Image displayed in " + (state.t2 - state.t1)
+				+ " ms\n");
+		state.t1 = state.t2;
 	}
 
-	private static void setVideoSize(int newWidth, int newHeight) {
-		lastWidth = newWidth;
-		lastHeight = newHeight;
+	private static void setVideoSize(State state, int newWidth, int newHeight) {
+		state.lastWidth = newWidth;
+		state.lastHeight = newHeight;
 
-		if (canvas != null) {
-			canvas.setSize(lastWidth, lastHeight);
-			frame.pack();
-			canvas.createBufferStrategy(2);
-			buffer = canvas.getBufferStrategy();
+		if (state.canvas != null) {
+			state.canvas.setSize(state.lastWidth, state.lastHeight);
+			state.frame.pack();
+			state.canvas.createBufferStrategy(2);
+			state.buffer = state.canvas.getBufferStrategy();
 
-			image = new BufferedImage(lastWidth, lastHeight,
+			state.image = new BufferedImage(state.lastWidth, state.lastHeight,
 					BufferedImage.TYPE_INT_RGB);
 		}
 	}
 
+	/**
+	 * Returns the state of the display in the current simulation context.
+	 */
+	private static State state() {
+		SimulationContext context = SimulationContext.get();
+		State state = (State) context.getState(Display.class);
+		if (state == null) {
+			state = new State();
+			context.setState(Display.class, state);
+		}
+		return state;
+	}
+
 }
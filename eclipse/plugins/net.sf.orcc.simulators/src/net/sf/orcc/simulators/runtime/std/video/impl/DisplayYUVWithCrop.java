@@ -38,7 +38,7 @@ import java.math.BigInteger;
 
 import javax.swing.JFrame;
 
-import net.sf.orcc.simulators.AbstractSimulator;
+import net.sf.orcc.simulators.SimulationContext;
 import net.sf.orcc.util.OrccLogger;
 
 /**
@@ -107,7 +107,7 @@ public class DisplayYUVWithCrop {
 	public static void compareYUV_comparePicture(byte[] pictureBufferY,
 			byte[] pictureBufferU, byte[] pictureBufferV,
 			BigInteger pictureWidth, BigInteger pictureHeight) {
-
+		SimulationContext.get().frameDecoded();
 	}
 
 	/**
@@ -185,6 +185,7 @@ public class DisplayYUVWithCrop {
 	 * Initializes the display.
 	 */
 	public static void displayYUV_init() {
+		final SimulationContext context = SimulationContext.get();
 		frame = new JFrame("display");
 		frame.addWindowListener(new WindowAdapter() {
 
@@ -199,7 +200,8 @@ public class DisplayYUVWithCrop {
 				lastHeight = 0;
 				lastWidth = 0;
 
-				AbstractSimulator.stop(BigInteger.ZERO);
+				// called from the event dispatch thread
+				context.stop(0);
 			}
 
 		});
@@ -34,35 +34,48 @@ import java.io.IOException;
 
 import javax.imageio.ImageIO;
 
+import net.sf.orcc.simulators.SimulationContext;
 import net.sf.orcc.simulators.runtime.impl.GenericSource;
 
+/**
+ * This class defines native functions reading the pixels of an image. The
+ * image and the current pixel belong to the simulation context of the caller.
+ */
 public class ReadImage extends GenericSource {
 
-	private static int height;
+	/**
+	 * This class defines the image read by a simulation.
+	 */
+	private static class State {
+
+		private int height;
 
-	private static BufferedImage image;
+		private BufferedImage image;
 
-	private static int width;
+		private int width;
 
-	private static int x;
+		private int x;
 
-	private static int y;
+		private int y;
+
+	}
 
 	public static void advance() {
-		x++;
-		if (x == width) {
-			x = 0;
-			y++;
+		State state = state();
+		state.x++;
+		if (state.x == state.width) {
+			state.x = 0;
+			state.y++;
 		}
 
-		if (y == height) {
-			x = 0;
-			y = 0;
+		if (state.y == state.height) {
+			state.x = 0;
+			state.y = 0;
 		}
 	}
 
 	public static int getBlue() {
-		return getBlue(image.getRGB(x, y));
+		return getBlue(getPixel());
 	}
 
 	private static int getBlue(int pixel) {
@@ -70,7 +83,7 @@ public class ReadImage extends GenericSource {
 	}
 
 	public static int getGreen() {
-		return getGreen(image.getRGB(x, y));
+		return getGreen(getPixel());
 	}
 
 	private static int getGreen(int pixel) {
@@ -78,11 +91,19 @@ public class ReadImage extends GenericSource {
 	}
 
 	public static int getHeight() {
-		return image.getHeight();
+		return state().image.getHeight();
+	}
+
+	/**
+	 * Returns the current pixel of the image.
+	 */
+	private static int getPixel() {
+		State state = state();
+		return state.image.getRGB(state.x, state.y);
 	}
 
 	public static int getRed() {
-		return getRed(image.getRGB(x, y));
+		return getRed(getPixel());
 	}
 
 	private static int getRed(int pixel) {
@@ -90,19 +111,28 @@ public class ReadImage extends GenericSource {
 	}
 
 	public static int getWidth() {
-		return image.getWidth();
+		return state().image.getWidth();
 	}
 
 	public static void readImage_initialize() {
+		State state = new State();
 		try {
-			image = ImageIO.read(new File(inputStimulus));
+			state.image = ImageIO.read(new File(getInputStimulus()));
 		} catch (IOException e) {
 			String msg = "image error";
 			throw new RuntimeException(msg, e);
 		}
 
-		width = image.getWidth();
-		height = image.getHeight();
+		state.width = state.image.getWidth();
+		state.height = state.image.getHeight();
+		SimulationContext.get().setState(ReadImage.class, state);
+	}
+
+	/**
+	 * Returns the image read in the current simulation context.
+	 */
+	private static State state() {
+		return (State) SimulationContext.get().getState(ReadImage.class);
 	}
 
 }
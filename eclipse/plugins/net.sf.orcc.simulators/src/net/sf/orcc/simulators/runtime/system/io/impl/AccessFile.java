@@ -58,7 +58,7 @@ public class AccessFile {
 	public static BigInteger readByte(BigInteger desc) {
 		SystemIO io = SimulatorDescriptor.getSystemIO(desc);
 		if (io.isAccessFile()) {
-			new BigInteger(SystemIO.toAccessFile(io).readByte().toString());
+			return BigInteger.valueOf(SystemIO.toAccessFile(io).readByte());
 		}
 		return new BigInteger("0");
 	}
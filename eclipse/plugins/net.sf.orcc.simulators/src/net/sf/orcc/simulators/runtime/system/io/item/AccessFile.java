@@ -29,14 +29,16 @@
 
 package net.sf.orcc.simulators.runtime.system.io.item;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
+import net.sf.orcc.simulators.runtime.impl.BufferedChannel;
 import net.sf.orcc.simulators.runtime.impl.SystemIO;
+import net.sf.orcc.util.OrccLogger;
 
 /**
- * This class defines native functions for the File unit.
+ * This class defines native functions for the File unit. Reads and writes
+ * go through a {@link BufferedChannel}, which is flushed when the file is
+ * closed.
  * 
  * This class uses the SimulatorDecriptor class to handle descriptors.
  * 
@@ -45,13 +47,13 @@ import net.sf.orcc.simulators.runtime.impl.SystemIO;
  */
 public class AccessFile extends SystemIO {
 
-	private RandomAccessFile randomAccessFile;
+	private BufferedChannel channel;
 
 	public AccessFile(String path) {
 		super(path);
 		try {
-			randomAccessFile = new RandomAccessFile(file, "rw");
-		} catch (FileNotFoundException e) {
+			channel = new BufferedChannel(file, "rw");
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
@@ -61,7 +63,7 @@ public class AccessFile extends SystemIO {
 	@Override
 	public void close() {
 		try {
-			randomAccessFile.close();
+			channel.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -73,9 +75,20 @@ public class AccessFile extends SystemIO {
 		return true;
 	}
 
+	/**
+	 * Reads the next byte of the file. Like the C runtime, 0 is returned and
+	 * a warning is printed at the end of the file: callers must compare
+	 * {@link #filePointer()} with {@link #sizeOfFile()} to detect it.
+	 * 
+	 * @return the next byte, or 0 at the end of the file
+	 */
 	public Byte readByte() {
 		try {
-			return randomAccessFile.readByte();
+			int b = channel.read();
+			if (b != -1) {
+				return (byte) b;
+			}
+			OrccLogger.warnln("End of file reached: " + file);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -84,7 +97,7 @@ public class AccessFile extends SystemIO {
 
 	public Long sizeOfFile() {
 		try {
-			return randomAccessFile.length();
+			return channel.length();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -92,25 +105,16 @@ public class AccessFile extends SystemIO {
 	}
 
 	public void seek(Integer pos) {
-		try {
-			randomAccessFile.seek(pos);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		channel.seek(pos);
 	}
 
 	public Integer filePointer() {
-		try {
-			return (int) randomAccessFile.getFilePointer();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return 0;
+		return (int) channel.getFilePointer();
 	}
 
 	public void readByte(byte[] buf, Integer count) {
 		try {
-			randomAccessFile.read(buf, 0, count);
+			channel.read(buf, 0, count);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -118,7 +122,7 @@ public class AccessFile extends SystemIO {
 
 	public void writeByte(byte[] buf, Integer count) {
 		try {
-			randomAccessFile.write(buf, 0, count);
+			channel.write(buf, 0, count);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -126,7 +130,7 @@ public class AccessFile extends SystemIO {
 
 	public void writeByte(Byte v) {
 		try {
-			randomAccessFile.writeByte(v);
+			channel.write(v);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
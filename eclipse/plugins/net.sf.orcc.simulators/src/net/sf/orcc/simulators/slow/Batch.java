@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.sf.orcc.OrccRuntimeException;
+
+/**
+ * This class defines a batch of streams simulated with the same network, and
+ * the summary of their results. The stimuli of a batch are either the files
+ * of a directory, or the files listed in a text file, one per line, each
+ * optionally followed by a comma and its golden reference. Stimuli without
+ * explicit golden reference are matched with the files of a directory of
+ * references by their name without extension.
+ * 
+ */
+final class Batch {
+
+	/**
+	 * This class defines a stream of the batch and the result of its
+	 * simulation.
+	 */
+	static final class Stream {
+
+		/** duration of the simulation in nanoseconds */
+		long elapsed;
+
+		int frames;
+
+		final String name;
+
+		final File reference;
+
+		String result = "NOT RUN";
+
+		final File stimulus;
+
+		Stream(String name, File stimulus, File reference) {
+			this.name = name;
+			this.stimulus = stimulus;
+			this.reference = reference;
+		}
+
+		/**
+		 * Returns the number of frames decoded per second.
+		 */
+		double getThroughput() {
+			return elapsed == 0 ? 0.0 : frames * 1e9 / elapsed;
+		}
+
+	}
+
+	/** result of a stream whose simulation was stopped */
+	static final String ABORTED = "ABORTED";
+
+	/** result of a stream whose simulation threw an exception */
+	static final String ERROR = "ERROR";
+
+	/** result of a stream whose simulation returned a non-zero status */
+	static final String FAILED = "FAIL";
+
+	/** result of a stream whose simulation returned a zero status */
+	static final String PASSED = "PASS";
+
+	/**
+	 * Returns the name of the given file without its extension.
+	 */
+	private static String getBaseName(File file) {
+		String name = file.getName();
+		int index = name.lastIndexOf('.');
+		return index > 0 ? name.substring(0, index) : name;
+	}
+
+	private final List<Stream> streams;
+
+	/**
+	 * Creates the batch of the given stimuli.
+	 * 
+	 * @param stimuli
+	 *            a directory of stimuli, or a file listing the stimuli
+	 * @param references
+	 *            a directory of golden references, or an empty string
+	 */
+	Batch(String stimuli, String references) {
+		Map<String, File> referenceFiles = new HashMap<String, File>();
+		if (!references.isEmpty()) {
+			for (File file : listFiles(new File(references))) {
+				referenceFiles.put(getBaseName(file), file);
+			}
+		}
+
+		streams = new ArrayList<Stream>();
+		Map<String, Integer> names = new HashMap<String, Integer>();
+		File source = new File(stimuli);
+		for (File[] entry : readEntries(source)) {
+			File stimulus = entry[0];
+			File reference = entry[1];
+			String name = getBaseName(stimulus);
+			if (reference == null) {
+				reference = referenceFiles.get(name);
+			}
+
+			// streams also name their output folders, so names are unique
+			Integer count = names.get(name);
+			names.put(name, count == null ? 1 : count + 1);
+			if (count != null) {
+				name = name + "_" + count;
+			}
+			streams.add(new Stream(name, stimulus, reference));
+		}
+
+		if (streams.isEmpty()) {
+			throw new OrccRuntimeException("No stimulus found in \""
+					+ stimuli + "\"");
+		}
+	}
+
+	/**
+	 * Returns the summary of the batch as CSV.
+	 * 
+	 * @return the content of a CSV file
+	 */
+	CharSequence getContent() {
+		StringBuilder builder = new StringBuilder(
+				"Stream, Result, Frames, Time (ms), Frames/s, Stimulus, Reference\n");
+		for (Stream stream : streams) {
+			builder.append(stream.name).append(", ").append(stream.result)
+					.append(", ").append(stream.frames).append(", ")
+					.append(stream.elapsed / 1000000).append(", ")
+					.append(String.format(Locale.US, "%.2f",
+							stream.getThroughput())).append(", ")
+					.append(stream.stimulus.getPath()).append(", ")
+					.append(stream.reference == null ? "" : stream.reference
+							.getPath()).append('\n');
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the number of streams whose simulation did not pass.
+	 */
+	int getFailures() {
+		int failures = 0;
+		for (Stream stream : streams) {
+			if (!PASSED.equals(stream.result)) {
+				failures++;
+			}
+		}
+		return failures;
+	}
+
+	List<Stream> getStreams() {
+		return streams;
+	}
+
+	/**
+	 * Returns the summary of the batch as a table.
+	 * 
+	 * @return a table with one line per stream
+	 */
+	CharSequence getTable() {
+		int width = "Stream".length();
+		for (Stream stream : streams) {
+			width = Math.max(width, stream.name.length());
+		}
+
+		String format = "%-" + width + "s  %-7s  %8s  %10s  %9s\n";
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format(Locale.US, format, "Stream", "Result",
+				"Frames", "Time (ms)", "Frames/s"));
+		for (Stream stream : streams) {
+			builder.append(String.format(Locale.US, format, stream.name,
+					stream.result, stream.frames, stream.elapsed / 1000000,
+					String.format(Locale.US, "%.2f", stream.getThroughput())));
+		}
+		builder.append(streams.size() - getFailures()).append('/')
+				.append(streams.size()).append(" streams passed");
+		return builder;
+	}
+
+	/**
+	 * Returns the regular files of the given directory, sorted by name.
+	 */
+	private List<File> listFiles(File directory) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new OrccRuntimeException("Cannot list the files of \""
+					+ directory + "\"");
+		}
+
+		Arrays.sort(files);
+		List<File> list = new ArrayList<File>();
+		for (File file : files) {
+			if (file.isFile() && !file.isHidden()) {
+				list.add(file);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the stimuli of the batch, each with its golden reference or
+	 * <code>null</code>. Relative paths of a list are relative to the folder
+	 * of the list.
+	 */
+	private List<File[]> readEntries(File source) {
+		List<File[]> entries = new ArrayList<File[]>();
+		if (source.isDirectory()) {
+			for (File file : listFiles(source)) {
+				entries.add(new File[] { file, null });
+			}
+			return entries;
+		}
+
+		File folder = source.getAbsoluteFile().getParentFile();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(source));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				int index = line.indexOf(',');
+				File stimulus = resolve(folder, index == -1 ? line : line
+						.substring(0, index).trim());
+				File reference = null;
+				if (index != -1 && !line.substring(index + 1).trim().isEmpty()) {
+					reference = resolve(folder, line.substring(index + 1)
+							.trim());
+				}
+				entries.add(new File[] { stimulus, reference });
+			}
+		} catch (IOException e) {
+			throw new OrccRuntimeException("Cannot read the list of stimuli \""
+					+ source + "\"", e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// the list has been read
+				}
+			}
+		}
+		return entries;
+	}
+
+	private File resolve(File folder, String path) {
+		File file = new File(path);
+		return file.isAbsolute() ? file : new File(folder, path);
+	}
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.ir.Type;
+
+/**
+ * This class defines the binary trace of the tokens written in a FIFO. A
+ * trace file starts with a header:
+ * <ul>
+ * <li>the magic number "ORCCTRC1" (8 bytes)</li>
+ * <li>the kind of the tokens: {@link #BOOL}, {@link #INT}, {@link #UINT} or
+ * {@link #FLOAT} (1 byte)</li>
+ * <li>the width of a token in bytes: 1, 2, 4 or 8 (1 byte)</li>
+ * <li>the size of the type of the tokens in bits (2 bytes)</li>
+ * <li>the length of the name of the FIFO (4 bytes), followed by the name
+ * encoded in UTF-8</li>
+ * </ul>
+ * followed by the tokens. Numbers are little-endian, booleans are 0 or 1, and
+ * floats are stored as their IEEE 754 single precision bits.
+ * 
+ * Tokens are appended by the producer of the FIFO to a direct buffer. Full
+ * buffers are written to the file by the thread of a {@link TraceWriter},
+ * while the producer fills the other buffer of the trace.
+ * 
+ */
+final class BinaryTrace {
+
+	static final byte BOOL = 0;
+
+	/** number of buffers of a trace */
+	private static final int BUFFERS = 2;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** file extension of binary traces */
+	static final String EXTENSION = "_traces.bin";
+
+	static final byte FLOAT = 3;
+
+	static final byte INT = 1;
+
+	static final byte[] MAGIC = { 'O', 'R', 'C', 'C', 'T', 'R', 'C', '1' };
+
+	static final byte UINT = 2;
+
+	/**
+	 * Returns the width in bytes of the elements of the given array, or 0 if
+	 * they cannot be stored with a fixed width.
+	 */
+	static int getWidth(Object array) {
+		if (array instanceof byte[] || array instanceof boolean[]) {
+			return 1;
+		} else if (array instanceof short[]) {
+			return 2;
+		} else if (array instanceof int[] || array instanceof float[]) {
+			return 4;
+		} else if (array instanceof long[]) {
+			return 8;
+		}
+		return 0;
+	}
+
+	private final FileChannel channel;
+
+	/** buffer being filled by the producer */
+	private ByteBuffer current;
+
+	/** I/O error of the writer thread, reported to the producer */
+	private volatile IOException error;
+
+	/** buffers written by the writer thread, ready to be filled again */
+	private final BlockingQueue<ByteBuffer> free;
+
+	private final File file;
+
+	private final TraceWriter writer;
+
+	/**
+	 * Creates the binary trace of a FIFO and writes its header.
+	 * 
+	 * @param writer
+	 *            the writer of the simulation
+	 * @param file
+	 *            the trace file
+	 * @param name
+	 *            name of the FIFO
+	 * @param type
+	 *            type of the tokens
+	 * @param width
+	 *            width of a token in bytes
+	 */
+	BinaryTrace(TraceWriter writer, File file, String name, Type type,
+			int width) {
+		this.file = file;
+		this.writer = writer;
+
+		free = new ArrayBlockingQueue<ByteBuffer>(BUFFERS);
+		for (int i = 1; i < BUFFERS; i++) {
+			free.add(ByteBuffer.allocateDirect(BUFFER_SIZE).order(
+					ByteOrder.LITTLE_ENDIAN));
+		}
+		current = ByteBuffer.allocateDirect(BUFFER_SIZE).order(
+				ByteOrder.LITTLE_ENDIAN);
+
+		byte kind;
+		if (type.isBool()) {
+			kind = BOOL;
+		} else if (type.isFloat()) {
+			kind = FLOAT;
+		} else if (type.isUint()) {
+			kind = UINT;
+		} else {
+			kind = INT;
+		}
+
+		try {
+			channel = new FileOutputStream(file).getChannel();
+
+			byte[] bytes = name.getBytes("UTF-8");
+			ByteBuffer header = ByteBuffer.allocate(16 + bytes.length).order(
+					ByteOrder.LITTLE_ENDIAN);
+			header.put(MAGIC).put(kind).put((byte) width)
+					.putShort((short) type.getSizeInBits())
+					.putInt(bytes.length).put(bytes);
+			header.flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+		} catch (IOException e) {
+			throw new OrccRuntimeException("Cannot create the trace \"" + file
+					+ "\"", e);
+		}
+	}
+
+	/**
+	 * Appends the given elements of the given array to the trace.
+	 * 
+	 * @param array
+	 *            an array of the same class as the backing array of the FIFO
+	 * @param offset
+	 *            index of the first element
+	 * @param numTokens
+	 *            number of elements
+	 */
+	void append(Object array, int offset, int numTokens) {
+		int end = offset + numTokens;
+		if (array instanceof byte[]) {
+			byte[] values = (byte[]) array;
+			for (int i = offset; i < end; i++) {
+				room(1).put(values[i]);
+			}
+		} else if (array instanceof short[]) {
+			short[] values = (short[]) array;
+			for (int i = offset; i < end; i++) {
+				room(2).putShort(values[i]);
+			}
+		} else if (array instanceof int[]) {
+			int[] values = (int[]) array;
+			for (int i = offset; i < end; i++) {
+				room(4).putInt(values[i]);
+			}
+		} else if (array instanceof long[]) {
+			long[] values = (long[]) array;
+			for (int i = offset; i < end; i++) {
+				room(8).putLong(values[i]);
+			}
+		} else if (array instanceof float[]) {
+			float[] values = (float[]) array;
+			for (int i = offset; i < end; i++) {
+				room(4).putFloat(values[i]);
+			}
+		} else if (array instanceof boolean[]) {
+			boolean[] values = (boolean[]) array;
+			for (int i = offset; i < end; i++) {
+				room(1).put(values[i] ? (byte) 1 : (byte) 0);
+			}
+		}
+	}
+
+	/**
+	 * Writes the tokens still in the buffer, waits for the writer thread, and
+	 * closes the trace file.
+	 */
+	void close() {
+		try {
+			if (current.position() > 0) {
+				writer.submit(this, current);
+			} else {
+				free.add(current);
+			}
+
+			// every buffer is free once the writer thread is done
+			for (int i = 0; i < BUFFERS; i++) {
+				free.take();
+			}
+			current = null;
+			channel.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			error = e;
+		}
+
+		if (error != null) {
+			throw new OrccRuntimeException("Cannot write the trace \"" + file
+					+ "\"", error);
+		}
+	}
+
+	/**
+	 * Returns the current buffer once it has room for the given number of
+	 * bytes, handing it to the writer thread if it is full.
+	 */
+	private ByteBuffer room(int bytes) {
+		if (current.remaining() < bytes) {
+			if (error != null) {
+				throw new OrccRuntimeException("Cannot write the trace \""
+						+ file + "\"", error);
+			}
+
+			writer.submit(this, current);
+			try {
+				current = free.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OrccRuntimeException("Interrupted while tracing", e);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Writes the given buffer to the trace file, and gives it back to the
+	 * producer. This method is called by the writer thread.
+	 * 
+	 * @param buffer
+	 *            a buffer filled by the producer
+	 */
+	void write(ByteBuffer buffer) {
+		try {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			buffer.clear();
+			free.add(buffer);
+		}
+	}
+
+}
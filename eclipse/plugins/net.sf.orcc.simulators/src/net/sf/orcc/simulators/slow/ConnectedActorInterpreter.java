@@ -28,25 +28,36 @@
  */
 package net.sf.orcc.simulators.slow;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import net.sf.orcc.OrccRuntimeException;
 import net.sf.orcc.df.Action;
 import net.sf.orcc.df.Actor;
 import net.sf.orcc.df.Pattern;
-import net.sf.orcc.df.Port;
+import net.sf.orcc.df.State;
+import net.sf.orcc.df.Transition;
+import net.sf.orcc.graph.Edge;
 import net.sf.orcc.ir.Arg;
 import net.sf.orcc.ir.ArgByVal;
 import net.sf.orcc.ir.Expression;
+import net.sf.orcc.ir.InstCall;
 import net.sf.orcc.ir.Procedure;
-import net.sf.orcc.ir.Type;
-import net.sf.orcc.ir.TypeList;
 import net.sf.orcc.ir.Var;
 import net.sf.orcc.ir.util.ActorInterpreter;
+import net.sf.orcc.ir.util.LongValueUtil;
 import net.sf.orcc.ir.util.ValueUtil;
+import net.sf.orcc.simulators.SimulationContext;
+import net.sf.orcc.simulators.runtime.NativeBinding;
+import net.sf.orcc.simulators.runtime.NativeRegistry;
+import net.sf.orcc.simulators.slow.FiringPlan.PortBinding;
 import net.sf.orcc.simulators.util.RuntimeExpressionEvaluator;
-import net.sf.orcc.util.Attribute;
-import net.sf.orcc.util.util.EcoreHelper;
 
 import org.eclipse.emf.ecore.EObject;
 
@@ -60,6 +71,54 @@ import org.eclipse.emf.ecore.EObject;
  */
 public class ConnectedActorInterpreter extends ActorInterpreter {
 
+	/** firing plan of each action, used outside of the scheduling loop */
+	private Map<Action, FiringPlan> actionPlans;
+
+	/** context of the simulation, bound during native calls */
+	private SimulationContext context;
+
+	/** number of actions fired by the scheduler */
+	private long firings;
+
+	/** number of guard evaluations skipped because of memoization */
+	private long guardHits;
+
+	/** number of memoizable guards that had to be evaluated */
+	private long guardMisses;
+
+	/** true if an action fired since the end of the last scheduling round */
+	private boolean hasFired;
+
+	/** number of scheduling rounds in which no action fired */
+	private long idleRounds;
+
+	/** last action fired by the scheduler, read by monitoring */
+	private Action lastAction;
+
+	/** true if the results of failing guards are memoized */
+	private boolean memoizeGuards;
+
+	/** bindings of the native procedures called by the actor */
+	private Map<Procedure, NativeBinding> natives;
+
+	/** firing plans of the actions outside of the FSM, by priority */
+	private FiringPlan[] plans;
+
+	/** true if firings, guards and time are recorded in the firing plans */
+	private boolean profiling;
+
+	/** number of scheduling rounds, that end when no action can fire */
+	private long rounds;
+
+	/** firing plans of the transitions leaving each state of the FSM */
+	private Map<State, FiringPlan[]> statePlans;
+
+	/** versions of the state variables read by guards */
+	private long[] stateVersions;
+
+	/** firing plans of the transitions leaving the current state */
+	private FiringPlan[] transitions;
+
 	/**
 	 * Creates an actor interpreter dedicated to the simulator.
 	 * 
@@ -69,155 +128,530 @@ public class ConnectedActorInterpreter extends ActorInterpreter {
 	public ConnectedActorInterpreter(Actor actor) {
 		super(actor);
 		exprInterpreter = new RuntimeExpressionEvaluator();
+		enableFrames();
+	}
+
+	/**
+	 * Computes the state variables read by the scheduler of each action, and
+	 * written by its body, so that the result of a failing guard can be
+	 * reused until one of them, or a peeked FIFO, changes. The guards that
+	 * call native procedures or write state variables are not memoized.
+	 */
+	private void analyzeGuards() {
+		Map<Var, Integer> indexes = new HashMap<Var, Integer>();
+		Map<Action, int[]> reads = new HashMap<Action, int[]>();
+		for (Action action : actor.getActions()) {
+			GuardDependencies guard = new GuardDependencies(
+					action.getScheduler());
+			if (guard.complete && guard.writes.isEmpty()) {
+				for (Var var : guard.reads) {
+					if (!indexes.containsKey(var)) {
+						indexes.put(var, indexes.size());
+					}
+				}
+				reads.put(action, getIndexes(guard.reads, indexes));
+			}
+		}
+
+		Map<Action, int[]> writes = new HashMap<Action, int[]>();
+		for (Action action : actor.getActions()) {
+			GuardDependencies body = new GuardDependencies(action.getBody());
+			writes.put(action, getIndexes(body.writes, indexes));
+		}
+
+		List<FiringPlan> allPlans = new ArrayList<FiringPlan>(
+				Arrays.asList(plans));
+		if (statePlans != null) {
+			for (FiringPlan[] transitions : statePlans.values()) {
+				allPlans.addAll(Arrays.asList(transitions));
+			}
+		}
+		for (FiringPlan plan : allPlans) {
+			plan.guardVars = reads.get(plan.action);
+			plan.writtenVars = writes.get(plan.action);
+		}
+
+		stateVersions = new long[indexes.size()];
 	}
 
 	@Override
 	protected Object callNativeProcedure(Procedure procedure,
 			List<Arg> arguments) {
 		int numParams = arguments.size();
-		Class<?>[] parameterTypes = new Class<?>[numParams];
 		Object[] args = new Object[numParams];
 		int i = 0;
 		for (Arg arg : arguments) {
 			if (arg.isByVal()) {
 				Expression expr = ((ArgByVal) arg).getValue();
 				args[i] = exprInterpreter.doSwitch(expr);
-				parameterTypes[i] = args[i].getClass();
 			}
 
 			i++;
 		}
 
-		// get packageName and containerName for calling the correct native
-		// function
-		EObject entity = procedure.eContainer();
-		String name = EcoreHelper.getFeature(entity, "name");
-		int index = name.lastIndexOf('.');
-		if (index != -1) {
-			name = "net.sf.orcc.simulators.runtime." + name.substring(0, index)
-					+ ".impl" + name.substring(index);
+		return callNativeProcedure(procedure, args);
+	}
+
+	/**
+	 * Calls the given native procedure with the given argument values.
+	 * 
+	 * @param procedure
+	 *            a native procedure
+	 * @param args
+	 *            the values of the arguments
+	 * @return the result of calling the given procedure
+	 */
+	protected Object callNativeProcedure(Procedure procedure, Object[] args) {
+		if (natives == null) {
+			linkNatives();
+		}
+
+		NativeBinding binding = natives.get(procedure);
+		if (binding == null) {
+			binding = NativeRegistry.getInstance().link(procedure);
+			natives.put(procedure, binding);
+		}
+
+		SimulationContext previous = null;
+		if (context != null) {
+			previous = SimulationContext.bind(context);
 		}
 		try {
-			Class<?> clasz = Class.forName(name);
-			return clasz.getMethod(procedure.getName(), parameterTypes).invoke(
-					null, args);
-		} catch (Exception e) {
-			throw new OrccRuntimeException(
-					"Native procedure call Exception for "
-							+ procedure.getName(), e);
+			Object result = binding.invoke(args);
+			return longValues ? LongValueUtil.valueOf(result) : result;
+		} finally {
+			if (context != null) {
+				SimulationContext.bind(previous);
+			}
 		}
 	}
 
 	@Override
 	protected boolean checkOutputPattern(Pattern outputPattern) {
-		boolean hasRooms = true;
-		if (outputPattern != null) {
-			for (Port port : outputPattern.getPorts()) {
-				// check only connected output ports
-				Attribute attr = port.getAttribute("fifo");
-				if (attr != null) {
-					@SuppressWarnings("unchecked")
-					List<SimulatorFifo> fifos = (List<SimulatorFifo>) attr
-							.getObjectValue();
-					Integer nbOfTokens = outputPattern.getNumTokens(port);
-					for (SimulatorFifo fifo : fifos) {
-						hasRooms &= fifo.hasRoom(nbOfTokens);
-					}
+		if (outputPattern == null) {
+			return true;
+		}
+		return getPlan((Action) outputPattern.eContainer()).hasRoom();
+	}
+
+	/**
+	 * Computes the firing plan of each action of the actor, including its
+	 * initialize actions. This must be called once the FIFOs of the network
+	 * are connected to the ports of the actor, and before the ports are
+	 * connected to the FIFOs of another simulation of the same network.
+	 */
+	public void createFiringPlans() {
+		actionPlans = new HashMap<Action, FiringPlan>();
+		createPlans(actor.getInitializes());
+		plans = createPlans(actor.getActionsOutsideFsm());
+
+		if (actor.hasFsm()) {
+			Map<State, FiringPlan[]> statePlans = new HashMap<State, FiringPlan[]>();
+			for (State state : actor.getFsm().getStates()) {
+				List<Action> actions = new ArrayList<Action>();
+				for (Edge edge : state.getOutgoing()) {
+					actions.add(((Transition) edge).getAction());
 				}
+				statePlans.put(state, createPlans(actions));
+			}
 
+			for (State state : actor.getFsm().getStates()) {
+				FiringPlan[] transitions = statePlans.get(state);
+				List<Edge> edges = state.getOutgoing();
+				for (int i = 0; i < transitions.length; i++) {
+					State target = ((Transition) edges.get(i)).getTarget();
+					transitions[i].target = target;
+					transitions[i].targetTransitions = statePlans.get(target);
+				}
+			}
+			this.statePlans = statePlans;
+		}
+
+		if (memoizeGuards) {
+			analyzeGuards();
+		}
+	}
+
+	/**
+	 * Creates the firing plans of the given actions. Plans are not shared
+	 * between transitions, since they hold the target state.
+	 */
+	private FiringPlan[] createPlans(List<Action> actions) {
+		FiringPlan[] plans = new FiringPlan[actions.size()];
+		for (int i = 0; i < plans.length; i++) {
+			Action action = actions.get(i);
+			plans[i] = new FiringPlan(action);
+			if (!actionPlans.containsKey(action)) {
+				actionPlans.put(action, plans[i]);
 			}
 		}
-		return hasRooms;
+		return plans;
+	}
+
+	/**
+	 * Makes this interpreter remember the guards that failed, and skip their
+	 * evaluation until the peeked tokens or the state variables they read
+	 * change. This must be called before the firing plans are created.
+	 */
+	public void enableGuardMemoization() {
+		memoizeGuards = true;
+	}
+
+	/**
+	 * Makes this interpreter record, for each action, the number of firings,
+	 * of evaluations of its guard and of successful ones, and the time spent
+	 * in its scheduler and body. It also counts the scheduling rounds of the
+	 * actor, and those in which no action fired.
+	 */
+	public void enableProfiling() {
+		profiling = true;
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public void execute(Action action) {
-		// allocate patterns
-		Pattern inputPattern = action.getInputPattern();
-		Pattern outputPattern = action.getOutputPattern();
-		allocatePattern(inputPattern);
-		allocatePattern(outputPattern);
-
-		for (Port port : inputPattern.getPorts()) {
-			int numTokens = inputPattern.getNumTokens(port);
-			// a schedulable action can't have unconnected ports
-			// (@see #isSchedulable())
-			SimulatorFifo fifo = (SimulatorFifo) port.getAttribute("fifo")
-					.getObjectValue();
-			Var variable = inputPattern.getVariable(port);
-			Type type = ((TypeList) variable.getType()).getInnermostType();
-			Object array = variable.getValue();
-			for (int i = 0; i < numTokens; i++) {
-				Object value = fifo.read();
-				ValueUtil.set(type, array, value, i);
+		fire(getPlan(action));
+	}
+
+	/**
+	 * Fires the action of the given plan: reads tokens from the input FIFOs,
+	 * executes the body of the action, and writes tokens to the output FIFOs.
+	 * 
+	 * @param plan
+	 *            the firing plan of a schedulable action
+	 */
+	protected void fire(FiringPlan plan) {
+		long start = profiling ? System.nanoTime() : 0;
+
+		for (PortBinding output : plan.outputs) {
+			Object array = getBuffer(output);
+			if (array == output.buffer) {
+				// tokens of the previous firing must not be written again
+				ValueUtil.clearArray(array);
 			}
+			setValue(output.variable, array);
+		}
+
+		for (PortBinding input : plan.inputs) {
+			Object array = getBuffer(input);
+			setValue(input.variable, array);
+			input.fifos[0].read(input.eltType, array, input.numTokens);
 		}
 
 		// Interpret the whole action
-		doSwitch(action.getBody());
-
-		for (Port port : outputPattern.getPorts()) {
-			// write tokens only on connected output ports
-			Attribute attr = port.getAttribute("fifo");
-			if (attr != null) {
-				List<SimulatorFifo> fifos = (List<SimulatorFifo>) attr
-						.getObjectValue();
-				int numTokens = outputPattern.getNumTokens(port);
-				Var variable = outputPattern.getVariable(port);
-				Type type = ((TypeList) variable.getType()).getInnermostType();
-				Object array = variable.getValue();
-				for (int i = 0; i < numTokens; i++) {
-					Object value = ValueUtil.get(type, array, i);
-					for (SimulatorFifo fifo : fifos) {
-						fifo.write(value);
+		doSwitch(plan.action.getBody());
+
+		for (int var : plan.writtenVars) {
+			stateVersions[var]++;
+		}
+
+		for (PortBinding output : plan.outputs) {
+			Object array = getValue(output.variable);
+			for (SimulatorFifo fifo : output.fifos) {
+				fifo.write(output.eltType, array, output.numTokens);
+			}
+		}
+
+		if (profiling) {
+			plan.firings++;
+			plan.bodyTime += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Returns the array of the variable of the given binding. When buffers are
+	 * reused, the array is allocated once and its content is left as is, since
+	 * input and peek arrays are entirely overwritten by the FIFO.
+	 * 
+	 * @param binding
+	 *            the binding of a port of a pattern
+	 * @return an array
+	 */
+	private Object getBuffer(PortBinding binding) {
+		if (buffers == null) {
+			return createArray(binding.listType);
+		}
+
+		if (binding.buffer == null) {
+			binding.buffer = createArray(binding.listType);
+		}
+		return binding.buffer;
+	}
+
+	/**
+	 * Returns the number of actions fired by the scheduler of this
+	 * interpreter. It may be read by another thread while the actor runs.
+	 * 
+	 * @return a number of firings
+	 */
+	public long getFirings() {
+		return firings;
+	}
+
+	/**
+	 * Returns the firing plans of this interpreter, in which the profile of
+	 * the actions is recorded. An action fired by several transitions of the
+	 * FSM has several plans.
+	 * 
+	 * @return the firing plans created so far
+	 */
+	List<FiringPlan> getFiringPlans() {
+		Set<FiringPlan> firingPlans = new LinkedHashSet<FiringPlan>();
+		if (plans != null) {
+			firingPlans.addAll(Arrays.asList(plans));
+		}
+		if (statePlans != null) {
+			for (FiringPlan[] transitions : statePlans.values()) {
+				firingPlans.addAll(Arrays.asList(transitions));
+			}
+		}
+		if (actionPlans != null) {
+			firingPlans.addAll(actionPlans.values());
+		}
+		return new ArrayList<FiringPlan>(firingPlans);
+	}
+
+	/**
+	 * Returns the number of guard evaluations that were skipped because the
+	 * guard was known to fail.
+	 * 
+	 * @return a number of guard evaluations
+	 */
+	public long getGuardHits() {
+		return guardHits;
+	}
+
+	/**
+	 * Returns the number of evaluations of memoizable guards.
+	 * 
+	 * @return a number of guard evaluations
+	 */
+	public long getGuardMisses() {
+		return guardMisses;
+	}
+
+	/**
+	 * Returns the number of scheduling rounds in which no action could fire.
+	 * It is kept only if profiling is enabled.
+	 * 
+	 * @return a number of scheduling rounds
+	 */
+	public long getIdleRounds() {
+		return idleRounds;
+	}
+
+	/**
+	 * Returns the indexes of the given variables that have one.
+	 */
+	private int[] getIndexes(Set<Var> vars, Map<Var, Integer> indexes) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (Var var : vars) {
+			Integer index = indexes.get(var);
+			if (index != null) {
+				list.add(index);
+			}
+		}
+
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the last action fired by the scheduler of this interpreter.
+	 * 
+	 * @return an action, or <code>null</code> if no action fired yet
+	 */
+	public Action getLastAction() {
+		return lastAction;
+	}
+
+	@Override
+	public Action getNextAction() {
+		FiringPlan plan = getNextPlan();
+		return plan == null ? null : plan.action;
+	}
+
+	/**
+	 * Returns the firing plan of the next action to fire, and updates the
+	 * state of the FSM accordingly.
+	 * 
+	 * @return a firing plan, or <code>null</code> if no action can be fired
+	 */
+	protected FiringPlan getNextPlan() {
+		if (plans == null) {
+			createFiringPlans();
+		}
+
+		// Check next schedulable action in respect of the priority order
+		for (FiringPlan plan : plans) {
+			if (isSchedulable(plan) && plan.hasRoom()) {
+				return plan;
+			}
+		}
+
+		if (transitions != null) {
+			// Then check for next FSM transition
+			for (FiringPlan plan : transitions) {
+				if (isSchedulable(plan)) {
+					if (plan.hasRoom()) {
+						fsmState = plan.target;
+						transitions = plan.targetTransitions;
+						return plan;
 					}
+					return null;
 				}
 			}
 		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the firing plan of the given action.
+	 */
+	private FiringPlan getPlan(Action action) {
+		if (plans == null) {
+			createFiringPlans();
+		}
+
+		return actionPlans.get(action);
+	}
+
+	/**
+	 * Returns the number of scheduling rounds of this actor, each one ending
+	 * when no action can fire. It is kept only if profiling is enabled.
+	 * 
+	 * @return a number of scheduling rounds
+	 */
+	public long getRounds() {
+		return rounds;
+	}
+
+	@Override
+	public void initialize() {
+		if (natives == null) {
+			linkNatives();
+		}
+		super.initialize();
+		if (plans == null) {
+			createFiringPlans();
+		}
+		transitions = statePlans == null ? null : statePlans.get(fsmState);
 	}
 
 	@Override
 	protected boolean isSchedulable(Action action) {
-		Pattern pattern = action.getInputPattern();
-		// check tokens
-		for (Port port : pattern.getPorts()) {
-			Attribute att = port.getAttribute("fifo");
-			if (att == null) {
-				// this port is not connected, consequently this action cannot
-				// be scheduled
-				return false;
-			}
-			SimulatorFifo fifo = (SimulatorFifo) att.getObjectValue();
-			boolean hasTok = fifo.hasTokens(pattern.getNumTokens(port));
-			if (!hasTok) {
+		return isSchedulable(getPlan(action));
+	}
+
+	/**
+	 * Returns <code>true</code> if the input FIFOs of the given plan have
+	 * enough tokens and the scheduler of its action returns
+	 * <code>true</code>.
+	 * 
+	 * @param plan
+	 *            a firing plan
+	 * @return <code>true</code> if the action is schedulable
+	 */
+	protected boolean isSchedulable(FiringPlan plan) {
+		if (!plan.hasTokens()) {
+			return false;
+		}
+
+		if (plan.guardFailed) {
+			if (plan.isGuardUnchanged(stateVersions)) {
+				guardHits++;
 				return false;
 			}
+			plan.guardFailed = false;
 		}
 
+		long start = profiling ? System.nanoTime() : 0;
+
 		// allocates peeked variables
-		pattern = action.getPeekPattern();
-		for (Port port : pattern.getPorts()) {
-			int numTokens = pattern.getNumTokens(port);
-			SimulatorFifo fifo = (SimulatorFifo) port.getAttribute(0)
-					.getObjectValue();
+		for (PortBinding peek : plan.peeks) {
+			Object array = getBuffer(peek);
+			setValue(peek.variable, array);
+			peek.fifos[0].peek(peek.eltType, array, peek.numTokens);
+		}
+
+		Object result = doSwitch(plan.action.getScheduler());
+		boolean schedulable = ValueUtil.isTrue(result);
+		if (plan.guardVars != null) {
+			guardMisses++;
+			if (!schedulable) {
+				plan.setGuardFailed(stateVersions);
+			}
+		}
+
+		if (profiling) {
+			plan.guardEvaluations++;
+			if (schedulable) {
+				plan.guardSuccesses++;
+			}
+			plan.schedulerTime += System.nanoTime() - start;
+		}
+		return schedulable;
+	}
 
-			Var peeked = pattern.getVariable(port);
-			if (peeked != null) {
-				peeked.setValue(ValueUtil.createArray((TypeList) peeked
-						.getType()));
+	/**
+	 * Links the native procedures called by the actor once, so that calling
+	 * them does not need to look up their implementation.
+	 */
+	private void linkNatives() {
+		natives = new HashMap<Procedure, NativeBinding>();
+		NativeRegistry registry = NativeRegistry.getInstance();
+		Iterator<EObject> it = actor.eAllContents();
+		while (it.hasNext()) {
+			EObject eObject = it.next();
+			if (eObject instanceof InstCall) {
+				Procedure procedure = ((InstCall) eObject).getProcedure();
+				if (procedure != null && procedure.isNative()
+						&& !natives.containsKey(procedure)) {
+					natives.put(procedure, registry.link(procedure));
+				}
 			}
+		}
+	}
 
-			Type type = ((TypeList) peeked.getType()).getInnermostType();
-			Object array = peeked.getValue();
-			for (int i = 0; i < numTokens; i++) {
-				Object value = fifo.peek(i);
-				ValueUtil.set(type, array, value, i);
+	@Override
+	public boolean schedule() {
+		try {
+			FiringPlan plan = getNextPlan();
+			if (plan == null) {
+				if (profiling) {
+					rounds++;
+					if (!hasFired) {
+						idleRounds++;
+					}
+					hasFired = false;
+				}
+				return false;
 			}
+
+			fire(plan);
+			firings++;
+			hasFired = true;
+			lastAction = plan.action;
+			return true;
+		} catch (OrccRuntimeException ex) {
+			throw new OrccRuntimeException("Runtime exception thrown by actor "
+					+ actor.getName(), ex);
 		}
+	}
 
-		Object result = doSwitch(action.getScheduler());
-		return ValueUtil.isTrue(result);
+	/**
+	 * Sets the context of the simulation this interpreter belongs to. It is
+	 * bound to the calling thread while native procedures execute, so that
+	 * their state is not shared with other simulations.
+	 * 
+	 * @param context
+	 *            a simulation context
+	 */
+	public void setContext(SimulationContext context) {
+		this.context = context;
 	}
 
 	@Override
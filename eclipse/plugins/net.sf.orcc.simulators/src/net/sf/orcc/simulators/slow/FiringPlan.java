@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.orcc.df.Action;
+import net.sf.orcc.df.Pattern;
+import net.sf.orcc.df.Port;
+import net.sf.orcc.df.State;
+import net.sf.orcc.ir.Type;
+import net.sf.orcc.ir.TypeList;
+import net.sf.orcc.ir.Var;
+import net.sf.orcc.util.Attribute;
+
+/**
+ * This class defines the firing plan of an action: the FIFOs bound to the
+ * ports of its patterns, the number of tokens, variables and types of each
+ * port. It is computed once when the network is connected, so that an
+ * interpreter can check and fire an action without looking up attributes or
+ * pattern maps.
+ * 
+ */
+final class FiringPlan {
+
+	/**
+	 * This class defines the binding of a port of a pattern.
+	 */
+	static final class PortBinding {
+
+		/** array of the pattern variable, when buffers are reused */
+		Object buffer;
+
+		/** type of the elements of the pattern variable */
+		final Type eltType;
+
+		/** FIFOs connected to the port (one for an input port) */
+		final SimulatorFifo[] fifos;
+
+		/** type of the pattern variable */
+		final TypeList listType;
+
+		/** number of tokens consumed or produced */
+		final int numTokens;
+
+		/** pattern variable */
+		final Var variable;
+
+		PortBinding(Pattern pattern, Port port, SimulatorFifo[] fifos) {
+			this.fifos = fifos;
+			numTokens = pattern.getNumTokens(port);
+			variable = pattern.getVariable(port);
+			listType = (TypeList) variable.getType();
+			eltType = listType.getInnermostType();
+		}
+
+	}
+
+	private static final PortBinding[] NO_BINDINGS = new PortBinding[0];
+
+	private static final SimulatorFifo[] NO_FIFOS = new SimulatorFifo[0];
+
+	private static final int[] NO_VARS = new int[0];
+
+	/**
+	 * Returns the FIFOs connected to the given output port.
+	 */
+	@SuppressWarnings("unchecked")
+	private static SimulatorFifo[] getOutputFifos(Port port) {
+		Attribute attr = port.getAttribute("fifo");
+		if (attr == null) {
+			return NO_FIFOS;
+		}
+
+		List<SimulatorFifo> fifos = (List<SimulatorFifo>) attr.getObjectValue();
+		return fifos.toArray(new SimulatorFifo[fifos.size()]);
+	}
+
+	final Action action;
+
+	/** time spent firing the action, in nanoseconds, when profiled */
+	long bodyTime;
+
+	/**
+	 * <code>false</code> if one of the input ports of the action is not
+	 * connected, in which case the action can never be fired
+	 */
+	final boolean connected;
+
+	/** number of firings of the action, when profiled */
+	long firings;
+
+	/** number of evaluations of the scheduler, when profiled */
+	long guardEvaluations;
+
+	/** <code>true</code> if the scheduler returned false when last evaluated */
+	boolean guardFailed;
+
+	/**
+	 * indexes of the state variables read by the scheduler, or
+	 * <code>null</code> if its result cannot be memoized
+	 */
+	int[] guardVars;
+
+	/** number of evaluations of the scheduler that returned true */
+	long guardSuccesses;
+
+	/** versions of the state variables read when the guard failed */
+	long[] guardVersions;
+
+	final PortBinding[] inputs;
+
+	final PortBinding[] outputs;
+
+	/** read counts of the peeked FIFOs when the guard failed */
+	long[] peekReads;
+
+	final PortBinding[] peeks;
+
+	/** time spent evaluating the scheduler, in nanoseconds, when profiled */
+	long schedulerTime;
+
+	/** target state, if the action is fired by an FSM transition */
+	State target;
+
+	/** firing plans of the transitions leaving the target state */
+	FiringPlan[] targetTransitions;
+
+	/** indexes of the state variables read by a guard that the body writes */
+	int[] writtenVars = NO_VARS;
+
+	/**
+	 * Computes the firing plan of the given action from the "fifo" attributes
+	 * set on the ports of the actor.
+	 * 
+	 * @param action
+	 *            an action
+	 */
+	FiringPlan(Action action) {
+		this.action = action;
+
+		boolean connected = true;
+		List<PortBinding> bindings = new ArrayList<PortBinding>();
+		Pattern pattern = action.getInputPattern();
+		for (Port port : pattern.getPorts()) {
+			Attribute attr = port.getAttribute("fifo");
+			if (attr == null) {
+				connected = false;
+			} else {
+				SimulatorFifo fifo = (SimulatorFifo) attr.getObjectValue();
+				bindings.add(new PortBinding(pattern, port,
+						new SimulatorFifo[] { fifo }));
+			}
+		}
+		inputs = toArray(bindings);
+
+		bindings.clear();
+		pattern = action.getPeekPattern();
+		for (Port port : pattern.getPorts()) {
+			Attribute attr = port.getAttribute("fifo");
+			if (attr == null) {
+				connected = false;
+			} else if (pattern.getVariable(port) != null) {
+				SimulatorFifo fifo = (SimulatorFifo) attr.getObjectValue();
+				bindings.add(new PortBinding(pattern, port,
+						new SimulatorFifo[] { fifo }));
+			}
+		}
+		peeks = toArray(bindings);
+
+		bindings.clear();
+		pattern = action.getOutputPattern();
+		for (Port port : pattern.getPorts()) {
+			bindings.add(new PortBinding(pattern, port, getOutputFifos(port)));
+		}
+		outputs = toArray(bindings);
+
+		this.connected = connected;
+	}
+
+	/**
+	 * Returns <code>true</code> if every FIFO connected to the output ports
+	 * has enough room for the tokens produced by the action.
+	 * 
+	 * @return <code>true</code> if the output pattern is satisfiable
+	 */
+	boolean hasRoom() {
+		for (PortBinding output : outputs) {
+			for (SimulatorFifo fifo : output.fifos) {
+				if (!fifo.hasRoom(output.numTokens)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if every FIFO connected to the input ports has
+	 * enough tokens for the action.
+	 * 
+	 * @return <code>true</code> if the input pattern is satisfiable
+	 */
+	boolean hasTokens() {
+		if (!connected) {
+			return false;
+		}
+
+		for (PortBinding input : inputs) {
+			if (!input.fifos[0].hasTokens(input.numTokens)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if the guard failed when last evaluated, and
+	 * neither the peeked tokens nor the state variables it reads have changed
+	 * since.
+	 * 
+	 * @param versions
+	 *            versions of the state variables of the interpreter
+	 * @return <code>true</code> if the guard is known to be false
+	 */
+	boolean isGuardUnchanged(long[] versions) {
+		for (int i = 0; i < peeks.length; i++) {
+			if (peeks[i].fifos[0].getReadCount() != peekReads[i]) {
+				return false;
+			}
+		}
+
+		for (int i = 0; i < guardVars.length; i++) {
+			if (versions[guardVars[i]] != guardVersions[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records that the guard has just failed, along with the versions of its
+	 * dependencies.
+	 * 
+	 * @param versions
+	 *            versions of the state variables of the interpreter
+	 */
+	void setGuardFailed(long[] versions) {
+		if (guardVersions == null) {
+			guardVersions = new long[guardVars.length];
+			peekReads = new long[peeks.length];
+		}
+
+		for (int i = 0; i < guardVars.length; i++) {
+			guardVersions[i] = versions[guardVars[i]];
+		}
+		for (int i = 0; i < peeks.length; i++) {
+			peekReads[i] = peeks[i].fifos[0].getReadCount();
+		}
+		guardFailed = true;
+	}
+
+	private PortBinding[] toArray(List<PortBinding> bindings) {
+		if (bindings.isEmpty()) {
+			return NO_BINDINGS;
+		}
+		return bindings.toArray(new PortBinding[bindings.size()]);
+	}
+
+}
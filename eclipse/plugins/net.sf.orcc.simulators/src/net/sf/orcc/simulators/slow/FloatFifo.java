@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.math.BigDecimal;
+
+import net.sf.orcc.ir.Type;
+
+/**
+ * This class defines a FIFO of floats, stored in a ring buffer of floats.
+ */
+public class FloatFifo extends SimulatorFifo {
+
+	private final float[] tokens;
+
+	/**
+	 * Creates a new FIFO with the given size and a file for tracing exchanged
+	 * data.
+	 * 
+	 * @param type
+	 *            type of data in the FIFO
+	 * @param size
+	 *            the size of the FIFO
+	 * @param folderName
+	 *            output traces folder
+	 * @param fifoName
+	 *            name of the FIFO (and the trace file)
+	 */
+	public FloatFifo(Type type, int size, String folderName, String fifoName,
+			boolean enableTraces, boolean profile) {
+		this(type, size, new float[size], folderName, fifoName, enableTraces,
+				profile);
+	}
+
+	private FloatFifo(Type type, int size, float[] tokens, String folderName,
+			String fifoName, boolean enableTraces, boolean profile) {
+		super(type, size, tokens, folderName, fifoName, enableTraces, profile);
+		this.tokens = tokens;
+	}
+
+	@Override
+	protected Object get(int index) {
+		return BigDecimal.valueOf(tokens[index]);
+	}
+
+	@Override
+	protected void put(int index, Object value) {
+		tokens[index] = ((BigDecimal) value).floatValue();
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import net.sf.orcc.ir.Arg;
+import net.sf.orcc.ir.Def;
+import net.sf.orcc.ir.InstCall;
+import net.sf.orcc.ir.Procedure;
+import net.sf.orcc.ir.Use;
+import net.sf.orcc.ir.Var;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * This class computes the global variables that a procedure, and the
+ * procedures it calls, may read or write. A global variable passed as an
+ * argument of a call is considered written, since lists are passed by
+ * reference.
+ * 
+ */
+final class GuardDependencies {
+
+	/**
+	 * <code>false</code> if a native procedure may be called, in which case the
+	 * result of the procedure may depend on something else than its reads
+	 */
+	boolean complete = true;
+
+	/** global variables read */
+	final Set<Var> reads = new HashSet<Var>();
+
+	private final Set<Procedure> visited = new HashSet<Procedure>();
+
+	/** global variables written */
+	final Set<Var> writes = new HashSet<Var>();
+
+	/**
+	 * Computes the dependencies of the given procedure.
+	 * 
+	 * @param procedure
+	 *            a procedure
+	 */
+	GuardDependencies(Procedure procedure) {
+		visit(procedure);
+	}
+
+	private void addGlobals(EObject object, Set<Var> vars) {
+		TreeIterator<EObject> it = object.eAllContents();
+		while (it.hasNext()) {
+			EObject child = it.next();
+			if (child instanceof Use) {
+				Var var = ((Use) child).getVariable();
+				if (var.isGlobal()) {
+					vars.add(var);
+				}
+			}
+		}
+	}
+
+	private void visit(Procedure procedure) {
+		if (!visited.add(procedure)) {
+			return;
+		}
+
+		if (procedure.isNative()) {
+			complete = false;
+			return;
+		}
+
+		TreeIterator<EObject> it = procedure.eAllContents();
+		while (it.hasNext()) {
+			EObject object = it.next();
+			if (object instanceof Use) {
+				Var var = ((Use) object).getVariable();
+				if (var.isGlobal()) {
+					reads.add(var);
+				}
+			} else if (object instanceof Def) {
+				Var var = ((Def) object).getVariable();
+				if (var.isGlobal()) {
+					writes.add(var);
+				}
+			} else if (object instanceof InstCall) {
+				InstCall call = (InstCall) object;
+				if (!call.isPrint()) {
+					visit(call.getProcedure());
+				}
+				for (Arg arg : call.getArguments()) {
+					addGlobals(arg, writes);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.df.Action;
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.Connection;
+import net.sf.orcc.df.Network;
+import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.ir.util.ActorInterpreter;
+
+/**
+ * This class prints the profile recorded by the interpreters and the FIFOs
+ * during a simulation: for each action, the number of firings, of guard
+ * evaluations and successes, and the time spent in its scheduler and body;
+ * for each actor, the number of scheduling rounds and of idle ones; for each
+ * FIFO, the traffic and a histogram of its occupancy after each write. The
+ * profile is printed as CSV files and as a JSON document.
+ * 
+ */
+final class ProfileReport {
+
+	private static final int BODY_TIME = 4;
+
+	private static final int FIRINGS = 0;
+
+	private static final int GUARD_EVALUATIONS = 1;
+
+	private static final int GUARD_SUCCESSES = 2;
+
+	private static final int SCHEDULER_TIME = 3;
+
+	/**
+	 * Returns the given string as a JSON string.
+	 */
+	private static String quote(String str) {
+		StringBuilder builder = new StringBuilder("\"");
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if (c < ' ') {
+				builder.append(String.format("\\u%04x", (int) c));
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.append('"').toString();
+	}
+
+	private final Map<Connection, SimulatorFifo> fifos;
+
+	private final Map<Actor, ActorInterpreter> interpreters;
+
+	private final Network network;
+
+	/** length of the longest occupancy histogram */
+	private int occupancyLength;
+
+	/**
+	 * Creates a report of the profile of the given simulation.
+	 * 
+	 * @param network
+	 *            the simulated network
+	 * @param interpreters
+	 *            the interpreters of the actors of the network
+	 * @param fifos
+	 *            the FIFOs of the connections of the network
+	 */
+	ProfileReport(Network network, Map<Actor, ActorInterpreter> interpreters,
+			Map<Connection, SimulatorFifo> fifos) {
+		this.network = network;
+		this.interpreters = interpreters;
+		this.fifos = fifos;
+
+		for (SimulatorFifo fifo : fifos.values()) {
+			long[] occupancy = fifo.getOccupancy();
+			if (occupancy != null) {
+				occupancyLength = Math.max(occupancyLength, occupancy.length);
+			}
+		}
+	}
+
+	/**
+	 * Returns the profile of the actions of the given vertex, summed over
+	 * their firing plans, by action in the order of the actor.
+	 */
+	private Map<Action, long[]> getActionProfiles(Vertex vertex) {
+		Actor actor = vertex.getAdapter(Actor.class);
+		Map<Action, long[]> profiles = new HashMap<Action, long[]>();
+		for (Action action : getActions(actor)) {
+			profiles.put(action, new long[5]);
+		}
+
+		ActorInterpreter interpreter = interpreters.get(actor);
+		if (interpreter instanceof ConnectedActorInterpreter) {
+			for (FiringPlan plan : ((ConnectedActorInterpreter) interpreter)
+					.getFiringPlans()) {
+				long[] profile = profiles.get(plan.action);
+				if (profile != null) {
+					profile[FIRINGS] += plan.firings;
+					profile[GUARD_EVALUATIONS] += plan.guardEvaluations;
+					profile[GUARD_SUCCESSES] += plan.guardSuccesses;
+					profile[SCHEDULER_TIME] += plan.schedulerTime;
+					profile[BODY_TIME] += plan.bodyTime;
+				}
+			}
+		}
+		return profiles;
+	}
+
+	/**
+	 * Returns the initialize actions and the actions of the given actor.
+	 */
+	private List<Action> getActions(Actor actor) {
+		List<Action> actions = new ArrayList<Action>(actor.getInitializes());
+		actions.addAll(actor.getActions());
+		return actions;
+	}
+
+	/**
+	 * Returns the profile of the actions, as CSV.
+	 * 
+	 * @return the content of a CSV file
+	 */
+	CharSequence getActionsContent() {
+		StringBuilder builder = new StringBuilder("Actor, Action, Firings, "
+				+ "Guard evaluations, Guard successes, Scheduler time (ns), "
+				+ "Body time (ns)\n");
+		for (Vertex vertex : network.getChildren()) {
+			Map<Action, long[]> profiles = getActionProfiles(vertex);
+			for (Action action : getActions(vertex.getAdapter(Actor.class))) {
+				long[] profile = profiles.get(action);
+				builder.append(vertex.getLabel()).append(", ")
+						.append(action.getName());
+				for (long value : profile) {
+					builder.append(", ").append(value);
+				}
+				builder.append('\n');
+			}
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the profile of the actors, as CSV.
+	 * 
+	 * @return the content of a CSV file
+	 */
+	CharSequence getActorsContent() {
+		StringBuilder builder = new StringBuilder("Actor, Rounds, "
+				+ "Idle rounds, Firings, Scheduler time (ns), Body time (ns)\n");
+		for (Vertex vertex : network.getChildren()) {
+			long[] total = new long[5];
+			for (long[] profile : getActionProfiles(vertex).values()) {
+				for (int i = 0; i < total.length; i++) {
+					total[i] += profile[i];
+				}
+			}
+
+			ConnectedActorInterpreter interpreter = getInterpreter(vertex);
+			builder.append(vertex.getLabel()).append(", ")
+					.append(interpreter.getRounds()).append(", ")
+					.append(interpreter.getIdleRounds()).append(", ")
+					.append(total[FIRINGS]).append(", ")
+					.append(total[SCHEDULER_TIME]).append(", ")
+					.append(total[BODY_TIME]).append('\n');
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the profile of the FIFOs, as CSV. The last columns are the
+	 * number of writes by range of occupancy after the write.
+	 * 
+	 * @return the content of a CSV file
+	 */
+	CharSequence getFifosContent() {
+		StringBuilder builder = new StringBuilder("Source, SrcPort, Target, "
+				+ "TgtPort, Size, Traffic, Max occupancy");
+		for (int i = 0; i < occupancyLength; i++) {
+			builder.append(", ").append(i == 0 ? 0 : 1 << i).append('-')
+					.append((1 << (i + 1)) - 1);
+		}
+		builder.append('\n');
+
+		for (Connection connection : network.getConnections()) {
+			SimulatorFifo fifo = fifos.get(connection);
+			if (fifo == null) {
+				continue;
+			}
+
+			builder.append(connection.getSource().getLabel()).append(", ")
+					.append(connection.getSourcePort().getName()).append(", ")
+					.append(connection.getTarget().getLabel()).append(", ")
+					.append(connection.getTargetPort().getName()).append(", ")
+					.append(fifo.getSize()).append(", ")
+					.append(fifo.getTraffic()).append(", ")
+					.append(fifo.getMaxOccupancy());
+			long[] occupancy = fifo.getOccupancy();
+			for (int i = 0; i < occupancyLength; i++) {
+				builder.append(", ").append(
+						occupancy != null && i < occupancy.length ? occupancy[i]
+								: 0);
+			}
+			builder.append('\n');
+		}
+		return builder;
+	}
+
+	private ConnectedActorInterpreter getInterpreter(Vertex vertex) {
+		return (ConnectedActorInterpreter) interpreters.get(vertex
+				.getAdapter(Actor.class));
+	}
+
+	/**
+	 * Returns the whole profile as a JSON document.
+	 * 
+	 * @return the content of a JSON file
+	 */
+	CharSequence getJsonContent() {
+		StringBuilder builder = new StringBuilder("{\n");
+		builder.append("  \"network\": ").append(quote(network.getName()))
+				.append(",\n");
+
+		builder.append("  \"actors\": [");
+		String separator = "\n";
+		for (Vertex vertex : network.getChildren()) {
+			ConnectedActorInterpreter interpreter = getInterpreter(vertex);
+			builder.append(separator).append("    {\"name\": ")
+					.append(quote(vertex.getLabel()))
+					.append(", \"rounds\": ").append(interpreter.getRounds())
+					.append(", \"idleRounds\": ")
+					.append(interpreter.getIdleRounds())
+					.append(", \"actions\": [");
+
+			Map<Action, long[]> profiles = getActionProfiles(vertex);
+			String actionSeparator = "\n";
+			for (Action action : getActions(vertex.getAdapter(Actor.class))) {
+				long[] profile = profiles.get(action);
+				builder.append(actionSeparator).append("      {\"name\": ")
+						.append(quote(action.getName()))
+						.append(", \"firings\": ").append(profile[FIRINGS])
+						.append(", \"guardEvaluations\": ")
+						.append(profile[GUARD_EVALUATIONS])
+						.append(", \"guardSuccesses\": ")
+						.append(profile[GUARD_SUCCESSES])
+						.append(", \"schedulerTime\": ")
+						.append(profile[SCHEDULER_TIME])
+						.append(", \"bodyTime\": ")
+						.append(profile[BODY_TIME]).append('}');
+				actionSeparator = ",\n";
+			}
+			builder.append("]}");
+			separator = ",\n";
+		}
+		builder.append("\n  ],\n");
+
+		builder.append("  \"fifos\": [");
+		separator = "\n";
+		for (Connection connection : network.getConnections()) {
+			SimulatorFifo fifo = fifos.get(connection);
+			if (fifo == null) {
+				continue;
+			}
+
+			builder.append(separator).append("    {\"source\": ")
+					.append(quote(connection.getSource().getLabel()))
+					.append(", \"sourcePort\": ")
+					.append(quote(connection.getSourcePort().getName()))
+					.append(", \"target\": ")
+					.append(quote(connection.getTarget().getLabel()))
+					.append(", \"targetPort\": ")
+					.append(quote(connection.getTargetPort().getName()))
+					.append(", \"size\": ").append(fifo.getSize())
+					.append(", \"traffic\": ").append(fifo.getTraffic())
+					.append(", \"maxOccupancy\": ")
+					.append(fifo.getMaxOccupancy())
+					.append(", \"occupancy\": [");
+			long[] occupancy = fifo.getOccupancy();
+			for (int i = 0; occupancy != null && i < occupancy.length; i++) {
+				builder.append(i == 0 ? "" : ", ").append(occupancy[i]);
+			}
+			builder.append("]}");
+			separator = ",\n";
+		}
+		builder.append("\n  ]\n}\n");
+		return builder;
+	}
+
+}
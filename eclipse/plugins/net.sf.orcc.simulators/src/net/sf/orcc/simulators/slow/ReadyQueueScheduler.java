@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.Connection;
+import net.sf.orcc.df.Network;
+import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.ir.util.ActorInterpreter;
+
+/**
+ * This class defines the ready queue of a data-driven simulation. An actor is
+ * queued again only when one of its neighbours has fired and left tokens in a
+ * FIFO it reads, or room in a FIFO it writes. Since an actor that has been
+ * scheduled until it could not fire anymore can only become fireable through
+ * such a change, the simulation ends exactly when the queue is empty.
+ * 
+ */
+final class ReadyQueueScheduler {
+
+	/** consumers of the FIFOs written by each actor */
+	private final int[][] consumers;
+
+	private int head;
+
+	private final SimulatorFifo[][] inputs;
+
+	private final ActorInterpreter[] interpreters;
+
+	private final SimulatorFifo[][] outputs;
+
+	/** producers of the FIFOs read by each actor */
+	private final int[][] producers;
+
+	/** circular queue of actor indexes, each actor being queued once at most */
+	private final int[] queue;
+
+	private final boolean[] queued;
+
+	private int size;
+
+	/**
+	 * Creates the ready queue of the given network, in which every actor is
+	 * initially queued in the order of the children of the network.
+	 * 
+	 * @param network
+	 *            a connected network
+	 * @param interpreters
+	 *            the interpreter of each actor of the network
+	 */
+	ReadyQueueScheduler(Network network,
+			Map<Actor, ActorInterpreter> interpreters) {
+		List<Vertex> children = network.getChildren();
+		int numActors = children.size();
+		this.interpreters = new ActorInterpreter[numActors];
+
+		Map<Actor, Integer> indexes = new HashMap<Actor, Integer>();
+		for (int i = 0; i < numActors; i++) {
+			Actor actor = children.get(i).getAdapter(Actor.class);
+			indexes.put(actor, i);
+			this.interpreters[i] = interpreters.get(actor);
+		}
+
+		List<List<SimulatorFifo>> inputFifos = createLists(numActors);
+		List<List<Integer>> producerLists = createLists(numActors);
+		List<List<SimulatorFifo>> outputFifos = createLists(numActors);
+		List<List<Integer>> consumerLists = createLists(numActors);
+		for (Connection connection : network.getConnections()) {
+			Integer source = indexes.get(connection.getSource().getAdapter(
+					Actor.class));
+			Integer target = indexes.get(connection.getTarget().getAdapter(
+					Actor.class));
+			SimulatorFifo fifo = connection.getValueAsObject("fifo");
+			if (source == null || target == null || fifo == null
+					|| source.equals(target)) {
+				continue;
+			}
+
+			outputFifos.get(source).add(fifo);
+			consumerLists.get(source).add(target);
+			inputFifos.get(target).add(fifo);
+			producerLists.get(target).add(source);
+		}
+
+		consumers = new int[numActors][];
+		inputs = new SimulatorFifo[numActors][];
+		outputs = new SimulatorFifo[numActors][];
+		producers = new int[numActors][];
+		for (int i = 0; i < numActors; i++) {
+			consumers[i] = toArray(consumerLists.get(i));
+			inputs[i] = inputFifos.get(i).toArray(new SimulatorFifo[0]);
+			outputs[i] = outputFifos.get(i).toArray(new SimulatorFifo[0]);
+			producers[i] = toArray(producerLists.get(i));
+		}
+
+		queue = new int[numActors];
+		queued = new boolean[numActors];
+		for (int i = 0; i < numActors; i++) {
+			add(i);
+		}
+	}
+
+	private static <T> List<List<T>> createLists(int size) {
+		List<List<T>> lists = new ArrayList<List<T>>(size);
+		for (int i = 0; i < size; i++) {
+			lists.add(new ArrayList<T>());
+		}
+		return lists;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Queues the given actor, unless it is already queued.
+	 */
+	private void add(int actor) {
+		if (!queued[actor]) {
+			queued[actor] = true;
+			queue[(head + size) % queue.length] = actor;
+			size++;
+		}
+	}
+
+	/**
+	 * Queues the neighbours of the given actor that may have become fireable
+	 * after it fired: the consumers of its output FIFOs that hold tokens, and
+	 * the producers of its input FIFOs that have room.
+	 * 
+	 * @param actor
+	 *            index of an actor that has fired
+	 */
+	void fired(int actor) {
+		SimulatorFifo[] fifos = outputs[actor];
+		for (int i = 0; i < fifos.length; i++) {
+			if (fifos[i].getCount() > 0) {
+				add(consumers[actor][i]);
+			}
+		}
+
+		fifos = inputs[actor];
+		for (int i = 0; i < fifos.length; i++) {
+			if (fifos[i].getCount() < fifos[i].getSize()) {
+				add(producers[actor][i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the interpreter of the given actor.
+	 * 
+	 * @param actor
+	 *            index of an actor
+	 * @return an interpreter
+	 */
+	ActorInterpreter getInterpreter(int actor) {
+		return interpreters[actor];
+	}
+
+	/**
+	 * Returns <code>true</code> if no actor is ready.
+	 * 
+	 * @return <code>true</code> if the queue is empty
+	 */
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the first actor of the queue and returns it.
+	 * 
+	 * @return index of an actor
+	 */
+	int poll() {
+		int actor = queue[head];
+		queued[actor] = false;
+		head = (head + 1) % queue.length;
+		size--;
+		return actor;
+	}
+
+}
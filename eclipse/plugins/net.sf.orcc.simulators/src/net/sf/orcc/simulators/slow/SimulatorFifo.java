@@ -35,46 +35,82 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
-import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import net.sf.orcc.ir.Type;
+import net.sf.orcc.ir.util.LongValueUtil;
 import net.sf.orcc.ir.util.ValueUtil;
 
 /**
- * This class defines a generic FIFO.
+ * This class defines a generic FIFO implemented as a ring buffer. Tokens are
+ * stored in a primitive array whose element type is chosen from the type of
+ * the data exchanged (see {@link #create}), the same way
+ * {@link ValueUtil#createArray(Type, int...)} does for pattern variables.
+ * Concrete implementations only have to box and unbox single tokens. Bulk accesses
+ * between the FIFO and a pattern array of the same kind are done with
+ * {@link System#arraycopy(Object, int, Object, int, int)}.
+ * 
+ * No lock is taken: the FIFO is safe as long as there is a single producer
+ * and a single consumer, which may run in different threads. Indexes in the
+ * ring buffer are owned by one side each, and the numbers of tokens read and
+ * written are published with ordered writes.
  * 
  * @author Matthieu Wipliez
  * @author Antoine Lorence
  * 
  */
-public class SimulatorFifo {
+public abstract class SimulatorFifo {
+
+	/**
+	 * Backing array of this FIFO (byte[], short[], int[], long[], boolean[],
+	 * float[] or Object[])
+	 */
+	private final Object buffer;
+
+	private static final AtomicLongFieldUpdater<SimulatorFifo> READ_COUNT = AtomicLongFieldUpdater
+			.newUpdater(SimulatorFifo.class, "readCount");
+
+	private static final AtomicLongFieldUpdater<SimulatorFifo> WRITE_COUNT = AtomicLongFieldUpdater
+			.newUpdater(SimulatorFifo.class, "writeCount");
+
+	/** index of the next token to read, only modified by the consumer */
+	private int head;
+
+	/** index of the next token to write, only modified by the producer */
+	private int tail;
+
+	/** number of tokens read so far, only modified by the consumer */
+	private volatile long readCount;
 
-	private BlockingQueue<Object> content;
-	private Type type;
+	/** number of tokens written so far, only modified by the producer */
+	private volatile long writeCount;
+
+	protected final Type type;
 
 	private String name;
-	private int size;
+	private final int size;
 
 	private FileOutputStream fos;
 	private PrintWriter writer;
 
 	private boolean enableTraces;
-	private boolean profile;
 
-	private long traffic;
+	/** largest number of tokens after a write, when profiled */
+	private int maxOccupancy;
 
 	/**
-	 * Creates a new FIFO with the given type and size.
-	 * 
-	 * @param size
-	 *            the size of the FIFO
+	 * number of writes by number of tokens after the write, when profiled:
+	 * element <code>i</code> counts the writes that left between
+	 * <code>2^i</code> and <code>2^(i+1) - 1</code> tokens
 	 */
-	public SimulatorFifo(int size) {
-		this(null, size, false);
-	}
+	private long[] occupancy;
+
+	private boolean profile;
+
+	/** binary trace of the tokens written, or null */
+	private BinaryTrace trace;
+
+	private long traffic;
 
 	/**
 	 * Creates a new FIFO with the given type and size.
@@ -83,12 +119,20 @@ public class SimulatorFifo {
 	 *            type of data in the FIFO
 	 * @param size
 	 *            the size of the FIFO
+	 * @param buffer
+	 *            the backing array, with at least <code>size</code> elements
+	 * @param profile
+	 *            <code>true</code> if the traffic must be recorded
 	 */
-	public SimulatorFifo(Type type, int size, boolean profile) {
+	protected SimulatorFifo(Type type, int size, Object buffer, boolean profile) {
 		this.size = size;
 		this.type = type;
+		this.buffer = buffer;
 		this.profile = profile;
-		content = new ArrayBlockingQueue<Object>(size);
+		if (profile) {
+			occupancy = new long[32 - Integer.numberOfLeadingZeros(Math.max(
+					1, size))];
+		}
 	}
 
 	/**
@@ -99,14 +143,17 @@ public class SimulatorFifo {
 	 *            type of data in the FIFO
 	 * @param size
 	 *            the size of the FIFO
+	 * @param buffer
+	 *            the backing array, with at least <code>size</code> elements
 	 * @param folderName
 	 *            output traces folder
 	 * @param fifoName
 	 *            name of the FIFO (and the trace file)
 	 */
-	public SimulatorFifo(Type type, int size, String folderName,
-			String fifoName, boolean enableTraces, boolean profile) {
-		this(type, size, profile);
+	protected SimulatorFifo(Type type, int size, Object buffer,
+			String folderName, String fifoName, boolean enableTraces,
+			boolean profile) {
+		this(type, size, buffer, profile);
 		this.name = fifoName;
 		this.enableTraces = enableTraces;
 
@@ -129,7 +176,64 @@ public class SimulatorFifo {
 		}
 	}
 
+	/**
+	 * Creates the FIFO implementation best suited to store tokens of the given
+	 * type: integers up to 64 bits, booleans and floats are stored unboxed,
+	 * other values (wider integers, strings, or unknown type) are stored as
+	 * objects.
+	 * 
+	 * @param type
+	 *            type of data in the FIFO (may be <code>null</code>)
+	 * @param size
+	 *            the size of the FIFO
+	 * @param folderName
+	 *            output traces folder
+	 * @param fifoName
+	 *            name of the FIFO (and the trace file)
+	 * @param enableTraces
+	 *            <code>true</code> if the exchanged data must be traced
+	 * @param profile
+	 *            <code>true</code> if the traffic must be recorded
+	 * @return a new FIFO
+	 */
+	public static SimulatorFifo create(Type type, int size, String folderName,
+			String fifoName, boolean enableTraces, boolean profile) {
+		if (type != null) {
+			if (type.isBool()) {
+				return new BooleanFifo(type, size, folderName, fifoName,
+						enableTraces, profile);
+			} else if (type.isFloat()) {
+				return new FloatFifo(type, size, folderName, fifoName,
+						enableTraces, profile);
+			} else if (type.isInt() || type.isUint()) {
+				int bits = type.getSizeInBits();
+				if (bits <= 8) {
+					return new ByteFifo(type, size, folderName, fifoName,
+							enableTraces, profile);
+				} else if (bits <= 16) {
+					return new ShortFifo(type, size, folderName, fifoName,
+							enableTraces, profile);
+				} else if (bits <= 32) {
+					return new IntFifo(type, size, folderName, fifoName,
+							enableTraces, profile);
+				} else if (bits <= 64) {
+					return new LongFifo(type, size, folderName, fifoName,
+							enableTraces, profile);
+				}
+			}
+		}
+		return new ObjectFifo(type, size, folderName, fifoName, enableTraces,
+				profile);
+	}
+
+	/**
+	 * Closes the text or binary trace of this FIFO.
+	 */
 	public void closePrinter() {
+		if (trace != null) {
+			trace.close();
+			trace = null;
+		}
 		if (writer != null) {
 			writer.close();
 		}
@@ -142,6 +246,54 @@ public class SimulatorFifo {
 		}
 	}
 
+	/**
+	 * Records the tokens written in this FIFO in a binary trace written by the
+	 * given writer. Does nothing if the tokens of this FIFO are not stored
+	 * with a fixed width, such as integers of more than 64 bits.
+	 * 
+	 * @param traceWriter
+	 *            the trace writer of the simulation
+	 * @return <code>true</code> if the tokens are traced
+	 */
+	public boolean enableBinaryTrace(TraceWriter traceWriter) {
+		int width = BinaryTrace.getWidth(buffer);
+		if (type == null || width == 0) {
+			return false;
+		}
+
+		trace = traceWriter.open(name, type, width);
+		return true;
+	}
+
+	/**
+	 * Returns the token stored at the given index of the backing array, boxed
+	 * as a runtime value (Boolean, BigDecimal, BigInteger...).
+	 * 
+	 * @param index
+	 *            an index in the backing array
+	 * @return a runtime value
+	 */
+	protected abstract Object get(int index);
+
+	/**
+	 * Returns the number of tokens currently stored in this FIFO.
+	 * 
+	 * @return the number of tokens in the FIFO
+	 */
+	public int getCount() {
+		return (int) (writeCount - readCount);
+	}
+
+	/**
+	 * Returns the largest number of tokens left in this FIFO by a write. It is
+	 * kept only if the FIFO was set to be profiled at the initialization.
+	 * 
+	 * @return the maximum occupancy of this FIFO
+	 */
+	public int getMaxOccupancy() {
+		return maxOccupancy;
+	}
+
 	/**
 	 * Returns the name of the FIFO (name of writing actor and its corresponding
 	 * output port.
@@ -152,6 +304,27 @@ public class SimulatorFifo {
 		return name;
 	}
 
+	/**
+	 * Returns the histogram of the number of tokens left in this FIFO by each
+	 * write: element <code>i</code> is the number of writes that left between
+	 * <code>2^i</code> and <code>2^(i+1) - 1</code> tokens. It is kept only if
+	 * the FIFO was set to be profiled at the initialization.
+	 * 
+	 * @return a histogram, or <code>null</code> if the FIFO is not profiled
+	 */
+	public long[] getOccupancy() {
+		return occupancy;
+	}
+
+	/**
+	 * Returns the number of tokens read from this FIFO since it was created.
+	 * 
+	 * @return the number of tokens read
+	 */
+	public long getReadCount() {
+		return readCount;
+	}
+
 	/**
 	 * Returns the size of the FIFO ( >= number of tokens in the FIFO).
 	 * 
@@ -171,6 +344,24 @@ public class SimulatorFifo {
 		return traffic;
 	}
 
+	/**
+	 * Returns the type of the tokens exchanged through this FIFO.
+	 * 
+	 * @return a type, or <code>null</code> if it is unknown
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the number of tokens written in this FIFO since it was created.
+	 *
+	 * @return the number of tokens written
+	 */
+	public long getWriteCount() {
+		return writeCount;
+	}
+
 	/**
 	 * Returns <code>true</code> if there is enough room for the given number of
 	 * tokens in this FIFO.
@@ -181,7 +372,7 @@ public class SimulatorFifo {
 	 *         tokens in this FIFO
 	 */
 	public boolean hasRoom(int numTokens) {
-		return content.remainingCapacity() >= numTokens;
+		return size - getCount() >= numTokens;
 	}
 
 	/**
@@ -194,58 +385,207 @@ public class SimulatorFifo {
 	 *         of tokens
 	 */
 	public boolean hasTokens(int numTokens) {
-		return content.size() >= numTokens;
+		return getCount() >= numTokens;
+	}
+
+	/**
+	 * Returns the index in the backing array located at the given offset from
+	 * the given index.
+	 */
+	private int index(int from, int offset) {
+		int index = from + offset;
+		return index >= size ? index - size : index;
 	}
 
 	/**
 	 * Peeks one token from the FIFO (but don't remove it).
 	 * 
-	 * @return the token read
+	 * @param offset
+	 *            offset of the token from the head of the FIFO
+	 * @return the token read, or <code>null</code> if there is no token at
+	 *         this offset
 	 */
 	public Object peek(int offset) {
-		Object result = null;
+		if (offset >= getCount()) {
+			return null;
+		}
+		return get(index(head, offset));
+	}
 
-		if (offset == 0) {
-			result = content.peek();
+	/**
+	 * Copies the first <code>numTokens</code> tokens of the FIFO in the given
+	 * array (but don't remove them).
+	 * 
+	 * @param eltType
+	 *            type of the elements of the array
+	 * @param array
+	 *            a one-dimensional array
+	 * @param numTokens
+	 *            number of tokens to copy
+	 */
+	public void peek(Type eltType, Object array, int numTokens) {
+		if (array.getClass() == buffer.getClass()) {
+			copyOut(array, numTokens);
 		} else {
-			Iterator<Object> it = content.iterator();
-			while (it.hasNext()) {
-				result = it.next();
-				if (offset-- == 0)
-					break;
+			for (int i = 0; i < numTokens; i++) {
+				ValueUtil.set(eltType, array, get(index(head, i)), i);
 			}
 		}
+	}
 
-		return result;
+	/**
+	 * Records a write of the given number of tokens in the traffic and in the
+	 * occupancy histogram. With parallel simulation the consumer may have
+	 * read every token already, which is counted as an occupancy of 1.
+	 */
+	private void profileWrite(int numTokens) {
+		traffic += numTokens;
+
+		int count = getCount();
+		occupancy[Math.max(0, 31 - Integer.numberOfLeadingZeros(count))]++;
+		if (count > maxOccupancy) {
+			maxOccupancy = count;
+		}
 	}
 
+	/**
+	 * Stores the given runtime value at the given index of the backing array.
+	 * 
+	 * @param index
+	 *            an index in the backing array
+	 * @param value
+	 *            a runtime value (Boolean, BigDecimal, BigInteger...)
+	 */
+	protected abstract void put(int index, Object value);
+
 	/**
 	 * Reads one token and remove it from the FIFO.
 	 * 
-	 * @return the token read
+	 * @return the token read, or <code>null</code> if the FIFO is empty
 	 */
 	public Object read() {
-		return content.poll();
+		if (getCount() == 0) {
+			return null;
+		}
+		Object value = get(head);
+		head = index(head, 1);
+		READ_COUNT.lazySet(this, readCount + 1);
+		return value;
+	}
+
+	/**
+	 * Reads <code>numTokens</code> tokens from the FIFO into the given array.
+	 * 
+	 * @param eltType
+	 *            type of the elements of the array
+	 * @param array
+	 *            a one-dimensional array
+	 * @param numTokens
+	 *            number of tokens to read
+	 */
+	public void read(Type eltType, Object array, int numTokens) {
+		peek(eltType, array, numTokens);
+		head = index(head, numTokens);
+		READ_COUNT.lazySet(this, readCount + numTokens);
 	}
 
 	@Override
 	public String toString() {
-		return "Fifo[" + size + "] : " + content.size() + " elements";
+		return "Fifo[" + size + "] : " + getCount() + " elements";
 	}
 
 	/**
-	 * Writes one token in the FIFO.
+	 * Writes one token in the FIFO. Does nothing if the FIFO is full.
 	 * 
-	 * @return the token read
+	 * @param value
+	 *            the token to write
 	 */
 	public void write(Object value) {
-		content.offer(value);
+		if (writeToken(value) && profile) {
+			profileWrite(1);
+		}
+	}
+
+	/**
+	 * Writes the first <code>numTokens</code> elements of the given array in
+	 * the FIFO.
+	 * 
+	 * @param eltType
+	 *            type of the elements of the array
+	 * @param array
+	 *            a one-dimensional array
+	 * @param numTokens
+	 *            number of tokens to write
+	 */
+	public void write(Type eltType, Object array, int numTokens) {
+		if (!enableTraces && array.getClass() == buffer.getClass()) {
+			copyIn(array, numTokens);
+			if (trace != null) {
+				trace.append(array, 0, numTokens);
+			}
+			tail = index(tail, numTokens);
+			WRITE_COUNT.lazySet(this, writeCount + numTokens);
+			if (profile) {
+				profileWrite(numTokens);
+			}
+		} else {
+			int written = 0;
+			for (int i = 0; i < numTokens; i++) {
+				if (writeToken(ValueUtil.get(eltType, array, i))) {
+					written++;
+				}
+			}
+			if (profile && written > 0) {
+				profileWrite(written);
+			}
+		}
+	}
+
+	/**
+	 * Writes one token in the FIFO, unless it is full.
+	 * 
+	 * @param value
+	 *            the token to write
+	 * @return <code>true</code> if the token has been written
+	 */
+	private boolean writeToken(Object value) {
+		if (getCount() == size) {
+			return false;
+		}
+		put(tail, value);
+		if (trace != null) {
+			trace.append(buffer, tail, 1);
+		}
+		tail = index(tail, 1);
+		WRITE_COUNT.lazySet(this, writeCount + 1);
 
 		if (enableTraces) {
 			writePrinter(value);
 		}
-		if (profile) {
-			traffic++;
+		return true;
+	}
+
+	/**
+	 * Copies the first tokens of the FIFO to the given array, which must be of
+	 * the same class as the backing array.
+	 */
+	private void copyOut(Object array, int numTokens) {
+		int first = Math.min(numTokens, size - head);
+		System.arraycopy(buffer, head, array, 0, first);
+		if (first < numTokens) {
+			System.arraycopy(buffer, 0, array, first, numTokens - first);
+		}
+	}
+
+	/**
+	 * Copies the first elements of the given array, which must be of the same
+	 * class as the backing array, after the last token of the FIFO.
+	 */
+	private void copyIn(Object array, int numTokens) {
+		int first = Math.min(numTokens, size - tail);
+		System.arraycopy(array, 0, buffer, tail, first);
+		if (first < numTokens) {
+			System.arraycopy(array, first, buffer, 0, numTokens - first);
 		}
 	}
 
@@ -258,8 +598,8 @@ public class SimulatorFifo {
 			writer.println(value);
 		} else if (type.isFloat()) {
 			writer.println(value);
-		} else if (type.isInt() && ValueUtil.isInt(value)) {
-			BigInteger intVal = (BigInteger) value;
+		} else if (type.isInt() && LongValueUtil.isInt(value)) {
+			Number intVal = (Number) value;
 			int size = type.getSizeInBits();
 			if (size <= 8) {
 				writer.println(intVal.byteValue());
@@ -270,8 +610,8 @@ public class SimulatorFifo {
 			} else if (size <= 64) {
 				writer.println(intVal.longValue());
 			}
-		} else if (type.isUint() && ValueUtil.isInt(value)) {
-			BigInteger intVal = (BigInteger) value;
+		} else if (type.isUint() && LongValueUtil.isInt(value)) {
+			Number intVal = (Number) value;
 			int size = type.getSizeInBits();
 			if (size < 8) {
 				writer.println(intVal.byteValue());
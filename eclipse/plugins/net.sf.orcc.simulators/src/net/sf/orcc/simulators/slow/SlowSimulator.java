@@ -35,27 +35,46 @@ import static net.sf.orcc.OrccLaunchConstants.NO_DISPLAY;
 import static net.sf.orcc.OrccLaunchConstants.PROJECT;
 import static net.sf.orcc.OrccLaunchConstants.TRACES_FOLDER;
 import static net.sf.orcc.OrccLaunchConstants.XDF_FILE;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH_REFERENCES;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH_STIMULI;
+import static net.sf.orcc.simulators.SimulatorsConstants.BATCH_THREADS;
+import static net.sf.orcc.simulators.SimulatorsConstants.BINARY_TRACES;
+import static net.sf.orcc.simulators.SimulatorsConstants.CLOSURE_INTERPRETER;
 import static net.sf.orcc.simulators.SimulatorsConstants.FRAMES_NUMBER;
 import static net.sf.orcc.simulators.SimulatorsConstants.GOLDEN_REFERENCE;
 import static net.sf.orcc.simulators.SimulatorsConstants.GOLDEN_REFERENCE_FILE;
 import static net.sf.orcc.simulators.SimulatorsConstants.INPUT_STIMULUS;
+import static net.sf.orcc.simulators.SimulatorsConstants.LONG_VALUES;
 import static net.sf.orcc.simulators.SimulatorsConstants.LOOP_NUMBER;
+import static net.sf.orcc.simulators.SimulatorsConstants.MEMOIZE_GUARDS;
+import static net.sf.orcc.simulators.SimulatorsConstants.MONITORING;
 import static net.sf.orcc.simulators.SimulatorsConstants.OUTPUT_FILE;
 import static net.sf.orcc.simulators.SimulatorsConstants.PROFILE;
 import static net.sf.orcc.simulators.SimulatorsConstants.PROFILE_FOLDER;
+import static net.sf.orcc.simulators.SimulatorsConstants.READY_QUEUE;
+import static net.sf.orcc.simulators.SimulatorsConstants.REUSE_BUFFERS;
+import static net.sf.orcc.simulators.SimulatorsConstants.SEARCH_PATH;
 import static net.sf.orcc.simulators.SimulatorsConstants.TYPE_RESIZER;
 import static net.sf.orcc.simulators.SimulatorsConstants.TYPE_RESIZER_CAST_BOOLTOINT;
 import static net.sf.orcc.simulators.SimulatorsConstants.TYPE_RESIZER_CAST_NATIVEPORTS;
 import static net.sf.orcc.simulators.SimulatorsConstants.TYPE_RESIZER_CAST_TO2NBITS;
 import static net.sf.orcc.simulators.SimulatorsConstants.TYPE_RESIZER_CAST_TO32BITS;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.SwingUtilities;
 
+import net.sf.orcc.OrccRuntimeException;
 import net.sf.orcc.df.Actor;
 import net.sf.orcc.df.Connection;
 import net.sf.orcc.df.Network;
@@ -64,13 +83,16 @@ import net.sf.orcc.df.transform.Instantiator;
 import net.sf.orcc.df.transform.NetworkFlattener;
 import net.sf.orcc.df.transform.TypeResizer;
 import net.sf.orcc.graph.Vertex;
+import net.sf.orcc.ir.Type;
 import net.sf.orcc.ir.util.ActorInterpreter;
 import net.sf.orcc.simulators.AbstractSimulator;
+import net.sf.orcc.simulators.SimulationContext;
 import net.sf.orcc.simulators.SimulatorDescriptor;
+import net.sf.orcc.simulators.compiled.CompiledActorInterpreter;
+import net.sf.orcc.simulators.monitoring.SimulationMonitor;
 import net.sf.orcc.simulators.runtime.impl.GenericDisplay;
-import net.sf.orcc.simulators.runtime.impl.GenericSource;
-import net.sf.orcc.simulators.runtime.impl.GenericWriter;
 import net.sf.orcc.simulators.runtime.std.video.impl.Display;
+import net.sf.orcc.simulators.util.SearchPathURIConverter;
 import net.sf.orcc.tools.stats.StatisticsPrinter;
 import net.sf.orcc.util.FilesManager;
 import net.sf.orcc.util.OrccLogger;
@@ -82,6 +104,8 @@ import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 
@@ -94,30 +118,69 @@ import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
  */
 public class SlowSimulator extends AbstractSimulator {
 
+	private boolean batch;
+
+	private String batchReferences;
+
+	/** simulator of the batch this simulator belongs to, or null */
+	private SlowSimulator batchSimulator;
+
+	private String batchStimuli;
+
+	private int batchThreads;
+
+	private boolean binaryTraces;
+
+	private boolean closureInterpreter;
+
 	private boolean enableTraces;
 
 	private boolean enableTypeResizer;
 
+	/** FIFOs of the connections of the network being simulated */
+	private Map<Connection, SimulatorFifo> fifos;
+
+	private int framesNumber;
+
 	private String goldenReferenceFile;
 
+	private boolean longValues;
+
 	private boolean hasGoldenReference;
 
 	protected Map<Actor, ActorInterpreter> interpreters;
 
 	private int loopsNumber;
 
+	private boolean memoizeGuards;
+
+	private boolean monitoring;
+
 	private boolean noDisplay;
 
 	private boolean profile;
 
 	protected IProject project;
 
+	private boolean readyQueue;
+
+	private boolean reuseBuffers;
+
+	/** folders of the .xdf and .ir files, or empty to use the workspace */
+	private String searchPath;
+
+	/** ready queue of the network, when scheduling is data-driven */
+	private ReadyQueueScheduler scheduler;
+
 	private String stimulusFile;
 
 	private String outputFile;
 	
 	private String traceFolder;
 
+	/** writer of the binary traces, or null */
+	private TraceWriter traceWriter;
+
 	private String profileFolder;
 
 	private final Boolean[] typeResizer = { false, false, false, false };
@@ -136,6 +199,17 @@ public class SlowSimulator extends AbstractSimulator {
 	 */
 	@SuppressWarnings("unchecked")
 	public void connectNetwork(Network network) {
+		// drop the FIFOs of a previous simulation of the same network
+		for (Connection connection : network.getConnections()) {
+			connection.removeAttribute("fifo");
+			if (connection.getSourcePort() != null) {
+				connection.getSourcePort().removeAttribute("fifo");
+			}
+			if (connection.getTargetPort() != null) {
+				connection.getTargetPort().removeAttribute("fifo");
+			}
+		}
+
 		for (Connection connection : network.getConnections()) {
 			Actor src = connection.getSource().getAdapter(Actor.class);
 			Actor tgt = connection.getTarget().getAdapter(Actor.class);
@@ -154,8 +228,10 @@ public class SlowSimulator extends AbstractSimulator {
 
 			String name = src.getName() + "." + srcPort.getName() + " --> "
 					+ tgt.getName() + "." + tgtPort.getName();
-			SimulatorFifo fifo = new SimulatorFifo(srcPort.getType(), size,
-					traceFolder, name, enableTraces, profile);
+			SimulatorFifo fifo = createFifo(srcPort.getType(), size, name);
+			if (this.fifos != null) {
+				this.fifos.put(connection, fifo);
+			}
 
 			tgtPort.setAttribute("fifo", fifo);
 
@@ -193,6 +269,75 @@ public class SlowSimulator extends AbstractSimulator {
 			}
 		}
 
+		// the FIFOs are now known, compute the firing plans of the actions
+		for (ActorInterpreter interpreter : interpreters.values()) {
+			if (interpreter instanceof ConnectedActorInterpreter) {
+				((ConnectedActorInterpreter) interpreter).createFiringPlans();
+			}
+		}
+	}
+
+	/**
+	 * Creates a FIFO able to store the given number of tokens of the given
+	 * type. The implementation is chosen from the type, so that tokens are
+	 * stored unboxed whenever possible.
+	 * 
+	 * @param type
+	 *            type of the tokens
+	 * @param size
+	 *            size of the FIFO
+	 * @param name
+	 *            name of the FIFO
+	 * @return a new FIFO
+	 */
+	protected SimulatorFifo createFifo(Type type, int size, String name) {
+		if (traceWriter != null) {
+			SimulatorFifo fifo = SimulatorFifo.create(type, size, traceFolder,
+					name, false, profile);
+			if (fifo.enableBinaryTrace(traceWriter)) {
+				return fifo;
+			}
+		}
+
+		return SimulatorFifo.create(type, size, traceFolder, name,
+				enableTraces, profile);
+	}
+
+	/**
+	 * Closes the traces of the FIFOs, and waits for the binary traces to be
+	 * written.
+	 */
+	private void closeTraces() {
+		if (fifos != null) {
+			for (SimulatorFifo fifo : fifos.values()) {
+				fifo.closePrinter();
+			}
+		}
+
+		if (traceWriter != null) {
+			traceWriter.close();
+			traceWriter = null;
+		}
+	}
+
+	/**
+	 * Creates the interpreter of the given actor.
+	 * 
+	 * @param actor
+	 *            an actor
+	 * @return an interpreter connected to the FIFOs of the actor
+	 */
+	protected ConnectedActorInterpreter createInterpreter(Actor actor) {
+		if (closureInterpreter) {
+			return new CompiledActorInterpreter(actor);
+		} else {
+			ConnectedActorInterpreter interpreter = new ConnectedActorInterpreter(
+					actor);
+			if (longValues) {
+				interpreter.enableLongValues();
+			}
+			return interpreter;
+		}
 	}
 
 	/**
@@ -204,28 +349,61 @@ public class SlowSimulator extends AbstractSimulator {
 	protected void createInterpreters(Network network) {
 		for (Vertex vertex : network.getChildren()) {
 			Actor actor = vertex.getAdapter(Actor.class);
-
-			ConnectedActorInterpreter interpreter = new ConnectedActorInterpreter(
-					actor);
-
+			ConnectedActorInterpreter interpreter = createInterpreter(actor);
+			if (reuseBuffers) {
+				interpreter.enableBufferReuse();
+			}
+			if (memoizeGuards) {
+				interpreter.enableGuardMemoization();
+			}
+			if (profile) {
+				interpreter.enableProfiling();
+			}
+			interpreter.setContext(context);
 			interpreters.put(actor, interpreter);
 		}
 	}
 
-	protected void initializeNetwork(Network network) {
-		GenericSource.setInputStimulus(stimulusFile);
+	/**
+	 * Returns the number of guard evaluations skipped (hits) and performed
+	 * (misses) by the interpreter of each actor, as CSV.
+	 * 
+	 * @param network
+	 *            the simulated network
+	 * @return the content of a CSV file
+	 */
+	private CharSequence getGuardStatistics(Network network) {
+		StringBuilder builder = new StringBuilder("Name, Hits, Misses\n");
+		long hits = 0;
+		long misses = 0;
+		for (Vertex vertex : network.getChildren()) {
+			Actor actor = vertex.getAdapter(Actor.class);
+			ConnectedActorInterpreter interpreter = (ConnectedActorInterpreter) interpreters
+					.get(actor);
+			builder.append(vertex.getLabel()).append(", ")
+					.append(interpreter.getGuardHits()).append(", ")
+					.append(interpreter.getGuardMisses()).append('\n');
+			hits += interpreter.getGuardHits();
+			misses += interpreter.getGuardMisses();
+		}
+
+		OrccLogger.traceln("Guard memoization: " + hits + " hits, " + misses
+				+ " misses");
+		return builder;
+	}
 
-		GenericSource.setNbLoops(loopsNumber);
-		
-		GenericWriter.setOutputFile(outputFile);
+	protected void initializeNetwork(Network network) {
+		context.setInputStimulus(stimulusFile);
+		context.setNbLoops(loopsNumber);
+		context.setNbFrames(framesNumber);
+		context.setOutputFile(outputFile);
 
 		if (hasGoldenReference) {
-			GenericDisplay.setGoldenReference(goldenReferenceFile);
+			context.setGoldenReference(goldenReferenceFile);
 		}
 
-		if (noDisplay) {
-			GenericDisplay.setDisplayDisabled();
-		}
+		context.setDisplayStatus(noDisplay ? GenericDisplay.DISPLAY_DISABLE
+				: GenericDisplay.DISPLAY_ENABLE);
 
 		for (Vertex vertex : network.getChildren()) {
 			Actor actor = vertex.getAdapter(Actor.class);
@@ -245,16 +423,40 @@ public class SlowSimulator extends AbstractSimulator {
 		String name = getAttribute(PROJECT, "");
 		enableTraces = getAttribute(ENABLE_TRACES, false);
 		traceFolder = getAttribute(TRACES_FOLDER, "");
+		binaryTraces = getAttribute(BINARY_TRACES, false);
 		profile = getAttribute(PROFILE, false);
 		profileFolder = getAttribute(PROFILE_FOLDER, "");
+		closureInterpreter = getAttribute(CLOSURE_INTERPRETER, false);
+		longValues = getAttribute(LONG_VALUES, false);
+		memoizeGuards = getAttribute(MEMOIZE_GUARDS, false);
+		monitoring = getAttribute(MONITORING, false);
+		readyQueue = getAttribute(READY_QUEUE, false);
+		reuseBuffers = getAttribute(REUSE_BUFFERS, false);
+
+		batch = getAttribute(BATCH, false);
+		batchStimuli = getAttribute(BATCH_STIMULI, "");
+		batchReferences = getAttribute(BATCH_REFERENCES, "");
+		batchThreads = Runtime.getRuntime().availableProcessors();
+		String threads = getAttribute(BATCH_THREADS, "");
+		if (!threads.isEmpty()) {
+			try {
+				batchThreads = Math.max(1, Integer.parseInt(threads.trim()));
+			} catch (NumberFormatException e) {
+				OrccLogger.warnln("Invalid number of batch threads \""
+						+ threads + "\", using " + batchThreads);
+			}
+		}
 
-		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
-		project = root.getProject(name);
+		searchPath = getAttribute(SEARCH_PATH, "");
+		if (searchPath.isEmpty()) {
+			IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+			project = root.getProject(name);
 
-		vtlFolders = OrccUtil.getOutputFolders(project);
+			vtlFolders = OrccUtil.getOutputFolders(project);
+		}
 
 		loopsNumber = getAttribute(LOOP_NUMBER, DEFAULT_NB_LOOPS);
-		GenericDisplay.nbFrames = getAttribute(FRAMES_NUMBER, DEFAULT_NB_FRAMES);
+		framesNumber = getAttribute(FRAMES_NUMBER, DEFAULT_NB_FRAMES);
 
 		noDisplay = getAttribute(NO_DISPLAY, false);
 
@@ -263,9 +465,6 @@ public class SlowSimulator extends AbstractSimulator {
 		typeResizer[1] = getAttribute(TYPE_RESIZER_CAST_TO32BITS, false);
 		typeResizer[2] = getAttribute(TYPE_RESIZER_CAST_NATIVEPORTS, false);
 		typeResizer[3] = getAttribute(TYPE_RESIZER_CAST_BOOLTOINT, false);
-
-		stopRequested = false;
-		statusCode = 0;
 	}
 
 	/**
@@ -273,46 +472,174 @@ public class SlowSimulator extends AbstractSimulator {
 	 * if necessary
 	 */
 	protected void killDescriptors() {
+		final SimulationContext context = this.context;
 		Runnable killer = new Runnable() {
 			@Override
 			public void run() {
-				SimulatorDescriptor.killDescriptors();
-				Display.clearAll();
+				SimulationContext previous = SimulationContext.bind(context);
+				try {
+					SimulatorDescriptor.killDescriptors();
+					Display.clearAll();
+				} finally {
+					SimulationContext.bind(previous);
+				}
 			}
 		};
 		SwingUtilities.invokeLater(killer);
 	}
 
 	@Override
-	public void run() {
-		try {
-			killDescriptors();
-
-			interpreters = new HashMap<Actor, ActorInterpreter>();
+	protected boolean isStopped() {
+		return super.isStopped() || (batchSimulator != null && batchSimulator
+				.isStopped());
+	}
 
+	/**
+	 * Loads the network to simulate, from the workspace or from the search
+	 * path, and applies the transformations the simulation needs.
+	 * 
+	 * @return a flattened network of actors
+	 */
+	protected Network loadNetwork() {
+		Network network;
+		if (searchPath.isEmpty()) {
 			IFile file = OrccUtil.getFile(project, xdfFile,
 					OrccUtil.NETWORK_SUFFIX);
 			ResourceSet set = new ResourceSetImpl();
-			Network network = EcoreHelper.getEObject(set, file);
+			network = EcoreHelper.getEObject(set, file);
+		} else {
+			ResourceSet set = SearchPathURIConverter
+					.createResourceSet(searchPath);
+			SearchPathURIConverter converter = (SearchPathURIConverter) set
+					.getURIConverter();
+			File file = converter.getFile(xdfFile, OrccUtil.NETWORK_SUFFIX);
+			if (file == null) {
+				throw new OrccRuntimeException("Network " + xdfFile
+						+ " not found in " + searchPath);
+			}
+			Resource resource = set.getResource(
+					URI.createFileURI(file.getPath()), true);
+			network = (Network) resource.getContents().get(0);
+		}
+
+		// full instantiation (no more instances)
+		new Instantiator(true).doSwitch(network);
 
-			// full instantiation (no more instances)
-			new Instantiator(true).doSwitch(network);
+		// flattens network
+		new NetworkFlattener().doSwitch(network);
 
-			// flattens network
-			new NetworkFlattener().doSwitch(network);
+		// if required, use the type sizer transformation
+		if (enableTypeResizer) {
+			new TypeResizer(typeResizer[0], typeResizer[1], typeResizer[2],
+					typeResizer[3]).doSwitch(network);
+		}
 
-			// if required, use the type sizer transformation
-			if (enableTypeResizer) {
-				new TypeResizer(typeResizer[0], typeResizer[1], typeResizer[2],
-						typeResizer[3]).doSwitch(network);
+		return network;
+	}
+
+	@Override
+	public void run() {
+		// each run gets its own runtime state
+		context = new SimulationContext();
+
+		Network network = loadNetwork();
+		if (batch) {
+			runBatch(network);
+		} else {
+			simulate(network);
+		}
+	}
+
+	/**
+	 * Simulates the given network with each stimulus of the batch. Each stream
+	 * is simulated by its own simulator, with its own interpreters, FIFOs and
+	 * context, and up to {@link #batchThreads} streams are simulated at the
+	 * same time. The network is loaded and transformed once, and only read by
+	 * the simulations.
+	 * 
+	 * @param network
+	 *            a loaded network
+	 */
+	protected void runBatch(final Network network) {
+		Batch batch = new Batch(batchStimuli, batchReferences);
+		OrccLogger.traceln("Simulating " + batch.getStreams().size()
+				+ " streams with " + batchThreads + " threads");
+
+		ExecutorService executor = Executors.newFixedThreadPool(batchThreads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (final Batch.Stream stream : batch.getStreams()) {
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					simulateStream(network, stream);
+				}
+			}));
+		}
+		executor.shutdown();
+
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new OrccRuntimeException("Batch simulation failed",
+					e.getCause());
+		}
+
+		OrccLogger.traceln(batch.getTable().toString());
+		String outputDir = getAttribute(OUTPUT_FILE, "");
+		if (!outputDir.isEmpty()) {
+			FilesManager.writeFile(batch.getContent(), outputDir,
+					network.getSimpleName() + "_batch.csv");
+		}
+		context.addStatusCode(batch.getFailures());
+	}
+
+	/**
+	 * Simulates the given network in the context of this simulator: creates
+	 * the interpreters, connects and initializes the network, and runs it.
+	 * 
+	 * @param network
+	 *            a loaded network
+	 * @return the origin of the end of the simulation
+	 */
+	protected SimulationEndOrigin simulate(Network network) {
+		SimulationContext previous = SimulationContext.bind(context);
+		SimulationMonitor monitor = null;
+		try {
+			interpreters = new HashMap<Actor, ActorInterpreter>();
+			fifos = new LinkedHashMap<Connection, SimulatorFifo>();
+			if (enableTraces && binaryTraces) {
+				traceWriter = new TraceWriter(traceFolder);
 			}
 
 			// create interpreters, connect network, initialize, and run
 			createInterpreters(network);
-			connectNetwork(network);
+			synchronized (network) {
+				// FIFOs are attached to the ports of the shared network until
+				// the firing plans have been computed
+				connectNetwork(network);
+				if (readyQueue) {
+					scheduler = new ReadyQueueScheduler(network, interpreters);
+				}
+			}
 			initializeNetwork(network);
 
+			if (monitoring) {
+				monitor = new SimulationMonitor(network, interpreters,
+						fifos.values(), context);
+				monitor.register();
+			}
+
 			SimulationEndOrigin returnStatus = runNetwork(network);
+			closeTraces();
+
+			// flushes the output written by the Writer actor, waits for the
+			// frame checker, and closes the files opened by natives
+			context.close();
 
 			killDescriptors();
 
@@ -322,20 +649,116 @@ public class SlowSimulator extends AbstractSimulator {
 			} else {
 				OrccLogger.traceln("End of simulation");
 				OrccLogger.traceln("Simulation returned status code "
-						+ statusCode);
+						+ context.getStatusCode());
 			}
 
 			if (profile) {
+				long allocations = 0;
+				for (ActorInterpreter interpreter : interpreters.values()) {
+					allocations += interpreter.getAllocations();
+				}
+				OrccLogger.traceln("Arrays allocated by the interpreters: "
+						+ allocations);
+
 				CharSequence content = new StatisticsPrinter().getContent(network);
 				FilesManager.writeFile(content, profileFolder, network.getSimpleName() + ".csv");
+
+				ProfileReport report = new ProfileReport(network,
+						interpreters, fifos);
+				String name = network.getSimpleName();
+				FilesManager.writeFile(report.getActionsContent(),
+						profileFolder, name + "_actions.csv");
+				FilesManager.writeFile(report.getActorsContent(),
+						profileFolder, name + "_actors.csv");
+				FilesManager.writeFile(report.getFifosContent(),
+						profileFolder, name + "_fifos.csv");
+				FilesManager.writeFile(report.getJsonContent(),
+						profileFolder, name + "_profile.json");
+
+				if (memoizeGuards) {
+					FilesManager.writeFile(getGuardStatistics(network),
+							profileFolder, network.getSimpleName()
+									+ "_guards.csv");
+				}
 			}
+
+			return returnStatus;
 		} finally {
 			// clean up to prevent memory leak
+			if (monitor != null) {
+				monitor.unregister();
+			}
+			closeTraces();
 			interpreters = null;
+			fifos = null;
+			scheduler = null;
+			context.close();
+			SimulationContext.bind(previous);
+		}
+	}
+
+	/**
+	 * Simulates the given stream of a batch with a new simulator, created
+	 * with the options of this one. The outputs, traces and profiles of the
+	 * stream are written in a sub-folder named after the stream.
+	 * 
+	 * @param network
+	 *            a loaded network
+	 * @param stream
+	 *            a stream of the batch
+	 */
+	private void simulateStream(Network network, Batch.Stream stream) {
+		if (isStopped()) {
+			stream.result = Batch.ABORTED;
+			return;
+		}
+
+		Map<String, Object> options = new HashMap<String, Object>(
+				getAttributes());
+		options.put(BATCH, false);
+		options.put(INPUT_STIMULUS, stream.stimulus.getPath());
+		options.put(GOLDEN_REFERENCE, stream.reference != null);
+		options.put(GOLDEN_REFERENCE_FILE, stream.reference == null ? ""
+				: stream.reference.getPath());
+		options.put(NO_DISPLAY, true);
+		for (String folder : new String[] { OUTPUT_FILE, PROFILE_FOLDER,
+				TRACES_FOLDER }) {
+			String path = getAttribute(folder, "");
+			if (!path.isEmpty()) {
+				File streamFolder = new File(path, stream.name);
+				streamFolder.mkdirs();
+				options.put(folder, streamFolder.getPath());
+			}
+		}
+
+		long t0 = System.nanoTime();
+		try {
+			SlowSimulator simulator = getClass().newInstance();
+			simulator.batchSimulator = this;
+			simulator.setOptions(options);
+			SimulationEndOrigin origin = simulator.simulate(network);
+
+			stream.frames = simulator.context.getFramesCount();
+			if (origin == SimulationEndOrigin.EXTERNALSTOP && isStopped()) {
+				stream.result = Batch.ABORTED;
+			} else {
+				int statusCode = simulator.context.getStatusCode();
+				stream.result = statusCode == 0 ? Batch.PASSED : Batch.FAILED;
+			}
+		} catch (Exception e) {
+			OrccLogger.severeln("Simulation of " + stream.name + " failed: "
+					+ e.getMessage());
+			stream.result = Batch.ERROR;
+		} finally {
+			stream.elapsed = System.nanoTime() - t0;
 		}
 	}
 
 	protected SimulationEndOrigin runNetwork(Network network) {
+		if (readyQueue) {
+			return runReadyQueue(network);
+		}
+
 		boolean hasExecuted;
 		do {
 			hasExecuted = false;
@@ -363,4 +786,41 @@ public class SlowSimulator extends AbstractSimulator {
 
 		return SimulationEndOrigin.NORMALEND;
 	}
+
+	/**
+	 * Runs the network with a ready queue: an actor is scheduled again only
+	 * when a neighbour that fired left tokens or room in a FIFO it is
+	 * connected to. The simulation ends when no actor is ready. The ready
+	 * queue is created when the network is connected.
+	 * 
+	 * @param network
+	 *            a connected and initialized network
+	 * @return the origin of the end of the simulation
+	 */
+	protected SimulationEndOrigin runReadyQueue(Network network) {
+		while (!scheduler.isEmpty()) {
+			int actor = scheduler.poll();
+			ActorInterpreter interpreter = scheduler.getInterpreter(actor);
+
+			boolean hasExecuted = false;
+			while (interpreter.schedule()) {
+				// check for cancelation
+				if (isStopped()) {
+					return SimulationEndOrigin.EXTERNALSTOP;
+				}
+				hasExecuted = true;
+			}
+
+			if (hasExecuted) {
+				scheduler.fired(actor);
+			}
+
+			// check for cancelation
+			if (isStopped()) {
+				return SimulationEndOrigin.EXTERNALSTOP;
+			}
+		}
+
+		return SimulationEndOrigin.NORMALEND;
+	}
 }
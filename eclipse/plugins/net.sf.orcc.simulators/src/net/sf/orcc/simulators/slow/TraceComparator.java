@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.orcc.OrccRuntimeException;
+import net.sf.orcc.df.Action;
+import net.sf.orcc.df.Actor;
+import net.sf.orcc.df.Connection;
+import net.sf.orcc.df.Network;
+import net.sf.orcc.df.Port;
+import net.sf.orcc.df.transform.Instantiator;
+import net.sf.orcc.df.transform.NetworkFlattener;
+import net.sf.orcc.simulators.util.SearchPathURIConverter;
+import net.sf.orcc.util.OrccLogger;
+import net.sf.orcc.util.OrccUtil;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+/**
+ * This class compares the traces of the FIFOs of two executions of a network,
+ * each one being traced by the simulator (text or binary traces) or by the
+ * code generated by the C backend. The traces of the generated code are
+ * associated with the connections of the network by the index written by the
+ * C backend (<code>traces.txt</code>). The traces of the FIFOs are
+ * memory-mapped and compared in parallel, and the index of the first token
+ * that differs is reported for each FIFO.
+ * 
+ */
+public class TraceComparator {
+
+	/**
+	 * This class defines the result of the comparison of the traces of a
+	 * FIFO.
+	 */
+	static final class Result {
+
+		/** actions of the source actor that produce tokens in the FIFO */
+		String actions;
+
+		String actual;
+
+		String expected;
+
+		/** index of the first token that differs, or -1 */
+		long index = -1;
+
+		/** reason why the traces could not be compared, or null */
+		String message;
+
+		final String name;
+
+		/** number of identical tokens */
+		long tokens;
+
+		Result(String name) {
+			this.name = name;
+		}
+
+		boolean isIdentical() {
+			return message == null && index == -1;
+		}
+
+	}
+
+	/** name of the index of the traces written by the C backend */
+	private static final String INDEX = "traces.txt";
+
+	private static final String TEXT_EXTENSION = "_traces.txt";
+
+	/**
+	 * Returns the name of the FIFO of the given connection, as used by the
+	 * simulator.
+	 */
+	private static String getName(String source, String sourcePort,
+			String target, String targetPort) {
+		return source + "." + sourcePort + " --> " + target + "." + targetPort;
+	}
+
+	/**
+	 * Loads the given network from the given search path and flattens it, as
+	 * the simulator does.
+	 */
+	private static Network loadNetwork(String searchPath, String qualifiedName) {
+		ResourceSet set = SearchPathURIConverter.createResourceSet(searchPath);
+		SearchPathURIConverter converter = (SearchPathURIConverter) set
+				.getURIConverter();
+		File file = converter.getFile(qualifiedName, OrccUtil.NETWORK_SUFFIX);
+		if (file == null) {
+			throw new OrccRuntimeException("Network " + qualifiedName
+					+ " not found in " + searchPath);
+		}
+
+		Resource resource = set.getResource(URI.createFileURI(file.getPath()),
+				true);
+		Network network = (Network) resource.getContents().get(0);
+		new Instantiator(true).doSwitch(network);
+		new NetworkFlattener().doSwitch(network);
+		return network;
+	}
+
+	/**
+	 * Compares the traces given as arguments, and exits with 0 if they are
+	 * identical, 1 if they differ, or -1 if they could not be compared.
+	 * 
+	 * @param args
+	 *            command line arguments
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args));
+	}
+
+	private static void printUsage(Options options, String parserMsg) {
+		String footer = "";
+		if (parserMsg != null && !parserMsg.isEmpty()) {
+			footer = "\nMessage of the command line parser :\n" + parserMsg;
+		}
+
+		HelpFormatter helpFormatter = new HelpFormatter();
+		helpFormatter.setWidth(80);
+		helpFormatter.printHelp("java " + TraceComparator.class.getName()
+				+ " [options] <reference traces folder> <traces folder>",
+				"Valid options are :", options, footer);
+	}
+
+	/**
+	 * Compares the traces given as command line arguments, and prints the
+	 * FIFOs whose traces differ.
+	 * 
+	 * @param args
+	 *            command line arguments
+	 * @return 0 if the traces are identical, 1 if they differ, or -1 if they
+	 *         could not be compared
+	 */
+	public static int run(String[] args) {
+		Options clOptions = new Options();
+		clOptions.addOption("x", "index", true,
+				"Index of the traces of the generated code, if it is not "
+						+ "in the traces folder");
+		clOptions.addOption("v", "vtl", true,
+				"Folders where the .xdf and .ir files are searched, "
+						+ "separated by '" + File.pathSeparator + "'");
+		clOptions.addOption("n", "network", true,
+				"Qualified name of the network, used to report the actions "
+						+ "that produce the tokens of the FIFOs");
+		clOptions.addOption("t", "threads", true,
+				"Number of FIFOs compared at the same time "
+						+ "(default: number of available processors)");
+		clOptions.addOption("h", "help", false, "Print this help message");
+
+		CommandLine commandLine;
+		try {
+			commandLine = new PosixParser().parse(clOptions, args);
+		} catch (ParseException e) {
+			printUsage(clOptions, e.getLocalizedMessage());
+			return -1;
+		}
+
+		if (commandLine.hasOption('h')) {
+			printUsage(clOptions, null);
+			return 0;
+		}
+
+		if (commandLine.getArgList().size() != 2
+				|| (commandLine.hasOption('n') && !commandLine.hasOption('v'))) {
+			printUsage(clOptions, "Missing traces folders or search path");
+			return -1;
+		}
+
+		try {
+			File index = commandLine.hasOption('x') ? new File(
+					commandLine.getOptionValue('x')) : null;
+			TraceComparator comparator = new TraceComparator(new File(
+					(String) commandLine.getArgList().get(0)), new File(
+					(String) commandLine.getArgList().get(1)), index);
+
+			if (commandLine.hasOption('n')) {
+				comparator.setNetwork(loadNetwork(
+						commandLine.getOptionValue('v'),
+						commandLine.getOptionValue('n')));
+			}
+
+			int threads = Runtime.getRuntime().availableProcessors();
+			if (commandLine.hasOption('t')) {
+				threads = Math.max(1,
+						Integer.parseInt(commandLine.getOptionValue('t')));
+			}
+
+			List<Result> results = comparator.compare(threads);
+			OrccLogger.traceln(comparator.getReport(results).toString());
+			for (Result result : results) {
+				if (!result.isIdentical()) {
+					return 1;
+				}
+			}
+			return 0;
+		} catch (NumberFormatException e) {
+			printUsage(clOptions, "Invalid number of threads");
+			return -1;
+		} catch (OrccRuntimeException e) {
+			OrccLogger.severeln("Cannot compare the traces: "
+					+ e.getMessage());
+			return -1;
+		}
+	}
+
+	private final Map<String, String> actions;
+
+	private final Map<String, File> referenceTraces;
+
+	private final Map<String, File> traces;
+
+	/**
+	 * Creates a comparator of the traces of the given folders.
+	 * 
+	 * @param referenceFolder
+	 *            folder of the reference traces
+	 * @param folder
+	 *            folder of the traces compared with the reference
+	 * @param index
+	 *            index of the traces of the generated code, or
+	 *            <code>null</code> to look for it in the folders
+	 */
+	TraceComparator(File referenceFolder, File folder, File index) {
+		actions = new HashMap<String, String>();
+		referenceTraces = listTraces(referenceFolder, index);
+		traces = listTraces(folder, index);
+	}
+
+	/**
+	 * Compares the traces of the FIFO with the given name.
+	 * 
+	 * @param name
+	 *            name of a FIFO
+	 * @return the result of the comparison
+	 */
+	private Result compare(String name) {
+		Result result = new Result(name);
+		result.actions = actions.get(name);
+
+		File referenceFile = referenceTraces.get(name);
+		File file = traces.get(name);
+		if (referenceFile == null) {
+			result.message = "no reference trace";
+			return result;
+		} else if (file == null) {
+			result.message = "no trace";
+			return result;
+		}
+
+		TraceReader reference = null;
+		TraceReader trace = null;
+		try {
+			reference = new TraceReader(referenceFile);
+			trace = new TraceReader(file);
+
+			long index = 0;
+			while (true) {
+				boolean hasExpected = reference.next();
+				boolean hasActual = trace.next();
+				if (!hasExpected && !hasActual) {
+					break;
+				}
+
+				if (!hasExpected || !hasActual || !reference.matches(trace)) {
+					result.index = index;
+					result.expected = hasExpected ? reference.getToken()
+							: "<end>";
+					result.actual = hasActual ? trace.getToken() : "<end>";
+					break;
+				}
+				index++;
+			}
+			result.tokens = index;
+		} catch (IOException e) {
+			result.message = "cannot be read: " + e.getMessage();
+		} finally {
+			close(reference);
+			close(trace);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compares the traces of all the FIFOs, several FIFOs at a time.
+	 * 
+	 * @param threads
+	 *            number of FIFOs compared at the same time
+	 * @return the results of the comparisons, sorted by name of FIFO
+	 */
+	List<Result> compare(int threads) {
+		Set<String> names = new TreeSet<String>(referenceTraces.keySet());
+		names.addAll(traces.keySet());
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for (final String name : names) {
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return compare(name);
+					}
+				}));
+			}
+
+			List<Result> results = new ArrayList<Result>();
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (ExecutionException e) {
+			throw new OrccRuntimeException("Cannot compare the traces",
+					e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OrccRuntimeException("Comparison of the traces "
+					+ "interrupted");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void close(TraceReader reader) {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// the trace has been read
+			}
+		}
+	}
+
+	/**
+	 * Returns a table of the FIFOs whose traces differ, with the first token
+	 * that differs.
+	 * 
+	 * @param results
+	 *            results of the comparisons
+	 * @return a report of the comparisons
+	 */
+	CharSequence getReport(List<Result> results) {
+		int width = "FIFO".length();
+		int identical = 0;
+		for (Result result : results) {
+			if (result.isIdentical()) {
+				identical++;
+			} else {
+				width = Math.max(width, result.name.length());
+			}
+		}
+
+		StringBuilder builder = new StringBuilder();
+		if (identical < results.size()) {
+			String format = "%-" + width + "s  %12s  %-20s  %-20s  %s\n";
+			builder.append(String.format(Locale.US, format, "FIFO", "Index",
+					"Expected", "Actual", "Produced by"));
+			for (Result result : results) {
+				String actions = result.actions == null ? "" : result.actions;
+				if (result.message != null) {
+					builder.append(String.format(Locale.US, format,
+							result.name, "-", result.message, "", actions));
+				} else if (result.index != -1) {
+					builder.append(String.format(Locale.US, format,
+							result.name, result.index, result.expected,
+							result.actual, actions));
+				}
+			}
+		}
+
+		builder.append(identical).append('/').append(results.size())
+				.append(" FIFOs identical");
+		return builder;
+	}
+
+	/**
+	 * Returns the traces of the given folder, by name of FIFO. The folder
+	 * contains either the traces of the simulator, or the traces of the
+	 * generated code listed by an index.
+	 */
+	private Map<String, File> listTraces(File folder, File index) {
+		File[] files = folder.listFiles();
+		if (files == null) {
+			throw new OrccRuntimeException("Cannot list the traces of \""
+					+ folder + "\"");
+		}
+
+		Map<String, File> traces = new TreeMap<String, File>();
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(BinaryTrace.EXTENSION)) {
+				traces.put(name.substring(0, name.length()
+						- BinaryTrace.EXTENSION.length()), file);
+			} else if (name.endsWith(TEXT_EXTENSION)) {
+				String fifo = name.substring(0, name.length()
+						- TEXT_EXTENSION.length());
+				// binary traces are preferred
+				if (!traces.containsKey(fifo)) {
+					traces.put(fifo, file);
+				}
+			}
+		}
+
+		if (traces.isEmpty()) {
+			File indexFile = index == null ? new File(folder, INDEX) : index;
+			if (indexFile.isFile()) {
+				readIndex(folder, indexFile, traces);
+			}
+		}
+
+		return traces;
+	}
+
+	/**
+	 * Reads the index of the traces of the generated code. Each line contains
+	 * the names of the traces of the target and source ports of a connection,
+	 * followed by the names of the target, target port, source, and source
+	 * port. The trace of the source port is preferred, since it is written
+	 * when tokens are produced.
+	 */
+	private void readIndex(File folder, File index, Map<String, File> traces) {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(index), "UTF-8"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.trim().split("\\s+");
+				if (fields.length < 6) {
+					continue;
+				}
+
+				File file = new File(folder, fields[1]);
+				if (!file.isFile()) {
+					file = new File(folder, fields[0]);
+				}
+				if (file.isFile()) {
+					traces.put(getName(fields[4], fields[5], fields[2],
+							fields[3]), file);
+				}
+			}
+		} catch (IOException e) {
+			throw new OrccRuntimeException("Cannot read the index of the "
+					+ "traces \"" + index + "\"", e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// the index has been read
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the network whose traces are compared, to report the actions that
+	 * produce the tokens of the FIFOs that differ.
+	 * 
+	 * @param network
+	 *            a flattened network
+	 */
+	void setNetwork(Network network) {
+		for (Connection connection : network.getConnections()) {
+			Actor source = connection.getSource().getAdapter(Actor.class);
+			Actor target = connection.getTarget().getAdapter(Actor.class);
+			Port sourcePort = connection.getSourcePort();
+			Port targetPort = connection.getTargetPort();
+			if (source == null || target == null || sourcePort == null
+					|| targetPort == null) {
+				continue;
+			}
+
+			List<String> producers = new ArrayList<String>();
+			for (Action action : source.getInitializes()) {
+				if (action.getOutputPattern().contains(sourcePort)) {
+					producers.add(action.getName());
+				}
+			}
+			for (Action action : source.getActions()) {
+				if (action.getOutputPattern().contains(sourcePort)) {
+					producers.add(action.getName());
+				}
+			}
+
+			actions.put(getName(source.getName(), sourcePort.getName(),
+					target.getName(), targetPort.getName()),
+					OrccUtil.toString(producers, ", "));
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import net.sf.orcc.OrccRuntimeException;
+
+/**
+ * This class converts the binary traces written by the simulator to the text
+ * format of the traces, one token per line. Tokens are printed as they are
+ * read from the FIFO: floats are printed from their single precision value.
+ * 
+ */
+public class TraceConverter {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Converts the given binary trace to a text trace.
+	 * 
+	 * @param binaryTrace
+	 *            a binary trace
+	 * @param textTrace
+	 *            the text trace to write
+	 * @return the number of tokens converted
+	 */
+	public static long convert(File binaryTrace, File textTrace) {
+		FileInputStream in = null;
+		PrintWriter writer = null;
+		try {
+			in = new FileInputStream(binaryTrace);
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(
+					ByteOrder.LITTLE_ENDIAN);
+			buffer.limit(0);
+
+			// header
+			fill(channel, buffer, 16);
+			byte[] magic = new byte[BinaryTrace.MAGIC.length];
+			buffer.get(magic);
+			if (!Arrays.equals(magic, BinaryTrace.MAGIC)) {
+				throw new OrccRuntimeException("\"" + binaryTrace
+						+ "\" is not a binary trace");
+			}
+			byte kind = buffer.get();
+			int width = buffer.get();
+			int size = buffer.getShort();
+			int nameLength = buffer.getInt();
+			fill(channel, buffer, nameLength);
+			buffer.position(buffer.position() + nameLength);
+
+			writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(textTrace), "UTF-8"), BUFFER_SIZE));
+			long tokens = 0;
+			while (fill(channel, buffer, width)) {
+				long value;
+				switch (width) {
+				case 1:
+					value = buffer.get();
+					break;
+				case 2:
+					value = buffer.getShort();
+					break;
+				case 4:
+					value = buffer.getInt();
+					break;
+				default:
+					value = buffer.getLong();
+					break;
+				}
+				print(writer, kind, width, size, value);
+				tokens++;
+			}
+
+			if (writer.checkError()) {
+				throw new IOException("Cannot write \"" + textTrace + "\"");
+			}
+			return tokens;
+		} catch (IOException e) {
+			throw new OrccRuntimeException("Cannot convert the trace \""
+					+ binaryTrace + "\"", e);
+		} finally {
+			if (writer != null) {
+				writer.close();
+			}
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// the trace has been read
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes sure that the given buffer has the given number of bytes
+	 * remaining, reading more bytes from the channel if necessary.
+	 * 
+	 * @return <code>false</code> if the end of the file has been reached
+	 *         before the first byte
+	 */
+	private static boolean fill(FileChannel channel, ByteBuffer buffer,
+			int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return true;
+		}
+
+		buffer.compact();
+		while (buffer.position() < bytes) {
+			if (buffer.position() == buffer.capacity()) {
+				throw new IOException("Header too large");
+			}
+			if (channel.read(buffer) == -1) {
+				break;
+			}
+		}
+		buffer.flip();
+
+		if (buffer.remaining() == 0) {
+			return false;
+		} else if (buffer.remaining() < bytes) {
+			throw new EOFException("Truncated trace");
+		}
+		return true;
+	}
+
+	/**
+	 * Converts the binary traces given as arguments to text traces, written
+	 * next to them with the extension of text traces.
+	 * 
+	 * @param args
+	 *            paths of binary traces, or of folders of binary traces
+	 */
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Usage: java " + TraceConverter.class.getName()
+					+ " <binary trace or folder>...");
+			System.exit(1);
+		}
+
+		for (String arg : args) {
+			File file = new File(arg);
+			File[] traces = file.isDirectory() ? file.listFiles()
+					: new File[] { file };
+			if (traces == null) {
+				continue;
+			}
+
+			Arrays.sort(traces);
+			for (File trace : traces) {
+				String name = trace.getName();
+				if (name.endsWith(BinaryTrace.EXTENSION)) {
+					String textName = name.substring(0, name.length()
+							- BinaryTrace.EXTENSION.length())
+							+ "_traces.txt";
+					long tokens = convert(trace, new File(
+							trace.getParentFile(), textName));
+					System.out.println(name + ": " + tokens + " tokens");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints the given token the way text traces are written by the FIFOs of
+	 * the simulator.
+	 */
+	private static void print(PrintWriter writer, byte kind, int width,
+			int size, long raw) {
+		switch (kind) {
+		case BinaryTrace.BOOL:
+			writer.println(raw != 0);
+			break;
+		case BinaryTrace.FLOAT:
+			writer.println(BigDecimal.valueOf(Float.intBitsToFloat((int) raw)));
+			break;
+		case BinaryTrace.INT:
+			if (size <= 8) {
+				writer.println((byte) raw);
+			} else if (size <= 16) {
+				writer.println((short) raw);
+			} else if (size <= 32) {
+				writer.println((int) raw);
+			} else if (size <= 64) {
+				writer.println(raw);
+			}
+			break;
+		case BinaryTrace.UINT:
+			// zero extension of the stored bits, as the FIFO does
+			long value = width == 8 ? raw : raw & ((1L << (8 * width)) - 1);
+			if (size < 8) {
+				writer.println((byte) value);
+			} else if (size < 16) {
+				writer.println((short) value);
+			} else if (size < 32) {
+				writer.println((int) value);
+			} else if (size < 64) {
+				writer.println(value);
+			}
+			break;
+		}
+	}
+
+}
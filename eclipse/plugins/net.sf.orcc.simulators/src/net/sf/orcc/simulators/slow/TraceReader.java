@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+/**
+ * This class reads the tokens of a trace, either a text trace (written by the
+ * simulator or by the code generated by the C backend) or a binary trace
+ * written by the simulator. The file is memory-mapped by windows, so that
+ * traces of several gigabytes can be read without loading them.
+ * 
+ */
+final class TraceReader implements Closeable {
+
+	/** kind of a token that is a floating-point number */
+	static final int FLOAT = 1;
+
+	/**
+	 * Tolerance of the comparison of floats: text traces of the generated code
+	 * only have 6 decimals.
+	 */
+	private static final double FLOAT_TOLERANCE = 1e-6;
+
+	/** kind of a token that is a boolean or an integer */
+	static final int INTEGER = 0;
+
+	/** kind of a token that is compared as text */
+	static final int TEXT = 2;
+
+	private static final BigInteger TWO_POW_64 = BigInteger.ONE.shiftLeft(64);
+
+	private static final long WINDOW_SIZE = 1 << 27;
+
+	/** kind of the tokens of a binary trace, or -1 for a text trace */
+	private int binaryKind = -1;
+
+	private final FileChannel channel;
+
+	private final FileInputStream in;
+
+	private double floatValue;
+
+	private int kind;
+
+	private byte[] line = new byte[64];
+
+	private int lineLength;
+
+	private long longValue;
+
+	private boolean parsed;
+
+	private final long size;
+
+	/** width of the tokens of a binary trace */
+	private int width;
+
+	private MappedByteBuffer window;
+
+	/** position of the window in the file */
+	private long windowStart;
+
+	/**
+	 * Opens the given trace.
+	 * 
+	 * @param file
+	 *            a text or binary trace
+	 * @throws IOException
+	 *             if the trace cannot be read
+	 */
+	TraceReader(File file) throws IOException {
+		in = new FileInputStream(file);
+		channel = in.getChannel();
+		size = channel.size();
+		map(0);
+
+		byte[] magic = new byte[BinaryTrace.MAGIC.length];
+		if (size >= 16) {
+			window.get(magic);
+		}
+
+		if (Arrays.equals(magic, BinaryTrace.MAGIC)) {
+			binaryKind = read();
+			width = read();
+			read();
+			read();
+			int nameLength = (int) readBytes(4);
+			for (int i = 0; i < nameLength; i++) {
+				read();
+			}
+		} else {
+			window.rewind();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Returns the value of the current token as a floating-point number.
+	 */
+	private double getDouble() {
+		return kind == FLOAT ? floatValue : (double) longValue;
+	}
+
+	/**
+	 * Returns the current token as it is printed in the trace.
+	 * 
+	 * @return the current token
+	 */
+	String getToken() {
+		if (binaryKind == -1) {
+			try {
+				return new String(line, 0, lineLength, "UTF-8");
+			} catch (IOException e) {
+				return new String(line, 0, lineLength);
+			}
+		}
+
+		switch (binaryKind) {
+		case BinaryTrace.BOOL:
+			return String.valueOf(longValue != 0);
+		case BinaryTrace.FLOAT:
+			return String.valueOf((float) floatValue);
+		case BinaryTrace.UINT:
+			if (longValue < 0) {
+				return BigInteger.valueOf(longValue).add(TWO_POW_64)
+						.toString();
+			}
+			// fall through
+		default:
+			return String.valueOf(longValue);
+		}
+	}
+
+	/**
+	 * Maps the window of the file that starts at the given position.
+	 */
+	private void map(long position) throws IOException {
+		windowStart = position;
+		window = channel.map(MapMode.READ_ONLY, position,
+				Math.min(WINDOW_SIZE, size - position));
+	}
+
+	/**
+	 * Returns <code>true</code> if the current token of this trace has the
+	 * same value as the current token of the given trace. Booleans are equal
+	 * to the integers 0 and 1, and floats are compared with a tolerance.
+	 * 
+	 * @param other
+	 *            another trace
+	 * @return <code>true</code> if the current tokens are equal
+	 */
+	boolean matches(TraceReader other) {
+		if (binaryKind == -1 && other.binaryKind == -1
+				&& lineLength == other.lineLength) {
+			// most tokens are printed in the same way
+			int i = 0;
+			while (i < lineLength && line[i] == other.line[i]) {
+				i++;
+			}
+			if (i == lineLength) {
+				return true;
+			}
+		}
+
+		parse();
+		other.parse();
+		if (kind == INTEGER && other.kind == INTEGER) {
+			return longValue == other.longValue;
+		} else if (kind != TEXT && other.kind != TEXT) {
+			double a = getDouble();
+			double b = other.getDouble();
+			double magnitude = Math.max(1, Math.max(Math.abs(a), Math.abs(b)));
+			return a == b || Math.abs(a - b) <= FLOAT_TOLERANCE * magnitude;
+		} else {
+			return getToken().equals(other.getToken());
+		}
+	}
+
+	/**
+	 * Reads the next token of the trace.
+	 * 
+	 * @return <code>false</code> if the end of the trace has been reached
+	 * @throws IOException
+	 *             if the trace cannot be read
+	 */
+	boolean next() throws IOException {
+		if (binaryKind == -1) {
+			return nextLine();
+		}
+
+		if (windowStart + window.position() + width > size) {
+			return false;
+		}
+
+		long raw = readBytes(width);
+		switch (binaryKind) {
+		case BinaryTrace.BOOL:
+			kind = INTEGER;
+			longValue = raw != 0 ? 1 : 0;
+			break;
+		case BinaryTrace.FLOAT:
+			kind = FLOAT;
+			floatValue = Float.intBitsToFloat((int) raw);
+			break;
+		case BinaryTrace.INT:
+			// sign extension
+			int shift = 64 - 8 * width;
+			kind = INTEGER;
+			longValue = raw << shift >> shift;
+			break;
+		default:
+			kind = INTEGER;
+			longValue = raw;
+			break;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the next line of a text trace. Lines are parsed only if they are
+	 * not identical to the lines they are compared to.
+	 */
+	private boolean nextLine() throws IOException {
+		lineLength = 0;
+		parsed = false;
+
+		int b = read();
+		if (b == -1) {
+			return false;
+		}
+
+		while (b != -1 && b != '\n') {
+			if (lineLength == line.length) {
+				line = Arrays.copyOf(line, 2 * line.length);
+			}
+			line[lineLength++] = (byte) b;
+			b = read();
+		}
+
+		while (lineLength > 0
+				&& (line[lineLength - 1] == '\r' || line[lineLength - 1] == ' ')) {
+			lineLength--;
+		}
+		return true;
+	}
+
+	/**
+	 * Parses the current line of a text trace.
+	 */
+	private void parse() {
+		if (binaryKind != -1 || parsed) {
+			return;
+		}
+		parsed = true;
+
+		String token = getToken();
+		kind = TEXT;
+		if ("true".equals(token)) {
+			kind = INTEGER;
+			longValue = 1;
+		} else if ("false".equals(token)) {
+			kind = INTEGER;
+			longValue = 0;
+		} else if (token.matches("[+-]?\\d+")) {
+			BigInteger value = new BigInteger(token.startsWith("+") ? token
+					.substring(1) : token);
+			if (value.bitLength() <= 64) {
+				// unsigned 64-bit integers are compared by their bits
+				kind = INTEGER;
+				longValue = value.longValue();
+			}
+		} else if (token.matches("[+-]?[\\d.]+([eE][+-]?\\d+)?")) {
+			try {
+				floatValue = Double.parseDouble(token);
+				kind = FLOAT;
+			} catch (NumberFormatException e) {
+				// compared as text
+			}
+		}
+	}
+
+	/**
+	 * Returns the next byte of the file, or -1 at the end of the file.
+	 */
+	private int read() throws IOException {
+		if (!window.hasRemaining()) {
+			long position = windowStart + window.limit();
+			if (position >= size) {
+				return -1;
+			}
+			map(position);
+		}
+		return window.get() & 0xFF;
+	}
+
+	/**
+	 * Reads the given number of bytes as a little-endian unsigned integer.
+	 */
+	private long readBytes(int bytes) throws IOException {
+		long value = 0;
+		for (int i = 0; i < bytes; i++) {
+			value |= (long) read() << (8 * i);
+		}
+		return value;
+	}
+
+}
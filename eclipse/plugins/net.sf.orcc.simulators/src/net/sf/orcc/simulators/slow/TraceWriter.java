@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.slow;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.sf.orcc.ir.Type;
+
+/**
+ * This class defines the thread that writes the binary traces of the FIFOs of
+ * a simulation. Producers hand their full buffers to this thread, so that
+ * tracing only costs them a copy of the tokens.
+ * 
+ */
+public final class TraceWriter implements Runnable {
+
+	/**
+	 * This class defines a buffer to write to a trace.
+	 */
+	private static final class Chunk {
+
+		final ByteBuffer buffer;
+
+		final BinaryTrace trace;
+
+		Chunk(BinaryTrace trace, ByteBuffer buffer) {
+			this.trace = trace;
+			this.buffer = buffer;
+		}
+
+	}
+
+	/** marker of the end of the simulation */
+	private static final Chunk STOP = new Chunk(null, null);
+
+	private final String folderName;
+
+	private final BlockingQueue<Chunk> queue;
+
+	private final Thread thread;
+
+	/**
+	 * Creates a writer of the traces of the given folder, and starts its
+	 * thread.
+	 * 
+	 * @param folderName
+	 *            output traces folder
+	 */
+	public TraceWriter(String folderName) {
+		this.folderName = folderName;
+		queue = new LinkedBlockingQueue<Chunk>();
+		thread = new Thread(this, "Orcc trace writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the thread once the buffers submitted so far are written. The
+	 * traces must have been closed before.
+	 */
+	public void close() {
+		queue.add(STOP);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Creates the binary trace of a FIFO.
+	 * 
+	 * @param fifoName
+	 *            name of the FIFO (and the trace file)
+	 * @param type
+	 *            type of the tokens
+	 * @param width
+	 *            width of a token in bytes
+	 * @return a new trace
+	 */
+	BinaryTrace open(String fifoName, Type type, int width) {
+		File file = new File(folderName, fifoName + BinaryTrace.EXTENSION);
+		return new BinaryTrace(this, file, fifoName, type, width);
+	}
+
+	@Override
+	public void run() {
+		try {
+			Chunk chunk;
+			while ((chunk = queue.take()) != STOP) {
+				chunk.trace.write(chunk.buffer);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Queues the given buffer to be written to the given trace.
+	 * 
+	 * @param trace
+	 *            a trace
+	 * @param buffer
+	 *            a buffer filled with tokens
+	 */
+	void submit(BinaryTrace trace, ByteBuffer buffer) {
+		queue.add(new Chunk(trace, buffer));
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.util;
+
+import java.io.File;
+
+import net.sf.orcc.df.DfFactory;
+import net.sf.orcc.df.EntityResolver;
+import net.sf.orcc.df.Instance;
+import net.sf.orcc.df.Network;
+import net.sf.orcc.df.util.XdfParser;
+import net.sf.orcc.util.OrccUtil;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+
+/**
+ * This class defines an entity resolver for the networks loaded in a resource
+ * set created by {@link SearchPathURIConverter#createResourceSet(String)}.
+ * Entities are resolved to the .ir and .xdf files of the search path, and
+ * other networks are left to the other resolvers.
+ * 
+ */
+public class SearchPathResolver implements EntityResolver {
+
+	private static SearchPathResolver instance;
+
+	/**
+	 * Registers the resolver with the XDF parser, if it is not registered yet.
+	 */
+	static synchronized void register() {
+		if (instance == null) {
+			instance = new SearchPathResolver();
+			XdfParser.registerResolver(instance);
+		}
+	}
+
+	private SearchPathURIConverter converter;
+
+	private URI uri;
+
+	private SearchPathResolver() {
+	}
+
+	@Override
+	public void initialize(Resource resource) {
+		converter = null;
+		uri = resource.getURI();
+
+		ResourceSet set = resource.getResourceSet();
+		if (set != null
+				&& set.getURIConverter() instanceof SearchPathURIConverter) {
+			converter = (SearchPathURIConverter) set.getURIConverter();
+			uri = converter.normalize(uri);
+		}
+	}
+
+	@Override
+	public boolean resolve(Instance instance, String className) {
+		if (converter == null) {
+			return false;
+		}
+
+		EObject proxy;
+		File file = converter.getFile(className, OrccUtil.IR_SUFFIX);
+		if (file != null) {
+			proxy = DfFactory.eINSTANCE.createActor();
+		} else {
+			file = converter.getFile(className, OrccUtil.NETWORK_SUFFIX);
+			if (file != null) {
+				proxy = DfFactory.eINSTANCE.createNetwork();
+			} else {
+				return false;
+			}
+		}
+
+		// create proxy
+		URI proxyUri = URI.createFileURI(file.getPath()).appendFragment("/0");
+		instance.setEntity(proxy);
+		((InternalEObject) proxy).eSetProxyURI(proxyUri);
+
+		return true;
+	}
+
+	@Override
+	public boolean setClassName(Network network) {
+		if (converter == null) {
+			return false;
+		}
+
+		String qName = converter.getQualifiedName(uri);
+		if (qName == null) {
+			return false;
+		}
+
+		network.setName(qName);
+		return true;
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016, IETR/INSA of Rennes
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ *   * Redistributions of source code must retain the above copyright notice,
+ *     this list of conditions and the following disclaimer.
+ *   * Redistributions in binary form must reproduce the above copyright notice,
+ *     this list of conditions and the following disclaimer in the documentation
+ *     and/or other materials provided with the distribution.
+ *   * Neither the name of the IETR/INSA of Rennes nor the names of its
+ *     contributors may be used to endorse or promote products derived from this
+ *     software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package net.sf.orcc.simulators.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.orcc.df.DfPackage;
+import net.sf.orcc.df.impl.XdfResourceFactoryImpl;
+import net.sf.orcc.graph.GraphPackage;
+import net.sf.orcc.ir.IrPackage;
+import net.sf.orcc.ir.impl.IrResourceFactoryImpl;
+import net.sf.orcc.moc.MocPackage;
+import net.sf.orcc.util.OrccUtil;
+import net.sf.orcc.util.UtilPackage;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ExtensibleURIConverterImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+
+/**
+ * This class defines a URI converter that finds .xdf and .ir files in the
+ * folders of a search path, outside of any workspace. Platform URIs, and file
+ * URIs of missing files, such as the references between IR files serialized
+ * in a workspace, are mapped to the first file of the search path whose path
+ * ends with the same segments.
+ * 
+ */
+public class SearchPathURIConverter extends ExtensibleURIConverterImpl {
+
+	/**
+	 * Creates a resource set that loads networks and actors from the given
+	 * search path. The resource factories and packages of the IR are
+	 * registered in the resource set, so that neither OSGi nor a workspace is
+	 * needed.
+	 * 
+	 * @param searchPath
+	 *            folders separated by the path separator of the platform
+	 * @return a new resource set
+	 */
+	public static ResourceSet createResourceSet(String searchPath) {
+		SearchPathResolver.register();
+
+		ResourceSet set = new ResourceSetImpl();
+		set.setURIConverter(new SearchPathURIConverter(searchPath));
+
+		Map<String, Object> factories = set.getResourceFactoryRegistry()
+				.getExtensionToFactoryMap();
+		factories.put(OrccUtil.IR_SUFFIX, new IrResourceFactoryImpl());
+		factories.put(OrccUtil.NETWORK_SUFFIX, new XdfResourceFactoryImpl());
+
+		EPackage.Registry packages = set.getPackageRegistry();
+		packages.put(DfPackage.eNS_URI, DfPackage.eINSTANCE);
+		packages.put(GraphPackage.eNS_URI, GraphPackage.eINSTANCE);
+		packages.put(IrPackage.eNS_URI, IrPackage.eINSTANCE);
+		packages.put(MocPackage.eNS_URI, MocPackage.eINSTANCE);
+		packages.put(UtilPackage.eNS_URI, UtilPackage.eINSTANCE);
+
+		return set;
+	}
+
+	private final List<File> folders;
+
+	/** files found for the URIs that have already been normalized */
+	private final Map<URI, URI> normalized;
+
+	/**
+	 * Creates a converter for the given search path.
+	 * 
+	 * @param searchPath
+	 *            folders separated by the path separator of the platform
+	 */
+	public SearchPathURIConverter(String searchPath) {
+		folders = new ArrayList<File>();
+		for (String folder : searchPath.split(File.pathSeparator)) {
+			if (!folder.trim().isEmpty()) {
+				folders.add(new File(folder.trim()).getAbsoluteFile());
+			}
+		}
+		normalized = new HashMap<URI, URI>();
+	}
+
+	/**
+	 * Returns the first file of the search path that has the given qualified
+	 * name and the given extension.
+	 * 
+	 * @param qualifiedName
+	 *            qualified name of an entity
+	 * @param extension
+	 *            extension of the file
+	 * @return a file, or <code>null</code> if none is found
+	 */
+	public File getFile(String qualifiedName, String extension) {
+		String path = qualifiedName.replace('.', File.separatorChar) + "."
+				+ extension;
+		for (File folder : folders) {
+			File file = new File(folder, path);
+			if (file.isFile()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the qualified name of the given file, i.e. qualified.name.of.File
+	 * for <code>folder/qualified/name/of/File.fileExt</code> where
+	 * <code>folder</code> is in the search path.
+	 * 
+	 * @param uri
+	 *            URI of a file
+	 * @return a qualified name, or <code>null</code> if the file is not in the
+	 *         search path
+	 */
+	public String getQualifiedName(URI uri) {
+		if (!uri.isFile()) {
+			return null;
+		}
+
+		String path = new File(uri.toFileString()).getAbsolutePath();
+		for (File folder : folders) {
+			String prefix = folder.getPath() + File.separator;
+			if (path.startsWith(prefix)) {
+				String name = path.substring(prefix.length());
+				int index = name.lastIndexOf('.');
+				if (index != -1) {
+					name = name.substring(0, index);
+				}
+				return name.replace(File.separatorChar, '.');
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public URI normalize(URI uri) {
+		if (uri.isPlatformResource()
+				|| (uri.isFile() && !new File(uri.toFileString()).exists())) {
+			URI trimmed = uri.trimFragment();
+			URI file = normalized.get(trimmed);
+			if (file == null) {
+				file = findFile(trimmed);
+				normalized.put(trimmed, file);
+			}
+
+			if (file != trimmed) {
+				return uri.hasFragment() ? file.appendFragment(uri.fragment())
+						: file;
+			}
+		}
+		return super.normalize(uri);
+	}
+
+	/**
+	 * Returns the URI of the first file of the search path whose path ends
+	 * with the longest suffix of the segments of the given URI, or the given
+	 * URI if there is none. The first segments of a platform URI, "resource"
+	 * and the name of a project, are never part of the suffix.
+	 */
+	private URI findFile(URI uri) {
+		String[] segments = uri.segments();
+		int first = uri.isPlatformResource() ? 2 : 0;
+		for (int i = first; i < segments.length; i++) {
+			StringBuilder path = new StringBuilder();
+			for (int j = i; j < segments.length; j++) {
+				path.append(File.separatorChar).append(
+						URI.decode(segments[j]));
+			}
+
+			for (File folder : folders) {
+				File file = new File(folder, path.toString());
+				if (file.isFile()) {
+					return URI.createFileURI(file.getPath());
+				}
+			}
+		}
+		return uri;
+	}
+
+}
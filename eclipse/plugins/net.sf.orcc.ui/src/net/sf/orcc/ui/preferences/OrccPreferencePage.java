@@ -28,6 +28,7 @@
  */
 package net.sf.orcc.ui.preferences;
 
+import static net.sf.orcc.preferences.PreferenceConstants.P_BINARY_IR;
 import static net.sf.orcc.preferences.PreferenceConstants.P_JADE;
 import static net.sf.orcc.preferences.PreferenceConstants.P_SOLVER;
 import static net.sf.orcc.preferences.PreferenceConstants.P_SOLVER_OPTIONS;
@@ -36,6 +37,7 @@ import net.sf.orcc.OrccActivator;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.jface.preference.FileFieldEditor;
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -124,6 +126,25 @@ public class OrccPreferencePage extends FieldEditorPreferencePage implements
 
 		createJadeFieldEditors(parent);
 		createSolverFieldEditors(parent);
+		createIrFieldEditors(parent);
+	}
+
+	/**
+	 * Creates field editors for the IR preferences.
+	 * 
+	 * @param parent
+	 *            parent composite
+	 */
+	private void createIrFieldEditors(Composite parent) {
+		Group group = new Group(parent, SWT.NONE);
+		group.setFont(getFont());
+		group.setLayout(new GridLayout(1, false));
+		group.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
+		group.setText("Intermediate representation");
+
+		addField(new BooleanFieldEditor(P_BINARY_IR,
+				"Save IR files in compact binary format (faster to load)",
+				group));
 	}
 
 	/**